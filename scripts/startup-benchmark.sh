@@ -0,0 +1,114 @@
+#!/usr/bin/env bash
+#
+# Compares startup time and memory of the build artifacts that exist under target/:
+#
+#   jar     target/reverseip-*.jar                  ./mvnw package
+#   cds     target/cds (AOT + AppCDS archive)       ./mvnw -Pcds package
+#   native  target/reverseip (GraalVM executable)   ./mvnw -Pnative native:compile
+#
+# Each is started RUNS times (default 5). Startup is the wall-clock time from launch to the
+# first successful response from /ip; RSS is the resident set size right after it.
+#
+# Usage: scripts/startup-benchmark.sh [runs]
+
+set -euo pipefail
+
+RUNS=${1:-5}
+PORT=${PORT:-18888}
+MANAGEMENT_PORT=${MANAGEMENT_PORT:-18889}
+JAVA=${JAVA:-java}
+TIMEOUT_SECONDS=${TIMEOUT_SECONDS:-60}
+
+cd "$(dirname "$0")/.."
+TARGET=$PWD/target
+
+APP_ARGS=(
+    "--server.port=$PORT"
+    "--management.server.port=$MANAGEMENT_PORT"
+    "--publicip.access-log.enabled=false"
+    "--publicip.rate-limit.enabled=false"
+)
+
+now_ms() {
+    echo $(($(date +%s%N) / 1000000))
+}
+
+rss_kb() {
+    if [[ -r /proc/$1/status ]]; then
+        awk '/^VmRSS:/ { print $2 }' "/proc/$1/status"
+    else
+        ps -o rss= -p "$1" | tr -d ' '
+    fi
+}
+
+median() {
+    sort -n | awk '{ v[NR] = $1 } END { print (NR % 2) ? v[(NR + 1) / 2] : int((v[NR / 2] + v[NR / 2 + 1]) / 2) }'
+}
+
+# Starts the command in the given directory, waits for /ip, and prints "<startup ms> <rss KB>".
+measure() {
+    local dir=$1
+    shift
+    local start pid elapsed rss
+    start=$(now_ms)
+    (cd "$dir" && exec "$@" "${APP_ARGS[@]}") >/dev/null 2>&1 &
+    pid=$!
+    until curl -fs -o /dev/null "http://127.0.0.1:$PORT/ip"; do
+        if ! kill -0 "$pid" 2>/dev/null; then
+            echo "process exited before serving: $*" >&2
+            return 1
+        fi
+        if (($(now_ms) - start > TIMEOUT_SECONDS * 1000)); then
+            kill "$pid"
+            echo "no response within ${TIMEOUT_SECONDS}s: $*" >&2
+            return 1
+        fi
+        sleep 0.01
+    done
+    elapsed=$(($(now_ms) - start))
+    rss=$(rss_kb "$pid")
+    kill "$pid"
+    wait "$pid" 2>/dev/null || true
+    echo "$elapsed $rss"
+}
+
+benchmark() {
+    local name=$1 dir=$2
+    shift 2
+    local results=() i
+    for ((i = 0; i < RUNS; i++)); do
+        results+=("$(measure "$dir" "$@")")
+    done
+    local startup rss
+    startup=$(printf '%s\n' "${results[@]}" | cut -d' ' -f1 | median)
+    rss=$(printf '%s\n' "${results[@]}" | cut -d' ' -f2 | median)
+    printf '%-8s %6d %10d %10d\n' "$name" "$RUNS" "$startup" $((rss / 1024))
+}
+
+if ! command -v curl >/dev/null; then
+    echo "curl is required" >&2
+    exit 1
+fi
+
+printf '%-8s %6s %10s %10s\n' artifact runs startup-ms rss-mb
+
+jar=$(ls "$TARGET"/reverseip-*.jar 2>/dev/null | grep -v -- '-plain\.jar$' | head -n 1 || true)
+if [[ -n $jar ]]; then
+    benchmark jar "$TARGET" "$JAVA" -jar "$jar"
+else
+    echo "jar      not built (./mvnw package)"
+fi
+
+if [[ -f $TARGET/cds/application.jsa ]]; then
+    cds_jar=$(cd "$TARGET/cds" && ls reverseip-*.jar | head -n 1)
+    benchmark cds "$TARGET/cds" "$JAVA" -XX:SharedArchiveFile=application.jsa -Dspring.aot.enabled=true \
+        -jar "$cds_jar"
+else
+    echo "cds      not built (./mvnw -Pcds package)"
+fi
+
+if [[ -x $TARGET/reverseip ]]; then
+    benchmark native "$TARGET" "$TARGET/reverseip"
+else
+    echo "native   not built (./mvnw -Pnative native:compile)"
+fi
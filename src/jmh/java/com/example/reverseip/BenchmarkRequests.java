@@ -0,0 +1,44 @@
+package com.example.reverseip;
+
+import org.springframework.mock.web.MockHttpServletRequest;
+
+/**
+ * Realistic requests for benchmarks: a browser header set behind the reverse proxy,
+ * padded with extra headers up to the requested count.
+ */
+final class BenchmarkRequests {
+    private BenchmarkRequests() {
+    }
+
+    static MockHttpServletRequest browser(String clientIp, int headerCount) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/");
+        request.setRemoteAddr("127.0.0.1");
+        request.setRemoteHost("127.0.0.1");
+        request.setRemotePort(54321);
+        request.setServerName("publicip.org");
+        request.setServerPort(443);
+        request.setScheme("https");
+        request.setProtocol("HTTP/1.1");
+
+        String[][] headers = {
+                {"host", "publicip.org"},
+                {"user-agent", "Mozilla/5.0 (X11; Linux x86_64; rv:128.0) Gecko/20100101 Firefox/128.0"},
+                {"accept", "text/html,application/xhtml+xml,application/xml;q=0.9,*/*;q=0.8"},
+                {"accept-language", "en-US,en;q=0.5"},
+                {"accept-encoding", "gzip, deflate, br, zstd"},
+                {"x-forwarded-for", clientIp + ", 10.0.0.2"},
+                {"x-forwarded-proto", "https"},
+                {"upgrade-insecure-requests", "1"},
+                {"sec-fetch-dest", "document"},
+                {"sec-fetch-mode", "navigate"},
+        };
+        for (int i = 0; i < headerCount; i++) {
+            if (i < headers.length) {
+                request.addHeader(headers[i][0], headers[i][1]);
+            } else {
+                request.addHeader("x-extra-header-" + i, "value-" + i + "-abcdefghijklmnopqrstuvwxyz");
+            }
+        }
+        return request;
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.reverseip;
+
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+/**
+ * A response that counts and discards the body. {@link MockHttpServletResponse}'s own stream
+ * copies and flushes one byte at a time, which would dwarf the code being measured.
+ */
+final class BenchmarkResponse extends MockHttpServletResponse {
+    private final CountingOutputStream body = new CountingOutputStream();
+
+    @Override
+    public ServletOutputStream getOutputStream() {
+        return body;
+    }
+
+    /** Clears headers and the byte count so the response can serve the next invocation. */
+    void clear() {
+        setCommitted(false);
+        reset();
+        body.count = 0;
+    }
+
+    long bodyLength() {
+        return body.count;
+    }
+
+    private static final class CountingOutputStream extends ServletOutputStream {
+        long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+
+        @Override
+        public boolean isReady() {
+            return true;
+        }
+
+        @Override
+        public void setWriteListener(WriteListener listener) {
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.reverseip;
+
+import io.micrometer.prometheusmetrics.PrometheusConfig;
+import io.micrometer.prometheusmetrics.PrometheusMeterRegistry;
+import jakarta.servlet.FilterChain;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.web.MockHttpServletRequest;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Client address detection ({@link ClientAddressFilter}, the former {@code getClientIp}) and
+ * reverse pointer construction for IPv4 and IPv6 clients.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ClientAddressBenchmark {
+    @Param({"203.0.113.42", "2001:db8:85a3::8a2e:370:7334"})
+    String clientIp;
+
+    @Param({"10", "30", "100"})
+    int headerCount;
+
+    private final ClientAddressFilter filter = new ClientAddressFilter(
+            new ProxyProperties(List.of("127.0.0.1/32", "::1/128", "10.0.0.0/8")),
+            new RequestMetrics(new PrometheusMeterRegistry(PrometheusConfig.DEFAULT)));
+    private final BenchmarkResponse response = new BenchmarkResponse();
+    private final FilterChain chain = (request, response) -> { };
+
+    private MockHttpServletRequest request;
+    private String forwardedFor;
+    private String forwarded;
+    private IpAddress client;
+
+    @Setup
+    public void setUp() {
+        request = BenchmarkRequests.browser(clientIp, headerCount);
+        forwardedFor = request.getHeader("X-Forwarded-For");
+        forwarded = "for=\"" + (clientIp.indexOf(':') >= 0 ? "[" + clientIp + "]" : clientIp)
+                + "\";proto=https, for=10.0.0.2;proto=https";
+        client = IpAddress.parse(clientIp);
+    }
+
+    @Benchmark
+    public Object filter() throws Exception {
+        filter.doFilter(request, response, chain);
+        return request.getAttribute(ClientAddressFilter.CLIENT_ADDRESS);
+    }
+
+    @Benchmark
+    public IpAddress walkForwardedFor() {
+        return filter.walkForwardedFor(forwardedFor, IpAddress.ofIpv4(0x7F000001));
+    }
+
+    @Benchmark
+    public IpAddress walkForwarded() {
+        return filter.walkForwarded(forwarded, IpAddress.ofIpv4(0x7F000001));
+    }
+
+    @Benchmark
+    public IpAddress parse() {
+        return IpAddress.parse(clientIp);
+    }
+
+    @Benchmark
+    public String reversePointer() {
+        return client.reversePointer();
+    }
+}
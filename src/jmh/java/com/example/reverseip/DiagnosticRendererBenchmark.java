@@ -0,0 +1,161 @@
+package com.example.reverseip;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.apache.tomcat.util.http.MimeHeaders;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.util.unit.DataSize;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the {@link DiagnosticRenderer} against the original {@code String.format}
+ * based section builders, and measures each section on its own. Run with {@code -prof gc}
+ * to see bytes allocated per op. The header limits are set above {@code headerCount}, so
+ * every header is rendered.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DiagnosticRendererBenchmark {
+    @Param({"10", "30", "100"})
+    int headerCount;
+
+    private HttpServletRequest request;
+    private RequestInfo info;
+    private HeaderProperties limits;
+    private RequestHeaders headers;
+    private MimeHeaders mimeHeaders;
+    private final Instant timestamp = Instant.parse("2025-12-18T14:58:00Z");
+    private final StringBuilder section = new StringBuilder(16 * 1024);
+
+    @Setup
+    public void setUp() {
+        request = BenchmarkRequests.browser("203.0.113.42", headerCount);
+        limits = new HeaderProperties(headerCount, DataSize.ofKilobytes(64));
+        headers = RequestHeaders.capture(request, limits);
+        request.setAttribute(RequestHeaders.ATTRIBUTE, headers);
+        info = RequestInfo.of(request);
+
+        // As Tomcat's HTTP/1.1 parser leaves them: every name and value in one buffer
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        for (String name : Collections.list(request.getHeaderNames())) {
+            buffer.writeBytes((name + request.getHeader(name)).getBytes(StandardCharsets.ISO_8859_1));
+        }
+        byte[] bytes = buffer.toByteArray();
+        mimeHeaders = new MimeHeaders();
+        int offset = 0;
+        for (String name : Collections.list(request.getHeaderNames())) {
+            int valueLength = request.getHeader(name).length();
+            mimeHeaders.addValue(bytes, offset, name.length()).setBytes(bytes, offset + name.length(), valueLength);
+            offset += name.length() + valueLength;
+        }
+    }
+
+    @Benchmark
+    public int renderer() {
+        return DiagnosticRenderer.render(info, "203.0.113.42", "42.113.0.203.in-addr.arpa", null, null, timestamp)
+                .fullDiagnostics().length();
+    }
+
+    @Benchmark
+    public int ipSection() {
+        section.setLength(0);
+        DiagnosticRenderer.appendIpSection(section, info, "203.0.113.42", "42.113.0.203.in-addr.arpa", null, null);
+        return section.length();
+    }
+
+    @Benchmark
+    public int connectionSection() {
+        section.setLength(0);
+        DiagnosticRenderer.appendConnectionSection(section, info);
+        return section.length();
+    }
+
+    @Benchmark
+    public int headersSection() {
+        section.setLength(0);
+        DiagnosticRenderer.appendHeadersSection(section, headers);
+        return section.length();
+    }
+
+    /** The headers section including taking the snapshot from Tomcat's parsed headers. */
+    @Benchmark
+    public int capturedHeadersSection() {
+        section.setLength(0);
+        DiagnosticRenderer.appendHeadersSection(section, RequestHeaders.capture(mimeHeaders, limits));
+        return section.length();
+    }
+
+    @Benchmark
+    public int stringFormat() {
+        StringBuilder diagnostics = new StringBuilder();
+        diagnostics.append("╔════════════════════════════════════════════════════════════════╗\n");
+        diagnostics.append("║               IP ADDRESS DIAGNOSTIC TOOL                       ║\n");
+        diagnostics.append("╚════════════════════════════════════════════════════════════════╝\n\n");
+        diagnostics.append(formatIpSection(request, "203.0.113.42", "42.113.0.203.in-addr.arpa")).append("\n\n");
+        diagnostics.append(formatConnectionSection(request)).append("\n\n");
+        diagnostics.append(formatHeadersSection(request)).append("\n\n");
+        diagnostics.append(String.format("╭─ Timestamp: %s ─╮\n", timestamp.toString()));
+        return diagnostics.toString().length();
+    }
+
+    private static String formatIpSection(HttpServletRequest request, String clientIp, String reversePointer) {
+        StringBuilder section = new StringBuilder();
+        section.append("┌─ IP INFORMATION ────────────────────────────────────────────┐\n");
+        section.append(String.format("│ Detected IP:        %s\n", clientIp));
+        section.append(String.format("│ Reverse Pointer:    %s\n", reversePointer));
+        String forwardedFor = request.getHeader("X-Forwarded-For");
+        if (forwardedFor != null && !forwardedFor.isEmpty()) {
+            section.append(String.format("│ X-Forwarded-For:    %s\n", forwardedFor));
+        }
+        section.append(String.format("│ Remote Address:     %s\n", request.getRemoteAddr()));
+        section.append(String.format("│ Remote Host:        %s\n", request.getRemoteHost()));
+        section.append(String.format("│ Remote Port:        %d\n", request.getRemotePort()));
+        section.append("└─────────────────────────────────────────────────────────────┘");
+        return section.toString();
+    }
+
+    private static String formatConnectionSection(HttpServletRequest request) {
+        StringBuilder section = new StringBuilder();
+        section.append("┌─ CONNECTION DETAILS ────────────────────────────────────────┐\n");
+        section.append(String.format("│ Protocol:           %s\n", request.getProtocol()));
+        section.append(String.format("│ Method:             %s\n", request.getMethod()));
+        section.append(String.format("│ Scheme:             %s\n", request.getScheme()));
+        section.append(String.format("│ Server Name:        %s\n", request.getServerName()));
+        section.append(String.format("│ Server Port:        %d\n", request.getServerPort()));
+        section.append(String.format("│ Request URI:        %s\n", request.getRequestURI()));
+        if (request.getQueryString() != null) {
+            section.append(String.format("│ Query String:       %s\n", request.getQueryString()));
+        }
+        section.append("└─────────────────────────────────────────────────────────────┘");
+        return section.toString();
+    }
+
+    private static String formatHeadersSection(HttpServletRequest request) {
+        StringBuilder section = new StringBuilder();
+        section.append("┌─ HTTP HEADERS ──────────────────────────────────────────────┐\n");
+        var headerNames = request.getHeaderNames();
+        while (headerNames.hasMoreElements()) {
+            String headerName = headerNames.nextElement();
+            section.append(String.format("│ %-18s: %s\n", headerName, request.getHeader(headerName)));
+        }
+        section.append("└─────────────────────────────────────────────────────────────┘");
+        return section.toString();
+    }
+}
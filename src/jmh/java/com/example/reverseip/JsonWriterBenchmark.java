@@ -0,0 +1,53 @@
+package com.example.reverseip;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Escaping the rendered Classic View text into JSON: the streaming {@link JsonWriter}
+ * against the original chain of five {@code String.replace} calls.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JsonWriterBenchmark {
+    @Param({"10", "30", "100"})
+    int headerCount;
+
+    private String fullDiagnostics;
+
+    @Setup
+    public void setUp() {
+        RequestInfo request = RequestInfo.of(BenchmarkRequests.browser("203.0.113.42", headerCount));
+        fullDiagnostics = DiagnosticRenderer.render(request, "203.0.113.42", "42.113.0.203.in-addr.arpa", null, null,
+                Instant.now()).fullDiagnostics().toString();
+    }
+
+    @Benchmark
+    public int streaming() {
+        return JsonWriter.forCurrentThread().string(fullDiagnostics).result().length();
+    }
+
+    @Benchmark
+    public int chainedReplace() {
+        return String.format("\"%s\"", fullDiagnostics.replace("\\", "\\\\")
+                .replace("\"", "\\\"")
+                .replace("\n", "\\n")
+                .replace("\r", "\\r")
+                .replace("\t", "\\t")).length();
+    }
+}
@@ -0,0 +1,98 @@
+package com.example.reverseip;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.util.unit.DataSize;
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The diagnostic page per content coding: what compressing the HTML shell costs per
+ * response, and (printed at the end of each trial) how many bytes go over the wire on a
+ * first visit, when the stylesheet and script are fetched too, and on a repeat visit, when
+ * they come from the browser cache.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PageCompressionBenchmark {
+    @Param({"identity", "gzip", "br"})
+    String acceptEncoding;
+
+    @Param({"compact", "full"})
+    String payload;
+
+    private final BenchmarkResponse response = new BenchmarkResponse();
+
+    private DiagnosticPage diagnosticPage;
+    private ReverseIpController controller;
+    private AssetController assets;
+    private PtrResolver ptrResolver;
+    private MockHttpServletRequest page;
+
+    @Setup
+    public void setUp() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        ptrResolver = new PtrResolver(new PtrProperties(false, Duration.ofMillis(250), 10_000, Duration.ofSeconds(60),
+                Duration.ofHours(1), Duration.ofMinutes(5), Duration.ofSeconds(30), List.of()), registry);
+        diagnosticPage = new DiagnosticPage();
+        RequestMetrics metrics = new RequestMetrics(registry);
+        controller = new ReverseIpController(new DiagnosticService(diagnosticPage,
+                new PageProperties(PageProperties.PayloadMode.COMPACT, true), ptrResolver,
+                new IpEnricher(new EnrichmentProperties(null, null, Duration.ofMinutes(1)), registry),
+                new FragmentCache(new FragmentCacheProperties(false, DataSize.ofMegabytes(16)), registry), metrics),
+                metrics);
+        assets = new AssetController(diagnosticPage, metrics);
+        page = request("/");
+        page.setParameter("payload", payload);
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        long html = page();
+        long assetBytes = 0;
+        for (DiagnosticPage.Asset asset : diagnosticPage.assets()) {
+            response.clear();
+            assets.getAsset(request(asset.path()), response);
+            assetBytes += response.bodyLength();
+        }
+        System.out.printf(Locale.ROOT, "%n%s/%s: first visit %d bytes (page %d + assets %d), repeat visit %d bytes%n",
+                payload, acceptEncoding, html + assetBytes, html, assetBytes, html);
+        ptrResolver.destroy();
+    }
+
+    private MockHttpServletRequest request(String path) {
+        MockHttpServletRequest request = BenchmarkRequests.browser("203.0.113.42", 10);
+        request.setRequestURI(path);
+        request.removeHeader("accept-encoding");
+        if (!acceptEncoding.equals("identity")) {
+            request.addHeader("accept-encoding", acceptEncoding);
+        }
+        request.setAttribute(ClientAddressFilter.CLIENT_ADDRESS, IpAddress.parse("203.0.113.42"));
+        return request;
+    }
+
+    @Benchmark
+    public long page() throws Exception {
+        response.clear();
+        controller.getReverseIp(page, response);
+        return response.bodyLength();
+    }
+}
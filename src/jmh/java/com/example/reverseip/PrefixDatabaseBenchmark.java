@@ -0,0 +1,101 @@
+package com.example.reverseip;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link PrefixDatabase} lookups against a synthetic dataset the size of iptoasn.com's
+ * combined file (about 500k IPv4 and 150k IPv6 ranges, 80k networks), for random addresses
+ * across the whole space, and the one-off cost of compiling the index.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PrefixDatabaseBenchmark {
+    private static final int IPV4_RANGES = 500_000;
+    private static final int IPV6_RANGES = 150_000;
+    private static final int NETWORKS = 80_000;
+    private static final int ADDRESSES = 1 << 16;
+
+    private final IpAddress[] addresses = new IpAddress[ADDRESSES];
+    private Path dir;
+    private Path source;
+    private PrefixDatabase database;
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next = new SplittableRandom().nextInt(ADDRESSES);
+    }
+
+    @Setup
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("prefix-benchmark");
+        source = dir.resolve("ranges.tsv");
+        SplittableRandom random = new SplittableRandom(42);
+        try (BufferedWriter out = Files.newBufferedWriter(source)) {
+            // Contiguous IPv4 ranges with gaps, roughly one per 8k addresses
+            long step = (1L << 32) / IPV4_RANGES;
+            for (long i = 0, start = 1L << 24; i < IPV4_RANGES - 1; i++, start += step) {
+                long end = start + 1 + random.nextLong(step - 2);
+                int asn = random.nextInt(NETWORKS);
+                out.write(IpAddress.ofIpv4((int) start) + "\t" + IpAddress.ofIpv4((int) end) + "\t" + asn
+                        + "\tUS\tNETWORK-" + asn + "\n");
+            }
+            for (long i = 0; i < IPV6_RANGES; i++) {
+                long high = 0x2000000000000000L + i * (1L << 40);
+                int asn = random.nextInt(NETWORKS);
+                out.write(IpAddress.ofIpv6(high, 0) + "\t" + IpAddress.ofIpv6(high | 0xFFFFFFFFL, -1L) + "\t" + asn
+                        + "\tDE\tNETWORK-" + asn + "\n");
+            }
+        }
+        database = PrefixDatabase.open(source, dir.resolve("ranges.idx"));
+        for (int i = 0; i < ADDRESSES; i++) {
+            addresses[i] = i % 4 == 0
+                    ? IpAddress.ofIpv6(0x2000000000000000L + random.nextLong(IPV6_RANGES * (1L << 40)),
+                    random.nextLong())
+                    : IpAddress.ofIpv4(random.nextInt());
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        try (var files = Files.list(dir)) {
+            for (Path file : files.toList()) {
+                Files.deleteIfExists(file);
+            }
+        }
+        Files.deleteIfExists(dir);
+    }
+
+    @Benchmark
+    public PrefixDatabase.Network lookup(Cursor cursor) {
+        return database.lookup(addresses[cursor.next++ & (ADDRESSES - 1)]);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 1)
+    @Measurement(iterations = 3)
+    public void compile() throws IOException {
+        PrefixDatabase.compile(source, dir.resolve("compiled.idx"));
+    }
+}
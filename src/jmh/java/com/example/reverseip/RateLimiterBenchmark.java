@@ -0,0 +1,72 @@
+package com.example.reverseip;
+
+import io.micrometer.prometheusmetrics.PrometheusConfig;
+import io.micrometer.prometheusmetrics.PrometheusMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import java.time.Duration;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The {@link RateLimiter} check with the default limits: a mostly-new client each time (the
+ * sketch under a spread of addresses) and one client polling over its limit, single-threaded
+ * and with four threads hitting the same sketches.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RateLimiterBenchmark {
+    private static final int CLIENTS = 1 << 16;
+
+    private final IpAddress[] clients = new IpAddress[CLIENTS];
+    private final IpAddress poller = IpAddress.parse("203.0.113.42");
+    private RateLimiter limiter;
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next = new SplittableRandom().nextInt(CLIENTS);
+    }
+
+    @Setup
+    public void setUp() {
+        limiter = new RateLimiter(new RateLimitProperties(true, Duration.ofMinutes(1),
+                List.of("ipv4/32=120", "ipv4/24=1200", "ipv6/64=120", "ipv6/48=1200"), List.of(), 32768, 4),
+                new PrometheusMeterRegistry(PrometheusConfig.DEFAULT));
+        SplittableRandom random = new SplittableRandom(42);
+        for (int i = 0; i < CLIENTS; i++) {
+            clients[i] = i % 4 == 0
+                    ? IpAddress.ofIpv6(0x20010db800000000L | random.nextInt(1 << 16), random.nextLong())
+                    : IpAddress.ofIpv4(random.nextInt());
+        }
+    }
+
+    @Benchmark
+    public long spreadOfClients(Cursor cursor) {
+        return limiter.acquire(clients[cursor.next++ & (CLIENTS - 1)]);
+    }
+
+    @Benchmark
+    public long limitedClient() {
+        return limiter.acquire(poller);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public long spreadOfClientsContended(Cursor cursor) {
+        return limiter.acquire(clients[cursor.next++ & (CLIENTS - 1)]);
+    }
+}
@@ -0,0 +1,131 @@
+package com.example.reverseip;
+
+import io.micrometer.prometheusmetrics.PrometheusConfig;
+import io.micrometer.prometheusmetrics.PrometheusMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.util.unit.DataSize;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The controller end to end, from request to response bytes: the HTML page in both payload
+ * modes, the {@code /json} and {@code /ip} endpoints, and the page's diagnostic JSON on its
+ * own. The response body is counted and discarded. The browser requests accept Brotli, so
+ * the page benchmarks include compressing it; {@link PageCompressionBenchmark} compares codings.
+ * With {@code fragmentCache}, every request after the first is a {@link FragmentCache} hit.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ReverseIpControllerBenchmark {
+    @Param({"10", "30", "100"})
+    int headerCount;
+
+    @Param({"203.0.113.42", "2001:db8:85a3::8a2e:370:7334"})
+    String clientIp;
+
+    @Param({"true", "false"})
+    boolean fragmentCache;
+
+    private final Instant timestamp = Instant.parse("2025-12-18T14:58:00Z");
+    private final BenchmarkResponse response = new BenchmarkResponse();
+
+    private DiagnosticService service;
+    private ReverseIpController controller;
+    private PtrResolver ptrResolver;
+    private MockHttpServletRequest compactPage;
+    private MockHttpServletRequest fullPage;
+    private IpAddress client;
+    private String reversePointer;
+
+    @Setup
+    public void setUp() {
+        // The registry the application runs with, so the metrics' own cost is part of each op
+        PrometheusMeterRegistry registry = new PrometheusMeterRegistry(PrometheusConfig.DEFAULT);
+        ptrResolver = new PtrResolver(new PtrProperties(false, Duration.ofMillis(250), 10_000, Duration.ofSeconds(60),
+                Duration.ofHours(1), Duration.ofMinutes(5), Duration.ofSeconds(30), List.of()), registry);
+        RequestMetrics metrics = new RequestMetrics(registry);
+        service = new DiagnosticService(new DiagnosticPage(),
+                new PageProperties(PageProperties.PayloadMode.COMPACT, true), ptrResolver,
+                new IpEnricher(new EnrichmentProperties(null, null, Duration.ofMinutes(1)), registry),
+                new FragmentCache(new FragmentCacheProperties(fragmentCache, DataSize.ofMegabytes(16)), registry),
+                metrics);
+        controller = new ReverseIpController(service, metrics);
+
+        compactPage = request();
+        fullPage = request();
+        fullPage.setParameter("payload", "full");
+        client = IpAddress.parse(clientIp);
+        reversePointer = client.reversePointer();
+    }
+
+    @TearDown
+    public void tearDown() {
+        ptrResolver.destroy();
+    }
+
+    private MockHttpServletRequest request() {
+        MockHttpServletRequest request = BenchmarkRequests.browser(clientIp, headerCount);
+        request.setAttribute(ClientAddressFilter.CLIENT_ADDRESS, IpAddress.parse(clientIp));
+        return request;
+    }
+
+    @Benchmark
+    public long compactPage() throws Exception {
+        response.clear();
+        controller.getReverseIp(compactPage, response);
+        return response.bodyLength();
+    }
+
+    @Benchmark
+    public long fullPage() throws Exception {
+        response.clear();
+        controller.getReverseIp(fullPage, response);
+        return response.bodyLength();
+    }
+
+    @Benchmark
+    public long json() throws Exception {
+        response.clear();
+        controller.getJson(compactPage, response);
+        return response.bodyLength();
+    }
+
+    @Benchmark
+    public long ip() throws Exception {
+        response.clear();
+        controller.getIp(compactPage, response);
+        return response.bodyLength();
+    }
+
+    @Benchmark
+    public int diagnosticDataJson() {
+        JsonWriter json = service.buildDiagnosticDataJson(RequestInfo.of(compactPage), clientIp, reversePointer,
+                null, null, null, null, timestamp);
+        int length = json.result().length();
+        json.release();
+        return length;
+    }
+
+    @Benchmark
+    public String reversePointer() {
+        return service.getReversePointer(client);
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.reverseip;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import java.time.Duration;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Counting one request in the {@link TrafficAnalytics} with the default capacity: a mostly-new
+ * client each time (every ranking evicting its smallest entry) and one repeated client,
+ * single-threaded and with four threads sharing the counters and stripes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TrafficAnalyticsBenchmark {
+    private static final int CLIENTS = 1 << 16;
+    private static final String[] USER_AGENTS = {
+            "curl/8.5.0",
+            "Mozilla/5.0 (X11; Linux x86_64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/131.0.0.0 Safari/537.36",
+            "Mozilla/5.0 (iPhone; CPU iPhone OS 18_1 like Mac OS X) AppleWebKit/605.1.15 (KHTML, like Gecko)",
+            "Wget/1.21.4"};
+
+    private final IpAddress[] clients = new IpAddress[CLIENTS];
+    private final IpAddress poller = IpAddress.parse("203.0.113.42");
+    private TrafficAnalytics analytics;
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next = new SplittableRandom().nextInt(CLIENTS);
+    }
+
+    @Setup
+    public void setUp() {
+        analytics = new TrafficAnalytics(new TrafficProperties(true, Duration.ofMinutes(15), 20, 256, 200));
+        SplittableRandom random = new SplittableRandom(42);
+        for (int i = 0; i < CLIENTS; i++) {
+            clients[i] = i % 4 == 0
+                    ? IpAddress.ofIpv6(0x20010db800000000L | random.nextInt(1 << 16), random.nextLong())
+                    : IpAddress.ofIpv4(random.nextInt());
+        }
+    }
+
+    @Benchmark
+    public void spreadOfClients(Cursor cursor) {
+        int next = cursor.next++;
+        analytics.record(clients[next & (CLIENTS - 1)], USER_AGENTS[next & 3], "HTTP/1.1", "https");
+    }
+
+    @Benchmark
+    public void repeatedClient() {
+        analytics.record(poller, USER_AGENTS[0], "HTTP/1.1", "https");
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void spreadOfClientsContended(Cursor cursor) {
+        int next = cursor.next++;
+        analytics.record(clients[next & (CLIENTS - 1)], USER_AGENTS[next & 3], "HTTP/1.1", "https");
+    }
+}
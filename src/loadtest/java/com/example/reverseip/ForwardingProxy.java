@@ -0,0 +1,128 @@
+package com.example.reverseip;
+
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+
+/**
+ * Stand-in for the nginx or Apache reverse proxy in front of the application, configured as
+ * in the README: it appends the peer's address to {@code X-Forwarded-For} (nginx's
+ * {@code $proxy_add_x_forwarded_for}), and sets {@code X-Real-IP}, {@code X-Forwarded-Proto:
+ * https} and {@code X-Forwarded-Host}, then forwards from 127.0.0.1, the trusted proxy in
+ * {@code application.properties}.
+ *
+ * <p>Every simulated client connects from the load generator, so a client names the address
+ * it stands for in {@value #PEER_HEADER}; the proxy uses it as the peer and strips it.
+ */
+final class ForwardingProxy implements AutoCloseable {
+    static final String PEER_HEADER = "X-Loadtest-Peer";
+
+    /** Not forwarded: hop-by-hop headers, and those the proxy sets itself. */
+    private static final Set<String> DROPPED_REQUEST_HEADERS = Set.of("connection", "keep-alive", "host",
+            "content-length", "transfer-encoding", "upgrade", "expect", "te", "proxy-connection",
+            "x-real-ip", "x-forwarded-proto", "x-forwarded-host", PEER_HEADER.toLowerCase(Locale.ROOT));
+    private static final Set<String> DROPPED_RESPONSE_HEADERS = Set.of(":status", "connection", "keep-alive",
+            "content-length", "transfer-encoding", "date");
+
+    private final HttpServer server;
+    private final HttpClient upstream;
+    private final String target;
+
+    ForwardingProxy(int upstreamPort) throws IOException {
+        this.target = "http://127.0.0.1:" + upstreamPort;
+        this.upstream = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 4096);
+        server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        server.createContext("/", this::forward);
+        server.start();
+    }
+
+    int port() {
+        return server.getAddress().getPort();
+    }
+
+    private void forward(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            Headers incoming = exchange.getRequestHeaders();
+            String peer = incoming.getFirst(PEER_HEADER);
+            if (peer == null) {
+                peer = exchange.getRemoteAddress().getAddress().getHostAddress();
+            }
+            String forwardedFor = incoming.getFirst("X-Forwarded-For");
+            String host = incoming.getFirst("Host");
+
+            HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(target + exchange.getRequestURI()))
+                    .timeout(Duration.ofSeconds(60));
+            for (Map.Entry<String, List<String>> header : incoming.entrySet()) {
+                String name = header.getKey().toLowerCase(Locale.ROOT);
+                if (!DROPPED_REQUEST_HEADERS.contains(name) && !name.equals("x-forwarded-for")) {
+                    for (String value : header.getValue()) {
+                        request.header(header.getKey(), value);
+                    }
+                }
+            }
+            request.header("X-Forwarded-For", forwardedFor == null ? peer : forwardedFor + ", " + peer)
+                    .header("X-Real-IP", peer)
+                    .header("X-Forwarded-Proto", "https");
+            if (host != null) {
+                request.header("X-Forwarded-Host", host);
+            }
+            byte[] body = exchange.getRequestBody().readAllBytes();
+            request.method(exchange.getRequestMethod(), body.length == 0
+                    ? HttpRequest.BodyPublishers.noBody()
+                    : HttpRequest.BodyPublishers.ofByteArray(body));
+
+            HttpResponse<byte[]> response;
+            try {
+                response = upstream.send(request.build(), HttpResponse.BodyHandlers.ofByteArray());
+            } catch (IOException e) {
+                exchange.sendResponseHeaders(502, -1);
+                return;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                exchange.sendResponseHeaders(502, -1);
+                return;
+            }
+            Headers outgoing = exchange.getResponseHeaders();
+            response.headers().map().forEach((name, values) -> {
+                if (!DROPPED_RESPONSE_HEADERS.contains(name.toLowerCase(Locale.ROOT))) {
+                    outgoing.put(name, values);
+                }
+            });
+            byte[] responseBody = response.body();
+            int status = response.statusCode();
+            boolean empty = responseBody.length == 0 || status == 204 || status == 304
+                    || exchange.getRequestMethod().equals("HEAD");
+            exchange.sendResponseHeaders(status, empty ? -1 : responseBody.length);
+            if (!empty) {
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(responseBody);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        upstream.close();
+    }
+}
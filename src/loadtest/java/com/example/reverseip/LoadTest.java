@@ -0,0 +1,389 @@
+package com.example.reverseip;
+
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Closed-loop load test comparing Tomcat's platform thread pool, virtual threads and the
+ * reactive Reactor Netty stack. For each mode the application is started on a random port and
+ * hammered by N concurrent clients, each sending its next request as soon as the previous one
+ * completes. Throughput and latency percentiles are printed per mode and concurrency level.
+ *
+ * <p>To model blocking I/O, PTR lookups are enabled against an in-process DNS stand-in that
+ * answers NXDOMAIN after {@code --dns-delay}. Every request forwards a random client address
+ * so each one misses the PTR cache and waits that long: on a request thread for the servlet
+ * modes, without one for the reactive mode.
+ *
+ * <p>With {@code --held=N}, N more connections are opened before measuring and kept open
+ * throughout, each polling {@code /ip} every {@code --hold-interval} like an idle browser tab;
+ * the {@code held} column is how many the server still had open at the end of each run.
+ *
+ * <pre>
+ * ./mvnw -Ploadtest test-compile exec:exec -Dloadtest.args="--concurrency=50,200,800 --duration=15s"
+ * ./mvnw -Ploadtest test-compile exec:exec -Dloadtest.args="--held=10000 --concurrency=64 --modes=platform,reactive"
+ * </pre>
+ */
+public final class LoadTest {
+
+    public static void main(String[] args) throws Exception {
+        Options options = Options.parse(args);
+        // DevTools would relaunch main() in a restart class loader without our arguments
+        System.setProperty("spring.devtools.restart.enabled", "false");
+        System.out.printf(Locale.ROOT, "path=%s dns-delay=%dms duration=%ds warmup=%ds held=%d%n", options.path,
+                options.dnsDelay.toMillis(), options.duration.toSeconds(), options.warmup.toSeconds(), options.held);
+        System.out.printf(Locale.ROOT, "%-9s %6s %10s %10s %9s %9s %9s %9s %8s %7s%n",
+                "mode", "conc", "requests", "req/s", "p50 ms", "p99 ms", "p99.9 ms", "max ms", "errors", "held");
+
+        try (SlowDns dns = options.dnsDelay.isZero() ? null : new SlowDns(options.dnsDelay)) {
+            for (String mode : options.modes) {
+                try (ConfigurableApplicationContext app = start(mode, dns)) {
+                    int port = ((WebServerApplicationContext) app).getWebServer().getPort();
+                    URI uri = URI.create("http://127.0.0.1:" + port + options.path);
+                    try (HeldConnections held = new HeldConnections(port, options.held, options.holdInterval)) {
+                        for (int concurrency : options.concurrency) {
+                            run(uri, concurrency, options.warmup);
+                            Result result = run(uri, concurrency, options.duration);
+                            System.out.printf(Locale.ROOT, "%-9s %6d %10d %10.0f %9.2f %9.2f %9.2f %9.2f %8d %7d%n",
+                                    mode, concurrency, result.requests(), result.throughput(),
+                                    result.percentile(0.50), result.percentile(0.99), result.percentile(0.999),
+                                    result.percentile(1.0), result.errors(), held.open());
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private static ConfigurableApplicationContext start(String mode, SlowDns dns) {
+        // Command-line arguments, so they win over application.properties
+        List<String> args = new ArrayList<>(List.of(
+                "--server.port=0",
+                "--management.server.port=0",
+                "--spring.main.web-application-type=" + (mode.equals("reactive") ? "reactive" : "servlet"),
+                "--spring.threads.virtual.enabled=" + mode.equals("virtual"),
+                "--spring.main.banner-mode=off",
+                "--logging.level.root=warn",
+                "--publicip.access-log.enabled=true",
+                "--publicip.access-log.path=target/loadtest/access.log"));
+        if (dns != null) {
+            args.add("--publicip.ptr.resolve=true");
+            args.add("--publicip.ptr.timeout=2s");
+            args.add("--publicip.ptr.name-servers=127.0.0.1:" + dns.port());
+        }
+        return new SpringApplicationBuilder(ReverseipApplication.class).run(args.toArray(String[]::new));
+    }
+
+    private static Result run(URI uri, int concurrency, Duration duration) throws InterruptedException {
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .build();
+        long deadline = System.nanoTime() + duration.toNanos();
+        Recorder[] recorders = new Recorder[concurrency];
+        CountDownLatch done = new CountDownLatch(concurrency);
+        long started = System.nanoTime();
+        for (int i = 0; i < concurrency; i++) {
+            Recorder recorder = recorders[i] = new Recorder();
+            Thread.ofVirtual().start(() -> {
+                try {
+                    while (System.nanoTime() < deadline) {
+                        recorder.record(send(client, uri));
+                    }
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+        done.await();
+        long elapsed = System.nanoTime() - started;
+        client.close();
+        return Result.merge(recorders, elapsed);
+    }
+
+    /** Sends one request and returns its latency in nanoseconds, or -1 on failure. */
+    private static long send(HttpClient client, URI uri) {
+        int address = ThreadLocalRandom.current().nextInt();
+        HttpRequest request = HttpRequest.newBuilder(uri)
+                .header("X-Forwarded-For", ((address >>> 24) | 1) + "." + ((address >>> 16) & 0xFF) + "."
+                        + ((address >>> 8) & 0xFF) + "." + (address & 0xFF))
+                .timeout(Duration.ofSeconds(30))
+                .build();
+        long start = System.nanoTime();
+        try {
+            HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+            return response.statusCode() == 200 ? System.nanoTime() - start : -1;
+        } catch (IOException e) {
+            return -1;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return -1;
+        }
+    }
+
+    /** Latencies recorded by one client. */
+    private static final class Recorder {
+        long[] latencies = new long[1024];
+        int count;
+        int errors;
+
+        void record(long latency) {
+            if (latency < 0) {
+                errors++;
+                return;
+            }
+            if (count == latencies.length) {
+                latencies = Arrays.copyOf(latencies, count * 2);
+            }
+            latencies[count++] = latency;
+        }
+    }
+
+    private record Result(long[] sorted, int errors, long elapsedNanos) {
+        static Result merge(Recorder[] recorders, long elapsedNanos) {
+            int total = 0;
+            int errors = 0;
+            for (Recorder recorder : recorders) {
+                total += recorder.count;
+                errors += recorder.errors;
+            }
+            long[] all = new long[total];
+            int offset = 0;
+            for (Recorder recorder : recorders) {
+                System.arraycopy(recorder.latencies, 0, all, offset, recorder.count);
+                offset += recorder.count;
+            }
+            Arrays.sort(all);
+            return new Result(all, errors, elapsedNanos);
+        }
+
+        int requests() {
+            return sorted.length;
+        }
+
+        double throughput() {
+            return sorted.length / (elapsedNanos / 1e9);
+        }
+
+        double percentile(double p) {
+            if (sorted.length == 0) {
+                return Double.NaN;
+            }
+            int index = (int) Math.ceil(p * sorted.length) - 1;
+            return sorted[Math.max(0, index)] / 1e6;
+        }
+    }
+
+    /** A DNS server that answers every query with NXDOMAIN after a fixed delay. */
+    private static final class SlowDns implements AutoCloseable {
+        private final DatagramSocket socket;
+        private final ScheduledExecutorService replies = Executors.newSingleThreadScheduledExecutor();
+        private final Thread receiver;
+
+        SlowDns(Duration delay) throws IOException {
+            socket = new DatagramSocket(0, InetAddress.getLoopbackAddress());
+            receiver = Thread.ofPlatform().daemon().name("slow-dns").start(() -> {
+                while (!socket.isClosed()) {
+                    try {
+                        DatagramPacket query = new DatagramPacket(new byte[512], 512);
+                        socket.receive(query);
+                        byte[] answer = Arrays.copyOf(query.getData(), query.getLength());
+                        answer[2] = (byte) (0x80 | (answer[2] & 0x79)); // QR=1, keep opcode and RD
+                        answer[3] = (byte) 0x83;                        // RA=1, RCODE=NXDOMAIN
+                        DatagramPacket reply = new DatagramPacket(answer, answer.length, query.getSocketAddress());
+                        replies.schedule(() -> {
+                            try {
+                                socket.send(reply);
+                            } catch (IOException ignored) {
+                                // closed
+                            }
+                        }, delay.toNanos(), TimeUnit.NANOSECONDS);
+                    } catch (IOException e) {
+                        // closed
+                    }
+                }
+            });
+        }
+
+        int port() {
+            return socket.getLocalPort();
+        }
+
+        @Override
+        public void close() {
+            socket.close();
+            replies.shutdownNow();
+        }
+    }
+
+    /**
+     * Keep-alive connections held open beside the measured load, each on its own socket and
+     * from its own {@code /24}, so neither the client's pool nor the rate limits merge them.
+     * They connect spread over one interval, then poll {@code /ip} once per interval.
+     */
+    private static final class HeldConnections implements AutoCloseable {
+        private final AtomicInteger open = new AtomicInteger();
+        private final Queue<Socket> sockets = new ConcurrentLinkedQueue<>();
+        private volatile boolean closed;
+
+        HeldConnections(int port, int count, Duration interval) throws InterruptedException {
+            if (count == 0) {
+                return;
+            }
+            for (int i = 0; i < count; i++) {
+                long delay = interval.toNanos() * i / count;
+                String client = "10." + ((i >>> 8) & 0xFF) + "." + (i & 0xFF) + ".1";
+                Thread.ofVirtual().start(() -> hold(port, client, delay, interval));
+            }
+            // Every connection made, and polled once
+            Thread.sleep(interval.plusSeconds(2).toMillis());
+        }
+
+        private void hold(int port, String client, long delayNanos, Duration interval) {
+            byte[] request = ("GET /ip HTTP/1.1\r\nHost: 127.0.0.1\r\nX-Forwarded-For: " + client + "\r\n\r\n")
+                    .getBytes(StandardCharsets.ISO_8859_1);
+            boolean counted = false;
+            try {
+                TimeUnit.NANOSECONDS.sleep(delayNanos);
+                try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port)) {
+                    sockets.add(socket);
+                    socket.setSoTimeout(30_000);
+                    OutputStream out = socket.getOutputStream();
+                    InputStream in = new BufferedInputStream(socket.getInputStream());
+                    while (!closed) {
+                        out.write(request);
+                        out.flush();
+                        if (!readResponse(in)) {
+                            return;
+                        }
+                        if (!counted) {
+                            open.incrementAndGet();
+                            counted = true;
+                        }
+                        Thread.sleep(interval.toMillis());
+                    }
+                }
+            } catch (IOException | InterruptedException e) {
+                // refused, reset or closed
+            } finally {
+                if (counted) {
+                    open.decrementAndGet();
+                }
+            }
+        }
+
+        /** Reads one response through its body; false if the server closed the connection or failed it. */
+        private static boolean readResponse(InputStream in) throws IOException {
+            StringBuilder line = new StringBuilder();
+            int contentLength = 0;
+            boolean ok = false;
+            boolean first = true;
+            while (true) {
+                int c = in.read();
+                if (c < 0) {
+                    return false;
+                }
+                if (c != '\n') {
+                    if (c != '\r') {
+                        line.append((char) c);
+                    }
+                    continue;
+                }
+                if (line.isEmpty()) {
+                    break;
+                }
+                String header = line.toString();
+                if (first) {
+                    ok = header.startsWith("HTTP/1.1 200");
+                    first = false;
+                } else if (header.regionMatches(true, 0, "Content-Length:", 0, 15)) {
+                    contentLength = Integer.parseInt(header.substring(15).trim());
+                }
+                line.setLength(0);
+            }
+            in.skipNBytes(contentLength);
+            return ok;
+        }
+
+        int open() {
+            return open.get();
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+            for (Socket socket : sockets) {
+                try {
+                    socket.close();
+                } catch (IOException ignored) {
+                    // already closed
+                }
+            }
+        }
+    }
+
+    private static final class Options {
+        List<String> modes = List.of("platform", "virtual", "reactive");
+        int[] concurrency = {16, 64, 256, 1024};
+        Duration duration = Duration.ofSeconds(10);
+        Duration warmup = Duration.ofSeconds(3);
+        Duration dnsDelay = Duration.ofMillis(50);
+        String path = "/json";
+        int held;
+        Duration holdInterval = Duration.ofSeconds(5);
+
+        static Options parse(String[] args) {
+            Options options = new Options();
+            for (String arg : args) {
+                int eq = arg.indexOf('=');
+                if (!arg.startsWith("--") || eq < 0) {
+                    throw new IllegalArgumentException("Expected --name=value: " + arg);
+                }
+                String value = arg.substring(eq + 1);
+                switch (arg.substring(2, eq)) {
+                    case "modes" -> options.modes = List.of(value.split(","));
+                    case "concurrency" -> options.concurrency =
+                            Arrays.stream(value.split(",")).mapToInt(Integer::parseInt).toArray();
+                    case "duration" -> options.duration = seconds(value);
+                    case "warmup" -> options.warmup = seconds(value);
+                    case "dns-delay" -> options.dnsDelay = Duration.ofMillis(Long.parseLong(value.replace("ms", "")));
+                    case "path" -> options.path = value;
+                    case "held" -> options.held = Integer.parseInt(value);
+                    case "hold-interval" -> options.holdInterval = seconds(value);
+                    default -> throw new IllegalArgumentException("Unknown option: " + arg);
+                }
+            }
+            return options;
+        }
+
+        private static Duration seconds(String value) {
+            return Duration.ofSeconds(Long.parseLong(value.replace("s", "")));
+        }
+    }
+}
@@ -0,0 +1,542 @@
+package com.example.reverseip;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Load and soak test through a stand-in for the production reverse proxy. The application is
+ * started as its own JVM, so its GC pauses and resident memory are its own, behind a
+ * {@link ForwardingProxy}; N clients then send requests in a closed loop, as a mix of browsers,
+ * command-line users, pollers revalidating with {@code If-None-Match} and API scripts, each
+ * with its own header set and a realistic {@code X-Forwarded-For} chain.
+ *
+ * <p>Every {@code --interval} the throughput and p50/p99/p99.9 latency of that interval are
+ * sampled together with the application's GC pauses, heap and thread count (from the actuator)
+ * and its RSS (from {@code /proc}). The report has a fixed layout and no timestamps in its
+ * summary, so reports from two releases can be compared with {@code diff}.
+ *
+ * <pre>
+ * ./mvnw -Ploadtest test-compile exec:exec -Dloadtest.main=SoakTest \
+ *     -Dloadtest.args="--duration=30m --concurrency=64 --label=1.4.0"
+ * </pre>
+ */
+public final class SoakTest {
+    private static final long MAX_LATENCY_MICROS = Duration.ofMinutes(1).toNanos() / 1000;
+    private static final Pattern STATISTIC = Pattern.compile("\"statistic\":\"(\\w+)\",\"value\":([-0-9.eE]+)");
+
+    /** The kinds of client in the traffic mix, with their share of requests. */
+    enum Profile {
+        /** A browser loading the page: full navigation headers, Brotli accepted. */
+        BROWSER(40),
+        /** {@code curl publicip.org}: the bare address as text. */
+        CURL(20),
+        /** A script watching for an address change, sending back the last ETag. */
+        POLLER(30),
+        /** A script fetching {@code /json}. */
+        API(10);
+
+        final int weight;
+
+        Profile(int weight) {
+            this.weight = weight;
+        }
+
+        static Profile pick(ThreadLocalRandom random) {
+            int roll = random.nextInt(100);
+            for (Profile profile : values()) {
+                roll -= profile.weight;
+                if (roll < 0) {
+                    return profile;
+                }
+            }
+            return API;
+        }
+    }
+
+    /** Latencies and outcomes for one profile, over the interval and over the whole run. */
+    private static final class Stats {
+        final Recorder interval = new Recorder(MAX_LATENCY_MICROS, 3);
+        final Histogram total = new Histogram(MAX_LATENCY_MICROS, 3);
+        final LongAdder notModified = new LongAdder();
+        final LongAdder limited = new LongAdder();
+        final LongAdder errors = new LongAdder();
+        Histogram recycled;
+
+        /** Moves the interval's latencies into the total and returns them. */
+        Histogram drain() {
+            recycled = interval.getIntervalHistogram(recycled);
+            total.add(recycled);
+            return recycled;
+        }
+
+        void reset() {
+            interval.reset();
+            total.reset();
+            notModified.reset();
+            limited.reset();
+            errors.reset();
+        }
+    }
+
+    /** The application's JVM, as read from its actuator and {@code /proc}. */
+    private record JvmSample(double gcPauses, double gcPauseSeconds, double gcMaxPauseSeconds, double heapBytes,
+                             double threads, long rssBytes) {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = Options.parse(args);
+        Files.createDirectories(options.report.toAbsolutePath().getParent());
+        Path appLog = options.report.resolveSibling("soak-app.log");
+
+        int port = freePort();
+        int managementPort = freePort();
+        Process app = startApplication(options, port, managementPort, appLog);
+        try (ForwardingProxy proxy = new ForwardingProxy(port);
+             HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build()) {
+            URI actuator = URI.create("http://127.0.0.1:" + managementPort + "/actuator/");
+            awaitHealthy(client, actuator, app);
+            new SoakTest(options, app, client, URI.create("http://127.0.0.1:" + proxy.port()), actuator).run();
+        } finally {
+            app.destroy();
+            app.waitFor();
+        }
+        System.out.println("Report written to " + options.report);
+    }
+
+    private final Options options;
+    private final Process app;
+    private final HttpClient client;
+    private final URI proxy;
+    private final URI actuator;
+    private final Stats[] stats = new Stats[Profile.values().length];
+    private final String[] pollerAddresses;
+    private final ConcurrentHashMap<String, String> pollerTags = new ConcurrentHashMap<>();
+    private volatile boolean running = true;
+
+    private SoakTest(Options options, Process app, HttpClient client, URI proxy, URI actuator) {
+        this.options = options;
+        this.app = app;
+        this.client = client;
+        this.proxy = proxy;
+        this.actuator = actuator;
+        for (int i = 0; i < stats.length; i++) {
+            stats[i] = new Stats();
+        }
+        pollerAddresses = new String[options.pollers];
+        for (int i = 0; i < pollerAddresses.length; i++) {
+            pollerAddresses[i] = randomAddress(ThreadLocalRandom.current());
+        }
+    }
+
+    private void run() throws Exception {
+        CountDownLatch done = new CountDownLatch(options.concurrency);
+        for (int i = 0; i < options.concurrency; i++) {
+            Thread.ofVirtual().start(() -> {
+                try {
+                    while (running) {
+                        send(Profile.pick(ThreadLocalRandom.current()));
+                    }
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+
+        Thread.sleep(options.warmup.toMillis());
+        for (Stats profile : stats) {
+            profile.reset();
+        }
+        JvmSample first = sampleJvm();
+        long started = System.nanoTime();
+        long next = started;
+        List<String> samples = new ArrayList<>();
+        JvmSample previous = first;
+        long reportedErrors = 0;
+        long peakRss = first.rssBytes();
+        double peakHeap = first.heapBytes();
+        System.out.println(SAMPLE_HEADER);
+        while (next - started < options.duration.toNanos()) {
+            next += options.interval.toNanos();
+            Thread.sleep(Math.max(0, (next - System.nanoTime()) / 1_000_000));
+            Histogram interval = new Histogram(MAX_LATENCY_MICROS, 3);
+            long errors = 0;
+            for (Stats profile : stats) {
+                interval.add(profile.drain());
+                errors += profile.errors.sum();
+            }
+            JvmSample jvm = sampleJvm();
+            peakRss = Math.max(peakRss, jvm.rssBytes());
+            peakHeap = Math.max(peakHeap, jvm.heapBytes());
+            String sample = String.format(Locale.ROOT, SAMPLE_FORMAT,
+                    (System.nanoTime() - started) / 1_000_000_000L,
+                    interval.getTotalCount() / (options.interval.toNanos() / 1e9),
+                    millis(interval, 50), millis(interval, 99), millis(interval, 99.9),
+                    interval.getMaxValue() / 1000.0, errors - reportedErrors,
+                    (long) (jvm.gcPauses() - previous.gcPauses()),
+                    (jvm.gcPauseSeconds() - previous.gcPauseSeconds()) * 1000, jvm.gcMaxPauseSeconds() * 1000,
+                    jvm.heapBytes() / 1048576, jvm.rssBytes() / 1048576.0, (long) jvm.threads());
+            System.out.println(sample);
+            samples.add(sample);
+            previous = jvm;
+            reportedErrors = errors;
+            if (!app.isAlive()) {
+                System.out.println("Application exited");
+                break;
+            }
+        }
+        long elapsed = System.nanoTime() - started;
+        running = false;
+        done.await();
+
+        writeReport(samples, elapsed, first, previous, peakRss, peakHeap);
+    }
+
+    /** Sends one request as {@code profile} and records its outcome. */
+    private void send(Profile profile) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        String peer = profile == Profile.POLLER
+                ? pollerAddresses[random.nextInt(pollerAddresses.length)]
+                : randomAddress(random);
+        HttpRequest.Builder request = HttpRequest.newBuilder()
+                .timeout(Duration.ofSeconds(30))
+                .header(ForwardingProxy.PEER_HEADER, peer);
+        String chain = upstreamChain(random);
+        if (chain != null) {
+            request.header("X-Forwarded-For", chain);
+        }
+        String pollerKey = null;
+        switch (profile) {
+            case BROWSER -> {
+                request.uri(proxy.resolve("/"))
+                        .header("User-Agent", "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 "
+                                + "(KHTML, like Gecko) Chrome/131.0.0.0 Safari/537.36")
+                        .header("Accept", "text/html,application/xhtml+xml,application/xml;q=0.9,"
+                                + "image/avif,image/webp,*/*;q=0.8")
+                        .header("Accept-Language", "en-US,en;q=0.9")
+                        .header("Accept-Encoding", "gzip, deflate, br, zstd")
+                        .header("Sec-Ch-Ua", "\"Chromium\";v=\"131\", \"Not_A Brand\";v=\"24\"")
+                        .header("Sec-Ch-Ua-Mobile", "?0")
+                        .header("Sec-Ch-Ua-Platform", "\"Windows\"")
+                        .header("Sec-Fetch-Dest", "document")
+                        .header("Sec-Fetch-Mode", "navigate")
+                        .header("Sec-Fetch-Site", "none")
+                        .header("Sec-Fetch-User", "?1")
+                        .header("Upgrade-Insecure-Requests", "1")
+                        .header("Priority", "u=0, i");
+                if (random.nextInt(4) == 0) {
+                    request.header("Cookie", "_ga=GA1.1." + random.nextInt(1_000_000_000) + ".1734530000");
+                }
+            }
+            case CURL -> request.uri(proxy.resolve("/"))
+                    .header("User-Agent", "curl/8.5.0")
+                    .header("Accept", "*/*");
+            case POLLER -> {
+                String path = random.nextBoolean() ? "/ip" : "/json";
+                pollerKey = peer + path;
+                request.uri(proxy.resolve(path))
+                        .header("User-Agent", "python-requests/2.32.3")
+                        .header("Accept", "*/*")
+                        .header("Accept-Encoding", "gzip, deflate");
+                String etag = pollerTags.get(pollerKey);
+                if (etag != null) {
+                    request.header("If-None-Match", etag);
+                }
+            }
+            case API -> request.uri(proxy.resolve("/json"))
+                    .header("User-Agent", "Go-http-client/1.1")
+                    .header("Accept", "application/json")
+                    .header("Accept-Encoding", "gzip");
+        }
+
+        Stats profileStats = stats[profile.ordinal()];
+        long start = System.nanoTime();
+        try {
+            HttpResponse<Void> response = client.send(request.build(), HttpResponse.BodyHandlers.discarding());
+            long micros = (System.nanoTime() - start) / 1000;
+            switch (response.statusCode()) {
+                case 200 -> profileStats.interval.recordValue(Math.min(micros, MAX_LATENCY_MICROS));
+                case 304 -> {
+                    profileStats.interval.recordValue(Math.min(micros, MAX_LATENCY_MICROS));
+                    profileStats.notModified.increment();
+                }
+                case 429 -> profileStats.limited.increment();
+                default -> profileStats.errors.increment();
+            }
+            String etag = response.headers().firstValue("ETag").orElse(null);
+            if (pollerKey != null && etag != null) {
+                pollerTags.put(pollerKey, etag);
+            }
+        } catch (IOException e) {
+            profileStats.errors.increment();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            running = false;
+        }
+    }
+
+    /**
+     * What arrives at the proxy in {@code X-Forwarded-For}: usually nothing, sometimes a
+     * corporate or carrier-grade NAT hop, sometimes a forged entry, none of which the application
+     * may believe.
+     */
+    private static String upstreamChain(ThreadLocalRandom random) {
+        int roll = random.nextInt(100);
+        if (roll < 70) {
+            return null;
+        }
+        if (roll < 85) {
+            return "10." + random.nextInt(256) + "." + random.nextInt(256) + "." + (1 + random.nextInt(254));
+        }
+        if (roll < 95) {
+            return "192.168.1." + (1 + random.nextInt(254)) + ", 100.64." + random.nextInt(256) + "."
+                    + (1 + random.nextInt(254));
+        }
+        return "127.0.0.1, " + randomAddress(random);
+    }
+
+    /** A random client address: public-looking IPv4 mostly, IPv6 for one client in five. */
+    private static String randomAddress(ThreadLocalRandom random) {
+        if (random.nextInt(5) == 0) {
+            return String.format(Locale.ROOT, "2001:db8:%x:%x::%x", random.nextInt(0x10000),
+                    random.nextInt(0x10000), 1 + random.nextInt(0xFFFF));
+        }
+        return (1 + random.nextInt(223)) + "." + random.nextInt(256) + "." + random.nextInt(256) + "."
+                + (1 + random.nextInt(254));
+    }
+
+    private static final String SAMPLE_HEADER = String.format(Locale.ROOT,
+            "%7s %9s %8s %8s %8s %8s %7s %6s %9s %9s %8s %8s %7s",
+            "t s", "req/s", "p50 ms", "p99 ms", "p999 ms", "max ms", "errors",
+            "gc", "gc ms", "gc max", "heap MB", "rss MB", "threads");
+    private static final String SAMPLE_FORMAT =
+            "%7d %9.0f %8.2f %8.2f %8.2f %8.2f %7d %6d %9.1f %9.1f %8.1f %8.1f %7d";
+
+    private void writeReport(List<String> samples, long elapsedNanos, JvmSample first, JvmSample last,
+                             long peakRss, double peakHeap) throws IOException {
+        StringWriter text = new StringWriter();
+        PrintWriter out = new PrintWriter(text);
+        out.println("# publicip soak report");
+        out.printf(Locale.ROOT, "label         %s%n", options.label);
+        out.printf(Locale.ROOT, "java          %s%n", System.getProperty("java.version"));
+        out.printf(Locale.ROOT, "jvm-args      %s%n", String.join(" ", options.jvmArgs));
+        out.printf(Locale.ROOT, "app-args      %s%n", String.join(" ", options.appArgs));
+        out.printf(Locale.ROOT, "concurrency   %d%n", options.concurrency);
+        out.printf(Locale.ROOT, "duration      %ds (warmup %ds)%n", options.duration.toSeconds(),
+                options.warmup.toSeconds());
+        out.printf(Locale.ROOT, "pollers       %d%n", options.pollers);
+        out.println();
+        out.println("## Summary");
+        out.printf(Locale.ROOT, "%-8s %6s %10s %9s %8s %8s %8s %8s %9s %7s %7s%n", "profile", "share", "requests",
+                "req/s", "p50 ms", "p99 ms", "p999 ms", "max ms", "304", "429", "errors");
+        Histogram all = new Histogram(MAX_LATENCY_MICROS, 3);
+        long notModified = 0;
+        long limited = 0;
+        long errors = 0;
+        double seconds = elapsedNanos / 1e9;
+        for (Profile profile : Profile.values()) {
+            Stats profileStats = stats[profile.ordinal()];
+            profileStats.drain();
+            all.add(profileStats.total);
+            notModified += profileStats.notModified.sum();
+            limited += profileStats.limited.sum();
+            errors += profileStats.errors.sum();
+            summaryRow(out, profile.name().toLowerCase(Locale.ROOT), profile.weight + "%", profileStats.total,
+                    seconds, profileStats.notModified.sum(), profileStats.limited.sum(), profileStats.errors.sum());
+        }
+        summaryRow(out, "all", "", all, seconds, notModified, limited, errors);
+        out.println();
+        out.printf(Locale.ROOT, "gc pauses     %d, %.1f ms total%n", (long) (last.gcPauses() - first.gcPauses()),
+                (last.gcPauseSeconds() - first.gcPauseSeconds()) * 1000);
+        out.printf(Locale.ROOT, "heap used     peak %.1f MB%n", peakHeap / 1048576);
+        out.printf(Locale.ROOT, "rss           start %.1f MB, peak %.1f MB, end %.1f MB%n",
+                first.rssBytes() / 1048576.0, peakRss / 1048576.0, last.rssBytes() / 1048576.0);
+        out.printf(Locale.ROOT, "threads       start %d, end %d%n", (long) first.threads(), (long) last.threads());
+        out.println();
+        out.printf(Locale.ROOT, "## Samples (every %ds)%n", options.interval.toSeconds());
+        out.println(SAMPLE_HEADER);
+        samples.forEach(out::println);
+        out.flush();
+        Files.writeString(options.report, text.toString());
+        System.out.println();
+        System.out.print(text);
+    }
+
+    private static void summaryRow(PrintWriter out, String name, String share, Histogram latencies, double seconds,
+                                   long notModified, long limited, long errors) {
+        out.printf(Locale.ROOT, "%-8s %6s %10d %9.0f %8.2f %8.2f %8.2f %8.2f %9d %7d %7d%n", name, share,
+                latencies.getTotalCount(), latencies.getTotalCount() / seconds, millis(latencies, 50),
+                millis(latencies, 99), millis(latencies, 99.9), latencies.getMaxValue() / 1000.0,
+                notModified, limited, errors);
+    }
+
+    private static double millis(Histogram latencies, double percentile) {
+        return latencies.getValueAtPercentile(percentile) / 1000.0;
+    }
+
+    private JvmSample sampleJvm() {
+        double[] gc = statistics("metrics/jvm.gc.pause");
+        double[] heap = statistics("metrics/jvm.memory.used?tag=area:heap");
+        double[] threads = statistics("metrics/jvm.threads.live");
+        return new JvmSample(gc[0], gc[1], gc[2], heap[3], threads[3], rss(app.pid()));
+    }
+
+    /** COUNT, TOTAL_TIME, MAX and VALUE of an actuator metric; zeros if it does not exist yet. */
+    private double[] statistics(String path) {
+        double[] values = new double[4];
+        try {
+            HttpResponse<String> response = client.send(HttpRequest.newBuilder(actuator.resolve(path))
+                    .timeout(Duration.ofSeconds(5)).build(), HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() != 200) {
+                return values;
+            }
+            Matcher statistic = STATISTIC.matcher(response.body());
+            while (statistic.find()) {
+                int index = switch (statistic.group(1)) {
+                    case "COUNT" -> 0;
+                    case "TOTAL_TIME" -> 1;
+                    case "MAX" -> 2;
+                    case "VALUE" -> 3;
+                    default -> -1;
+                };
+                if (index >= 0) {
+                    values[index] = Double.parseDouble(statistic.group(2));
+                }
+            }
+        } catch (IOException e) {
+            // Application gone; the sample shows zeros
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return values;
+    }
+
+    /** Resident set size of {@code pid} in bytes, or -1 where {@code /proc} is not available. */
+    private static long rss(long pid) {
+        try {
+            for (String line : Files.readAllLines(Path.of("/proc/" + pid + "/status"))) {
+                if (line.startsWith("VmRSS:")) {
+                    return Long.parseLong(line.substring(6).replace("kB", "").strip()) * 1024;
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            // Not Linux, or the process has exited
+        }
+        return -1;
+    }
+
+    private static Process startApplication(Options options, int port, int managementPort, Path log)
+            throws IOException {
+        List<String> command = new ArrayList<>();
+        command.add(ProcessHandle.current().info().command().orElse("java"));
+        command.addAll(options.jvmArgs);
+        // DevTools would relaunch main() in a restart class loader
+        command.add("-Dspring.devtools.restart.enabled=false");
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(ReverseipApplication.class.getName());
+        command.addAll(List.of(
+                "--server.port=" + port,
+                "--management.server.port=" + managementPort,
+                "--spring.main.banner-mode=off",
+                "--logging.level.root=warn",
+                "--publicip.access-log.enabled=true",
+                "--publicip.access-log.path=" + log.resolveSibling("soak-access.log")));
+        command.addAll(options.appArgs);
+        return new ProcessBuilder(command).redirectErrorStream(true)
+                .redirectOutput(ProcessBuilder.Redirect.to(log.toFile())).start();
+    }
+
+    private static void awaitHealthy(HttpClient client, URI actuator, Process app) throws Exception {
+        Instant deadline = Instant.now().plusSeconds(120);
+        while (Instant.now().isBefore(deadline)) {
+            if (!app.isAlive()) {
+                throw new IllegalStateException("Application exited with " + app.exitValue() + "; see its log");
+            }
+            try {
+                HttpResponse<String> health = client.send(HttpRequest.newBuilder(actuator.resolve("health"))
+                        .timeout(Duration.ofSeconds(2)).build(), HttpResponse.BodyHandlers.ofString());
+                if (health.statusCode() == 200) {
+                    return;
+                }
+            } catch (IOException e) {
+                // Not listening yet
+            }
+            Thread.sleep(250);
+        }
+        throw new IllegalStateException("Application did not become healthy within 120s");
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    private static final class Options {
+        Duration duration = Duration.ofMinutes(5);
+        Duration warmup = Duration.ofSeconds(30);
+        Duration interval = Duration.ofSeconds(10);
+        int concurrency = 64;
+        int pollers = 500;
+        String label = "unlabelled";
+        Path report = Path.of("target/loadtest/soak-report.txt");
+        List<String> jvmArgs = List.of("-Xms512m", "-Xmx512m");
+        // Rate limits would turn the generator's concentrated traffic into 429s
+        List<String> appArgs = List.of("--publicip.rate-limit.enabled=false");
+
+        static Options parse(String[] args) {
+            Options options = new Options();
+            for (String arg : args) {
+                int eq = arg.indexOf('=');
+                if (!arg.startsWith("--") || eq < 0) {
+                    throw new IllegalArgumentException("Expected --name=value: " + arg);
+                }
+                String value = arg.substring(eq + 1);
+                switch (arg.substring(2, eq)) {
+                    case "duration" -> options.duration = duration(value);
+                    case "warmup" -> options.warmup = duration(value);
+                    case "interval" -> options.interval = duration(value);
+                    case "concurrency" -> options.concurrency = Integer.parseInt(value);
+                    case "pollers" -> options.pollers = Integer.parseInt(value);
+                    case "label" -> options.label = value;
+                    case "report" -> options.report = Path.of(value);
+                    case "jvm-args" -> options.jvmArgs = words(value);
+                    case "app-args" -> options.appArgs = words(value);
+                    default -> throw new IllegalArgumentException("Unknown option: " + arg);
+                }
+            }
+            return options;
+        }
+
+        /** {@code 90s}, {@code 30m}, {@code 2h}. */
+        private static Duration duration(String value) {
+            return Duration.parse("PT" + value.toUpperCase(Locale.ROOT));
+        }
+
+        private static List<String> words(String value) {
+            return value.isBlank() ? List.of() : Arrays.asList(value.strip().split("\\s+"));
+        }
+    }
+}
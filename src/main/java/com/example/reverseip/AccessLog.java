@@ -0,0 +1,279 @@
+package com.example.reverseip;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Structured access log. Request threads copy a few fields into a preallocated slot of a
+ * bounded lock-free ring buffer (a multi-producer, single-consumer variant of Vyukov's
+ * bounded queue) and return; a background thread drains the ring in batches and appends
+ * one JSON object per line to a size-rolled file. When the ring is full the record is
+ * dropped and counted, so logging never makes a request wait.
+ */
+@Component
+class AccessLog implements DisposableBean {
+
+    /** One preallocated record; {@code sequence} says whose turn it is. */
+    private static final class Slot {
+        volatile long sequence;
+        long timestamp;
+        IpAddress client;
+        String method;
+        String path;
+        int status;
+        long latencyNanos;
+        long bytes;
+        String userAgent;
+    }
+
+    private final AccessLogProperties properties;
+    private final Slot[] slots;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();
+    private long head;
+    private final LongAdder written = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final Thread writer;
+    private volatile boolean running = true;
+
+    // Writer thread only
+    private final StringBuilder line = new StringBuilder(256);
+    private OutputStream out;
+    private long fileSize;
+
+    @Autowired
+    AccessLog(AccessLogProperties properties, MeterRegistry registry) {
+        this(properties, registry, true);
+    }
+
+    /** With {@code startWriter} false nothing drains the ring except explicit {@link #drain()} calls. */
+    AccessLog(AccessLogProperties properties, MeterRegistry registry, boolean startWriter) {
+        this.properties = properties;
+        int capacity = properties.capacity() <= 2 ? 2 : Integer.highestOneBit(properties.capacity() - 1) << 1;
+        this.slots = new Slot[capacity];
+        for (int i = 0; i < capacity; i++) {
+            slots[i] = new Slot();
+            slots[i].sequence = i;
+        }
+        this.mask = capacity - 1;
+
+        FunctionCounter.builder("publicip.access_log.records", written, LongAdder::sum)
+                .description("Access log records").tag("outcome", "written").register(registry);
+        FunctionCounter.builder("publicip.access_log.records", dropped, LongAdder::sum)
+                .description("Access log records").tag("outcome", "dropped").register(registry);
+
+        if (properties.enabled() && startWriter) {
+            writer = Thread.ofPlatform().daemon().name("access-log-writer").start(this::run);
+        } else {
+            writer = null;
+        }
+    }
+
+    boolean enabled() {
+        return properties.enabled();
+    }
+
+    /** Whether this request is in the sample; decide before gathering any fields. */
+    boolean sample() {
+        double rate = properties.sampleRate();
+        return rate >= 1.0 || (rate > 0.0 && ThreadLocalRandom.current().nextDouble() < rate);
+    }
+
+    /** Queues one record without blocking; returns {@code false} if the ring was full and it was dropped. */
+    boolean offer(IpAddress client, String method, String path, int status, long latencyNanos, long bytes,
+                  String userAgent) {
+        Slot slot;
+        long position = tail.get();
+        for (;;) {
+            slot = slots[(int) position & mask];
+            long difference = slot.sequence - position;
+            if (difference == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    break;
+                }
+                position = tail.get();
+            } else if (difference < 0) {
+                // The writer has not freed this slot yet: the ring is full
+                dropped.increment();
+                return false;
+            } else {
+                position = tail.get();
+            }
+        }
+        slot.timestamp = System.currentTimeMillis();
+        slot.client = client;
+        slot.method = method;
+        slot.path = path;
+        slot.status = status;
+        slot.latencyNanos = latencyNanos;
+        slot.bytes = bytes;
+        slot.userAgent = userAgent;
+        slot.sequence = position + 1;
+        return true;
+    }
+
+    long droppedCount() {
+        return dropped.sum();
+    }
+
+    private void run() {
+        long idleNanos = properties.flushInterval().toNanos();
+        while (running) {
+            if (drain() == 0) {
+                LockSupport.parkNanos(this, idleNanos);
+            }
+        }
+        while (drain() > 0) {
+            // flush what is left
+        }
+        closeFile();
+    }
+
+    /** Writes up to one batch of queued records; returns how many were taken from the ring. */
+    int drain() {
+        Utf8Buffer buffer = Utf8Buffer.forCurrentThread();
+        int count = 0;
+        try {
+            while (count < properties.batchSize()) {
+                Slot slot = slots[(int) head & mask];
+                if (slot.sequence != head + 1) {
+                    break;
+                }
+                line.setLength(0);
+                format(slot, line);
+                buffer.append(line);
+                slot.client = null;
+                slot.userAgent = null;
+                slot.path = null;
+                slot.sequence = head + slots.length;
+                head++;
+                count++;
+            }
+            if (count > 0) {
+                write(buffer, count);
+            }
+        } finally {
+            buffer.release();
+        }
+        return count;
+    }
+
+    private static void format(Slot slot, StringBuilder line) {
+        line.append("{\"ts\":\"");
+        DateTimeFormatter.ISO_INSTANT.formatTo(Instant.ofEpochMilli(slot.timestamp), line);
+        line.append("\",\"ip\":");
+        if (slot.client == null) {
+            line.append("null,\"family\":null");
+        } else {
+            line.append('"').append(slot.client).append("\",\"family\":\"")
+                    .append(slot.client.ipv4() ? "ipv4" : "ipv6").append('"');
+        }
+        line.append(",\"method\":");
+        appendString(line, slot.method);
+        line.append(",\"path\":");
+        appendString(line, slot.path);
+        line.append(",\"status\":").append(slot.status)
+                .append(",\"latencyUs\":").append(slot.latencyNanos / 1_000)
+                .append(",\"bytes\":").append(slot.bytes)
+                .append(",\"ua\":");
+        appendString(line, slot.userAgent);
+        line.append("}\n");
+    }
+
+    private static void appendString(StringBuilder line, String value) {
+        if (value == null) {
+            line.append("null");
+            return;
+        }
+        line.append('"');
+        JsonWriter.escape(line, value, 0, value.length());
+        line.append('"');
+    }
+
+    private void write(Utf8Buffer buffer, int records) {
+        try {
+            if (out == null) {
+                openFile();
+            } else if (fileSize + buffer.length() > properties.maxFileSize().toBytes()) {
+                closeFile();
+                roll();
+                openFile();
+            }
+            buffer.writeTo(out, 0, buffer.length());
+            out.flush();
+            fileSize += buffer.length();
+            written.add(records);
+        } catch (IOException e) {
+            // Disk trouble must not reach request handling; count the batch as lost and reopen next time
+            dropped.add(records);
+            closeFile();
+        }
+    }
+
+    private void openFile() throws IOException {
+        Path path = properties.path();
+        Path parent = path.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        out = Files.newOutputStream(path, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        fileSize = Files.size(path);
+    }
+
+    /** {@code access.log.(n-1)} becomes {@code access.log.n}, ..., {@code access.log} becomes {@code access.log.1}. */
+    private void roll() throws IOException {
+        Path path = properties.path();
+        int maxFiles = properties.maxFiles();
+        if (maxFiles <= 0) {
+            Files.deleteIfExists(path);
+            return;
+        }
+        Files.deleteIfExists(rolled(path, maxFiles));
+        for (int i = maxFiles - 1; i >= 1; i--) {
+            Path from = rolled(path, i);
+            if (Files.exists(from)) {
+                Files.move(from, rolled(path, i + 1), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        Files.move(path, rolled(path, 1), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private static Path rolled(Path path, int index) {
+        return path.resolveSibling(path.getFileName() + "." + index);
+    }
+
+    private void closeFile() {
+        if (out != null) {
+            try {
+                out.close();
+            } catch (IOException ignored) {
+                // nothing more to do with it
+            }
+            out = null;
+        }
+    }
+
+    @Override
+    public void destroy() throws InterruptedException {
+        running = false;
+        if (writer != null) {
+            LockSupport.unpark(writer);
+            writer.join(5_000);
+        }
+    }
+}
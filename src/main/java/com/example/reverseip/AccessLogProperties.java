@@ -0,0 +1,33 @@
+package com.example.reverseip;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.util.unit.DataSize;
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * Settings for the structured access log ({@code publicip.access-log.*}).
+ *
+ * @param enabled       write an access log; off by default, also in {@code application.properties}
+ * @param path          log file, relative to the working directory unless absolute; rolled to
+ *                      {@code path.1}, {@code path.2}, ... when full
+ * @param sampleRate    fraction of requests logged, from 0.0 to 1.0
+ * @param capacity      ring buffer slots (rounded up to a power of two); requests arriving while it
+ *                      is full are dropped, never waited for
+ * @param batchSize     most records written per batch
+ * @param flushInterval how long the writer sleeps when the buffer is empty
+ * @param maxFileSize   size at which the file is rolled
+ * @param maxFiles      rolled files kept besides the current one
+ */
+@ConfigurationProperties("publicip.access-log")
+record AccessLogProperties(
+        @DefaultValue("false") boolean enabled,
+        @DefaultValue("logs/access.log") Path path,
+        @DefaultValue("1.0") double sampleRate,
+        @DefaultValue("8192") int capacity,
+        @DefaultValue("512") int batchSize,
+        @DefaultValue("200ms") Duration flushInterval,
+        @DefaultValue("50MB") DataSize maxFileSize,
+        @DefaultValue("5") int maxFiles) {
+}
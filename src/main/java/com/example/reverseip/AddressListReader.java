@@ -0,0 +1,65 @@
+package com.example.reverseip;
+
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Splits a streamed list of addresses into tokens without reading it whole. Whitespace,
+ * commas, semicolons, brackets and double quotes all separate tokens, so one address or
+ * CIDR block per line, a JSON array of strings and one JSON string per line (NDJSON) all
+ * read the same way; {@code #} starts a comment running to the end of the line. Memory is
+ * one read buffer and one token however long the input is.
+ */
+final class AddressListReader {
+    /** Longer tokens are cut here and cannot parse, so they are reported rather than buffered. */
+    static final int MAX_TOKEN = 64;
+
+    private final Reader in;
+    private final char[] buffer = new char[8 * 1024];
+    private final StringBuilder token = new StringBuilder(MAX_TOKEN);
+    private int position;
+    private int limit;
+
+    AddressListReader(Reader in) {
+        this.in = in;
+    }
+
+    /** The next token, or {@code null} at the end of the input; the returned sequence is reused by the next call. */
+    CharSequence next() throws IOException {
+        token.setLength(0);
+        int c;
+        while ((c = read()) >= 0) {
+            if (c == '#') {
+                while ((c = read()) >= 0 && c != '\n') {
+                    // skip the comment
+                }
+                if (!token.isEmpty()) {
+                    return token;
+                }
+            } else if (isSeparator(c)) {
+                if (!token.isEmpty()) {
+                    return token;
+                }
+            } else if (token.length() < MAX_TOKEN) {
+                token.append((char) c);
+            }
+        }
+        return token.isEmpty() ? null : token;
+    }
+
+    private int read() throws IOException {
+        if (position == limit) {
+            limit = in.read(buffer, 0, buffer.length);
+            position = 0;
+            if (limit <= 0) {
+                limit = 0;
+                return -1;
+            }
+        }
+        return buffer[position++];
+    }
+
+    private static boolean isSeparator(int c) {
+        return c <= ' ' || c == ',' || c == ';' || c == '[' || c == ']' || c == '"';
+    }
+}
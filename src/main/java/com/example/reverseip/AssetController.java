@@ -0,0 +1,54 @@
+package com.example.reverseip;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * Serves the diagnostic page's stylesheet and script. Their paths carry a content hash, so a
+ * response never goes stale and is marked {@code immutable} for a year; the precompressed
+ * variant matching {@code Accept-Encoding} is written as is, under that variant's entity tag.
+ */
+@RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+class AssetController {
+    private static final String CACHE_CONTROL = "public, max-age=31536000, immutable";
+
+    private final DiagnosticPage page;
+    private final RequestMetrics metrics;
+
+    AssetController(DiagnosticPage page, RequestMetrics metrics) {
+        this.page = page;
+        this.metrics = metrics;
+    }
+
+    @GetMapping("/assets/{name}")
+    public void getAsset(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        DiagnosticPage.Asset asset = page.asset(request.getRequestURI());
+        if (asset == null) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        ContentCoding coding = asset.coding(ContentCoding.negotiate(request.getHeader("Accept-Encoding")));
+        String etag = asset.etag(coding);
+        response.setHeader("Cache-Control", CACHE_CONTROL);
+        response.setHeader("Vary", "Accept-Encoding");
+        response.setHeader("ETag", etag);
+        if (DiagnosticService.matches(request.getHeader("If-None-Match"), etag)) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        byte[] body = asset.body(coding);
+        response.setContentType(asset.contentType());
+        if (coding != ContentCoding.IDENTITY) {
+            response.setHeader("Content-Encoding", coding.token());
+        }
+        response.setContentLength(body.length);
+        response.getOutputStream().write(body);
+        metrics.responseBytes(RequestMetrics.Endpoint.ASSET, body.length);
+    }
+}
@@ -0,0 +1,258 @@
+package com.example.reverseip;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RestController;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * {@code POST /ptr/bulk}: reverse pointers, and PTR hostnames when resolution is on, for a
+ * streamed list of addresses and CIDR blocks (see {@link AddressListReader}). Results are
+ * written as NDJSON, one object per input address and in input order, while the body is
+ * still being read:
+ * <pre>
+ * {"ip":"203.0.113.42","reversePointer":"42.113.0.203.in-addr.arpa","status":"found","hostname":"host.example"}
+ * {"input":"bogus","error":"Not an IP address or CIDR block"}
+ * </pre>
+ * Lookups go through {@link PtrResolver}, so repeated addresses, within a request or across
+ * requests, share one cached query. At most {@code concurrency} lookups are in flight: when
+ * the window is full, the oldest is waited for and written before the next address is read.
+ * Memory per request is that window plus one output chunk, whatever the input size.
+ * {@code ?resolve=false} skips DNS and only generates the reverse pointers.
+ */
+@RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+class BulkPtrController {
+    private static final int FLUSH_THRESHOLD = 8 * 1024;
+    private static final String[] STATUS = new String[PtrResolver.Lookup.Status.values().length];
+
+    static {
+        for (PtrResolver.Lookup.Status status : PtrResolver.Lookup.Status.values()) {
+            STATUS[status.ordinal()] = status.name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    /** One input address (or an error about one input token) and its lookup, if any. */
+    private record Entry(IpAddress address, CompletableFuture<PtrResolver.Lookup> lookup, String input,
+                         String error) {
+    }
+
+    private final BulkPtrProperties properties;
+    private final TrustedProxies allowed;
+    private final PtrResolver ptrResolver;
+    private final RequestMetrics metrics;
+    private final Counter addresses;
+
+    BulkPtrController(BulkPtrProperties properties, PtrResolver ptrResolver, RequestMetrics metrics,
+                      MeterRegistry registry) {
+        this.properties = properties;
+        this.allowed = properties.allowed().isEmpty() ? null : TrustedProxies.of(properties.allowed());
+        this.ptrResolver = ptrResolver;
+        this.metrics = metrics;
+        this.addresses = Counter.builder("publicip.bulk_ptr.addresses")
+                .description("Addresses answered by the bulk reverse-pointer endpoint")
+                .register(registry);
+    }
+
+    @PostMapping("/ptr/bulk")
+    public void postBulk(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        if (!properties.enabled()) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        IpAddress client = ClientAddressFilter.client(request);
+        if (allowed != null && (client == null || !allowed.contains(client))) {
+            response.sendError(HttpServletResponse.SC_FORBIDDEN);
+            return;
+        }
+        boolean resolve = ptrResolver.enabled() && !"false".equals(request.getParameter("resolve"));
+        response.setContentType("application/x-ndjson");
+        response.setHeader("Cache-Control", "no-store");
+
+        Batch batch = new Batch(response.getOutputStream(), resolve, Math.max(1, properties.concurrency()));
+        try {
+            AddressListReader reader = new AddressListReader(request.getReader());
+            CharSequence token;
+            while ((token = reader.next()) != null) {
+                if (!expand(token, batch)) {
+                    batch.error(null, "Stopped after " + properties.maxAddresses()
+                            + " addresses; the rest of the input was not read");
+                    break;
+                }
+            }
+            batch.finish();
+        } finally {
+            batch.release();
+        }
+        addresses.increment(batch.addresses);
+        metrics.responseBytes(RequestMetrics.Endpoint.BULK_PTR, batch.bytes);
+    }
+
+    /** Queues the address or every address in the CIDR block; {@code false} once the request's quota is used up. */
+    private boolean expand(CharSequence token, Batch batch) throws IOException {
+        int slash = indexOf(token, '/');
+        IpAddress address = IpAddress.parse(token, 0, slash < 0 ? token.length() : slash);
+        if (address == null) {
+            return batch.error(token, "Not an IP address or CIDR block");
+        }
+        if (slash < 0) {
+            return batch.add(address);
+        }
+        int prefixLength = parsePrefixLength(token, slash + 1);
+        int hostBits = address.bitLength() - prefixLength;
+        if (prefixLength < 0 || hostBits < 0) {
+            return batch.error(token, "Not an IP address or CIDR block");
+        }
+        if (hostBits > 62 || (1L << hostBits) > properties.maxBlockSize()) {
+            return batch.error(token, "CIDR block larger than " + properties.maxBlockSize() + " addresses");
+        }
+        long size = 1L << hostBits;
+        long first = address.low() & -size;
+        for (long i = 0; i < size; i++) {
+            IpAddress next = address.ipv4()
+                    ? IpAddress.ofIpv4((int) (first + i))
+                    : IpAddress.ofIpv6(address.high(), first + i);
+            if (!batch.add(next)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int indexOf(CharSequence token, char c) {
+        for (int i = 0; i < token.length(); i++) {
+            if (token.charAt(i) == c) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /** The decimal prefix length after the slash, or -1 if it is not one. */
+    private static int parsePrefixLength(CharSequence token, int start) {
+        int end = token.length();
+        if (start == end || end - start > 3) {
+            return -1;
+        }
+        int value = 0;
+        for (int i = start; i < end; i++) {
+            char c = token.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    /** The in-flight window and the output chunk of one request. */
+    private final class Batch {
+        private final OutputStream out;
+        private final boolean resolve;
+        private final int window;
+        private final ArrayDeque<Entry> pending;
+        private final JsonWriter json = JsonWriter.forCurrentThread();
+        private final Utf8Buffer buffer = Utf8Buffer.forCurrentThread();
+        private long addresses;
+        private long bytes;
+
+        Batch(OutputStream out, boolean resolve, int window) {
+            this.out = out;
+            this.resolve = resolve;
+            this.window = resolve ? window : 1;
+            this.pending = new ArrayDeque<>(window);
+        }
+
+        /**
+         * Queues an address, first writing the oldest entry if the window is full, and starts its
+         * lookup; {@code false} once the quota is used up.
+         */
+        boolean add(IpAddress address) throws IOException {
+            if (addresses == properties.maxAddresses()) {
+                return false;
+            }
+            makeRoom();
+            pending.addLast(new Entry(address, resolve ? ptrResolver.lookup(address) : null, null, null));
+            addresses++;
+            return true;
+        }
+
+        /** Queues an error line about {@code input} (none if {@code null}); always {@code true}. */
+        boolean error(CharSequence input, String message) throws IOException {
+            makeRoom();
+            pending.addLast(new Entry(null, null, input == null ? null : input.toString(), message));
+            return true;
+        }
+
+        private void makeRoom() throws IOException {
+            if (pending.size() == window) {
+                writeOldest();
+            }
+        }
+
+        void finish() throws IOException {
+            while (!pending.isEmpty()) {
+                writeOldest();
+            }
+            flush();
+        }
+
+        private void writeOldest() throws IOException {
+            Entry entry = pending.peekFirst();
+            if (entry.lookup != null && !entry.lookup.isDone()) {
+                // Let the client have everything answered so far before waiting on DNS
+                flush();
+            }
+            pending.removeFirst();
+            if (entry.address == null) {
+                json.raw("{");
+                if (entry.input != null) {
+                    json.raw("\"input\":").string(entry.input).raw(",");
+                }
+                json.raw("\"error\":").string(entry.error).raw("}\n");
+            } else {
+                json.raw("{\"ip\":").string(entry.address.toString())
+                        .raw(",\"reversePointer\":").string(entry.address.reversePointer());
+                if (entry.lookup != null) {
+                    PtrResolver.Lookup lookup = ptrResolver.await(entry.lookup);
+                    json.raw(",\"status\":").string(STATUS[lookup.status().ordinal()]);
+                    if (lookup.status() == PtrResolver.Lookup.Status.FOUND) {
+                        json.raw(",\"hostname\":").string(lookup.hostname());
+                    }
+                }
+                json.raw("}\n");
+            }
+            if (json.result().length() >= FLUSH_THRESHOLD) {
+                write();
+            }
+        }
+
+        private void write() throws IOException {
+            buffer.append(json.result());
+            buffer.writeTo(out, 0, buffer.length());
+            bytes += buffer.length();
+            buffer.clear();
+            json.clear();
+        }
+
+        private void flush() throws IOException {
+            if (json.result().length() > 0) {
+                write();
+            }
+            out.flush();
+        }
+
+        void release() {
+            json.release();
+            buffer.release();
+        }
+    }
+}
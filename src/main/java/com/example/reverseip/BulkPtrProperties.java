@@ -0,0 +1,24 @@
+package com.example.reverseip;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import java.util.List;
+
+/**
+ * The bulk reverse-pointer endpoint, {@code POST /ptr/bulk} ({@code publicip.bulk-ptr.*}).
+ *
+ * @param enabled      serve the endpoint; off by default, since every address may cost a DNS query
+ * @param allowed      CIDR ranges of clients that may use it; anyone when empty
+ * @param concurrency  PTR lookups in flight per request; results are still written in input order
+ * @param maxAddresses addresses per request, after expanding CIDR blocks; the rest of the body is not read
+ * @param maxBlockSize largest CIDR block expanded, in addresses ({@code 65536} allows an IPv4 {@code /16} or an
+ *                     IPv6 {@code /112})
+ */
+@ConfigurationProperties("publicip.bulk-ptr")
+record BulkPtrProperties(
+        @DefaultValue("false") boolean enabled,
+        @DefaultValue({}) List<String> allowed,
+        @DefaultValue("64") int concurrency,
+        @DefaultValue("100000") int maxAddresses,
+        @DefaultValue("65536") int maxBlockSize) {
+}
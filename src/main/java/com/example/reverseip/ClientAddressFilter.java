@@ -0,0 +1,323 @@
+package com.example.reverseip;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import java.io.IOException;
+import java.util.Enumeration;
+import java.util.Locale;
+import java.util.function.Function;
+
+/**
+ * Determines the real client address behind our proxies. When the connecting peer is a
+ * trusted proxy, the forwarding chain (RFC 7239 {@code Forwarded}, else {@code X-Forwarded-For})
+ * is walked from the right, skipping trusted hops, and the first untrusted hop is the client.
+ * Headers from untrusted peers are ignored. The chain is scanned in place: no regex, no
+ * {@code String.split}.
+ *
+ * <p>Downstream code sees the client through {@link #client} and through a request
+ * whose remote address, scheme and server port reflect the forwarded values. The reactive
+ * stack has no servlet filters; {@link ReactiveReverseIpController} calls {@link #resolve}.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 10)
+class ClientAddressFilter extends OncePerRequestFilter {
+    /** Request attribute holding the client {@link IpAddress}. */
+    static final String CLIENT_ADDRESS = ClientAddressFilter.class.getName() + ".clientAddress";
+
+    private final TrustedProxies trustedProxies;
+    private final RequestMetrics metrics;
+
+    /**
+     * The client of {@code request}: {@link #CLIENT_ADDRESS} once this filter has run, otherwise
+     * the remote address; {@code null} if that is not an IP literal.
+     */
+    static IpAddress client(HttpServletRequest request) {
+        return request.getAttribute(CLIENT_ADDRESS) instanceof IpAddress client
+                ? client : IpAddress.parse(request.getRemoteAddr());
+    }
+
+    ClientAddressFilter(ProxyProperties properties, RequestMetrics metrics) {
+        this.trustedProxies = TrustedProxies.of(properties.trusted());
+        this.metrics = metrics;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        long start = System.nanoTime();
+        IpAddress peer = IpAddress.parse(request.getRemoteAddr());
+        if (!trustedProxies.contains(peer)) {
+            request.setAttribute(CLIENT_ADDRESS, peer);
+            metrics.record(RequestMetrics.Stage.CLIENT_IP, start);
+            chain.doFilter(request, response);
+            return;
+        }
+
+        Forwarding forwarding = forward(peer, name -> header(request, name), request.getScheme(),
+                request.getServerPort());
+        request.setAttribute(CLIENT_ADDRESS, forwarding.client());
+        HttpServletRequest forwardedRequest = new ForwardedRequest(request, forwarding);
+        metrics.record(RequestMetrics.Stage.CLIENT_IP, start);
+        chain.doFilter(forwardedRequest, response);
+    }
+
+    /**
+     * The client, scheme and server port of a request arriving from {@code peer}, for stacks
+     * where this filter does not run. {@code header} returns all values of a header joined with
+     * commas, or {@code null}; it is only asked when the peer is trusted.
+     */
+    Forwarding resolve(IpAddress peer, Function<String, String> header, String scheme, int serverPort) {
+        long start = System.nanoTime();
+        Forwarding forwarding = trustedProxies.contains(peer)
+                ? forward(peer, header, scheme, serverPort)
+                : new Forwarding(peer, scheme, serverPort);
+        metrics.record(RequestMetrics.Stage.CLIENT_IP, start);
+        return forwarding;
+    }
+
+    private Forwarding forward(IpAddress peer, Function<String, String> header, String scheme, int serverPort) {
+        IpAddress client;
+        String proto;
+        String forwarded = header.apply("Forwarded");
+        if (forwarded != null) {
+            client = walkForwarded(forwarded, peer);
+            proto = lastForwardedProto(forwarded);
+        } else {
+            String forwardedFor = header.apply("X-Forwarded-For");
+            client = forwardedFor != null ? walkForwardedFor(forwardedFor, peer) : peer;
+            proto = lastToken(header.apply("X-Forwarded-Proto"));
+        }
+        String forwardedScheme = "https".equalsIgnoreCase(proto) || "http".equalsIgnoreCase(proto)
+                ? proto.toLowerCase(Locale.ROOT) : scheme;
+        return new Forwarding(client, forwardedScheme,
+                forwardedPort(lastToken(header.apply("X-Forwarded-Port")), forwardedScheme, proto != null, serverPort));
+    }
+
+    /**
+     * The forwarded port if it is a valid one, 1 to 65535 in ASCII digits; otherwise the
+     * forwarded scheme's default port, or {@code fallback} when no scheme was forwarded either.
+     */
+    private static int forwardedPort(String port, String scheme, boolean protoForwarded, int fallback) {
+        int value = port == null || port.isEmpty() || port.length() > 5 ? -1 : 0;
+        for (int i = 0; value >= 0 && i < port.length(); i++) {
+            char c = port.charAt(i);
+            value = c >= '0' && c <= '9' ? value * 10 + (c - '0') : -1;
+        }
+        if (value >= 1 && value <= 65535) {
+            return value;
+        }
+        if (protoForwarded) {
+            return "https".equals(scheme) ? 443 : 80;
+        }
+        return fallback;
+    }
+
+    /** Walks {@code X-Forwarded-For} from the right; the peer itself is the innermost hop. */
+    IpAddress walkForwardedFor(String chain, IpAddress peer) {
+        IpAddress client = peer;
+        int end = chain.length();
+        while (end >= 0) {
+            int start = chain.lastIndexOf(',', end - 1) + 1;
+            IpAddress hop = parseNode(chain, start, end);
+            if (hop == null) {
+                break;
+            }
+            client = hop;
+            if (!trustedProxies.contains(hop)) {
+                break;
+            }
+            end = start - 1;
+        }
+        return client;
+    }
+
+    /** Walks the {@code for=} parameters of an RFC 7239 {@code Forwarded} header from the right. */
+    IpAddress walkForwarded(String chain, IpAddress peer) {
+        IpAddress client = peer;
+        int end = chain.length();
+        while (end >= 0) {
+            int start = elementStart(chain, end);
+            int value = paramValue(chain, start, end, "for=");
+            IpAddress hop = value < 0 ? null : parseNode(chain, value, paramEnd(chain, value, end));
+            if (hop == null) {
+                break;
+            }
+            client = hop;
+            if (!trustedProxies.contains(hop)) {
+                break;
+            }
+            end = start - 1;
+        }
+        return client;
+    }
+
+    private static String lastForwardedProto(String chain) {
+        int end = chain.length();
+        int start = elementStart(chain, end);
+        int value = paramValue(chain, start, end, "proto=");
+        if (value < 0) {
+            return null;
+        }
+        int valueEnd = paramEnd(chain, value, end);
+        if (value < valueEnd && chain.charAt(value) == '"') {
+            value++;
+            valueEnd--;
+        }
+        return chain.substring(value, valueEnd).trim();
+    }
+
+    /**
+     * Parses one hop: an IP literal, optionally quoted, bracketed ({@code [v6]}) and/or with a
+     * port. Returns {@code null} for {@code unknown}, obfuscated identifiers or anything else.
+     */
+    static IpAddress parseNode(CharSequence text, int start, int end) {
+        while (start < end && text.charAt(start) <= ' ') {
+            start++;
+        }
+        while (end > start && text.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        if (end - start >= 2 && text.charAt(start) == '"' && text.charAt(end - 1) == '"') {
+            start++;
+            end--;
+        }
+        if (start < end && text.charAt(start) == '[') {
+            for (int i = start + 1; i < end; i++) {
+                if (text.charAt(i) == ']') {
+                    return IpAddress.parse(text, start + 1, i);
+                }
+            }
+            return null;
+        }
+        // IPv4 with a port: exactly one colon
+        int colon = -1;
+        for (int i = start; i < end; i++) {
+            if (text.charAt(i) == ':') {
+                if (colon >= 0) {
+                    return IpAddress.parse(text, start, end);
+                }
+                colon = i;
+            }
+        }
+        return IpAddress.parse(text, start, colon < 0 ? end : colon);
+    }
+
+    /** Start of the comma-separated element ending at {@code end}, ignoring commas inside quotes. */
+    private static int elementStart(String chain, int end) {
+        boolean quoted = false;
+        for (int i = end - 1; i >= 0; i--) {
+            char c = chain.charAt(i);
+            if (c == '"') {
+                quoted = !quoted;
+            } else if (c == ',' && !quoted) {
+                return i + 1;
+            }
+        }
+        return 0;
+    }
+
+    /** Index of the value of {@code name} (e.g. {@code for=}) within {@code chain[start, end)}, or -1. */
+    private static int paramValue(String chain, int start, int end, String name) {
+        int pair = start;
+        while (pair < end) {
+            while (pair < end && (chain.charAt(pair) == ' ' || chain.charAt(pair) == '\t')) {
+                pair++;
+            }
+            if (chain.regionMatches(true, pair, name, 0, name.length())) {
+                return pair + name.length();
+            }
+            int next = paramEnd(chain, pair, end);
+            pair = next + 1;
+        }
+        return -1;
+    }
+
+    /** End of the {@code ;}-separated pair starting at {@code from}, ignoring semicolons inside quotes. */
+    private static int paramEnd(String chain, int from, int end) {
+        boolean quoted = false;
+        for (int i = from; i < end; i++) {
+            char c = chain.charAt(i);
+            if (c == '"') {
+                quoted = !quoted;
+            } else if (c == ';' && !quoted) {
+                return i;
+            }
+        }
+        return end;
+    }
+
+    private static String lastToken(String value) {
+        if (value == null) {
+            return null;
+        }
+        int comma = value.lastIndexOf(',');
+        return (comma < 0 ? value : value.substring(comma + 1)).trim();
+    }
+
+    /** All values of a header joined with commas; allocates only when the header is repeated. */
+    private static String header(HttpServletRequest request, String name) {
+        Enumeration<String> values = request.getHeaders(name);
+        if (values == null || !values.hasMoreElements()) {
+            return null;
+        }
+        String first = values.nextElement();
+        if (!values.hasMoreElements()) {
+            return first.isEmpty() ? null : first;
+        }
+        StringBuilder joined = new StringBuilder(first);
+        while (values.hasMoreElements()) {
+            joined.append(',').append(values.nextElement());
+        }
+        return joined.toString();
+    }
+
+    /** The client behind the trusted proxies, and the scheme and port it connected to them with. */
+    record Forwarding(IpAddress client, String scheme, int serverPort) {
+    }
+
+    /** Presents the forwarded client address, scheme and port in place of the proxy's. */
+    private static final class ForwardedRequest extends HttpServletRequestWrapper {
+        private final String remoteAddr;
+        private final String scheme;
+        private final int serverPort;
+
+        ForwardedRequest(HttpServletRequest request, Forwarding forwarding) {
+            super(request);
+            this.remoteAddr = forwarding.client().toString();
+            this.scheme = forwarding.scheme();
+            this.serverPort = forwarding.serverPort();
+        }
+
+        @Override
+        public String getRemoteAddr() {
+            return remoteAddr;
+        }
+
+        @Override
+        public String getRemoteHost() {
+            return remoteAddr;
+        }
+
+        @Override
+        public String getScheme() {
+            return scheme;
+        }
+
+        @Override
+        public boolean isSecure() {
+            return "https".equals(scheme);
+        }
+
+        @Override
+        public int getServerPort() {
+            return serverPort;
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package com.example.reverseip;
+
+import com.aayushatharva.brotli4j.Brotli4jLoader;
+import com.aayushatharva.brotli4j.encoder.Encoder;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * gzip and Brotli encoder with a reusable output buffer. The gzip member (header, raw
+ * deflate stream, CRC-32 and size trailer) is written by hand so one {@link Deflater} can
+ * be {@linkplain Deflater#reset() reset} and reused, instead of allocating the native
+ * deflate state that every {@link java.util.zip.GZIPOutputStream} creates and frees.
+ *
+ * <p>Per-request instances come from a {@linkplain ScratchPool#shared shared pool}: a
+ * {@link Deflater} holds a few hundred kilobytes of native memory, too much to keep one per
+ * Tomcat thread. Static assets are compressed once at startup with {@link #compressOnce}.
+ */
+final class Compressor {
+    /** Dynamic responses: cheap enough to run per request and still well under half the size. */
+    private static final int DYNAMIC_GZIP_LEVEL = 6;
+    private static final int DYNAMIC_BROTLI_QUALITY = 5;
+    /** Static assets: compressed once, so spend whatever it takes. */
+    private static final int STATIC_GZIP_LEVEL = Deflater.BEST_COMPRESSION;
+    private static final int STATIC_BROTLI_QUALITY = 11;
+
+    private static final int INITIAL_CAPACITY = 8 * 1024;
+    private static final int RETAINED_CAPACITY = 64 * 1024;
+    private static final byte[] GZIP_HEADER = {0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff};
+
+    private static final boolean BROTLI = Brotli4jLoader.isAvailable();
+    private static final ScratchPool<Compressor> COMPRESSORS = ScratchPool.shared(
+            () -> new Compressor(DYNAMIC_GZIP_LEVEL, DYNAMIC_BROTLI_QUALITY));
+
+    private final Deflater deflater;
+    private final CRC32 crc = new CRC32();
+    private final Encoder.Parameters brotli;
+    private byte[] bytes = new byte[INITIAL_CAPACITY];
+    private int length;
+
+    private Compressor(int gzipLevel, int brotliQuality) {
+        this.deflater = new Deflater(gzipLevel, true);
+        this.brotli = new Encoder.Parameters().setQuality(brotliQuality).setMode(Encoder.Mode.TEXT);
+    }
+
+    /** Whether the Brotli native library loaded on this platform; gzip is always available. */
+    static boolean brotliAvailable() {
+        return BROTLI;
+    }
+
+    /** Borrows a compressor for one response; hand it back with {@link #release()}. */
+    static Compressor acquire() {
+        return COMPRESSORS.acquire();
+    }
+
+    /** Compresses a static asset at the highest setting; {@code null} if the coding is not available. */
+    static byte[] compressOnce(ContentCoding coding, byte[] data) {
+        Compressor compressor = new Compressor(STATIC_GZIP_LEVEL, STATIC_BROTLI_QUALITY);
+        try {
+            if (!compressor.compress(coding, data, 0, data.length)) {
+                return null;
+            }
+            return Arrays.copyOf(compressor.bytes, compressor.length);
+        } finally {
+            compressor.deflater.end();
+        }
+    }
+
+    /**
+     * Replaces the buffer contents with {@code data[offset, offset + count)} encoded with
+     * {@code coding}; returns {@code false}, leaving the buffer empty, if that coding is not
+     * available here.
+     */
+    boolean compress(ContentCoding coding, byte[] data, int offset, int count) {
+        length = 0;
+        return switch (coding) {
+            case GZIP -> {
+                gzip(data, offset, count);
+                yield true;
+            }
+            case BROTLI -> BROTLI && brotli(data, offset, count);
+            case IDENTITY -> false;
+        };
+    }
+
+    int length() {
+        return length;
+    }
+
+    void writeTo(OutputStream out) throws IOException {
+        out.write(bytes, 0, length);
+    }
+
+    /** Empties the buffer, drops oversized storage and returns it to the pool. */
+    void release() {
+        length = 0;
+        if (bytes.length > RETAINED_CAPACITY) {
+            bytes = new byte[INITIAL_CAPACITY];
+        }
+        COMPRESSORS.release(this);
+    }
+
+    private void gzip(byte[] data, int offset, int count) {
+        ensureCapacity(GZIP_HEADER.length + count / 2 + 64);
+        System.arraycopy(GZIP_HEADER, 0, bytes, 0, GZIP_HEADER.length);
+        length = GZIP_HEADER.length;
+
+        deflater.reset();
+        deflater.setInput(data, offset, count);
+        deflater.finish();
+        while (!deflater.finished()) {
+            if (length == bytes.length) {
+                ensureCapacity(length * 2);
+            }
+            length += deflater.deflate(bytes, length, bytes.length - length);
+        }
+
+        crc.reset();
+        crc.update(data, offset, count);
+        ensureCapacity(length + 8);
+        writeIntLE((int) crc.getValue());
+        writeIntLE(count);
+    }
+
+    private boolean brotli(byte[] data, int offset, int count) {
+        try {
+            // The encoder returns a right-sized array of its own; adopt it as the buffer
+            bytes = Encoder.compress(data, offset, count, brotli);
+            length = bytes.length;
+            return true;
+        } catch (IOException e) {
+            length = 0;
+            return false;
+        }
+    }
+
+    private void writeIntLE(int value) {
+        bytes[length++] = (byte) value;
+        bytes[length++] = (byte) (value >>> 8);
+        bytes[length++] = (byte) (value >>> 16);
+        bytes[length++] = (byte) (value >>> 24);
+    }
+
+    private void ensureCapacity(int required) {
+        if (required > bytes.length) {
+            bytes = Arrays.copyOf(bytes, Math.max(required, bytes.length * 2));
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.reverseip;
+
+/**
+ * Response content codings the server can produce, and the choice among them for a given
+ * {@code Accept-Encoding} header. Brotli is preferred over gzip at equal quality values and
+ * is only offered when its native library loaded (see {@link Compressor#brotliAvailable()}).
+ */
+enum ContentCoding {
+    BROTLI("br"), GZIP("gzip"), IDENTITY(null);
+
+    private final String token;
+
+    ContentCoding(String token) {
+        this.token = token;
+    }
+
+    /** The {@code Content-Encoding} value, or {@code null} for identity. */
+    String token() {
+        return token;
+    }
+
+    static ContentCoding negotiate(String acceptEncoding) {
+        return negotiate(acceptEncoding, Compressor.brotliAvailable());
+    }
+
+    static ContentCoding negotiate(String acceptEncoding, boolean brotli) {
+        if (acceptEncoding == null || acceptEncoding.isEmpty()) {
+            return IDENTITY;
+        }
+        float br = -1;
+        float gzip = -1;
+        float any = -1;
+        int length = acceptEncoding.length();
+        int start = 0;
+        while (start < length) {
+            int end = acceptEncoding.indexOf(',', start);
+            if (end < 0) {
+                end = length;
+            }
+            int semicolon = acceptEncoding.indexOf(';', start);
+            int nameEnd = semicolon >= 0 && semicolon < end ? semicolon : end;
+            String name = acceptEncoding.substring(start, nameEnd).strip();
+            float quality = nameEnd < end ? quality(acceptEncoding, nameEnd + 1, end) : 1;
+            if (name.equalsIgnoreCase("br")) {
+                br = quality;
+            } else if (name.equalsIgnoreCase("gzip") || name.equalsIgnoreCase("x-gzip")) {
+                gzip = quality;
+            } else if (name.equals("*")) {
+                any = quality;
+            }
+            start = end + 1;
+        }
+        if (br < 0) {
+            br = any;
+        }
+        if (gzip < 0) {
+            gzip = any;
+        }
+        if (brotli && br > 0 && br >= gzip) {
+            return BROTLI;
+        }
+        return gzip > 0 ? GZIP : IDENTITY;
+    }
+
+    /** Parses the {@code q=} parameter in {@code value[start, end)}; 1 when absent, 0 when malformed. */
+    private static float quality(String value, int start, int end) {
+        String params = value.substring(start, end).strip();
+        if (!params.regionMatches(true, 0, "q=", 0, 2)) {
+            return 1;
+        }
+        return qvalue(params.substring(2).strip());
+    }
+
+    /**
+     * A qvalue as RFC 9110 section 12.4.2 defines it, {@code 0[.ddd]} or {@code 1[.000]}; anything
+     * else (a sign, an exponent, {@code NaN}, a fourth decimal) is 0.
+     */
+    private static float qvalue(String q) {
+        int length = q.length();
+        if (length == 0 || length > 5 || (length > 1 && q.charAt(1) != '.')) {
+            return 0;
+        }
+        int thousandths = 0;
+        for (int i = 2; i < 5; i++) {
+            int digit = i < length ? q.charAt(i) - '0' : 0;
+            if (digit < 0 || digit > 9) {
+                return 0;
+            }
+            thousandths = thousandths * 10 + digit;
+        }
+        return switch (q.charAt(0)) {
+            case '0' -> thousandths / 1000f;
+            case '1' -> thousandths == 0 ? 1 : 0;
+            default -> 0;
+        };
+    }
+}
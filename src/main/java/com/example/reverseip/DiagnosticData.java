@@ -0,0 +1,93 @@
+package com.example.reverseip;
+
+/**
+ * Writes the {@code ip}, {@code connection} and {@code headers} members of the Terminal Mode
+ * JSON, shared by {@link DiagnosticService} and the {@link FragmentCache}, which keeps them
+ * pre-rendered.
+ */
+final class DiagnosticData {
+    /** The member name just before the remote port, the one per-connection value in the IP section. */
+    static final String REMOTE_PORT = "    \"remotePort\": ";
+
+    private DiagnosticData() {
+    }
+
+    static void appendIp(JsonWriter json, RequestInfo request, String clientIp, String reversePointer,
+                         String hostname, PrefixDatabase.Network network) {
+        json.raw("  \"ip\": {\n");
+        json.raw("    \"detected\": ").string(clientIp).raw(",\n");
+        json.raw("    \"reversePointer\": ").string(reversePointer).raw(",\n");
+        if (hostname != null) {
+            json.raw("    \"hostname\": ").string(hostname).raw(",\n");
+        }
+        if (network != null) {
+            if (network.asn() != 0) {
+                json.raw("    \"asn\": ").number(network.asn()).raw(",\n");
+            }
+            if (network.organization() != null) {
+                json.raw("    \"organization\": ").string(network.organization()).raw(",\n");
+            }
+            if (network.country() != null) {
+                json.raw("    \"country\": ").string(network.country()).raw(",\n");
+            }
+        }
+
+        String forwardedFor = request.header("X-Forwarded-For");
+        if (forwardedFor != null && !forwardedFor.isEmpty()) {
+            json.raw("    \"xForwardedFor\": ").string(forwardedFor).raw(",\n");
+        }
+        json.raw("    \"remoteAddr\": ").string(request.remoteAddr()).raw(",\n");
+        json.raw("    \"remoteHost\": ").string(request.remoteHost()).raw(",\n");
+        json.raw(REMOTE_PORT).number(request.remotePort()).raw("\n");
+        json.raw("  },\n");
+    }
+
+    static void appendConnection(JsonWriter json, RequestInfo request) {
+        json.raw("  \"connection\": {\n");
+        json.raw("    \"protocol\": ").string(request.protocol()).raw(",\n");
+        json.raw("    \"method\": ").string(request.method()).raw(",\n");
+        json.raw("    \"scheme\": ").string(request.scheme()).raw(",\n");
+        json.raw("    \"serverName\": ").string(request.serverName()).raw(",\n");
+        json.raw("    \"serverPort\": ").number(request.serverPort()).raw(",\n");
+        json.raw("    \"requestURI\": ").string(request.requestURI());
+        String queryString = request.queryString();
+        if (queryString != null) {
+            json.raw(",\n    \"queryString\": ").string(queryString);
+        }
+        json.raw("\n  },\n");
+    }
+
+    /**
+     * Writes the headers as one member per name, in order of first appearance, with a repeated
+     * header's values as an array (they cannot be joined safely: {@code Cookie} uses
+     * {@code "; "}, most others {@code ", "}), followed by {@code headersOmitted} when the limits
+     * left some out. Returns the number of headers the request carried.
+     */
+    static int appendHeaders(JsonWriter json, RequestHeaders headers) {
+        json.raw("  \"headers\": {\n");
+        boolean first = true;
+        for (int i = 0; i < headers.size(); i++) {
+            if (headers.first(i) != i) {
+                continue;
+            }
+            if (!first) json.raw(",\n");
+            json.raw("    ").string(headers.name(i)).raw(": ");
+            int next = headers.next(i);
+            if (next < 0) {
+                json.string(headers.value(i));
+            } else {
+                json.raw("[").string(headers.value(i));
+                for (; next >= 0; next = headers.next(next)) {
+                    json.raw(", ").string(headers.value(next));
+                }
+                json.raw("]");
+            }
+            first = false;
+        }
+        json.raw("\n  },\n");
+        if (headers.omitted() > 0) {
+            json.raw("  \"headersOmitted\": ").number(headers.omitted()).raw(",\n");
+        }
+        return headers.size() + headers.omitted();
+    }
+}
@@ -0,0 +1,945 @@
+package com.example.reverseip;
+
+import org.springframework.stereotype.Component;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.HexFormat;
+import java.util.Map;
+
+/**
+ * The diagnostic HTML page, split once at startup into pre-encoded UTF-8 segments.
+ * In the compact payload mode the Classic View text is left empty and rendered in the
+ * browser from the JSON data; the head then carries a {@code <noscript>} refresh to the full
+ * payload, so a browser without JavaScript still gets the server-rendered text.
+ * Requests stream the static segments and the two dynamic parts (Classic View text
+ * and Terminal Mode JSON) straight to the servlet output stream. The Classic View
+ * text is HTML-escaped; the JSON is expected to be script-safe already (see {@link JsonWriter}).
+ *
+ * <p>The stylesheet and script are the same for every visitor and most of the page's
+ * weight, so they are served separately as {@link Asset}s under content-hashed paths that
+ * can be cached forever, with gzip and Brotli variants compressed once at startup. The
+ * remaining HTML shell is compressed per response when the client accepts it.
+ */
+@Component
+class DiagnosticPage {
+    private static final String DIAGNOSTICS_PLACEHOLDER = "DIAGNOSTICS_PLACEHOLDER";
+    private static final String JSON_DATA_PLACEHOLDER = "JSON_DATA_PLACEHOLDER";
+    private static final String STYLESHEET_URL = "STYLESHEET_URL";
+    private static final String SCRIPT_URL = "SCRIPT_URL";
+    private static final String NOSCRIPT_PLACEHOLDER = "NOSCRIPT_PLACEHOLDER";
+    private static final String NOSCRIPT = "<noscript><meta http-equiv=\"refresh\" content=\"0; url=?payload=full\"></noscript>";
+
+    private static final String HTML_TEMPLATE = """
+            <!DOCTYPE html>
+            <html lang="en">
+            <head>
+                <meta charset="UTF-8">
+                <meta name="viewport" content="width=device-width, initial-scale=1.0">
+                <title>PublicIP.org - Network Diagnostics</title>
+                <link rel="canonical" href="https://publicip.org">
+                <link rel="stylesheet" href="STYLESHEET_URL">
+                NOSCRIPT_PLACEHOLDER
+            </head>
+            <body>
+                <div class="container">
+                    <div class="view-controls">
+                        <button id="toggleClassic" class="view-toggle active">CLASSIC VIEW</button>
+                        <button id="toggleTerminal" class="view-toggle">TERMINAL MODE</button>
+                    </div>
+
+                    <div id="classicView" class="view-container active">
+                        <div class="controls">
+                            <button onclick="copyToClipboard()">⎘ COPY TO CLIPBOARD</button>
+                            <button onclick="window.location.reload()">↻ REFRESH</button>
+                            <button onclick="downloadAsText()">⇓ DOWNLOAD</button>
+                        </div>
+                        <pre id="diagnostics">DIAGNOSTICS_PLACEHOLDER</pre>
+                    </div>
+
+                    <div id="terminalView" class="view-container hidden">
+                        <div id="terminalOutput" class="terminal-output"></div>
+                        <div class="terminal-input-container">
+                            <span class="prompt">publicip&gt; </span>
+                            <input type="text" id="terminalInput" class="terminal-input"
+                                   autocomplete="off" spellcheck="false" autofocus>
+                            <span class="cursor">_</span>
+                        </div>
+                    </div>
+
+                    <div class="footer">
+                        <span class="blink">▓</span> PublicIP.org - Network Diagnostic Tool <span class="blink">▓</span><br>
+                        Powered by Spring Boot | <a href="https://github.com/anthropics/claude-code" target="_blank">Built with Claude Code</a>
+                    </div>
+                </div>
+                <script id="diagnosticDataScript" type="application/json">
+JSON_DATA_PLACEHOLDER
+                </script>
+                <script src="SCRIPT_URL"></script>
+            </body>
+            </html>
+            """;
+
+    private static final String STYLESHEET = """
+                    * {
+                        margin: 0;
+                        padding: 0;
+                        box-sizing: border-box;
+                    }
+                    body {
+                        background-color: #000000;
+                        color: #00ff00;
+                        font-family: 'Courier New', Courier, monospace;
+                        padding: 20px;
+                        line-height: 1.6;
+                        min-height: 100vh;
+                        display: flex;
+                        flex-direction: column;
+                        align-items: center;
+                    }
+                    .container {
+                        max-width: 900px;
+                        width: 100%;
+                        margin: 0 auto;
+                    }
+                    pre {
+                        font-family: 'Courier New', Courier, monospace;
+                        white-space: pre-wrap;
+                        word-wrap: break-word;
+                        color: #00ff00;
+                        text-shadow: 0 0 5px #00ff00;
+                        font-size: 14px;
+                    }
+                    .controls {
+                        margin: 20px 0;
+                        display: flex;
+                        gap: 10px;
+                        flex-wrap: wrap;
+                    }
+                    button {
+                        background-color: #003300;
+                        color: #00ff00;
+                        border: 2px solid #00ff00;
+                        padding: 10px 20px;
+                        font-family: 'Courier New', Courier, monospace;
+                        cursor: pointer;
+                        font-size: 14px;
+                        transition: all 0.3s;
+                    }
+                    button:hover {
+                        background-color: #00ff00;
+                        color: #000000;
+                        box-shadow: 0 0 10px #00ff00;
+                    }
+                    .footer {
+                        margin-top: 30px;
+                        text-align: center;
+                        color: #00aa00;
+                        font-size: 12px;
+                        border-top: 1px solid #003300;
+                        padding-top: 20px;
+                    }
+                    .blink {
+                        animation: blink 1s infinite;
+                    }
+                    @keyframes blink {
+                        0%, 50% { opacity: 1; }
+                        25%, 75% { opacity: 0; }
+                    }
+                    a {
+                        color: #00ff00;
+                        text-decoration: none;
+                    }
+                    a:hover {
+                        text-decoration: underline;
+                        text-shadow: 0 0 5px #00ff00;
+                    }
+                    /* View Controls */
+                    .view-controls {
+                        display: flex;
+                        gap: 10px;
+                        justify-content: flex-start;
+                        margin-bottom: 20px;
+                    }
+                    .view-toggle {
+                        opacity: 0.5;
+                    }
+                    .view-toggle.active {
+                        opacity: 1;
+                        background-color: #00ff00;
+                        color: #000000;
+                    }
+                    #toggleTerminal {
+                        background-color: #004400;
+                        border-color: #00ffff;
+                        color: #00ffff;
+                        font-weight: bold;
+                        opacity: 1;
+                        box-shadow: 0 0 8px #00ffff;
+                    }
+                    #toggleTerminal:hover {
+                        background-color: #00ffff;
+                        color: #000000;
+                        box-shadow: 0 0 15px #00ffff;
+                    }
+                    #toggleTerminal.active {
+                        background-color: #00ffff;
+                        color: #000000;
+                        border-color: #00ffff;
+                    }
+                    /* View Containers */
+                    .view-container.hidden {
+                        display: none;
+                    }
+                    /* Terminal View */
+                    .terminal-output {
+                        min-height: 400px;
+                        max-height: 70vh;
+                        overflow-y: auto;
+                        padding: 20px;
+                        margin-bottom: 10px;
+                        border: 2px solid #00ff00;
+                        background-color: #000000;
+                    }
+                    .terminal-output::-webkit-scrollbar {
+                        width: 10px;
+                    }
+                    .terminal-output::-webkit-scrollbar-track {
+                        background: #001100;
+                    }
+                    .terminal-output::-webkit-scrollbar-thumb {
+                        background: #00ff00;
+                        border: 1px solid #000000;
+                    }
+                    .terminal-line {
+                        margin-bottom: 5px;
+                        font-family: 'Courier New', Courier, monospace;
+                        white-space: pre-wrap;
+                        word-wrap: break-word;
+                        color: #00ff00;
+                    }
+                    .command-echo {
+                        color: #00ff00;
+                    }
+                    .command-text {
+                        font-weight: bold;
+                    }
+                    .response-error {
+                        color: #ff0000;
+                    }
+                    .response-info {
+                        color: #00ffff;
+                    }
+                    .terminal-input-container {
+                        display: flex;
+                        align-items: center;
+                        border: 2px solid #00ff00;
+                        padding: 10px;
+                        background-color: #001100;
+                    }
+                    .prompt {
+                        color: #00ff00;
+                        font-family: 'Courier New', Courier, monospace;
+                        margin-right: 5px;
+                        font-weight: bold;
+                    }
+                    .terminal-input {
+                        flex: 1;
+                        background: transparent;
+                        border: none;
+                        color: #00ff00;
+                        font-family: 'Courier New', Courier, monospace;
+                        font-size: 14px;
+                        outline: none;
+                        caret-color: transparent;
+                    }
+                    .cursor {
+                        color: #00ff00;
+                        font-family: 'Courier New', Courier, monospace;
+                        animation: blink 1s infinite;
+                        margin-left: 2px;
+                    }
+            """;
+
+    private static final String SCRIPT = """
+                    function copyToClipboard() {
+                        const text = document.getElementById('diagnostics').innerText;
+                        navigator.clipboard.writeText(text).then(() => {
+                            alert('✓ Diagnostics copied to clipboard!');
+                        }).catch(err => {
+                            console.error('Failed to copy:', err);
+                        });
+                    }
+
+                    function downloadAsText() {
+                        const text = document.getElementById('diagnostics').innerText;
+                        const blob = new Blob([text], { type: 'text/plain' });
+                        const url = window.URL.createObjectURL(blob);
+                        const a = document.createElement('a');
+                        a.href = url;
+                        a.download = 'network-diagnostics-' + new Date().toISOString() + '.txt';
+                        document.body.appendChild(a);
+                        a.click();
+                        document.body.removeChild(a);
+                        window.URL.revokeObjectURL(url);
+                    }
+
+                    // DiagnosticFormatter Class - renders the Classic View boxes from the
+                    // structured data when the server sends the compact payload
+                    class DiagnosticFormatter {
+                        static format(data) {
+                            const ipSection = DiagnosticFormatter.ipSection(data.ip);
+                            const connectionSection = DiagnosticFormatter.connectionSection(data.connection);
+                            const headersSection = DiagnosticFormatter.headersSection(data.headers, data.headersOmitted);
+                            const fullDiagnostics =
+                                '╔════════════════════════════════════════════════════════════════╗\\n' +
+                                '║               IP ADDRESS DIAGNOSTIC TOOL                       ║\\n' +
+                                '╚════════════════════════════════════════════════════════════════╝\\n\\n' +
+                                ipSection + '\\n\\n' +
+                                connectionSection + '\\n\\n' +
+                                headersSection + '\\n\\n' +
+                                '╭─ Timestamp: ' + data.metadata.timestamp + ' ─╮\\n';
+                            return { ipSection, connectionSection, headersSection, fullDiagnostics };
+                        }
+
+                        static ipSection(ip) {
+                            let s = '┌─ IP INFORMATION ────────────────────────────────────────────┐\\n';
+                            s += '│ Detected IP:        ' + ip.detected + '\\n';
+                            s += '│ Reverse Pointer:    ' + ip.reversePointer + '\\n';
+                            if (ip.hostname !== undefined) {
+                                s += '│ PTR Hostname:       ' + ip.hostname + '\\n';
+                            }
+                            if (ip.asn !== undefined) {
+                                s += '│ ASN:                AS' + ip.asn + '\\n';
+                            }
+                            if (ip.organization !== undefined) {
+                                s += '│ Organization:       ' + ip.organization + '\\n';
+                            }
+                            if (ip.country !== undefined) {
+                                s += '│ Country:            ' + ip.country + '\\n';
+                            }
+                            if (ip.xForwardedFor !== undefined) {
+                                s += '│ X-Forwarded-For:    ' + ip.xForwardedFor + '\\n';
+                            }
+                            s += '│ Remote Address:     ' + ip.remoteAddr + '\\n';
+                            s += '│ Remote Host:        ' + ip.remoteHost + '\\n';
+                            s += '│ Remote Port:        ' + ip.remotePort + '\\n';
+                            return s + DiagnosticFormatter.FOOTER;
+                        }
+
+                        static connectionSection(c) {
+                            let s = '┌─ CONNECTION DETAILS ────────────────────────────────────────┐\\n';
+                            s += '│ Protocol:           ' + c.protocol + '\\n';
+                            s += '│ Method:             ' + c.method + '\\n';
+                            s += '│ Scheme:             ' + c.scheme + '\\n';
+                            s += '│ Server Name:        ' + c.serverName + '\\n';
+                            s += '│ Server Port:        ' + c.serverPort + '\\n';
+                            s += '│ Request URI:        ' + c.requestURI + '\\n';
+                            if (c.queryString !== undefined) {
+                                s += '│ Query String:       ' + c.queryString + '\\n';
+                            }
+                            return s + DiagnosticFormatter.FOOTER;
+                        }
+
+                        static headersSection(headers, omitted) {
+                            let s = '┌─ HTTP HEADERS ──────────────────────────────────────────────┐\\n';
+                            for (const [name, values] of Object.entries(headers)) {
+                                // A repeated header's values come as an array, one line each
+                                for (const value of [].concat(values)) {
+                                    s += '│ ' + name.padEnd(18) + ': ' + value + '\\n';
+                                }
+                            }
+                            if (omitted !== undefined) {
+                                s += '│ (' + omitted + ' more not shown)\\n';
+                            }
+                            return s + DiagnosticFormatter.FOOTER;
+                        }
+                    }
+                    DiagnosticFormatter.FOOTER = '└─────────────────────────────────────────────────────────────┘';
+
+                    // ViewToggle Class
+                    class ViewToggle {
+                        constructor() {
+                            this.classicView = document.getElementById('classicView');
+                            this.terminalView = document.getElementById('terminalView');
+                            this.classicBtn = document.getElementById('toggleClassic');
+                            this.terminalBtn = document.getElementById('toggleTerminal');
+
+                            this.classicBtn.addEventListener('click', () => this.switchTo('classic'));
+                            this.terminalBtn.addEventListener('click', () => this.switchTo('terminal'));
+                        }
+
+                        switchTo(view) {
+                            if (view === 'classic') {
+                                this.classicView.classList.remove('hidden');
+                                this.terminalView.classList.add('hidden');
+                                this.classicBtn.classList.add('active');
+                                this.terminalBtn.classList.remove('active');
+                            } else {
+                                this.terminalView.classList.remove('hidden');
+                                this.classicView.classList.add('hidden');
+                                this.terminalBtn.classList.add('active');
+                                this.classicBtn.classList.remove('active');
+                                if (window.terminalInstance) {
+                                    window.terminalInstance.focusInput();
+                                }
+                            }
+                        }
+                    }
+
+                    // Terminal Class
+                    class Terminal {
+                        constructor(data) {
+                            this.data = data;
+                            this.history = [];
+                            this.historyIndex = -1;
+                            this.output = document.getElementById('terminalOutput');
+                            this.input = document.getElementById('terminalInput');
+                            this.parser = new CommandParser(this.data);
+                            this.renderer = new TerminalRenderer(this.output);
+
+                            this.init();
+                        }
+
+                        init() {
+                            this.input.addEventListener('keydown', (e) => this.handleKeyDown(e));
+                            this.displayWelcome();
+                        }
+
+                        handleKeyDown(e) {
+                            if (e.key === 'Enter') {
+                                e.preventDefault();
+                                this.executeCommand();
+                            } else if (e.key === 'ArrowUp') {
+                                e.preventDefault();
+                                this.navigateHistory(-1);
+                            } else if (e.key === 'ArrowDown') {
+                                e.preventDefault();
+                                this.navigateHistory(1);
+                            } else if (e.key === 'Tab') {
+                                e.preventDefault();
+                                this.handleTabComplete();
+                            } else if (e.key === 'c' && e.ctrlKey) {
+                                e.preventDefault();
+                                this.input.value = '';
+                            } else if (e.key === 'l' && e.ctrlKey) {
+                                e.preventDefault();
+                                this.output.innerHTML = '';
+                                this.displayWelcome();
+                            }
+                        }
+
+                        executeCommand() {
+                            const cmd = this.input.value.trim();
+                            if (cmd) {
+                                this.history.push(cmd);
+                                this.historyIndex = this.history.length;
+                                this.renderer.renderCommand(cmd);
+                                const result = this.parser.execute(cmd);
+                                if (result.type === 'clear') {
+                                    this.output.innerHTML = '';
+                                    this.displayWelcome();
+                                } else {
+                                    this.renderer.renderResponse(result);
+                                }
+                                this.input.value = '';
+                                this.scrollToBottom();
+                            }
+                        }
+
+                        navigateHistory(dir) {
+                            const newIndex = this.historyIndex + dir;
+                            if (newIndex >= 0 && newIndex < this.history.length) {
+                                this.historyIndex = newIndex;
+                                this.input.value = this.history[this.historyIndex];
+                            } else if (newIndex === this.history.length) {
+                                this.historyIndex = newIndex;
+                                this.input.value = '';
+                            }
+                        }
+
+                        handleTabComplete() {
+                            const partial = this.input.value.toLowerCase();
+                            const commands = this.parser.getCommands();
+                            const matches = commands.filter(c => c.startsWith(partial));
+                            if (matches.length === 1) {
+                                this.input.value = matches[0];
+                            }
+                        }
+
+                        displayWelcome() {
+                            this.renderer.renderText(`╔════════════════════════════════════════════════════════════════╗
+║               IP ADDRESS DIAGNOSTIC TOOL                       ║
+╚════════════════════════════════════════════════════════════════╝
+
+Your IP: ` + this.data.ip.detected + `
+
+Type 'help' for available commands.
+`);
+                        }
+
+                        focusInput() {
+                            this.input.focus();
+                        }
+
+                        scrollToBottom() {
+                            this.output.scrollTop = this.output.scrollHeight;
+                        }
+                    }
+
+                    // CommandParser Class
+                    class CommandParser {
+                        constructor(data) {
+                            this.data = data;
+                            this.commands = {
+                                ip: () => ({ type: 'success', content: this.data.formatted.ipSection, animated: true }),
+                                headers: () => ({ type: 'success', content: this.data.formatted.headersSection, animated: true }),
+                                connection: () => ({ type: 'success', content: this.data.formatted.connectionSection, animated: true }),
+                                all: () => ({ type: 'success', content: this.data.formatted.fullDiagnostics, animated: false }),
+                                clear: () => ({ type: 'clear' }),
+                                help: () => this.showHelp(),
+                                download: () => this.downloadSession(),
+                                history: () => this.showHistory(),
+                                watch: (args) => this.watch(args),
+                                'history-ip': (args) => this.historyIp(args)
+                            };
+                            this.watcher = null;
+                            this.live = null;
+                        }
+
+                        execute(cmdLine) {
+                            const [cmd, ...args] = cmdLine.toLowerCase().trim().split(/\\s+/);
+                            const cmdFn = this.commands[cmd];
+                            return cmdFn ? cmdFn(args) : {
+                                type: 'error',
+                                content: `Command not found: ` + cmd + `. Type 'help' for available commands.`,
+                                animated: false
+                            };
+                        }
+
+                        showHelp() {
+                            return {
+                                type: 'info',
+                                content: `
+Available Commands:
+
+  ip           - Show IP address and reverse pointer
+  headers      - Display all HTTP headers
+  connection   - Show connection details
+  all          - Display complete diagnostics
+  clear        - Clear the terminal screen
+  help         - Show this help message
+  download     - Download session as text file
+  history      - Show command history
+  watch        - Follow live changes to your IP, PTR and headers
+  watch stop   - Stop following
+  history-ip   - Show the IP changes recorded for this browser
+    on | off   - Start recording them, or stop and forget them
+
+Keyboard Shortcuts:
+  Ctrl+C       - Clear current input
+  Ctrl+L       - Clear screen
+  ↑/↓          - Navigate command history
+  Tab          - Auto-complete command
+`,
+                                animated: false
+                            };
+                        }
+
+                        downloadSession() {
+                            const content = document.getElementById('terminalOutput').innerText;
+                            const blob = new Blob([content], { type: 'text/plain' });
+                            const url = window.URL.createObjectURL(blob);
+                            const a = document.createElement('a');
+                            a.href = url;
+                            a.download = 'terminal-session-' + new Date().toISOString() + '.txt';
+                            document.body.appendChild(a);
+                            a.click();
+                            document.body.removeChild(a);
+                            window.URL.revokeObjectURL(url);
+                            return { type: 'success', content: 'Session downloaded.', animated: false };
+                        }
+
+                        showHistory() {
+                            const hist = window.terminalInstance.history;
+                            if (hist.length === 0) {
+                                return { type: 'info', content: 'No command history.', animated: false };
+                            }
+                            let content = '\\nCommand History:\\n\\n';
+                            hist.forEach((cmd, i) => {
+                                content += '  ' + (i+1).toString().padStart(3) + '.  ' + cmd + '\\n';
+                            });
+                            return { type: 'info', content, animated: false };
+                        }
+
+                        getCommands() {
+                            return Object.keys(this.commands);
+                        }
+
+                        // Follows /live: the first event is compared with the page's data, later
+                        // ones carry only what changed since the previous connection
+                        watch(args) {
+                            if (args[0] === 'stop') {
+                                if (!this.watcher) {
+                                    return { type: 'info', content: 'Not watching.', animated: false };
+                                }
+                                this.watcher.close();
+                                this.watcher = null;
+                                return { type: 'info', content: 'Stopped watching.', animated: false };
+                            }
+                            if (this.watcher) {
+                                return { type: 'info', content: `Already watching. Type 'watch stop' to stop.`, animated: false };
+                            }
+                            if (!window.EventSource) {
+                                return { type: 'error', content: 'Live updates are not supported by this browser.', animated: false };
+                            }
+                            const source = new EventSource('/live');
+                            this.watcher = source;
+                            this.live = null;
+                            source.addEventListener('snapshot', (e) => this.onSnapshot(JSON.parse(e.data)));
+                            source.addEventListener('delta', (e) => this.onDelta(JSON.parse(e.data)));
+                            source.onerror = () => {
+                                // The browser reconnects by itself unless the server refused the stream
+                                if (source.readyState === EventSource.CLOSED && this.watcher === source) {
+                                    this.watcher = null;
+                                    this.report('error', 'Live updates stopped by the server.');
+                                }
+                            };
+                            return { type: 'info', content: `Watching for changes. Type 'watch stop' to stop.`, animated: false };
+                        }
+
+                        onSnapshot(snapshot) {
+                            const first = !this.live;
+                            const before = this.live || {
+                                ip: this.data.ip.detected,
+                                reversePointer: this.data.ip.reversePointer,
+                                hostname: this.data.ip.hostname,
+                                asn: this.data.ip.asn,
+                                organization: this.data.ip.organization,
+                                country: this.data.ip.country
+                            };
+                            this.live = snapshot;
+                            const lines = this.describeChanges(before, snapshot, false);
+                            if (lines.length) {
+                                this.report('info', lines.join('\\n'));
+                            } else if (first) {
+                                this.report('info', 'No change since the page loaded: ' + snapshot.ip);
+                            }
+                        }
+
+                        onDelta(delta) {
+                            const before = this.live;
+                            if (!before) {
+                                return;
+                            }
+                            const after = Object.assign({}, before, delta);
+                            after.headers = Object.assign({}, before.headers);
+                            Object.entries(delta.headers || {}).forEach(([name, value]) => {
+                                if (value === null) {
+                                    delete after.headers[name];
+                                } else {
+                                    after.headers[name] = value;
+                                }
+                            });
+                            this.live = after;
+                            this.report('info', this.describeChanges(before, delta, true).join('\\n'));
+                        }
+
+                        describeChanges(before, after, withHeaders) {
+                            const lines = [];
+                            ['ip', 'reversePointer', 'hostname', 'asn', 'organization', 'country'].forEach((field) => {
+                                if (field in after && after[field] !== before[field]) {
+                                    lines.push('  ' + field.padEnd(16) + (before[field] ?? '(none)') + ' → ' + (after[field] ?? '(none)'));
+                                }
+                            });
+                            if (withHeaders) {
+                                Object.entries(after.headers || {}).forEach(([name, values]) => {
+                                    [].concat(values === null ? '(removed)' : values).forEach((value) => {
+                                        lines.push('  ' + name.padEnd(16) + value);
+                                    });
+                                });
+                            }
+                            if (lines.length) {
+                                lines.unshift('[' + new Date().toLocaleTimeString() + '] Changed:');
+                            }
+                            return lines;
+                        }
+
+                        // Reads, starts or stops the server's record of this browser's addresses (/history)
+                        historyIp(args) {
+                            const action = args[0] || 'show';
+                            const method = { show: 'GET', on: 'POST', off: 'DELETE' }[action];
+                            if (!method) {
+                                return { type: 'error', content: 'Usage: history-ip [on|off]', animated: false };
+                            }
+                            fetch('/history', { method, credentials: 'same-origin' })
+                                .then((response) => response.ok ? response.json() : Promise.reject(response.status))
+                                .then((body) => this.report('info', this.describeHistory(action, body)))
+                                .catch((status) => this.report('error', status === 404
+                                    ? 'IP history is not enabled on this server.' : 'Could not reach the IP history.'));
+                            return { type: 'info', content: 'Fetching IP history...', animated: false };
+                        }
+
+                        describeHistory(action, body) {
+                            if (action === 'off') {
+                                return 'Stopped recording; your IP history was forgotten.';
+                            }
+                            if (!body.recording) {
+                                return `Not recording. Type 'history-ip on' to start.`;
+                            }
+                            const lines = [action === 'on' ? 'Recording your IP changes.' : 'Your IP changes:'];
+                            body.changes.forEach((change) => {
+                                lines.push('  ' + new Date(change.since).toLocaleString().padEnd(26) + change.ip);
+                            });
+                            if (!body.changes.length) {
+                                lines.push('  (nothing recorded yet)');
+                            }
+                            return lines.join('\\n');
+                        }
+
+                        report(type, content) {
+                            const terminal = window.terminalInstance;
+                            terminal.renderer.renderResponse({ type, content, animated: false });
+                            terminal.scrollToBottom();
+                        }
+                    }
+
+                    // TerminalRenderer Class
+                    class TerminalRenderer {
+                        constructor(output) {
+                            this.output = output;
+                        }
+
+                        renderCommand(cmd) {
+                            const div = document.createElement('div');
+                            div.className = 'terminal-line command-echo';
+                            div.innerHTML = `<span class="prompt">publicip&gt; </span><span class="command-text">` + this.escape(cmd) + `</span>`;
+                            this.output.appendChild(div);
+                        }
+
+                        renderResponse(result) {
+                            const div = document.createElement('div');
+                            div.className = `terminal-line response response-` + result.type;
+
+                            if (result.animated && result.content.length < 500) {
+                                this.animateText(div, result.content);
+                            } else {
+                                div.textContent = result.content;
+                                this.output.appendChild(div);
+                            }
+                        }
+
+                        renderText(text) {
+                            const div = document.createElement('div');
+                            div.className = 'terminal-line';
+                            div.textContent = text;
+                            this.output.appendChild(div);
+                        }
+
+                        animateText(element, text) {
+                            this.output.appendChild(element);
+                            let i = 0;
+                            const interval = setInterval(() => {
+                                if (i < text.length) {
+                                    element.textContent += text[i++];
+                                } else {
+                                    clearInterval(interval);
+                                }
+                            }, 1);
+                        }
+
+                        escape(text) {
+                            const div = document.createElement('div');
+                            div.textContent = text;
+                            return div.innerHTML;
+                        }
+                    }
+
+                    // Initialize on page load
+                    document.addEventListener('DOMContentLoaded', () => {
+                        const dataScript = document.getElementById('diagnosticDataScript');
+                        const diagnosticData = JSON.parse(dataScript.textContent);
+                        if (!diagnosticData.formatted) {
+                            diagnosticData.formatted = DiagnosticFormatter.format(diagnosticData);
+                            document.getElementById('diagnostics').textContent = diagnosticData.formatted.fullDiagnostics;
+                        }
+
+                        new ViewToggle();
+                        window.terminalInstance = new Terminal(diagnosticData);
+                    });
+            """;
+
+    /**
+     * A static file served under {@code /assets/}, with its precompressed variants. The path
+     * embeds a hash of the content, which also forms the entity tags: each variant has its
+     * own, as the bytes differ.
+     */
+    record Asset(String path, String contentType, String hash, byte[] identity, byte[] gzip, byte[] brotli) {
+
+        static Asset of(String name, String extension, String contentType, String content) {
+            byte[] identity = content.getBytes(StandardCharsets.UTF_8);
+            String hash = digest(identity);
+            return new Asset("/assets/" + name + "." + hash + "." + extension, contentType, hash,
+                    identity, Compressor.compressOnce(ContentCoding.GZIP, identity),
+                    Compressor.compressOnce(ContentCoding.BROTLI, identity));
+        }
+
+        /** The coding to serve when {@code negotiated} was chosen: identity if that variant is not available. */
+        ContentCoding coding(ContentCoding negotiated) {
+            return body(negotiated) == null ? ContentCoding.IDENTITY : negotiated;
+        }
+
+        /** The body for {@code coding}, or {@code null} if that variant is not available. */
+        byte[] body(ContentCoding coding) {
+            return switch (coding) {
+                case BROTLI -> brotli;
+                case GZIP -> gzip;
+                case IDENTITY -> identity;
+            };
+        }
+
+        /** The strong entity tag of the {@code coding} variant. */
+        String etag(ContentCoding coding) {
+            return switch (coding) {
+                case BROTLI -> "\"" + hash + "-br\"";
+                case GZIP -> "\"" + hash + "-gz\"";
+                case IDENTITY -> "\"" + hash + "\"";
+            };
+        }
+    }
+
+    private final byte[] head;
+    private final byte[] compactHead;
+    private final byte[] middle;
+    private final byte[] tail;
+    private final int staticLength;
+    private final int compactStaticLength;
+    private final String templateTag;
+    private final Map<String, Asset> assets;
+
+    DiagnosticPage() {
+        Asset stylesheet = Asset.of("diagnostic", "css", "text/css;charset=UTF-8", STYLESHEET);
+        Asset script = Asset.of("diagnostic", "js", "text/javascript;charset=UTF-8", SCRIPT);
+        this.assets = Map.of(stylesheet.path(), stylesheet, script.path(), script);
+
+        String template = HTML_TEMPLATE.replace(STYLESHEET_URL, stylesheet.path()).replace(SCRIPT_URL, script.path());
+        int diagnosticsAt = template.indexOf(DIAGNOSTICS_PLACEHOLDER);
+        int jsonAt = template.indexOf(JSON_DATA_PLACEHOLDER);
+        String headText = template.substring(0, diagnosticsAt);
+        this.head = headText.replace(NOSCRIPT_PLACEHOLDER, "").getBytes(StandardCharsets.UTF_8);
+        this.compactHead = headText.replace(NOSCRIPT_PLACEHOLDER, NOSCRIPT).getBytes(StandardCharsets.UTF_8);
+        this.middle = template.substring(diagnosticsAt + DIAGNOSTICS_PLACEHOLDER.length(), jsonAt)
+                .getBytes(StandardCharsets.UTF_8);
+        this.tail = template.substring(jsonAt + JSON_DATA_PLACEHOLDER.length()).getBytes(StandardCharsets.UTF_8);
+        this.staticLength = head.length + middle.length + tail.length;
+        this.compactStaticLength = compactHead.length + middle.length + tail.length;
+        this.templateTag = digest(head, compactHead, middle, tail);
+    }
+
+    /** Total size in bytes of the static segments of a full or compact page. */
+    int staticLength(boolean compact) {
+        return compact ? compactStaticLength : staticLength;
+    }
+
+    /**
+     * Content hash of the static segments; changes only when the template changes. The
+     * segments reference the assets by their hashed paths, so this covers those too.
+     */
+    String templateTag() {
+        return templateTag;
+    }
+
+    /** The asset served at {@code path}, or {@code null}. */
+    Asset asset(String path) {
+        return assets.get(path);
+    }
+
+    Collection<Asset> assets() {
+        return assets.values();
+    }
+
+    /**
+     * Where the page goes once its coding and length are known: sets the response's headers
+     * and returns a stream that takes exactly {@code length} bytes.
+     */
+    @FunctionalInterface
+    interface Body {
+        OutputStream open(ContentCoding coding, int length) throws IOException;
+
+        /** The page as a servlet response's body. */
+        static Body of(HttpServletResponse response) {
+            return (coding, length) -> {
+                response.setContentType("text/html;charset=UTF-8");
+                if (coding != ContentCoding.IDENTITY) {
+                    response.setHeader("Content-Encoding", coding.token());
+                }
+                response.setContentLength(length);
+                return response.getOutputStream();
+            };
+        }
+    }
+
+    /**
+     * Writes the page with the given Classic View text and JSON data, compressed with
+     * {@code coding} unless it is {@link ContentCoding#IDENTITY} or unavailable, to
+     * {@code body}; returns the number of body bytes written. A {@code compact} page has no
+     * Classic View text and sends browsers without JavaScript to the full one.
+     */
+    int write(ContentCoding coding, boolean compact, CharSequence diagnostics, CharSequence diagnosticJson,
+              Body body) throws IOException {
+        byte[] pageHead = compact ? compactHead : head;
+        Utf8Buffer buffer = Utf8Buffer.forCurrentThread();
+        try {
+            if (coding == ContentCoding.IDENTITY) {
+                return writeIdentity(body, buffer, pageHead, staticLength(compact), diagnostics, diagnosticJson);
+            }
+            // The whole body has to pass through the compressor, static segments included
+            buffer.append(pageHead).appendHtml(diagnostics).append(middle).append(diagnosticJson).append(tail);
+            Compressor compressor = Compressor.acquire();
+            try {
+                if (!compressor.compress(coding, buffer.array(), 0, buffer.length())) {
+                    buffer.writeTo(body.open(ContentCoding.IDENTITY, buffer.length()), 0, buffer.length());
+                    return buffer.length();
+                }
+                compressor.writeTo(body.open(coding, compressor.length()));
+                return compressor.length();
+            } finally {
+                compressor.release();
+            }
+        } finally {
+            buffer.release();
+        }
+    }
+
+    private int writeIdentity(Body body, Utf8Buffer buffer, byte[] pageHead, int pageStaticLength,
+                              CharSequence diagnostics, CharSequence diagnosticJson) throws IOException {
+        buffer.appendHtml(diagnostics);
+        int diagnosticsEnd = buffer.length();
+        buffer.append(diagnosticJson);
+
+        int length = pageStaticLength + buffer.length();
+        OutputStream out = body.open(ContentCoding.IDENTITY, length);
+        out.write(pageHead);
+        buffer.writeTo(out, 0, diagnosticsEnd);
+        out.write(middle);
+        buffer.writeTo(out, diagnosticsEnd, buffer.length() - diagnosticsEnd);
+        out.write(tail);
+        return length;
+    }
+
+    private static String digest(byte[]... segments) {
+        try {
+            MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+            for (byte[] segment : segments) {
+                sha256.update(segment);
+            }
+            return HexFormat.of().formatHex(sha256.digest(), 0, 8);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -0,0 +1,222 @@
+package com.example.reverseip;
+
+import java.time.Instant;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Renders the Classic View box layout straight into a reusable {@link StringBuilder}
+ * from a {@link ScratchPool}. The three sections are written once, in place, and their
+ * offsets are remembered so the Terminal Mode JSON can reuse them without copying.
+ */
+final class DiagnosticRenderer {
+    private static final int INITIAL_CAPACITY = 4 * 1024;
+    private static final int RETAINED_CAPACITY = 64 * 1024;
+    private static final int HEADER_NAME_WIDTH = 18;
+
+    private static final String BANNER = """
+            ╔════════════════════════════════════════════════════════════════╗
+            ║               IP ADDRESS DIAGNOSTIC TOOL                       ║
+            ╚════════════════════════════════════════════════════════════════╝
+
+            """;
+    private static final String SECTION_FOOTER = "└─────────────────────────────────────────────────────────────┘";
+
+    private static final ScratchPool<DiagnosticRenderer> RENDERERS = new ScratchPool<>(DiagnosticRenderer::new);
+
+    private StringBuilder text = new StringBuilder(INITIAL_CAPACITY);
+    private int ipStart;
+    private int ipEnd;
+    private int connectionStart;
+    private int connectionEnd;
+    private int headersStart;
+    private int headersEnd;
+
+    private DiagnosticRenderer() {
+    }
+
+    /**
+     * Renders the full diagnostics for this request into the calling thread's renderer.
+     * The result is only valid until the renderer is {@linkplain #release() released}.
+     */
+    static DiagnosticRenderer render(RequestInfo request, String clientIp, String reversePointer,
+                                     String hostname, PrefixDatabase.Network network, Instant timestamp) {
+        DiagnosticRenderer renderer = RENDERERS.acquire();
+        renderer.reset();
+        StringBuilder out = renderer.text;
+
+        out.append(BANNER);
+        renderer.ipStart = out.length();
+        appendIpSection(out, request, clientIp, reversePointer, hostname, network);
+        renderer.ipEnd = out.length();
+        out.append("\n\n");
+
+        renderer.connectionStart = out.length();
+        appendConnectionSection(out, request);
+        renderer.connectionEnd = out.length();
+        out.append("\n\n");
+
+        renderer.headersStart = out.length();
+        appendHeadersSection(out, request.headers());
+        renderer.headersEnd = out.length();
+        out.append("\n\n");
+
+        appendTimestamp(out, timestamp);
+        return renderer;
+    }
+
+    /** As {@link #render}, but copying the sections from the {@link FragmentCache}. */
+    static DiagnosticRenderer render(FragmentCache.Fragments fragments, Instant timestamp) {
+        DiagnosticRenderer renderer = RENDERERS.acquire();
+        renderer.reset();
+        StringBuilder out = renderer.text;
+        int port = fragments.remotePort();
+
+        out.append(BANNER);
+        renderer.ipStart = out.length();
+        fragments.ip().appendText(out, port);
+        renderer.ipEnd = out.length();
+        out.append("\n\n");
+
+        renderer.connectionStart = out.length();
+        fragments.connection().appendText(out, port);
+        renderer.connectionEnd = out.length();
+        out.append("\n\n");
+
+        renderer.headersStart = out.length();
+        fragments.headers().appendText(out, port);
+        renderer.headersEnd = out.length();
+        out.append("\n\n");
+
+        appendTimestamp(out, timestamp);
+        return renderer;
+    }
+
+    private static void appendTimestamp(StringBuilder out, Instant timestamp) {
+        out.append("╭─ Timestamp: ");
+        DateTimeFormatter.ISO_INSTANT.formatTo(timestamp, out);
+        out.append(" ─╮\n");
+    }
+
+    /** The complete Classic View text. */
+    CharSequence fullDiagnostics() {
+        return text;
+    }
+
+    int ipStart() {
+        return ipStart;
+    }
+
+    int ipEnd() {
+        return ipEnd;
+    }
+
+    int connectionStart() {
+        return connectionStart;
+    }
+
+    int connectionEnd() {
+        return connectionEnd;
+    }
+
+    int headersStart() {
+        return headersStart;
+    }
+
+    int headersEnd() {
+        return headersEnd;
+    }
+
+    /**
+     * Appends the IP box; the PTR hostname line only appears when {@code hostname} is non-null,
+     * and the ASN, organization and country lines only for what {@code network} knows.
+     */
+    static void appendIpSection(StringBuilder out, RequestInfo request, String clientIp,
+                                String reversePointer, String hostname, PrefixDatabase.Network network) {
+        out.append("┌─ IP INFORMATION ────────────────────────────────────────────┐\n");
+        out.append("│ Detected IP:        ").append(clientIp).append('\n');
+        out.append("│ Reverse Pointer:    ").append(reversePointer).append('\n');
+        if (hostname != null) {
+            out.append("│ PTR Hostname:       ").append(hostname).append('\n');
+        }
+        if (network != null) {
+            if (network.asn() != 0) {
+                out.append("│ ASN:                AS").append(network.asn()).append('\n');
+            }
+            if (network.organization() != null) {
+                out.append("│ Organization:       ").append(network.organization()).append('\n');
+            }
+            if (network.country() != null) {
+                out.append("│ Country:            ").append(network.country()).append('\n');
+            }
+        }
+
+        String forwardedFor = request.header("X-Forwarded-For");
+        if (forwardedFor != null && !forwardedFor.isEmpty()) {
+            out.append("│ X-Forwarded-For:    ").append(forwardedFor).append('\n');
+        }
+        out.append("│ Remote Address:     ").append(request.remoteAddr()).append('\n');
+        out.append("│ Remote Host:        ").append(request.remoteHost()).append('\n');
+        out.append("│ Remote Port:        ").append(request.remotePort()).append('\n');
+        out.append(SECTION_FOOTER);
+    }
+
+    static void appendConnectionSection(StringBuilder out, RequestInfo request) {
+        out.append("┌─ CONNECTION DETAILS ────────────────────────────────────────┐\n");
+        out.append("│ Protocol:           ").append(request.protocol()).append('\n');
+        out.append("│ Method:             ").append(request.method()).append('\n');
+        out.append("│ Scheme:             ").append(request.scheme()).append('\n');
+        out.append("│ Server Name:        ").append(request.serverName()).append('\n');
+        out.append("│ Server Port:        ").append(request.serverPort()).append('\n');
+        out.append("│ Request URI:        ").append(request.requestURI()).append('\n');
+        String queryString = request.queryString();
+        if (queryString != null) {
+            out.append("│ Query String:       ").append(queryString).append('\n');
+        }
+        out.append(SECTION_FOOTER);
+    }
+
+    /**
+     * One line per header value, in order of each name's first appearance with a repeated
+     * header's values together under its first name, as the page's script renders the
+     * {@link DiagnosticData#appendHeaders headers data}; then how many were left out.
+     */
+    static void appendHeadersSection(StringBuilder out, RequestHeaders headers) {
+        out.append("┌─ HTTP HEADERS ──────────────────────────────────────────────┐\n");
+        for (int i = 0; i < headers.size(); i++) {
+            if (headers.first(i) != i) {
+                continue;
+            }
+            for (int value = i; value >= 0; value = headers.next(value)) {
+                out.append("│ ");
+                appendPadded(out, headers.name(i), HEADER_NAME_WIDTH);
+                out.append(": ").append(headers.value(value)).append('\n');
+            }
+        }
+        if (headers.omitted() > 0) {
+            out.append("│ (").append(headers.omitted()).append(" more not shown)\n");
+        }
+        out.append(SECTION_FOOTER);
+    }
+
+    /** Equivalent of {@code String.format("%-<width>s", value)}. */
+    static void appendPadded(StringBuilder out, CharSequence value, int width) {
+        int start = out.length();
+        out.append(value);
+        for (int i = out.length() - start; i < width; i++) {
+            out.append(' ');
+        }
+    }
+
+    /** Returns the renderer once its text has been written out. */
+    void release() {
+        RENDERERS.release(this);
+    }
+
+    private void reset() {
+        if (text.capacity() > RETAINED_CAPACITY) {
+            text = new StringBuilder(INITIAL_CAPACITY);
+        } else {
+            text.setLength(0);
+        }
+    }
+}
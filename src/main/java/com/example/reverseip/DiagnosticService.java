@@ -0,0 +1,263 @@
+package com.example.reverseip;
+
+import org.springframework.stereotype.Component;
+import java.io.IOException;
+import java.time.Instant;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * What the diagnostic endpoints do regardless of the server stack, shared by
+ * {@link ReverseIpController} on the servlet stack and {@link ReactiveReverseIpController} on
+ * the reactive one: the lookups, the entity tags, and rendering the page and the JSON
+ * documents from a {@link RequestInfo}. The controllers only adapt requests and responses.
+ */
+@Component
+class DiagnosticService {
+    private static final String NO_REVERSE_POINTER = "Unable to generate reverse pointer";
+
+    private final DiagnosticPage page;
+    private final PageProperties pageProperties;
+    private final PtrResolver ptrResolver;
+    private final IpEnricher enricher;
+    private final FragmentCache fragmentCache;
+    private final RequestMetrics metrics;
+
+    DiagnosticService(DiagnosticPage page, PageProperties pageProperties, PtrResolver ptrResolver,
+                      IpEnricher enricher, FragmentCache fragmentCache, RequestMetrics metrics) {
+        this.page = page;
+        this.pageProperties = pageProperties;
+        this.ptrResolver = ptrResolver;
+        this.enricher = enricher;
+        this.fragmentCache = fragmentCache;
+        this.metrics = metrics;
+    }
+
+    String getReversePointer(IpAddress ip) {
+        if (ip == null) {
+            return NO_REVERSE_POINTER;
+        }
+        long start = System.nanoTime();
+        // IPv4: x.x.x.x.in-addr.arpa; IPv6: all 32 nibbles, zeros included, reversed under ip6.arpa
+        String reversePointer = ip.reversePointer();
+        metrics.record(RequestMetrics.Stage.REVERSE_POINTER, start);
+        return reversePointer;
+    }
+
+    /**
+     * The resolved PTR hostname (or lookup outcome), without blocking: already complete when
+     * the lookup is cached, otherwise completing on the resolver's thread within
+     * {@code publicip.ptr.timeout}; {@code null} when resolution is off.
+     */
+    CompletableFuture<String> hostnameLater(IpAddress client) {
+        if (client == null || !ptrResolver.enabled()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        long start = System.nanoTime();
+        return ptrResolver.resolveLater(client).thenApply(lookup -> {
+            metrics.record(RequestMetrics.Stage.PTR_LOOKUP, start);
+            return lookup.describe();
+        });
+    }
+
+    /** ASN, organization and country from the offline prefix database, or {@code null} when unknown or off. */
+    PrefixDatabase.Network networkFor(IpAddress client) {
+        if (client == null || !enricher.enabled()) {
+            return null;
+        }
+        long start = System.nanoTime();
+        PrefixDatabase.Network network = enricher.lookup(client);
+        metrics.record(RequestMetrics.Stage.ENRICHMENT, start);
+        return network;
+    }
+
+    /** Whether {@code If-None-Match} already names the representation tagged {@code etag}. */
+    static boolean matches(String ifNoneMatch, String etag) {
+        return ifNoneMatch != null && (ifNoneMatch.contains(etag) || ifNoneMatch.strip().equals("*"));
+    }
+
+    Fingerprint jsonFingerprint(String clientIp, String reversePointer, String hostname,
+                                PrefixDatabase.Network network) {
+        Fingerprint fingerprint = new Fingerprint().add("json").add(clientIp).add(reversePointer).add(hostname);
+        if (network != null) {
+            fingerprint.add(network.asn()).add(network.organization()).add(network.country());
+        }
+        return fingerprint;
+    }
+
+    /** The {@code /json} document; the caller releases it once written. */
+    JsonWriter json(String clientIp, String reversePointer, String hostname, PrefixDatabase.Network network) {
+        long start = System.nanoTime();
+        JsonWriter json = JsonWriter.forCurrentThread();
+        json.raw("{\"ip\":").string(clientIp)
+                .raw(",\"reversePointer\":").string(reversePointer);
+        if (hostname != null) {
+            json.raw(",\"hostname\":").string(hostname);
+        }
+        if (network != null) {
+            if (network.asn() != 0) {
+                json.raw(",\"asn\":").number(network.asn());
+            }
+            if (network.organization() != null) {
+                json.raw(",\"organization\":").string(network.organization());
+            }
+            if (network.country() != null) {
+                json.raw(",\"country\":").string(network.country());
+            }
+        }
+        json.raw("}");
+        metrics.record(RequestMetrics.Stage.JSON, start);
+        return json;
+    }
+
+    PageProperties.PayloadMode payload(String parameter) {
+        return PageProperties.PayloadMode.fromParameter(parameter, pageProperties.payload());
+    }
+
+    ContentCoding coding(String acceptEncoding) {
+        return pageProperties.compress() ? ContentCoding.negotiate(acceptEncoding) : ContentCoding.IDENTITY;
+    }
+
+    /**
+     * Everything the page shows but the time and remote port: the template, the payload mode,
+     * the IP and connection sections' fields, and the headers other than those that only say
+     * how to fetch it ({@code If-*}, {@code Cache-Control}, {@code Pragma}), which differ between
+     * a first request and its revalidation.
+     */
+    Fingerprint pageFingerprint(RequestInfo request, PageProperties.PayloadMode payload, String clientIp,
+                                String reversePointer, String hostname, PrefixDatabase.Network network) {
+        Fingerprint fingerprint = new Fingerprint().add("page").add(page.templateTag()).add(payload.ordinal())
+                .add(clientIp).add(reversePointer).add(hostname);
+        if (network != null) {
+            fingerprint.add(network.asn()).add(network.organization()).add(network.country());
+        }
+        fingerprint.add(request.header("X-Forwarded-For")).add(request.remoteAddr())
+                .add(request.remoteHost()).add(request.protocol()).add(request.method())
+                .add(request.scheme()).add(request.serverName()).add(request.serverPort())
+                .add(request.requestURI()).add(request.queryString());
+        RequestHeaders headers = request.headers();
+        for (int i = 0; i < headers.size(); i++) {
+            if (!headers.nameStartsWith(i, "If-") && !headers.nameIs(i, "Cache-Control")
+                    && !headers.nameIs(i, "Pragma")) {
+                fingerprint.add(headers.name(i)).add(headers.value(i));
+            }
+        }
+        return fingerprint.add(headers.omitted());
+    }
+
+    /** Renders the diagnostic page for this request into {@code body}; returns the body bytes written. */
+    int writePage(RequestInfo request, PageProperties.PayloadMode payload, String clientIp, String reversePointer,
+                  String hostname, PrefixDatabase.Network network, ContentCoding coding, DiagnosticPage.Body body)
+            throws IOException {
+        // Sections already rendered for an identical request, when the cache is on
+        long start = System.nanoTime();
+        FragmentCache.Fragments fragments = fragmentCache.enabled()
+                ? fragmentCache.lookup(request, clientIp, reversePointer, hostname, network)
+                : null;
+
+        Instant timestamp = Instant.now();
+        if (payload == PageProperties.PayloadMode.COMPACT) {
+            // Structured data only; the browser renders both views from it
+            metrics.record(RequestMetrics.Stage.SECTIONS, start);
+            JsonWriter diagnosticJson = buildDiagnosticDataJson(request, clientIp, reversePointer, hostname,
+                    network, fragments, null, timestamp);
+            try {
+                return writePage(coding, true, "", diagnosticJson.result(), body);
+            } finally {
+                diagnosticJson.release();
+            }
+        }
+
+        // Render the Classic View once; the JSON reuses its sections
+        DiagnosticRenderer diagnostics = fragments != null
+                ? DiagnosticRenderer.render(fragments, timestamp)
+                : DiagnosticRenderer.render(request, clientIp, reversePointer, hostname, network, timestamp);
+        metrics.record(RequestMetrics.Stage.SECTIONS, start);
+
+        // Build JSON data for Terminal Mode
+        JsonWriter diagnosticJson = buildDiagnosticDataJson(request, clientIp, reversePointer, hostname,
+                network, fragments, diagnostics, timestamp);
+        try {
+            return writePage(coding, false, diagnostics.fullDiagnostics(), diagnosticJson.result(), body);
+        } finally {
+            diagnosticJson.release();
+            diagnostics.release();
+        }
+    }
+
+    private int writePage(ContentCoding coding, boolean compact, CharSequence diagnostics,
+                          CharSequence diagnosticJson, DiagnosticPage.Body body) throws IOException {
+        long start = System.nanoTime();
+        int bytes = page.write(coding, compact, diagnostics, diagnosticJson, body);
+        metrics.record(RequestMetrics.Stage.WRITE, start);
+        metrics.responseBytes(RequestMetrics.Endpoint.PAGE, bytes);
+        return bytes;
+    }
+
+    /**
+     * The Terminal Mode JSON. With {@code fragments}, the sections are copied from the
+     * {@link FragmentCache} rather than written and escaped again; {@code diagnostics} is the
+     * Classic View text for the {@code formatted} member, or {@code null} for a compact payload.
+     */
+    JsonWriter buildDiagnosticDataJson(RequestInfo request, String clientIp, String reversePointer,
+                                 String hostname, PrefixDatabase.Network network,
+                                 FragmentCache.Fragments fragments, DiagnosticRenderer diagnostics,
+                                 Instant timestamp) {
+        long start = System.nanoTime();
+        JsonWriter json = JsonWriter.forCurrentThread();
+        json.raw("{\n");
+
+        int headerCount;
+        if (fragments != null) {
+            int port = fragments.remotePort();
+            fragments.ip().appendData(json, port);
+            fragments.connection().appendData(json, port);
+            fragments.headers().appendData(json, port);
+            headerCount = fragments.headers().headerCount();
+        } else {
+            DiagnosticData.appendIp(json, request, clientIp, reversePointer, hostname, network);
+            DiagnosticData.appendConnection(json, request);
+            headerCount = DiagnosticData.appendHeaders(json, request.headers());
+        }
+
+        // Formatted sections, escaped straight out of the rendered Classic View text (full payload only)
+        if (diagnostics != null) {
+            CharSequence text = diagnostics.fullDiagnostics();
+            json.raw("  \"formatted\": {\n");
+            if (fragments != null) {
+                // Each section is escaped once when cached; only the text between them is escaped here
+                int port = fragments.remotePort();
+                json.raw("    \"ipSection\": \"");
+                fragments.ip().appendEscaped(json, port);
+                json.raw("\",\n    \"connectionSection\": \"");
+                fragments.connection().appendEscaped(json, port);
+                json.raw("\",\n    \"headersSection\": \"");
+                fragments.headers().appendEscaped(json, port);
+                json.raw("\",\n    \"fullDiagnostics\": \"").escaped(text, 0, diagnostics.ipStart());
+                fragments.ip().appendEscaped(json, port);
+                json.escaped(text, diagnostics.ipEnd(), diagnostics.connectionStart());
+                fragments.connection().appendEscaped(json, port);
+                json.escaped(text, diagnostics.connectionEnd(), diagnostics.headersStart());
+                fragments.headers().appendEscaped(json, port);
+                json.escaped(text, diagnostics.headersEnd(), text.length()).raw("\"\n");
+            } else {
+                json.raw("    \"ipSection\": ").string(text, diagnostics.ipStart(), diagnostics.ipEnd()).raw(",\n");
+                json.raw("    \"connectionSection\": ")
+                        .string(text, diagnostics.connectionStart(), diagnostics.connectionEnd()).raw(",\n");
+                json.raw("    \"headersSection\": ")
+                        .string(text, diagnostics.headersStart(), diagnostics.headersEnd()).raw(",\n");
+                json.raw("    \"fullDiagnostics\": ").string(text).raw("\n");
+            }
+            json.raw("  },\n");
+        }
+
+        // Metadata
+        json.raw("  \"metadata\": {\n");
+        json.raw("    \"timestamp\": ").instant(timestamp).raw("\n");
+        json.raw("  }\n");
+
+        json.raw("}");
+        metrics.record(RequestMetrics.Stage.JSON, start);
+        metrics.headerCount(headerCount);
+        return json;
+    }
+}
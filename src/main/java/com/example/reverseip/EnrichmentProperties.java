@@ -0,0 +1,26 @@
+package com.example.reverseip;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * Offline ASN, organisation and country lookup for the detected IP ({@code publicip.enrichment.*}).
+ *
+ * @param path           IP range dataset (see {@link PrefixDatabase} for the formats); enrichment is off
+ *                       when unset
+ * @param indexPath      where the compiled, memory-mapped index is kept; {@code <path>.idx} when unset
+ * @param reloadInterval how often the dataset is checked for changes; a changed file is recompiled and
+ *                       swapped in without pausing requests
+ */
+@ConfigurationProperties("publicip.enrichment")
+record EnrichmentProperties(
+        Path path,
+        Path indexPath,
+        @DefaultValue("1m") Duration reloadInterval) {
+
+    Path resolvedIndexPath() {
+        return indexPath != null ? indexPath : path.resolveSibling(path.getFileName() + ".idx");
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.reverseip;
+
+/**
+ * A 128-bit hash of a sequence of request fields: FNV-1a and an independent multiplicative
+ * hash side by side. Each field ends with a terminator, so adjacent fields cannot run
+ * together, and an absent field hashes differently from an empty one. Forms the diagnostic
+ * responses' ETags, where a collision a client crafts only misleads its own cache, and hashes
+ * the {@link FragmentCache}'s keys.
+ *
+ * <p>Neither hash is cryptographic, and the fields are the client's, so collisions can be
+ * built on purpose. A shared cache must not take equal fingerprints for equal inputs: it seeds
+ * them with a secret and compares the inputs themselves.
+ */
+final class Fingerprint {
+    private static final long FNV_PRIME = 0x100000001b3L;
+    private static final long GOLDEN = 0x9E3779B97F4A7C15L;
+    private static final long MIX = 0xC2B2AE3D27D4EB4FL;
+    private static final long NULL_MARKER = 0x5851F42D4C957F2DL;
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private long high = 0xcbf29ce484222325L;
+    private long low = 0x84222325cbf29ce4L;
+
+    Fingerprint() {
+    }
+
+    /** Starting from a state derived from {@code seed}, so that only its holder can predict the result. */
+    Fingerprint(long seed) {
+        add(seed);
+    }
+
+    Fingerprint add(CharSequence value) {
+        long h = high;
+        long l = low;
+        if (value == null) {
+            high = (h ^ NULL_MARKER) * FNV_PRIME;
+            low = Long.rotateLeft(l ^ NULL_MARKER, 27) * MIX;
+            return this;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            h = (h ^ c) * FNV_PRIME;
+            l = Long.rotateLeft(l + c, 31) * GOLDEN;
+        }
+        high = (h ^ 0xFFFF) * FNV_PRIME;
+        low = Long.rotateLeft(l ^ value.length(), 27) * MIX;
+        return this;
+    }
+
+    Fingerprint add(long value) {
+        high = (high ^ value) * FNV_PRIME;
+        low = Long.rotateLeft(low + value, 31) * GOLDEN;
+        return this;
+    }
+
+    long high() {
+        return high;
+    }
+
+    long low() {
+        return low;
+    }
+
+    /** The fingerprint as a quoted entity tag, {@code "<32 hex digits>"}. */
+    String etag() {
+        char[] tag = new char[34];
+        tag[0] = '"';
+        for (int i = 0; i < 16; i++) {
+            tag[1 + i] = HEX[(int) (high >>> (60 - 4 * i)) & 0xF];
+            tag[17 + i] = HEX[(int) (low >>> (60 - 4 * i)) & 0xF];
+        }
+        tag[33] = '"';
+        return new String(tag);
+    }
+}
@@ -0,0 +1,280 @@
+package com.example.reverseip;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.stereotype.Component;
+import java.security.SecureRandom;
+import java.util.Arrays;
+
+/**
+ * Rendered IP, connection and headers sections, reused across requests whose inputs are the
+ * same: a monitoring client polling the page sends the same headers from the same address
+ * every time. Each section is keyed by exactly the request fields it shows, hashed with a
+ * {@link Fingerprint} seeded per process, so a lookup is a pass over those fields to hash
+ * them and one to compare them with the entry's, and no rendering or escaping. The fields are
+ * the client's: a crafted collision makes a second entry rather than a hit on someone else's. The remote
+ * port, which changes with every connection, is cut out of the IP section and spliced back in
+ * per request; the timestamp is outside the sections.
+ *
+ * <p>Caffeine's W-TinyLFU admission keeps the sections of repeat clients and lets one-off
+ * visitors pass through, and entries are weighed by their size, so memory is capped in
+ * bytes, keys included. Hits and misses are published as {@code cache.gets{cache=fragments}}.
+ */
+@Component
+class FragmentCache {
+    /** String overhead and the entry itself, on top of the characters. */
+    private static final int ENTRY_OVERHEAD = 160;
+    private static final String REMOTE_PORT_LABEL = "│ Remote Port:        ";
+
+    enum Section { IP, CONNECTION, HEADERS }
+
+    /**
+     * A section and the fields it shows. Looked up with the request's own field values, which
+     * may be views over its buffers; stored with copies of them.
+     */
+    private static final class Key {
+        final Section section;
+        final CharSequence[] fields;
+        final long[] numbers;
+        final int hash;
+
+        private Key(Section section, CharSequence[] fields, long[] numbers, int hash) {
+            this.section = section;
+            this.fields = fields;
+            this.numbers = numbers;
+            this.hash = hash;
+        }
+
+        static Key of(long seed, Section section, CharSequence[] fields, long... numbers) {
+            Fingerprint fingerprint = new Fingerprint(seed).add(section.ordinal());
+            for (CharSequence field : fields) {
+                fingerprint.add(field);
+            }
+            for (long number : numbers) {
+                fingerprint.add(number);
+            }
+            return new Key(section, fields, numbers, Long.hashCode(fingerprint.high() ^ fingerprint.low()));
+        }
+
+        /** This key with its fields copied out of the request. */
+        Key stored() {
+            CharSequence[] copies = new CharSequence[fields.length];
+            for (int i = 0; i < fields.length; i++) {
+                copies[i] = fields[i] == null ? null : fields[i].toString();
+            }
+            return new Key(section, copies, numbers, hash);
+        }
+
+        int weight() {
+            int weight = 16 + 8 * numbers.length;
+            for (CharSequence field : fields) {
+                weight += field == null ? 8 : 48 + field.length();
+            }
+            return weight;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof Key key) || key.hash != hash || key.section != section
+                    || key.fields.length != fields.length || !Arrays.equals(key.numbers, numbers)) {
+                return false;
+            }
+            for (int i = 0; i < fields.length; i++) {
+                CharSequence a = fields[i];
+                CharSequence b = key.fields[i];
+                if (a == null ? b != null : b == null || CharSequence.compare(a, b) != 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    /** The three sections for one request, and the remote port to splice into the IP section. */
+    record Fragments(Fragment ip, Fragment connection, Fragment headers, int remotePort) {
+    }
+
+    /**
+     * One section as Classic View text, as that text escaped for a JSON string, and as Terminal
+     * Mode JSON members. In the IP section each form has a gap where the remote port goes.
+     */
+    static final class Fragment {
+        private final String text;
+        private final int textGap;
+        private final String escaped;
+        private final int escapedGap;
+        private final String data;
+        private final int dataGap;
+        private final int headerCount;
+
+        private Fragment(String text, int textGap, String escaped, int escapedGap, String data, int dataGap,
+                         int headerCount) {
+            this.text = text;
+            this.textGap = textGap;
+            this.escaped = escaped;
+            this.escapedGap = escapedGap;
+            this.data = data;
+            this.dataGap = dataGap;
+            this.headerCount = headerCount;
+        }
+
+        void appendText(StringBuilder out, int port) {
+            splice(out, text, textGap, port);
+        }
+
+        void appendEscaped(JsonWriter json, int port) {
+            splice(json, escaped, escapedGap, port);
+        }
+
+        void appendData(JsonWriter json, int port) {
+            splice(json, data, dataGap, port);
+        }
+
+        int headerCount() {
+            return headerCount;
+        }
+
+        private int weight() {
+            return ENTRY_OVERHEAD + 2 * (text.length() + escaped.length() + data.length());
+        }
+
+        private static void splice(StringBuilder out, String value, int gap, int port) {
+            if (gap < 0) {
+                out.append(value);
+            } else {
+                out.append(value, 0, gap).append(port).append(value, gap, value.length());
+            }
+        }
+
+        private static void splice(JsonWriter json, String value, int gap, int port) {
+            if (gap < 0) {
+                json.raw(value);
+            } else {
+                json.raw(value, 0, gap).number(port).raw(value, gap, value.length());
+            }
+        }
+    }
+
+    private final Cache<Key, Fragment> cache;
+    private final long seed = new SecureRandom().nextLong();
+
+    FragmentCache(FragmentCacheProperties properties, MeterRegistry registry) {
+        if (properties.enabled()) {
+            this.cache = Caffeine.newBuilder()
+                    .maximumWeight(properties.maxSize().toBytes())
+                    .weigher((Key key, Fragment fragment) -> key.weight() + fragment.weight())
+                    .recordStats()
+                    .build();
+            CaffeineCacheMetrics.monitor(registry, cache, "fragments");
+        } else {
+            this.cache = null;
+        }
+    }
+
+    boolean enabled() {
+        return cache != null;
+    }
+
+    /** Bytes held, by the weigher's estimate. */
+    long weightedSize() {
+        cache.cleanUp();
+        return cache.policy().eviction().orElseThrow().weightedSize().orElseThrow();
+    }
+
+    /** The sections for this request, from the cache or rendered and cached now. */
+    Fragments lookup(RequestInfo request, String clientIp, String reversePointer, String hostname,
+                     PrefixDatabase.Network network) {
+        return new Fragments(ip(request, clientIp, reversePointer, hostname, network), connection(request),
+                headers(request), request.remotePort());
+    }
+
+    private Fragment ip(RequestInfo request, String clientIp, String reversePointer, String hostname,
+                        PrefixDatabase.Network network) {
+        CharSequence[] fields = {clientIp, reversePointer, hostname, request.header("X-Forwarded-For"),
+                request.remoteAddr(), request.remoteHost(), null, null};
+        Key key;
+        if (network != null) {
+            fields[6] = network.organization();
+            fields[7] = network.country();
+            key = Key.of(seed, Section.IP, fields, network.asn());
+        } else {
+            key = Key.of(seed, Section.IP, fields);
+        }
+        Fragment fragment = cache.getIfPresent(key);
+        if (fragment == null) {
+            StringBuilder text = new StringBuilder(512);
+            DiagnosticRenderer.appendIpSection(text, request, clientIp, reversePointer, hostname, network);
+            JsonWriter data = JsonWriter.unpooled();
+            DiagnosticData.appendIp(data, request, clientIp, reversePointer, hostname, network);
+            fragment = withPortGap(text, data.result());
+            cache.put(key.stored(), fragment);
+        }
+        return fragment;
+    }
+
+    private Fragment connection(RequestInfo request) {
+        Key key = Key.of(seed, Section.CONNECTION, new CharSequence[] {request.protocol(), request.method(),
+                request.scheme(), request.serverName(), request.requestURI(), request.queryString()},
+                request.serverPort());
+        Fragment fragment = cache.getIfPresent(key);
+        if (fragment == null) {
+            StringBuilder text = new StringBuilder(512);
+            DiagnosticRenderer.appendConnectionSection(text, request);
+            JsonWriter data = JsonWriter.unpooled();
+            DiagnosticData.appendConnection(data, request);
+            fragment = new Fragment(text.toString(), -1, escape(text, 0, text.length()), -1,
+                    data.result().toString(), -1, 0);
+            cache.put(key.stored(), fragment);
+        }
+        return fragment;
+    }
+
+    private Fragment headers(RequestInfo request) {
+        RequestHeaders headers = request.headers();
+        CharSequence[] fields = new CharSequence[2 * headers.size()];
+        for (int i = 0; i < headers.size(); i++) {
+            fields[2 * i] = headers.name(i);
+            fields[2 * i + 1] = headers.value(i);
+        }
+        Key key = Key.of(seed, Section.HEADERS, fields, headers.omitted());
+        Fragment fragment = cache.getIfPresent(key);
+        if (fragment == null) {
+            StringBuilder text = new StringBuilder(2048);
+            DiagnosticRenderer.appendHeadersSection(text, headers);
+            JsonWriter data = JsonWriter.unpooled();
+            int headerCount = DiagnosticData.appendHeaders(data, headers);
+            fragment = new Fragment(text.toString(), -1, escape(text, 0, text.length()), -1,
+                    data.result().toString(), -1, headerCount);
+            cache.put(key.stored(), fragment);
+        }
+        return fragment;
+    }
+
+    /** Cuts the rendered remote port out of the IP section's text and JSON. */
+    private static Fragment withPortGap(StringBuilder text, CharSequence data) {
+        int textGap = text.lastIndexOf(REMOTE_PORT_LABEL) + REMOTE_PORT_LABEL.length();
+        int textPortEnd = text.indexOf("\n", textGap);
+        String dataString = data.toString();
+        int dataGap = dataString.lastIndexOf(DiagnosticData.REMOTE_PORT) + DiagnosticData.REMOTE_PORT.length();
+        int dataPortEnd = dataString.indexOf('\n', dataGap);
+
+        String before = escape(text, 0, textGap);
+        String escaped = before + escape(text, textPortEnd, text.length());
+        return new Fragment(text.substring(0, textGap) + text.substring(textPortEnd), textGap,
+                escaped, before.length(),
+                dataString.substring(0, dataGap) + dataString.substring(dataPortEnd), dataGap, 0);
+    }
+
+    private static String escape(CharSequence text, int start, int end) {
+        StringBuilder out = new StringBuilder(end - start + 16);
+        JsonWriter.escape(out, text, start, end);
+        return out.toString();
+    }
+}
@@ -0,0 +1,17 @@
+package com.example.reverseip;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * Cache of rendered diagnostic sections ({@code publicip.fragment-cache.*}).
+ *
+ * @param enabled reuse the IP, connection and headers sections of identical requests
+ * @param maxSize upper bound on the memory held by cached sections
+ */
+@ConfigurationProperties("publicip.fragment-cache")
+record FragmentCacheProperties(
+        @DefaultValue("true") boolean enabled,
+        @DefaultValue("16MB") DataSize maxSize) {
+}
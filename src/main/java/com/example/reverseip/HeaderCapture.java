@@ -0,0 +1,46 @@
+package com.example.reverseip;
+
+import org.apache.catalina.connector.Request;
+import org.apache.catalina.connector.Response;
+import org.apache.catalina.valves.ValveBase;
+import org.springframework.boot.web.embedded.tomcat.TomcatServletWebServerFactory;
+import org.springframework.boot.web.server.WebServerFactoryCustomizer;
+import org.springframework.stereotype.Component;
+import jakarta.servlet.ServletException;
+import java.io.IOException;
+
+/**
+ * Takes the {@link RequestHeaders} snapshot in a Tomcat valve, where the connector's parsed
+ * headers are still reachable, before any filter runs. The Servlet API only offers the
+ * headers as decoded strings, one name at a time, and the first value of each.
+ */
+@Component
+class HeaderCapture implements WebServerFactoryCustomizer<TomcatServletWebServerFactory> {
+    private final HeaderProperties properties;
+
+    HeaderCapture(HeaderProperties properties) {
+        this.properties = properties;
+    }
+
+    @Override
+    public void customize(TomcatServletWebServerFactory factory) {
+        factory.addContextValves(new CaptureValve(properties));
+    }
+
+    private static final class CaptureValve extends ValveBase {
+        private final HeaderProperties properties;
+
+        CaptureValve(HeaderProperties properties) {
+            // The live stream is asynchronous; a valve that did not support it would turn that off
+            super(true);
+            this.properties = properties;
+        }
+
+        @Override
+        public void invoke(Request request, Response response) throws IOException, ServletException {
+            request.setAttribute(RequestHeaders.ATTRIBUTE,
+                    RequestHeaders.capture(request.getCoyoteRequest().getMimeHeaders(), properties));
+            getNext().invoke(request, response);
+        }
+    }
+}
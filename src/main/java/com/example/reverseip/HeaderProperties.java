@@ -0,0 +1,20 @@
+package com.example.reverseip;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * How much of the request's headers the diagnostics show ({@code publicip.headers.*}).
+ *
+ * @param maxCount headers shown, in arrival order; the rest are only counted
+ * @param maxSize  total size of the names and values shown
+ */
+@ConfigurationProperties("publicip.headers")
+record HeaderProperties(
+        @DefaultValue("64") int maxCount,
+        @DefaultValue("4KB") DataSize maxSize) {
+
+    /** Applied where the headers are read through the Servlet API rather than captured by Tomcat. */
+    static final HeaderProperties DEFAULTS = new HeaderProperties(64, DataSize.ofKilobytes(4));
+}
@@ -0,0 +1,108 @@
+package com.example.reverseip;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.ResponseCookie;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RestController;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * {@code /history}: the client's address changes, for clients that opted in. {@code POST}
+ * opts in, issuing a random token in an {@code HttpOnly} cookie and recording the current
+ * address; {@code GET} lists the changes recorded for the cookie's token, oldest first;
+ * {@code DELETE} forgets them and expires the cookie. Nothing is kept for clients without
+ * the cookie.
+ */
+@RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+class HistoryController {
+    static final String COOKIE = "publicip_history";
+
+    private final IpHistory history;
+    private final HistoryProperties properties;
+
+    HistoryController(IpHistory history, HistoryProperties properties) {
+        this.history = history;
+        this.properties = properties;
+    }
+
+    @GetMapping("/history")
+    public void getHistory(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        if (!history.enabled()) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        IpHistory.Token token = HistoryFilter.token(request);
+        write(response, token != null, token == null ? List.of() : history.changes(token));
+    }
+
+    @PostMapping("/history")
+    public void postHistory(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        if (!history.enabled()) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        IpHistory.Token token = HistoryFilter.token(request);
+        if (token == null) {
+            token = IpHistory.Token.random();
+            IpAddress client = ClientAddressFilter.client(request);
+            if (client != null) {
+                history.record(token, client);
+            }
+        }
+        response.addHeader("Set-Cookie", cookie(request, token.toString(), properties.retention()).toString());
+        write(response, true, history.changes(token));
+    }
+
+    @DeleteMapping("/history")
+    public void deleteHistory(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        if (!history.enabled()) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        IpHistory.Token token = HistoryFilter.token(request);
+        if (token != null) {
+            history.forget(token);
+        }
+        response.addHeader("Set-Cookie", cookie(request, "", Duration.ZERO).toString());
+        write(response, false, List.of());
+    }
+
+    private static ResponseCookie cookie(HttpServletRequest request, String value, Duration maxAge) {
+        return ResponseCookie.from(COOKIE, value).path("/").maxAge(maxAge).httpOnly(true)
+                .secure(request.isSecure()).sameSite("Lax").build();
+    }
+
+    /**
+     * {@code {"recording":true,"changes":[{"ip":"…","since":"…"}]}}. A change just recorded is
+     * written in the background, so it may show up on the next read.
+     */
+    private static void write(HttpServletResponse response, boolean recording, List<IpHistory.Change> changes)
+            throws IOException {
+        JsonWriter json = JsonWriter.forCurrentThread();
+        Utf8Buffer buffer = Utf8Buffer.forCurrentThread();
+        try {
+            json.raw("{\"recording\":").raw(recording ? "true" : "false").raw(",\"changes\":[");
+            for (int i = 0; i < changes.size(); i++) {
+                IpHistory.Change change = changes.get(i);
+                json.raw(i == 0 ? "{\"ip\":" : ",{\"ip\":").string(change.address().toString())
+                        .raw(",\"since\":").instant(change.since()).raw("}");
+            }
+            json.raw("]}");
+            buffer.append(json.result()).append("\n");
+            response.setContentType("application/json;charset=UTF-8");
+            response.setHeader("Cache-Control", "no-store");
+            response.setContentLength(buffer.length());
+            buffer.writeTo(response.getOutputStream(), 0, buffer.length());
+        } finally {
+            buffer.release();
+            json.release();
+        }
+    }
+}
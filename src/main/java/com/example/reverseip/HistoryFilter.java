@@ -0,0 +1,58 @@
+package com.example.reverseip;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import java.io.IOException;
+
+/**
+ * Hands the client address of every request carrying a history cookie to the {@link IpHistory},
+ * which keeps it only if it changed. Requests without the cookie cost one header lookup.
+ */
+@Component
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@Order(Ordered.HIGHEST_PRECEDENCE + 30)
+class HistoryFilter extends OncePerRequestFilter {
+    private final IpHistory history;
+
+    HistoryFilter(IpHistory history) {
+        this.history = history;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !history.enabled() || request.getHeader("Cookie") == null
+                || request.getRequestURI().startsWith("/assets/");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        IpHistory.Token token = token(request);
+        IpAddress client = token == null ? null : ClientAddressFilter.client(request);
+        if (client != null) {
+            history.record(token, client);
+        }
+        chain.doFilter(request, response);
+    }
+
+    /** The token in the request's history cookie, if it has a well-formed one. */
+    static IpHistory.Token token(HttpServletRequest request) {
+        Cookie[] cookies = request.getCookies();
+        if (cookies != null) {
+            for (Cookie cookie : cookies) {
+                if (HistoryController.COOKIE.equals(cookie.getName())) {
+                    return IpHistory.Token.parse(cookie.getValue());
+                }
+            }
+        }
+        return null;
+    }
+}
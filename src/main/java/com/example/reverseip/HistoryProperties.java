@@ -0,0 +1,33 @@
+package com.example.reverseip;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.util.unit.DataSize;
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * Opt-in history of each client's detected addresses, {@code /history} ({@code publicip.history.*}).
+ *
+ * @param enabled            record and serve histories; off by default
+ * @param directory          where the log segments are kept
+ * @param segmentSize        size of each memory-mapped log segment
+ * @param capacity           changes queued for the writer; further ones are dropped, never waited for
+ * @param batchSize          most changes written per batch
+ * @param flushInterval      how long the writer sleeps when the queue is empty
+ * @param compactionInterval how often the writer considers rewriting the log without superseded records
+ * @param maxChanges         changes kept per client; older ones are dropped
+ * @param retention          how long a change is kept
+ */
+@ConfigurationProperties("publicip.history")
+record HistoryProperties(
+        @DefaultValue("false") boolean enabled,
+        @DefaultValue("data/history") Path directory,
+        @DefaultValue("64MB") DataSize segmentSize,
+        @DefaultValue("4096") int capacity,
+        @DefaultValue("256") int batchSize,
+        @DefaultValue("200ms") Duration flushInterval,
+        @DefaultValue("1h") Duration compactionInterval,
+        @DefaultValue("50") int maxChanges,
+        @DefaultValue("365d") Duration retention) {
+}
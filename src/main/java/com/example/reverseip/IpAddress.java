@@ -0,0 +1,256 @@
+package com.example.reverseip;
+
+/**
+ * An IPv4 or IPv6 address parsed from a literal, without ever consulting a resolver.
+ * IPv6 addresses are held as two 64-bit halves; IPv4 addresses sit in the low 32 bits
+ * of {@code low}. IPv4-mapped IPv6 literals ({@code ::ffff:a.b.c.d}) become plain IPv4,
+ * matching how {@code InetAddress} treats them.
+ *
+ * @param high the upper 64 bits of an IPv6 address; always 0 for IPv4
+ * @param low  the lower 64 bits of an IPv6 address, or the IPv4 address
+ * @param ipv4 whether this is an IPv4 address
+ */
+record IpAddress(long high, long low, boolean ipv4) {
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    static IpAddress ofIpv4(int address) {
+        return new IpAddress(0, address & 0xFFFFFFFFL, true);
+    }
+
+    static IpAddress ofIpv6(long high, long low) {
+        if (high == 0 && (low >>> 32) == 0xFFFFL) {
+            return ofIpv4((int) low);
+        }
+        return new IpAddress(high, low, false);
+    }
+
+    /** Parses an IPv4 or IPv6 literal, or returns {@code null} if {@code text} is not one. */
+    static IpAddress parse(CharSequence text) {
+        return text == null ? null : parse(text, 0, text.length());
+    }
+
+    /**
+     * Parses the literal in {@code text[start, end)}, or returns {@code null} if it is not one.
+     * IPv4 must be four decimal octets without leading zeros. IPv6 may use {@code ::}, an
+     * embedded IPv4 suffix and a {@code %zone} suffix, which is dropped.
+     */
+    static IpAddress parse(CharSequence text, int start, int end) {
+        if (start >= end) {
+            return null;
+        }
+        for (int i = start; i < end; i++) {
+            if (text.charAt(i) == ':') {
+                return parseIpv6(text, start, end);
+            }
+        }
+        long ipv4 = parseIpv4(text, start, end);
+        return ipv4 < 0 ? null : ofIpv4((int) ipv4);
+    }
+
+    /** Returns the address as an unsigned 32-bit value, or -1 if the text is not a dotted quad. */
+    private static long parseIpv4(CharSequence text, int start, int end) {
+        long address = 0;
+        int octets = 0;
+        int i = start;
+        while (i < end) {
+            int value = 0;
+            int digits = 0;
+            while (i < end && digits < 4) {
+                char c = text.charAt(i);
+                if (c < '0' || c > '9') {
+                    break;
+                }
+                if (digits == 1 && value == 0) {
+                    return -1;
+                }
+                value = value * 10 + (c - '0');
+                digits++;
+                i++;
+            }
+            if (digits == 0 || digits > 3 || value > 255) {
+                return -1;
+            }
+            address = (address << 8) | value;
+            octets++;
+            if (i == end) {
+                break;
+            }
+            if (text.charAt(i) != '.' || octets == 4 || i + 1 == end) {
+                return -1;
+            }
+            i++;
+        }
+        return octets == 4 ? address : -1;
+    }
+
+    private static IpAddress parseIpv6(CharSequence text, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (text.charAt(i) == '%') {
+                if (i + 1 == end) {
+                    return null;
+                }
+                end = i;
+                break;
+            }
+        }
+        int[] groups = new int[8];
+        int count = 0;
+        int gap = -1;
+        int i = start;
+        if (i + 1 < end && text.charAt(i) == ':' && text.charAt(i + 1) == ':') {
+            gap = 0;
+            i += 2;
+        } else if (text.charAt(i) == ':') {
+            return null;
+        }
+        while (i < end) {
+            int value = 0;
+            int digits = 0;
+            int j = i;
+            while (j < end && digits <= 4) {
+                int nibble = hexDigit(text.charAt(j));
+                if (nibble < 0) {
+                    break;
+                }
+                value = (value << 4) | nibble;
+                digits++;
+                j++;
+            }
+            if (j < end && text.charAt(j) == '.') {
+                // Embedded IPv4 in the last 32 bits
+                long ipv4 = parseIpv4(text, i, end);
+                if (ipv4 < 0 || count > 6) {
+                    return null;
+                }
+                groups[count++] = (int) (ipv4 >>> 16);
+                groups[count++] = (int) (ipv4 & 0xFFFF);
+                break;
+            }
+            if (digits == 0 || digits > 4 || count == 8) {
+                return null;
+            }
+            groups[count++] = value;
+            if (j == end) {
+                break;
+            }
+            if (text.charAt(j) != ':' || j + 1 == end) {
+                return null;
+            }
+            j++;
+            if (text.charAt(j) == ':') {
+                if (gap >= 0) {
+                    return null;
+                }
+                gap = count;
+                j++;
+            }
+            i = j;
+        }
+        if (gap < 0 ? count != 8 : count > 7) {
+            return null;
+        }
+        if (gap >= 0) {
+            int moved = count - gap;
+            System.arraycopy(groups, gap, groups, 8 - moved, moved);
+            for (int k = gap; k < 8 - moved; k++) {
+                groups[k] = 0;
+            }
+        }
+        long high = 0;
+        long low = 0;
+        for (int k = 0; k < 4; k++) {
+            high = (high << 16) | groups[k];
+            low = (low << 16) | groups[k + 4];
+        }
+        return ofIpv6(high, low);
+    }
+
+    /** The value of an ASCII hex digit, or -1, also for the other scripts' digits {@link Character#digit} takes. */
+    private static int hexDigit(char c) {
+        if (c >= '0' && c <= '9') {
+            return c - '0';
+        }
+        if (c >= 'a' && c <= 'f') {
+            return c - 'a' + 10;
+        }
+        if (c >= 'A' && c <= 'F') {
+            return c - 'A' + 10;
+        }
+        return -1;
+    }
+
+    /** Number of significant bits: 32 for IPv4, 128 for IPv6. */
+    int bitLength() {
+        return ipv4 ? 32 : 128;
+    }
+
+    /** Returns bit {@code index} counted from the most significant bit, as 0 or 1. */
+    int bit(int index) {
+        if (ipv4) {
+            return (int) (low >>> (31 - index)) & 1;
+        }
+        return index < 64 ? (int) (high >>> (63 - index)) & 1 : (int) (low >>> (127 - index)) & 1;
+    }
+
+    /** The {@code in-addr.arpa} or {@code ip6.arpa} name for this address. */
+    String reversePointer() {
+        StringBuilder name = new StringBuilder(ipv4 ? 29 : 72);
+        if (ipv4) {
+            for (int shift = 0; shift < 32; shift += 8) {
+                name.append((low >>> shift) & 0xFF).append('.');
+            }
+            return name.append("in-addr.arpa").toString();
+        }
+        for (int shift = 0; shift < 64; shift += 4) {
+            name.append(HEX[(int) (low >>> shift) & 0xF]).append('.');
+        }
+        for (int shift = 0; shift < 64; shift += 4) {
+            name.append(HEX[(int) (high >>> shift) & 0xF]).append('.');
+        }
+        return name.append("ip6.arpa").toString();
+    }
+
+    /** Canonical text form: dotted quad, or RFC 5952 for IPv6. */
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder(ipv4 ? 15 : 39);
+        if (ipv4) {
+            return text.append((low >>> 24) & 0xFF).append('.').append((low >>> 16) & 0xFF).append('.')
+                    .append((low >>> 8) & 0xFF).append('.').append(low & 0xFF).toString();
+        }
+        // Longest run of two or more zero groups (leftmost on ties) becomes "::"
+        int bestStart = -1;
+        int bestLength = 1;
+        for (int k = 0; k < 8; ) {
+            if (group(k) != 0) {
+                k++;
+                continue;
+            }
+            int runStart = k;
+            while (k < 8 && group(k) == 0) {
+                k++;
+            }
+            if (k - runStart > bestLength) {
+                bestStart = runStart;
+                bestLength = k - runStart;
+            }
+        }
+        for (int k = 0; k < 8; k++) {
+            if (k == bestStart) {
+                text.append("::");
+                k += bestLength - 1;
+                continue;
+            }
+            if (k > 0 && k != bestStart + bestLength) {
+                text.append(':');
+            }
+            text.append(Integer.toHexString(group(k)));
+        }
+        return text.toString();
+    }
+
+    private int group(int index) {
+        long half = index < 4 ? high : low;
+        return (int) (half >>> (48 - 16 * (index & 3))) & 0xFFFF;
+    }
+}
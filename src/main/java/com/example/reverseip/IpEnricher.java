@@ -0,0 +1,114 @@
+package com.example.reverseip;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.stereotype.Component;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.attribute.FileTime;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Looks up the network behind an address in the configured {@link PrefixDatabase}. The
+ * dataset is loaded at startup (a broken one fails startup) and then checked periodically;
+ * when it changes, a new index is compiled and mapped on a background thread and swapped in
+ * with a single volatile write, so requests never wait for a reload and keep using the old
+ * index until the new one is ready. A failed reload is logged and counted, and the old index
+ * stays in service.
+ */
+@Component
+class IpEnricher implements DisposableBean {
+    private static final Logger log = LoggerFactory.getLogger(IpEnricher.class);
+
+    private final EnrichmentProperties properties;
+    private final ScheduledExecutorService reloader;
+    private final Counter reloaded;
+    private final Counter failed;
+    private volatile PrefixDatabase database;
+    private FileTime loadedVersion;
+
+    IpEnricher(EnrichmentProperties properties, MeterRegistry registry) {
+        this.properties = properties;
+        this.reloaded = Counter.builder("publicip.enrichment.reloads").tag("outcome", "success")
+                .description("Enrichment dataset reloads").register(registry);
+        this.failed = Counter.builder("publicip.enrichment.reloads").tag("outcome", "failure")
+                .description("Enrichment dataset reloads").register(registry);
+        Gauge.builder("publicip.enrichment.ranges", this, enricher -> enricher.ranges(true))
+                .tag("family", "ipv4").description("IP ranges in the enrichment index").register(registry);
+        Gauge.builder("publicip.enrichment.ranges", this, enricher -> enricher.ranges(false))
+                .tag("family", "ipv6").description("IP ranges in the enrichment index").register(registry);
+
+        if (properties.path() == null) {
+            reloader = null;
+            return;
+        }
+        try {
+            load(false);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot load enrichment dataset " + properties.path(), e);
+        }
+        long interval = properties.reloadInterval().toMillis();
+        if (interval > 0) {
+            reloader = Executors.newSingleThreadScheduledExecutor(
+                    Thread.ofPlatform().daemon().name("enrichment-reload").factory());
+            reloader.scheduleWithFixedDelay(this::reloadIfChanged, interval, interval, TimeUnit.MILLISECONDS);
+        } else {
+            reloader = null;
+        }
+    }
+
+    boolean enabled() {
+        return database != null;
+    }
+
+    /** The network containing {@code address}, or {@code null} if unknown or enrichment is off. */
+    PrefixDatabase.Network lookup(IpAddress address) {
+        PrefixDatabase current = database;
+        return current == null || address == null ? null : current.lookup(address);
+    }
+
+    /** Reloads the dataset if its modification time changed; returns whether a new index is in service. */
+    synchronized boolean reloadIfChanged() {
+        try {
+            if (Files.getLastModifiedTime(properties.path()).equals(loadedVersion)) {
+                return false;
+            }
+            // Recompile even if the index looks newer: a replaced file may carry an older timestamp
+            load(true);
+            reloaded.increment();
+            return true;
+        } catch (IOException | RuntimeException e) {
+            failed.increment();
+            log.warn("Keeping the current enrichment index; reloading {} failed", properties.path(), e);
+            return false;
+        }
+    }
+
+    private synchronized void load(boolean recompile) throws IOException {
+        FileTime version = Files.getLastModifiedTime(properties.path());
+        if (recompile) {
+            PrefixDatabase.compile(properties.path(), properties.resolvedIndexPath());
+        }
+        database = PrefixDatabase.open(properties.path(), properties.resolvedIndexPath());
+        loadedVersion = version;
+    }
+
+    private double ranges(boolean ipv4) {
+        PrefixDatabase current = database;
+        return current == null ? 0 : ipv4 ? current.ipv4Ranges() : current.ipv6Ranges();
+    }
+
+    @Override
+    public void destroy() {
+        if (reloader != null) {
+            reloader.shutdownNow();
+        }
+    }
+}
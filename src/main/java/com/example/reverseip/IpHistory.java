@@ -0,0 +1,569 @@
+package com.example.reverseip;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.SecureRandom;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32C;
+
+/**
+ * Opt-in history of each client's detected addresses, for "when did my IP change?". A client
+ * opts in with a random {@link Token} kept in a cookie; whenever one of its requests comes
+ * from a different address than the last one recorded, the change is kept.
+ *
+ * <p>Changes go to an append-only log of fixed-width records (token, the address in 16
+ * bytes with IPv4 mapped into IPv6, the time, a kind and a CRC-32C) in memory-mapped segment
+ * files. Request threads only compare with the last address in memory and queue the change;
+ * a background thread appends queued changes in batches. An in-memory index holds each
+ * token's record positions, so a read touches that token's records and nothing else.
+ * Records superseded by {@code maxChanges} or by forgetting a token stay in the log until a
+ * compaction rewrites the live ones, grouped by token, into new segments.
+ *
+ * <p>At startup the segments are replayed in order; a record torn by a crash fails its
+ * checksum and ends its segment. A compaction's output starts with a marker naming the
+ * newest segment it replaces, so until that first output segment exists the old ones still
+ * count, and once it does they are deleted.
+ */
+@Component
+class IpHistory implements DisposableBean {
+    private static final Logger log = LoggerFactory.getLogger(IpHistory.class);
+
+    /** Token, address, time, kind and checksum: 8 + 8 + 8 + 8 + 8 + 4 + 4 bytes. */
+    static final int RECORD_SIZE = 48;
+    private static final int CHECKED_SIZE = 44;
+    private static final int SEEN = 1;
+    private static final int FORGOTTEN = 2;
+    /** Starts a compaction's output; the address fields hold the newest replaced segment and the part number. */
+    private static final int COMPACTED = 3;
+    private static final Pattern SEGMENT_NAME = Pattern.compile("history-(\\d{10})\\.log");
+    private static final String COMPACTING = ".compacting";
+
+    /** A client's history key: 128 random bits, 32 hex digits in its cookie. */
+    record Token(long high, long low) {
+        private static final SecureRandom RANDOM = new SecureRandom();
+
+        static Token random() {
+            return new Token(RANDOM.nextLong(), RANDOM.nextLong());
+        }
+
+        /** Parses 32 hex digits; {@code null} for anything else. */
+        static Token parse(String text) {
+            if (text == null || text.length() != 32 || !HexFormat.isHexDigit(text.charAt(0))
+                    || !HexFormat.isHexDigit(text.charAt(16))) {
+                return null;
+            }
+            try {
+                return new Token(Long.parseUnsignedLong(text, 0, 16, 16), Long.parseUnsignedLong(text, 16, 32, 16));
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+
+        @Override
+        public String toString() {
+            return HexFormat.of().toHexDigits(high) + HexFormat.of().toHexDigits(low);
+        }
+    }
+
+    /** The client was first seen at {@code address} at {@code since}. */
+    record Change(IpAddress address, Instant since) {
+    }
+
+    private record Pending(Token token, IpAddress address, long time) {
+    }
+
+    /** A token's record positions, oldest first, and its latest address; replaced, never modified. */
+    private record History(long[] positions, IpAddress last) {
+    }
+
+    /** One mapped segment; {@code count} records have been written, and only the writer writes. */
+    private static final class Segment {
+        final int id;
+        final MappedByteBuffer buffer;
+        final int capacity;
+        int count;
+
+        Segment(int id, MappedByteBuffer buffer, int capacity, int count) {
+            this.id = id;
+            this.buffer = buffer;
+            this.capacity = capacity;
+            this.count = count;
+        }
+    }
+
+    private final HistoryProperties properties;
+    private final int segmentRecords;
+    private final int maxChanges;
+    private final BlockingQueue<Pending> queue;
+    private final Map<Token, History> index = new ConcurrentHashMap<>();
+    private final Map<Integer, Segment> segments = new ConcurrentHashMap<>();
+    private final LongAdder written = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final Thread writer;
+    private volatile boolean running = true;
+    private volatile long records;
+
+    // Writer thread only
+    private final ByteBuffer record = ByteBuffer.allocate(RECORD_SIZE);
+    private final CRC32C crc = new CRC32C();
+    private Segment active;
+    private int nextId = 1;
+    private long live;
+    private long lastCompaction = System.currentTimeMillis();
+
+    @Autowired
+    IpHistory(HistoryProperties properties, MeterRegistry registry) {
+        this(properties, registry, true);
+    }
+
+    /** With {@code startWriter} false nothing is written except by explicit {@link #drain()} calls. */
+    IpHistory(HistoryProperties properties, MeterRegistry registry, boolean startWriter) {
+        this.properties = properties;
+        this.segmentRecords = (int) Math.min(Math.max(properties.segmentSize().toBytes() / RECORD_SIZE, 16),
+                Integer.MAX_VALUE / RECORD_SIZE);
+        this.maxChanges = Math.max(1, properties.maxChanges());
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, properties.capacity()));
+
+        FunctionCounter.builder("publicip.history.changes", written, LongAdder::sum)
+                .description("Address changes recorded in client histories").tag("outcome", "written")
+                .register(registry);
+        FunctionCounter.builder("publicip.history.changes", dropped, LongAdder::sum)
+                .description("Address changes recorded in client histories").tag("outcome", "dropped")
+                .register(registry);
+        Gauge.builder("publicip.history.clients", index, Map::size)
+                .description("Clients with a history").register(registry);
+        Gauge.builder("publicip.history.records", this, history -> history.records)
+                .description("Records in the history log, including superseded ones").register(registry);
+
+        if (properties.enabled()) {
+            try {
+                load();
+            } catch (IOException e) {
+                throw new IllegalStateException("Cannot open the IP history in " + properties.directory(), e);
+            }
+        }
+        if (properties.enabled() && startWriter) {
+            writer = Thread.ofPlatform().daemon().name("ip-history-writer").start(this::run);
+        } else {
+            writer = null;
+        }
+    }
+
+    boolean enabled() {
+        return properties.enabled();
+    }
+
+    /** Queues the address if it differs from the token's latest one; never waits. */
+    void record(Token token, IpAddress address) {
+        History history = index.get(token);
+        if (history != null && history.last().equals(address)) {
+            return;
+        }
+        if (!queue.offer(new Pending(token, address, System.currentTimeMillis()))) {
+            dropped.increment();
+        }
+    }
+
+    /** Queues the removal of the token's history. */
+    void forget(Token token) {
+        if (!queue.offer(new Pending(token, null, System.currentTimeMillis()))) {
+            dropped.increment();
+        }
+    }
+
+    /** The token's changes within the retention period, oldest first. */
+    List<Change> changes(Token token) {
+        long cutoff = System.currentTimeMillis() - properties.retention().toMillis();
+        for (int attempt = 0; attempt < 3; attempt++) {
+            History history = index.get(token);
+            if (history == null) {
+                return List.of();
+            }
+            List<Change> changes = read(history, cutoff);
+            if (changes != null) {
+                return changes;
+            }
+            // A compaction replaced the segments after the positions were read; the index now has the new ones
+        }
+        return List.of();
+    }
+
+    private List<Change> read(History history, long cutoff) {
+        List<Change> changes = new ArrayList<>(history.positions().length);
+        for (long position : history.positions()) {
+            Segment segment = segments.get(segmentId(position));
+            if (segment == null) {
+                return null;
+            }
+            int offset = recordIndex(position) * RECORD_SIZE;
+            long time = segment.buffer.getLong(offset + 32);
+            if (time >= cutoff) {
+                IpAddress address = IpAddress.ofIpv6(segment.buffer.getLong(offset + 16),
+                        segment.buffer.getLong(offset + 24));
+                changes.add(new Change(address, Instant.ofEpochMilli(time)));
+            }
+        }
+        return changes;
+    }
+
+    private void run() {
+        long idleNanos = properties.flushInterval().toNanos();
+        while (running) {
+            int count = drain();
+            compactIfDue();
+            if (count == 0) {
+                LockSupport.parkNanos(this, idleNanos);
+            }
+        }
+        while (drain() > 0) {
+            // write what is left
+        }
+    }
+
+    /** Writes up to one batch of queued changes; returns how many were taken from the queue. */
+    int drain() {
+        int count = 0;
+        Pending pending;
+        while (count < properties.batchSize() && (pending = queue.poll()) != null) {
+            count++;
+            try {
+                apply(pending);
+            } catch (IOException e) {
+                // Disk trouble must not reach request handling; the change is lost and the next one starts a new segment
+                dropped.increment();
+                active = null;
+                log.warn("Could not write to the IP history in {}", properties.directory(), e);
+            }
+        }
+        if (count > 0 && active != null) {
+            active.buffer.force();
+        }
+        return count;
+    }
+
+    private void apply(Pending pending) throws IOException {
+        History history = index.get(pending.token());
+        if (pending.address() == null) {
+            if (history != null) {
+                append(pending.token().high(), pending.token().low(), 0, 0, pending.time(), FORGOTTEN);
+                index.remove(pending.token());
+                live -= history.positions().length;
+            }
+            return;
+        }
+        if (history != null && history.last().equals(pending.address())) {
+            // Queued twice before the first one was written
+            return;
+        }
+        long low = pending.address().ipv4() ? 0xFFFF_0000_0000L | pending.address().low() : pending.address().low();
+        long position = append(pending.token().high(), pending.token().low(), pending.address().high(), low,
+                pending.time(), SEEN);
+        index.put(pending.token(), added(history, position, pending.address()));
+        written.increment();
+    }
+
+    /** The history with one more position, dropping the oldest beyond {@code maxChanges}. */
+    private History added(History history, long position, IpAddress address) {
+        if (history == null) {
+            live++;
+            return new History(new long[] {position}, address);
+        }
+        long[] old = history.positions();
+        long[] positions;
+        if (old.length < maxChanges) {
+            positions = Arrays.copyOf(old, old.length + 1);
+            live++;
+        } else {
+            positions = new long[maxChanges];
+            System.arraycopy(old, old.length - maxChanges + 1, positions, 0, maxChanges - 1);
+            live -= old.length - maxChanges;
+        }
+        positions[positions.length - 1] = position;
+        return new History(positions, address);
+    }
+
+    private long append(long tokenHigh, long tokenLow, long addressHigh, long addressLow, long time, int kind)
+            throws IOException {
+        if (active == null || active.count == active.capacity) {
+            active = create(nextId++, false);
+        }
+        record.clear();
+        record.putLong(tokenHigh).putLong(tokenLow).putLong(addressHigh).putLong(addressLow).putLong(time)
+                .putInt(kind);
+        crc.reset();
+        crc.update(record.array(), 0, CHECKED_SIZE);
+        record.putInt((int) crc.getValue());
+        return put(active, record.array(), 0);
+    }
+
+    private long put(Segment segment, byte[] bytes, int offset) {
+        segment.buffer.put(segment.count * RECORD_SIZE, bytes, offset, RECORD_SIZE);
+        records++;
+        return position(segment.id, segment.count++);
+    }
+
+    private void compactIfDue() {
+        long now = System.currentTimeMillis();
+        if (now - lastCompaction < properties.compactionInterval().toMillis()) {
+            return;
+        }
+        lastCompaction = now;
+        // Worth it once at least half the log is superseded
+        if (records - live < live || records == 0) {
+            return;
+        }
+        try {
+            compact();
+        } catch (IOException e) {
+            active = null;
+            log.warn("Could not compact the IP history in {}", properties.directory(), e);
+        }
+    }
+
+    /**
+     * Rewrites the retained records, grouped by token, into new segments and deletes the old
+     * ones. Runs on the writer thread (or, in tests, instead of it), so the index is stable.
+     */
+    void compact() throws IOException {
+        long cutoff = System.currentTimeMillis() - properties.retention().toMillis();
+        List<Integer> replaced = new ArrayList<>(segments.keySet());
+        int watermark = nextId - 1;
+        List<Segment> output = new ArrayList<>();
+        Map<Token, History> moved = new HashMap<>();
+        byte[] copy = new byte[RECORD_SIZE];
+        long kept = 0;
+        try {
+            Segment out = startPart(watermark, output);
+            for (Map.Entry<Token, History> entry : index.entrySet()) {
+                long[] positions = new long[entry.getValue().positions().length];
+                int retained = 0;
+                for (long position : entry.getValue().positions()) {
+                    Segment from = segments.get(segmentId(position));
+                    int offset = recordIndex(position) * RECORD_SIZE;
+                    if (from.buffer.getLong(offset + 32) < cutoff) {
+                        continue;
+                    }
+                    if (out.count == out.capacity) {
+                        out = startPart(watermark, output);
+                    }
+                    from.buffer.get(offset, copy);
+                    positions[retained++] = put(out, copy, 0);
+                }
+                moved.put(entry.getKey(), retained == 0 ? null
+                        : new History(Arrays.copyOf(positions, retained), entry.getValue().last()));
+                kept += retained;
+            }
+            for (Segment segment : output) {
+                segment.buffer.force();
+            }
+            // The first part's marker makes the rest count, so it is the last to get its real name
+            for (int i = output.size() - 1; i >= 0; i--) {
+                int id = output.get(i).id;
+                Files.move(temporary(id), path(id), StandardCopyOption.ATOMIC_MOVE);
+            }
+        } catch (IOException | RuntimeException e) {
+            for (Segment segment : output) {
+                segments.remove(segment.id);
+                Files.deleteIfExists(temporary(segment.id));
+                Files.deleteIfExists(path(segment.id));
+            }
+            records = count();
+            throw e;
+        }
+        for (Map.Entry<Token, History> entry : moved.entrySet()) {
+            if (entry.getValue() == null) {
+                index.remove(entry.getKey());
+            } else {
+                index.put(entry.getKey(), entry.getValue());
+            }
+        }
+        for (int id : replaced) {
+            segments.remove(id);
+            Files.deleteIfExists(path(id));
+        }
+        active = output.get(output.size() - 1);
+        live = kept;
+        records = count();
+    }
+
+    private Segment startPart(int watermark, List<Segment> output) throws IOException {
+        Segment part = create(nextId++, true);
+        output.add(part);
+        Segment previous = active;
+        active = part;
+        append(0, 0, watermark, output.size() - 1, System.currentTimeMillis(), COMPACTED);
+        active = previous;
+        return part;
+    }
+
+    private Segment create(int id, boolean temporary) throws IOException {
+        try (FileChannel channel = FileChannel.open(temporary ? temporary(id) : path(id),
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0,
+                    (long) segmentRecords * RECORD_SIZE);
+            Segment segment = new Segment(id, buffer, segmentRecords, 0);
+            segments.put(id, segment);
+            return segment;
+        }
+    }
+
+    /** Replays the segments into the index, dropping torn tails, replaced segments and unfinished compactions. */
+    private void load() throws IOException {
+        Path directory = properties.directory();
+        Files.createDirectories(directory);
+        TreeMap<Integer, Path> found = new TreeMap<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                Matcher matcher = SEGMENT_NAME.matcher(name);
+                if (name.endsWith(COMPACTING)) {
+                    Files.delete(file);
+                } else if (matcher.matches()) {
+                    found.put(Integer.parseInt(matcher.group(1)), file);
+                }
+            }
+        }
+        long watermark = -1;
+        for (int id : found.keySet()) {
+            nextId = id + 1;
+            Segment segment = open(id);
+            if (segment == null) {
+                continue;
+            }
+            for (int i = 0; i < segment.count; i++) {
+                int offset = i * RECORD_SIZE;
+                Token token = new Token(segment.buffer.getLong(offset), segment.buffer.getLong(offset + 8));
+                int kind = segment.buffer.getInt(offset + 40);
+                if (kind == SEEN) {
+                    IpAddress address = IpAddress.ofIpv6(segment.buffer.getLong(offset + 16),
+                            segment.buffer.getLong(offset + 24));
+                    index.put(token, added(index.get(token), position(id, i), address));
+                } else if (kind == FORGOTTEN) {
+                    History history = index.remove(token);
+                    live -= history == null ? 0 : history.positions().length;
+                } else if (kind == COMPACTED && i == 0) {
+                    long replaced = segment.buffer.getLong(offset + 16);
+                    if (segment.buffer.getLong(offset + 24) == 0) {
+                        watermark = replaced;
+                        index.clear();
+                        live = 0;
+                        for (Integer old : new ArrayList<>(segments.keySet())) {
+                            if (old <= replaced) {
+                                segments.remove(old);
+                                Files.delete(path(old));
+                            }
+                        }
+                    } else if (replaced != watermark) {
+                        // A later part of a compaction whose first part never got its name
+                        segments.remove(id);
+                        Files.delete(path(id));
+                        break;
+                    }
+                }
+            }
+        }
+        records = count();
+    }
+
+    /** Maps an existing segment read-only, cut back to its last intact record; {@code null} if it has none. */
+    private Segment open(int id) throws IOException {
+        Path path = path(id);
+        Segment segment = null;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long size = channel.size();
+            int capacity = (int) Math.min(size / RECORD_SIZE, Integer.MAX_VALUE / RECORD_SIZE);
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, (long) capacity * RECORD_SIZE);
+            int count = 0;
+            while (count < capacity && intact(buffer, count * RECORD_SIZE)) {
+                count++;
+            }
+            if (count > 0) {
+                if ((long) count * RECORD_SIZE != size) {
+                    // Unused space, or a record torn by a crash, after the last intact record
+                    channel.truncate((long) count * RECORD_SIZE);
+                    buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, (long) count * RECORD_SIZE);
+                }
+                segment = new Segment(id, buffer, count, count);
+            }
+        }
+        if (segment == null) {
+            // Nothing intact; removed now that the channel is closed
+            Files.delete(path);
+            return null;
+        }
+        segments.put(id, segment);
+        return segment;
+    }
+
+    private boolean intact(ByteBuffer buffer, int offset) {
+        crc.reset();
+        crc.update(buffer.slice(offset, CHECKED_SIZE));
+        return (int) crc.getValue() == buffer.getInt(offset + CHECKED_SIZE);
+    }
+
+    private long count() {
+        long count = 0;
+        for (Segment segment : segments.values()) {
+            count += segment.count;
+        }
+        return count;
+    }
+
+    private static long position(int segmentId, int recordIndex) {
+        return (long) segmentId << 32 | recordIndex;
+    }
+
+    private static int segmentId(long position) {
+        return (int) (position >>> 32);
+    }
+
+    private static int recordIndex(long position) {
+        return (int) position;
+    }
+
+    private Path path(int id) {
+        return properties.directory().resolve(String.format("history-%010d.log", id));
+    }
+
+    private Path temporary(int id) {
+        return properties.directory().resolve(String.format("history-%010d.log", id) + COMPACTING);
+    }
+
+    @Override
+    public void destroy() throws InterruptedException {
+        running = false;
+        if (writer != null) {
+            LockSupport.unpark(writer);
+            writer.join();
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package com.example.reverseip;
+
+import java.time.Instant;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Minimal streaming JSON emitter over a reusable {@link StringBuilder} from a {@link ScratchPool}.
+ * String values are escaped one character at a time as they are appended, so no
+ * intermediate copies are made. Besides the mandatory JSON escapes it also escapes
+ * {@code <}, which keeps the output safe to embed inside a {@code <script>} element.
+ */
+final class JsonWriter {
+    private static final int INITIAL_CAPACITY = 8 * 1024;
+    private static final int RETAINED_CAPACITY = 128 * 1024;
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private static final ScratchPool<JsonWriter> WRITERS = new ScratchPool<>(JsonWriter::new);
+
+    private StringBuilder out = new StringBuilder(INITIAL_CAPACITY);
+
+    private JsonWriter() {
+    }
+
+    /** Returns this thread's writer, emptied and ready for use; hand it back with {@link #release()}. */
+    static JsonWriter forCurrentThread() {
+        JsonWriter writer = WRITERS.acquire();
+        if (writer.out.capacity() > RETAINED_CAPACITY) {
+            writer.out = new StringBuilder(INITIAL_CAPACITY);
+        } else {
+            writer.out.setLength(0);
+        }
+        return writer;
+    }
+
+    /** A writer outside the pool, for JSON that is kept beyond the current request. */
+    static JsonWriter unpooled() {
+        return new JsonWriter();
+    }
+
+    /** Appends pre-formed JSON syntax (braces, keys, indentation) verbatim. */
+    JsonWriter raw(String json) {
+        out.append(json);
+        return this;
+    }
+
+    /** Appends {@code json[start, end)} verbatim. */
+    JsonWriter raw(String json, int start, int end) {
+        out.append(json, start, end);
+        return this;
+    }
+
+    JsonWriter number(long value) {
+        out.append(value);
+        return this;
+    }
+
+    /** Appends a quoted, escaped string value; {@code null} is written as the string {@code "null"}. */
+    JsonWriter string(CharSequence value) {
+        if (value == null) {
+            out.append("\"null\"");
+            return this;
+        }
+        return string(value, 0, value.length());
+    }
+
+    /** Appends {@code value[start, end)} escaped but unquoted, as part of a string value. */
+    JsonWriter escaped(CharSequence value, int start, int end) {
+        escape(out, value, start, end);
+        return this;
+    }
+
+    /** Appends {@code value[start, end)} as a quoted, escaped string value. */
+    JsonWriter string(CharSequence value, int start, int end) {
+        out.append('"');
+        escape(out, value, start, end);
+        out.append('"');
+        return this;
+    }
+
+    /** Appends an ISO-8601 instant as a quoted string value. */
+    JsonWriter instant(Instant value) {
+        out.append('"');
+        DateTimeFormatter.ISO_INSTANT.formatTo(value, out);
+        out.append('"');
+        return this;
+    }
+
+    CharSequence result() {
+        return out;
+    }
+
+    /** Empties the writer for the next document, keeping its storage. */
+    void clear() {
+        out.setLength(0);
+    }
+
+    /** Returns the writer once its {@link #result()} has been written out. */
+    void release() {
+        WRITERS.release(this);
+    }
+
+    static void escape(StringBuilder out, CharSequence value, int start, int end) {
+        int run = start;
+        for (int i = start; i < end; i++) {
+            char c = value.charAt(i);
+            String replacement;
+            switch (c) {
+                case '"' -> replacement = "\\\"";
+                case '\\' -> replacement = "\\\\";
+                case '\n' -> replacement = "\\n";
+                case '\r' -> replacement = "\\r";
+                case '\t' -> replacement = "\\t";
+                case '<' -> replacement = "\\u003c";
+                default -> {
+                    if (c >= 0x20) {
+                        continue;
+                    }
+                    replacement = null;
+                }
+            }
+            out.append(value, run, i);
+            if (replacement != null) {
+                out.append(replacement);
+            } else {
+                out.append("\\u00").append(HEX[c >> 4]).append(HEX[c & 0xF]);
+            }
+            run = i + 1;
+        }
+        out.append(value, run, end);
+    }
+}
@@ -0,0 +1,197 @@
+package com.example.reverseip;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * {@code GET /live}: Server-Sent Events carrying the client's diagnostics as seen on each
+ * connection. A new stream gets a {@code snapshot} event; a reconnecting one sends the id of
+ * the last snapshot it saw ({@code Last-Event-ID}) and gets a {@code delta} with only what
+ * changed, or nothing if nothing did.
+ *
+ * <p>The address can only change between connections, so the stream carries one event and is
+ * then held open, idle, for {@code reconnectInterval}: an async request with no thread and
+ * nothing scheduled, costing only its socket and a few objects. A network change (a VPN
+ * toggling, IPv4/IPv6 flipping) breaks the connection and the browser reconnects within
+ * {@code retry}; otherwise the stream is closed at the interval, so even a proxy that keeps
+ * its upstream connection sees the current address, and idle proxy timeouts never fire.
+ *
+ * <p>A PTR lookup that misses the cache does not hold the request thread either: the event is
+ * written from the lookup's completion, within {@code publicip.ptr.timeout}.
+ */
+@RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+class LiveController {
+    private static final String[] EVENT_TYPES = {"snapshot", "delta", "unchanged"};
+
+    private final LiveProperties properties;
+    private final PtrResolver ptrResolver;
+    private final IpEnricher enricher;
+    private final RequestMetrics metrics;
+    private final Set<String> ignoredHeaders = new HashSet<>();
+    private final Cache<Long, LiveSnapshot> snapshots;
+    private final AtomicInteger open = new AtomicInteger();
+    private final Counter[] events = new Counter[EVENT_TYPES.length];
+    private final AsyncListener closer = new AsyncListener() {
+        @Override
+        public void onComplete(AsyncEvent event) {
+            open.decrementAndGet();
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            event.getAsyncContext().complete();
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            event.getAsyncContext().complete();
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+        }
+    };
+
+    LiveController(LiveProperties properties, PtrResolver ptrResolver, IpEnricher enricher, RequestMetrics metrics,
+                   MeterRegistry registry) {
+        this.properties = properties;
+        this.ptrResolver = ptrResolver;
+        this.enricher = enricher;
+        this.metrics = metrics;
+        for (String header : properties.ignoredHeaders()) {
+            ignoredHeaders.add(header.strip().toLowerCase(Locale.ROOT));
+        }
+        this.snapshots = Caffeine.newBuilder().maximumSize(properties.snapshotCacheSize()).build();
+        Gauge.builder("publicip.live.streams", open, AtomicInteger::get)
+                .description("Open live diagnostic streams").register(registry);
+        for (int i = 0; i < EVENT_TYPES.length; i++) {
+            events[i] = Counter.builder("publicip.live.events").tag("type", EVENT_TYPES[i])
+                    .description("Live diagnostic stream connections by what they were sent").register(registry);
+        }
+    }
+
+    @GetMapping("/live")
+    public void getLive(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        if (!properties.enabled()) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        if (open.incrementAndGet() > properties.maxStreams()) {
+            open.decrementAndGet();
+            response.setHeader("Retry-After", Long.toString(Math.max(1, properties.reconnectInterval().toSeconds())));
+            response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+            return;
+        }
+        AsyncContext async;
+        try {
+            async = request.startAsync();
+            async.setTimeout(properties.reconnectInterval().toMillis());
+            async.addListener(closer);
+        } catch (RuntimeException e) {
+            open.decrementAndGet();
+            throw e;
+        }
+
+        IpAddress client = ClientAddressFilter.client(request);
+        if (client == null || !ptrResolver.enabled()) {
+            writeFirstEvent(async, request, response, client, null);
+            return;
+        }
+        CompletableFuture<PtrResolver.Lookup> lookup = ptrResolver.resolveLater(client);
+        PtrResolver.Lookup done = lookup.getNow(null);
+        if (done != null) {
+            writeFirstEvent(async, request, response, client, done.describe());
+            return;
+        }
+        // Write once DNS answers or the lookup times out, on a container thread rather than the resolver's
+        lookup.thenAccept(resolved -> async.start(() -> {
+            try {
+                writeFirstEvent(async, request, response, client, resolved.describe());
+            } catch (IOException e) {
+                // The client went away and the stream is already completed
+            }
+        }));
+    }
+
+    /** Sends the {@code retry} interval and the stream's one event, leaving the stream open. */
+    private void writeFirstEvent(AsyncContext async, HttpServletRequest request, HttpServletResponse response,
+                                 IpAddress client, String hostname) throws IOException {
+        LiveSnapshot snapshot = LiveSnapshot.capture(request, client, hostname, enricher.lookup(client),
+                ignoredHeaders);
+        LiveSnapshot previous = previous(request.getHeader("Last-Event-ID"));
+        snapshots.put(snapshot.id(), snapshot);
+
+        response.setContentType("text/event-stream;charset=UTF-8");
+        response.setHeader("Cache-Control", "no-store");
+        // Stop nginx buffering the stream
+        response.setHeader("X-Accel-Buffering", "no");
+
+        JsonWriter json = JsonWriter.forCurrentThread();
+        Utf8Buffer buffer = Utf8Buffer.forCurrentThread();
+        try {
+            buffer.append("retry: ").append(Long.toString(properties.retry().toMillis())).append("\n");
+            int type;
+            if (previous == null) {
+                snapshot.writeTo(json);
+                type = 0;
+            } else {
+                type = snapshot.writeDeltaTo(json, previous) ? 1 : 2;
+            }
+            if (type != 2) {
+                buffer.append("id: ").append(formatId(snapshot.id())).append("\n")
+                        .append("event: ").append(EVENT_TYPES[type]).append("\n")
+                        .append("data: ").append(json.result()).append("\n");
+            }
+            buffer.append("\n");
+            buffer.writeTo(response.getOutputStream(), 0, buffer.length());
+            response.flushBuffer();
+            events[type].increment();
+            metrics.responseBytes(RequestMetrics.Endpoint.LIVE, buffer.length());
+        } catch (IOException e) {
+            async.complete();
+            throw e;
+        } finally {
+            json.release();
+            buffer.release();
+        }
+    }
+
+    int openStreams() {
+        return open.get();
+    }
+
+    /** The snapshot a reconnecting client last saw, if it is still cached. */
+    private LiveSnapshot previous(String lastEventId) {
+        if (lastEventId == null || lastEventId.length() != 16) {
+            return null;
+        }
+        try {
+            return snapshots.getIfPresent(Long.parseUnsignedLong(lastEventId, 16));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    static String formatId(long id) {
+        String hex = Long.toHexString(id);
+        return "0".repeat(16 - hex.length()) + hex;
+    }
+}
@@ -0,0 +1,31 @@
+package com.example.reverseip;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Live diagnostics over Server-Sent Events, {@code GET /live} ({@code publicip.live.*}).
+ *
+ * @param enabled           serve the stream
+ * @param reconnectInterval how long a stream is held open before it is closed, so the browser reconnects and
+ *                          the client's address is detected afresh; keep it below the proxy's read timeout
+ * @param retry             reconnection delay the browser is told to use
+ * @param maxStreams        open streams per node; further clients get 503 with {@code Retry-After}
+ * @param snapshotCacheSize distinct recent snapshots kept to compute deltas against; a client whose last
+ *                          snapshot was evicted gets a full one
+ * @param ignoredHeaders    request headers left out of snapshots, because they differ between the page and the
+ *                          stream or between any two requests rather than with the client's connection
+ */
+@ConfigurationProperties("publicip.live")
+record LiveProperties(
+        @DefaultValue("true") boolean enabled,
+        @DefaultValue("30s") Duration reconnectInterval,
+        @DefaultValue("1s") Duration retry,
+        @DefaultValue("20000") int maxStreams,
+        @DefaultValue("10000") int snapshotCacheSize,
+        @DefaultValue({"accept", "cache-control", "pragma", "last-event-id", "referer", "priority", "sec-fetch-dest",
+                "sec-fetch-mode", "sec-fetch-site", "sec-fetch-user", "upgrade-insecure-requests", "x-request-id",
+                "traceparent"}) List<String> ignoredHeaders) {
+}
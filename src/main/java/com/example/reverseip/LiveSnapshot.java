@@ -0,0 +1,207 @@
+package com.example.reverseip;
+
+import jakarta.servlet.http.HttpServletRequest;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * What the live stream reports about one request: the address, its reverse pointer, PTR
+ * hostname and network when known, and the request headers by lower-cased name, a repeated
+ * one with its values as a list as in the page's data. Snapshots
+ * are identified by a 64-bit hash of their content, which is the SSE event id, so equal
+ * snapshots from any number of clients share one id and one cache entry.
+ */
+final class LiveSnapshot {
+
+    /** The scalar fields, in the order they are written. */
+    enum Field {
+        IP("ip"), REVERSE_POINTER("reversePointer"), HOSTNAME("hostname"), ASN("asn"),
+        ORGANIZATION("organization"), COUNTRY("country");
+
+        private final String json;
+
+        Field(String key) {
+            this.json = "\"" + key + "\":";
+        }
+    }
+
+    private static final Field[] FIELDS = Field.values();
+
+    private final String[] values;
+    private final Map<String, List<String>> headers;
+    private final long id;
+
+    private LiveSnapshot(String[] values, Map<String, List<String>> headers) {
+        this.values = values;
+        this.headers = headers;
+        this.id = hash(values, headers);
+    }
+
+    static LiveSnapshot capture(HttpServletRequest request, IpAddress client, String hostname,
+                                PrefixDatabase.Network network, Set<String> ignoredHeaders) {
+        String[] values = new String[FIELDS.length];
+        values[Field.IP.ordinal()] = String.valueOf(client);
+        values[Field.REVERSE_POINTER.ordinal()] = client == null ? null : client.reversePointer();
+        values[Field.HOSTNAME.ordinal()] = hostname;
+        if (network != null) {
+            values[Field.ASN.ordinal()] = network.asn() == 0 ? null : Long.toString(network.asn());
+            values[Field.ORGANIZATION.ordinal()] = network.organization();
+            values[Field.COUNTRY.ordinal()] = network.country();
+        }
+        Map<String, List<String>> headers = new TreeMap<>();
+        RequestHeaders all = RequestHeaders.of(request);
+        for (int i = 0; i < all.size(); i++) {
+            String name = all.name(i).toString().toLowerCase(Locale.ROOT);
+            if (!ignoredHeaders.contains(name)) {
+                // Copied out of the request, which the snapshot outlives
+                headers.computeIfAbsent(name, key -> new ArrayList<>(1)).add(all.value(i).toString());
+            }
+        }
+        return new LiveSnapshot(values, headers);
+    }
+
+    long id() {
+        return id;
+    }
+
+    String value(Field field) {
+        return values[field.ordinal()];
+    }
+
+    Map<String, List<String>> headers() {
+        return headers;
+    }
+
+    /** Writes the whole snapshot as one JSON object. */
+    void writeTo(JsonWriter json) {
+        json.raw("{");
+        boolean first = true;
+        for (Field field : FIELDS) {
+            String value = values[field.ordinal()];
+            if (value != null) {
+                json.raw(first ? "" : ",");
+                writeValue(json, field, value);
+                first = false;
+            }
+        }
+        json.raw(first ? "\"headers\":{" : ",\"headers\":{");
+        first = true;
+        for (Map.Entry<String, List<String>> header : headers.entrySet()) {
+            json.raw(first ? "" : ",").string(header.getKey()).raw(":");
+            writeHeaderValues(json, header.getValue());
+            first = false;
+        }
+        json.raw("}}");
+    }
+
+    /**
+     * Writes what changed since {@code previous} as one JSON object: changed fields and headers
+     * with their new values, removed ones as {@code null}, and {@code headers} only if any
+     * header changed. Returns {@code false}, writing nothing, if nothing changed.
+     */
+    boolean writeDeltaTo(JsonWriter json, LiveSnapshot previous) {
+        if (previous.id == id && previous.equalTo(this)) {
+            return false;
+        }
+        json.raw("{");
+        boolean first = true;
+        for (Field field : FIELDS) {
+            String value = values[field.ordinal()];
+            if (!Objects.equals(value, previous.values[field.ordinal()])) {
+                json.raw(first ? "" : ",");
+                if (value == null) {
+                    json.raw(field.json).raw("null");
+                } else {
+                    writeValue(json, field, value);
+                }
+                first = false;
+            }
+        }
+        boolean headersOpen = false;
+        for (Map.Entry<String, List<String>> header : headers.entrySet()) {
+            if (!header.getValue().equals(previous.headers.get(header.getKey()))) {
+                headersOpen = openHeaders(json, first, headersOpen);
+                json.string(header.getKey()).raw(":");
+                writeHeaderValues(json, header.getValue());
+            }
+        }
+        for (String name : previous.headers.keySet()) {
+            if (!headers.containsKey(name)) {
+                headersOpen = openHeaders(json, first, headersOpen);
+                json.string(name).raw(":null");
+            }
+        }
+        json.raw(headersOpen ? "}}" : "}");
+        return true;
+    }
+
+    private static boolean openHeaders(JsonWriter json, boolean first, boolean open) {
+        if (open) {
+            json.raw(",");
+        } else {
+            json.raw(first ? "\"headers\":{" : ",\"headers\":{");
+        }
+        return true;
+    }
+
+    /** A string for one value, an array for a repeated header. */
+    private static void writeHeaderValues(JsonWriter json, List<String> values) {
+        if (values.size() == 1) {
+            json.string(values.get(0));
+            return;
+        }
+        json.raw("[");
+        for (int i = 0; i < values.size(); i++) {
+            json.raw(i == 0 ? "" : ",").string(values.get(i));
+        }
+        json.raw("]");
+    }
+
+    private static void writeValue(JsonWriter json, Field field, String value) {
+        if (field == Field.ASN) {
+            json.raw(field.json).raw(value);
+        } else {
+            json.raw(field.json).string(value);
+        }
+    }
+
+    private boolean equalTo(LiveSnapshot other) {
+        for (int i = 0; i < values.length; i++) {
+            if (!Objects.equals(values[i], other.values[i])) {
+                return false;
+            }
+        }
+        return headers.equals(other.headers);
+    }
+
+    /** FNV-1a over the fields and headers, with separators so adjacent values cannot run together. */
+    private static long hash(String[] values, Map<String, List<String>> headers) {
+        long h = 0xcbf29ce484222325L;
+        for (String value : values) {
+            h = hash(h, value);
+        }
+        for (Map.Entry<String, List<String>> header : headers.entrySet()) {
+            h = hash(h, header.getKey());
+            for (String value : header.getValue()) {
+                h = hash(h, value);
+            }
+            // Ends the list, so values cannot move between adjacent headers unnoticed
+            h = hash(h, null);
+        }
+        return h;
+    }
+
+    private static long hash(long h, String value) {
+        if (value != null) {
+            for (int i = 0; i < value.length(); i++) {
+                h = (h ^ value.charAt(i)) * 0x100000001b3L;
+            }
+        }
+        return (h ^ (value == null ? 0xFFFF : 0xFFFE)) * 0x100000001b3L;
+    }
+}
@@ -0,0 +1,19 @@
+package com.example.reverseip;
+
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+
+/**
+ * What a native image needs beyond Spring's own hints and the GraalVM reachability metadata
+ * for the dependencies. Brotli4j copies its JNI library out of the classpath
+ * ({@code /lib/<platform>/libbrotli.so}, or {@code brotli.dll} on Windows) before loading
+ * it, so the library must be embedded as a resource; without it {@link Compressor} falls
+ * back to gzip.
+ */
+class NativeHints implements RuntimeHintsRegistrar {
+
+    @Override
+    public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
+        hints.resources().registerPattern("lib/*/*brotli*");
+    }
+}
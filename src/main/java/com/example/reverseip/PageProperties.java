@@ -0,0 +1,33 @@
+package com.example.reverseip;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Settings for the diagnostic page ({@code publicip.page.*}).
+ *
+ * @param payload  default payload mode; a request can override it with {@code ?payload=full|compact}
+ * @param compress compress the HTML with gzip or Brotli when the client accepts it; turn off
+ *                 when a reverse proxy in front already compresses responses
+ */
+@ConfigurationProperties("publicip.page")
+record PageProperties(@DefaultValue("compact") PayloadMode payload, @DefaultValue("true") boolean compress) {
+
+    /** How much of the diagnostic data is embedded in the page. */
+    enum PayloadMode {
+        /** Structured data only; the browser renders the Classic View and terminal boxes. */
+        COMPACT,
+        /** Structured data plus the server-rendered Classic View text and formatted sections. */
+        FULL;
+
+        static PayloadMode fromParameter(String value, PayloadMode fallback) {
+            if ("full".equalsIgnoreCase(value)) {
+                return FULL;
+            }
+            if ("compact".equalsIgnoreCase(value)) {
+                return COMPACT;
+            }
+            return fallback;
+        }
+    }
+}
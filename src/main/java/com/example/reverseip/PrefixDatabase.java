@@ -0,0 +1,395 @@
+package com.example.reverseip;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * IP range to network (ASN, organisation, country) index, compiled once from a text dataset
+ * into a binary file and memory-mapped, so the data lives in the page cache rather than on
+ * the heap and a restart only re-maps it. Ranges are sorted by start address; a lookup is a
+ * binary search for the last range starting at or before the address, then a walk up to the
+ * enclosing range while the address is past the end (CIDR lists nest; the most specific
+ * range wins). For IPv4 a small on-heap table of where each /16 starts narrows the search to
+ * the few ranges in the address's /16. No allocation once a network's details have been decoded.
+ *
+ * <p>Two text formats are read, line by line, {@code #} starting a comment:
+ * <ul>
+ *   <li>tab-separated {@code start end asn country description}, as published by iptoasn.com</li>
+ *   <li>comma-separated {@code cidr,asn,country,organisation}, the organisation running to the end of
+ *       the line and optionally double-quoted</li>
+ * </ul>
+ * ASN 0 ("not routed") and country {@code None} are stored as absent.
+ */
+final class PrefixDatabase {
+    private static final int MAGIC = 0x50495058; // "PIPX"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 32;
+    private static final int IPV4_RECORD = 16;
+    private static final int IPV6_RECORD = 40;
+    private static final int NETWORK_RECORD = 12;
+    private static final int NO_PARENT = -1;
+    private static final int IPV4_BUCKETS = 1 << 16;
+
+    /** What the dataset says about a range. */
+    record Network(long asn, String organization, String country) {
+    }
+
+    private final ByteBuffer index;
+    private final int ipv4Count;
+    private final int ipv6Count;
+    private final int ipv4Offset;
+    private final int ipv6Offset;
+    private final int networksOffset;
+    private final Network[] decoded;
+    /** Index of the first IPv4 range starting in each /16, and {@code ipv4Count} at the end. */
+    private final int[] ipv4Buckets;
+
+    private PrefixDatabase(ByteBuffer index) {
+        this.index = index;
+        if (index.capacity() < HEADER_SIZE || index.getInt(0) != MAGIC || index.getInt(4) != VERSION) {
+            throw new IllegalArgumentException("Not a prefix index");
+        }
+        this.ipv4Count = index.getInt(8);
+        this.ipv6Count = index.getInt(12);
+        this.ipv4Offset = index.getInt(16);
+        this.ipv6Offset = index.getInt(20);
+        this.networksOffset = index.getInt(24);
+        this.decoded = new Network[index.getInt(28)];
+        this.ipv4Buckets = new int[IPV4_BUCKETS + 1];
+        int bucket = 0;
+        for (int i = 0; i < ipv4Count; i++) {
+            int first = index.getInt(ipv4Offset + i * IPV4_RECORD) >>> 16;
+            while (bucket <= first) {
+                ipv4Buckets[bucket++] = i;
+            }
+        }
+        while (bucket <= IPV4_BUCKETS) {
+            ipv4Buckets[bucket++] = ipv4Count;
+        }
+    }
+
+    /**
+     * Maps {@code indexFile}, first compiling it from {@code source} if it is missing or older
+     * than the dataset. The index is written to a temporary file and renamed into place, so
+     * mappings of the previous version stay valid.
+     */
+    static PrefixDatabase open(Path source, Path indexFile) throws IOException {
+        if (!Files.exists(indexFile)
+                || Files.getLastModifiedTime(indexFile).compareTo(Files.getLastModifiedTime(source)) < 0) {
+            compile(source, indexFile);
+        }
+        try (FileChannel channel = FileChannel.open(indexFile, StandardOpenOption.READ)) {
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new PrefixDatabase(mapped);
+        }
+    }
+
+    int ipv4Ranges() {
+        return ipv4Count;
+    }
+
+    int ipv6Ranges() {
+        return ipv6Count;
+    }
+
+    /**
+     * The network containing {@code address}, or {@code null} if the dataset does not cover it
+     * or has nothing to say about it (an unrouted range).
+     */
+    Network lookup(IpAddress address) {
+        int record = address.ipv4() ? findIpv4(address.low()) : findIpv6(address.high(), address.low());
+        if (record < 0) {
+            return null;
+        }
+        int networkIndex = address.ipv4()
+                ? index.getInt(ipv4Offset + record * IPV4_RECORD + 12)
+                : index.getInt(ipv6Offset + record * IPV6_RECORD + 36);
+        Network network = decoded[networkIndex];
+        if (network == null) {
+            // Racing threads may both decode it; the records are equal and immutable
+            network = decodeNetwork(networkIndex);
+            decoded[networkIndex] = network;
+        }
+        return network.asn() == 0 && network.organization() == null && network.country() == null ? null : network;
+    }
+
+    private int findIpv4(long address) {
+        int key = (int) address;
+        int low = ipv4Buckets[key >>> 16];
+        int high = ipv4Buckets[(key >>> 16) + 1] - 1;
+        // The last range starting in an earlier /16, unless one in this /16 starts at or before the key
+        int candidate = low - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (Integer.compareUnsigned(index.getInt(ipv4Offset + mid * IPV4_RECORD), key) <= 0) {
+                candidate = mid;
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        while (candidate >= 0) {
+            int at = ipv4Offset + candidate * IPV4_RECORD;
+            if (Integer.compareUnsigned(key, index.getInt(at + 4)) <= 0) {
+                return candidate;
+            }
+            candidate = index.getInt(at + 8);
+        }
+        return -1;
+    }
+
+    private int findIpv6(long keyHigh, long keyLow) {
+        int low = 0;
+        int high = ipv6Count - 1;
+        int candidate = -1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int at = ipv6Offset + mid * IPV6_RECORD;
+            if (compare(index.getLong(at), index.getLong(at + 8), keyHigh, keyLow) <= 0) {
+                candidate = mid;
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        while (candidate >= 0) {
+            int at = ipv6Offset + candidate * IPV6_RECORD;
+            if (compare(keyHigh, keyLow, index.getLong(at + 16), index.getLong(at + 24)) <= 0) {
+                return candidate;
+            }
+            candidate = index.getInt(at + 32);
+        }
+        return -1;
+    }
+
+    private Network decodeNetwork(int networkIndex) {
+        int at = networksOffset + networkIndex * NETWORK_RECORD;
+        long asn = Integer.toUnsignedLong(index.getInt(at));
+        char c0 = (char) index.get(at + 4);
+        char c1 = (char) index.get(at + 5);
+        String country = c0 == 0 ? null : new String(new char[] {c0, c1});
+        int stringAt = index.getInt(at + 8);
+        String organization = null;
+        if (stringAt >= 0) {
+            byte[] utf8 = new byte[index.getShort(stringAt) & 0xFFFF];
+            index.get(stringAt + 2, utf8);
+            organization = new String(utf8, StandardCharsets.UTF_8);
+        }
+        return new Network(asn, organization, country);
+    }
+
+    private static int compare(long aHigh, long aLow, long bHigh, long bLow) {
+        int high = Long.compareUnsigned(aHigh, bHigh);
+        return high != 0 ? high : Long.compareUnsigned(aLow, bLow);
+    }
+
+    private record Range(boolean ipv4, long startHigh, long startLow, long endHigh, long endLow, int network) {
+    }
+
+    /**
+     * Parses {@code source} and writes the binary index to {@code indexFile}.
+     *
+     * @throws IllegalArgumentException if a line cannot be parsed
+     */
+    static void compile(Path source, Path indexFile) throws IOException {
+        List<Range> ipv4 = new ArrayList<>();
+        List<Range> ipv6 = new ArrayList<>();
+        Map<Network, Integer> networkIds = new HashMap<>();
+        List<Network> networks = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(source, StandardCharsets.UTF_8)) {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                String trimmed = line.strip();
+                if (trimmed.isEmpty() || trimmed.startsWith("#")) {
+                    continue;
+                }
+                Range range;
+                try {
+                    range = trimmed.indexOf('\t') >= 0
+                            ? parseTabSeparated(trimmed, networkIds, networks)
+                            : parseCommaSeparated(trimmed, networkIds, networks);
+                } catch (RuntimeException e) {
+                    throw new IllegalArgumentException(source + ":" + lineNumber + ": " + e.getMessage(), e);
+                }
+                (range.ipv4 ? ipv4 : ipv6).add(range);
+            }
+        }
+
+        Comparator<Range> order = (a, b) -> {
+            int start = compare(a.startHigh, a.startLow, b.startHigh, b.startLow);
+            // Enclosing ranges first, so a range's parent always precedes it
+            return start != 0 ? start : compare(b.endHigh, b.endLow, a.endHigh, a.endLow);
+        };
+        ipv4.sort(order);
+        ipv6.sort(order);
+
+        byte[][] organizations = new byte[networks.size()][];
+        int stringsSize = 0;
+        for (int i = 0; i < networks.size(); i++) {
+            String organization = networks.get(i).organization();
+            if (organization != null) {
+                byte[] utf8 = organization.getBytes(StandardCharsets.UTF_8);
+                organizations[i] = utf8.length > 0xFFFF ? Arrays.copyOf(utf8, 0xFFFF) : utf8;
+                stringsSize += 2 + organizations[i].length;
+            }
+        }
+
+        int ipv4Offset = HEADER_SIZE;
+        int ipv6Offset = ipv4Offset + ipv4.size() * IPV4_RECORD;
+        int networksOffset = ipv6Offset + ipv6.size() * IPV6_RECORD;
+        int stringsOffset = networksOffset + networks.size() * NETWORK_RECORD;
+        ByteBuffer out = ByteBuffer.allocate(stringsOffset + stringsSize);
+        out.putInt(MAGIC).putInt(VERSION).putInt(ipv4.size()).putInt(ipv6.size())
+                .putInt(ipv4Offset).putInt(ipv6Offset).putInt(networksOffset).putInt(networks.size());
+
+        int[] parents = parents(ipv4);
+        for (int i = 0; i < ipv4.size(); i++) {
+            Range range = ipv4.get(i);
+            out.putInt((int) range.startLow).putInt((int) range.endLow).putInt(parents[i]).putInt(range.network);
+        }
+        parents = parents(ipv6);
+        for (int i = 0; i < ipv6.size(); i++) {
+            Range range = ipv6.get(i);
+            out.putLong(range.startHigh).putLong(range.startLow).putLong(range.endHigh).putLong(range.endLow)
+                    .putInt(parents[i]).putInt(range.network);
+        }
+        int stringAt = stringsOffset;
+        for (int i = 0; i < networks.size(); i++) {
+            Network network = networks.get(i);
+            String country = network.country();
+            out.putInt((int) network.asn())
+                    .put(country == null ? 0 : (byte) country.charAt(0))
+                    .put(country == null ? 0 : (byte) country.charAt(1))
+                    .putShort((short) 0)
+                    .putInt(organizations[i] == null ? -1 : stringAt);
+            if (organizations[i] != null) {
+                stringAt += 2 + organizations[i].length;
+            }
+        }
+        for (byte[] organization : organizations) {
+            if (organization != null) {
+                out.putShort((short) organization.length).put(organization);
+            }
+        }
+
+        Path parent = indexFile.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        Path temporary = Files.createTempFile(parent, indexFile.getFileName().toString(), ".tmp");
+        try {
+            Files.write(temporary, out.array());
+            Files.move(temporary, indexFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    /** Index of the innermost earlier range enclosing each range, or {@link #NO_PARENT}. */
+    private static int[] parents(List<Range> ranges) {
+        int[] parents = new int[ranges.size()];
+        int[] stack = new int[Math.min(ranges.size(), 129) + 1];
+        int depth = 0;
+        for (int i = 0; i < ranges.size(); i++) {
+            Range range = ranges.get(i);
+            while (depth > 0) {
+                Range top = ranges.get(stack[depth - 1]);
+                if (compare(top.endHigh, top.endLow, range.startHigh, range.startLow) >= 0) {
+                    break;
+                }
+                depth--;
+            }
+            parents[i] = depth == 0 ? NO_PARENT : stack[depth - 1];
+            if (depth == stack.length) {
+                stack = Arrays.copyOf(stack, depth * 2);
+            }
+            stack[depth++] = i;
+        }
+        return parents;
+    }
+
+    private static Range parseTabSeparated(String line, Map<Network, Integer> ids, List<Network> networks) {
+        String[] fields = line.split("\t", 5);
+        if (fields.length < 4) {
+            throw new IllegalArgumentException("expected start, end, asn, country, description");
+        }
+        IpAddress start = address(fields[0]);
+        IpAddress end = address(fields[1]);
+        if (start.ipv4() != end.ipv4()) {
+            throw new IllegalArgumentException("range mixes IPv4 and IPv6");
+        }
+        int network = network(Long.parseLong(fields[2].strip()), fields[3].strip(),
+                fields.length > 4 ? fields[4].strip() : null, ids, networks);
+        return new Range(start.ipv4(), start.high(), start.low(), end.high(), end.low(), network);
+    }
+
+    private static Range parseCommaSeparated(String line, Map<Network, Integer> ids, List<Network> networks) {
+        String[] fields = line.split(",", 4);
+        if (fields.length < 3) {
+            throw new IllegalArgumentException("expected cidr, asn, country, organisation");
+        }
+        String cidr = fields[0].strip();
+        int slash = cidr.indexOf('/');
+        IpAddress base = address(slash < 0 ? cidr : cidr.substring(0, slash));
+        int bits = base.bitLength();
+        int prefix = slash < 0 ? bits : Integer.parseInt(cidr.substring(slash + 1));
+        if (prefix < 0 || prefix > bits) {
+            throw new IllegalArgumentException("bad prefix length: " + cidr);
+        }
+        String organization = fields.length > 3 ? fields[3].strip() : null;
+        if (organization != null && organization.length() >= 2 && organization.startsWith("\"")
+                && organization.endsWith("\"")) {
+            organization = organization.substring(1, organization.length() - 1).replace("\"\"", "\"");
+        }
+        int network = network(Long.parseLong(fields[1].strip()), fields[2].strip(), organization, ids, networks);
+        if (base.ipv4()) {
+            long mask = prefix == 0 ? 0 : (0xFFFFFFFFL << (32 - prefix)) & 0xFFFFFFFFL;
+            long start = base.low() & mask;
+            return new Range(true, 0, start, 0, start | (~mask & 0xFFFFFFFFL), network);
+        }
+        long highMask = prefix >= 64 ? -1L : prefix == 0 ? 0 : -1L << (64 - prefix);
+        long lowMask = prefix <= 64 ? 0 : prefix == 128 ? -1L : -1L << (128 - prefix);
+        return new Range(false, base.high() & highMask, base.low() & lowMask,
+                base.high() | ~highMask, base.low() | ~lowMask, network);
+    }
+
+    private static IpAddress address(String text) {
+        IpAddress address = IpAddress.parse(text.strip());
+        if (address == null) {
+            throw new IllegalArgumentException("not an IP address: " + text);
+        }
+        return address;
+    }
+
+    private static int network(long asn, String country, String organization, Map<Network, Integer> ids,
+                               List<Network> networks) {
+        if (asn < 0 || asn > 0xFFFFFFFFL) {
+            throw new IllegalArgumentException("bad ASN: " + asn);
+        }
+        String countryCode = country.length() == 2 && !country.equalsIgnoreCase("ZZ")
+                ? country.toUpperCase(Locale.ROOT) : null;
+        String name = organization == null || organization.isEmpty() || asn == 0 ? null : organization;
+        Network network = new Network(asn, name, countryCode);
+        return ids.computeIfAbsent(network, key -> {
+            networks.add(key);
+            return networks.size() - 1;
+        });
+    }
+}
@@ -0,0 +1,15 @@
+package com.example.reverseip;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import java.util.List;
+
+/**
+ * Reverse proxies whose forwarding headers are believed ({@code publicip.proxy.*}).
+ *
+ * @param trusted CIDR ranges of trusted proxies; forwarding headers from any other peer are ignored
+ */
+@ConfigurationProperties("publicip.proxy")
+record ProxyProperties(
+        @DefaultValue({"127.0.0.1/32", "::1/128"}) List<String> trusted) {
+}
@@ -0,0 +1,30 @@
+package com.example.reverseip;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Settings for real PTR record lookups ({@code publicip.ptr.*}).
+ *
+ * @param resolve     look up the PTR record for the detected IP; off by default
+ * @param timeout     per-lookup timeout, and the longest a request waits for a lookup
+ * @param cacheSize   maximum number of cached lookups (positive and negative)
+ * @param minTtl      lower bound applied to record TTLs
+ * @param maxTtl      upper bound applied to record TTLs
+ * @param negativeTtl how long a missing PTR record (NXDOMAIN or empty answer) is cached
+ * @param failureTtl  how long a timed-out or failed lookup is cached
+ * @param nameServers {@code host:port} name servers; the system resolvers when empty
+ */
+@ConfigurationProperties("publicip.ptr")
+record PtrProperties(
+        @DefaultValue("false") boolean resolve,
+        @DefaultValue("250ms") Duration timeout,
+        @DefaultValue("10000") int cacheSize,
+        @DefaultValue("60s") Duration minTtl,
+        @DefaultValue("1h") Duration maxTtl,
+        @DefaultValue("5m") Duration negativeTtl,
+        @DefaultValue("30s") Duration failureTtl,
+        @DefaultValue List<String> nameServers) {
+}
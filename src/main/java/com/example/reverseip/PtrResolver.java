@@ -0,0 +1,225 @@
+package com.example.reverseip;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import io.netty.channel.AddressedEnvelope;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.nio.NioDatagramChannel;
+import io.netty.handler.codec.dns.DefaultDnsQuestion;
+import io.netty.handler.codec.dns.DnsPtrRecord;
+import io.netty.handler.codec.dns.DnsRecord;
+import io.netty.handler.codec.dns.DnsRecordType;
+import io.netty.handler.codec.dns.DnsResponse;
+import io.netty.handler.codec.dns.DnsResponseCode;
+import io.netty.handler.codec.dns.DnsSection;
+import io.netty.resolver.dns.DnsNameResolver;
+import io.netty.resolver.dns.DnsNameResolverBuilder;
+import io.netty.resolver.dns.DnsServerAddressStreamProvider;
+import io.netty.resolver.dns.DnsServerAddressStreamProviders;
+import io.netty.resolver.dns.SequentialDnsServerAddressStreamProvider;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.stereotype.Component;
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Resolves PTR records on a single Netty event loop, so request threads never perform
+ * DNS I/O themselves. Results, including missing records and failures, are kept in a
+ * size-bounded cache whose entries expire with the record TTL. Concurrent lookups for
+ * the same name share one query.
+ */
+@Component
+class PtrResolver implements DisposableBean {
+
+    /** Outcome of a PTR lookup. */
+    record Lookup(Status status, String hostname, Duration ttl) {
+        enum Status { FOUND, NOT_FOUND, FAILED, PENDING }
+
+        /** What the diagnostics show for this outcome. */
+        String describe() {
+            return switch (status) {
+                case FOUND -> hostname;
+                case NOT_FOUND -> "(no PTR record)";
+                case FAILED -> "(lookup failed)";
+                case PENDING -> "(lookup pending)";
+            };
+        }
+    }
+
+    private static final Lookup PENDING = new Lookup(Lookup.Status.PENDING, null, Duration.ZERO);
+
+    private final PtrProperties properties;
+    private final EventLoopGroup eventLoop;
+    private final DnsNameResolver resolver;
+    private final AsyncCache<IpAddress, Lookup> cache;
+
+    PtrResolver(PtrProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(properties.cacheSize())
+                .expireAfter(Expiry.creating((IpAddress address, Lookup lookup) -> lookup.ttl()))
+                .recordStats()
+                .buildAsync();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "ptr");
+
+        if (properties.resolve()) {
+            this.eventLoop = new NioEventLoopGroup(1, new DefaultThreadFactory("ptr-resolver", true));
+            this.resolver = new DnsNameResolverBuilder(eventLoop.next())
+                    .datagramChannelType(NioDatagramChannel.class)
+                    .nameServerProvider(nameServers(properties.nameServers()))
+                    .queryTimeoutMillis(properties.timeout().toMillis())
+                    .maxQueriesPerResolve(1)
+                    .recursionDesired(true)
+                    .build();
+        } else {
+            this.eventLoop = null;
+            this.resolver = null;
+        }
+    }
+
+    boolean enabled() {
+        return resolver != null;
+    }
+
+    /**
+     * Resolves the PTR record for an address, waiting at most the configured timeout. Cached results return immediately. If the wait
+     * runs out, the lookup carries on in the background and a later request finds it cached.
+     */
+    Lookup resolve(IpAddress address) {
+        return await(lookup(address));
+    }
+
+    /** Waits at most the configured timeout for a lookup started with {@link #lookup}; {@code PENDING} if it runs out. */
+    Lookup await(CompletableFuture<Lookup> lookup) {
+        Lookup done = lookup.getNow(null);
+        if (done != null) {
+            return done;
+        }
+        try {
+            return lookup.get(properties.timeout().toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException | ExecutionException e) {
+            return PENDING;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return PENDING;
+        }
+    }
+
+    /**
+     * As {@link #resolve}, without blocking a thread: completes with the lookup, or with
+     * {@code PENDING} when the configured timeout runs out first, leaving the lookup running.
+     */
+    CompletableFuture<Lookup> resolveLater(IpAddress address) {
+        return lookup(address).copy()
+                .completeOnTimeout(PENDING, properties.timeout().toMillis(), TimeUnit.MILLISECONDS)
+                .exceptionally(e -> PENDING);
+    }
+
+    /** Starts or joins the lookup for an address without waiting for it. */
+    CompletableFuture<Lookup> lookup(IpAddress address) {
+        if (resolver == null) {
+            throw new IllegalStateException("PTR resolution is disabled (publicip.ptr.resolve=false)");
+        }
+        return cache.get(address, (key, executor) -> query(key.reversePointer()));
+    }
+
+    long hitCount() {
+        return cache.synchronous().stats().hitCount();
+    }
+
+    long missCount() {
+        return cache.synchronous().stats().missCount();
+    }
+
+    private CompletableFuture<Lookup> query(String name) {
+        CompletableFuture<Lookup> result = new CompletableFuture<>();
+        resolver.query(new DefaultDnsQuestion(name, DnsRecordType.PTR)).addListener(future -> {
+            if (!future.isSuccess()) {
+                result.complete(new Lookup(Lookup.Status.FAILED, null, properties.failureTtl()));
+                return;
+            }
+            @SuppressWarnings("unchecked")
+            AddressedEnvelope<DnsResponse, InetSocketAddress> envelope =
+                    (AddressedEnvelope<DnsResponse, InetSocketAddress>) future.getNow();
+            try {
+                result.complete(toLookup(envelope.content()));
+            } finally {
+                envelope.release();
+            }
+        });
+        return result;
+    }
+
+    private Lookup toLookup(DnsResponse response) {
+        DnsResponseCode code = response.code();
+        if (code == DnsResponseCode.NOERROR) {
+            int answers = response.count(DnsSection.ANSWER);
+            for (int i = 0; i < answers; i++) {
+                DnsRecord record = response.recordAt(DnsSection.ANSWER, i);
+                if (record instanceof DnsPtrRecord ptr) {
+                    return new Lookup(Lookup.Status.FOUND, stripRoot(ptr.hostname()), clampTtl(ptr.timeToLive()));
+                }
+            }
+            return new Lookup(Lookup.Status.NOT_FOUND, null, properties.negativeTtl());
+        }
+        if (code == DnsResponseCode.NXDOMAIN) {
+            return new Lookup(Lookup.Status.NOT_FOUND, null, properties.negativeTtl());
+        }
+        return new Lookup(Lookup.Status.FAILED, null, properties.failureTtl());
+    }
+
+    private Duration clampTtl(long seconds) {
+        Duration ttl = Duration.ofSeconds(seconds);
+        if (ttl.compareTo(properties.minTtl()) < 0) {
+            return properties.minTtl();
+        }
+        return ttl.compareTo(properties.maxTtl()) > 0 ? properties.maxTtl() : ttl;
+    }
+
+    private static String stripRoot(String hostname) {
+        return hostname.endsWith(".") ? hostname.substring(0, hostname.length() - 1) : hostname;
+    }
+
+    private static DnsServerAddressStreamProvider nameServers(List<String> servers) {
+        if (servers.isEmpty()) {
+            return DnsServerAddressStreamProviders.platformDefault();
+        }
+        InetSocketAddress[] addresses = new InetSocketAddress[servers.size()];
+        for (int i = 0; i < addresses.length; i++) {
+            addresses[i] = nameServer(servers.get(i));
+        }
+        return new SequentialDnsServerAddressStreamProvider(addresses);
+    }
+
+    /** Parses {@code host}, {@code host:port} or {@code [ipv6]:port}; the port defaults to 53. */
+    private static InetSocketAddress nameServer(String server) {
+        if (server.startsWith("[")) {
+            int close = server.indexOf(']');
+            int port = close + 1 < server.length() ? Integer.parseInt(server.substring(close + 2)) : 53;
+            return new InetSocketAddress(server.substring(1, close), port);
+        }
+        int colon = server.indexOf(':');
+        if (colon > 0 && colon == server.lastIndexOf(':')) {
+            return new InetSocketAddress(server.substring(0, colon), Integer.parseInt(server.substring(colon + 1)));
+        }
+        return new InetSocketAddress(server, 53);
+    }
+
+    @Override
+    public void destroy() {
+        if (resolver != null) {
+            resolver.close();
+            eventLoop.shutdownGracefully(0, 1, TimeUnit.SECONDS);
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package com.example.reverseip;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Per-client request limits ({@code publicip.rate-limit.*}).
+ *
+ * @param enabled     reject clients over their limit with 429; on by default
+ * @param window      length of the sliding window the limits apply to
+ * @param limits      {@code ipv4/<bits>=<requests>} or {@code ipv6/<bits>=<requests>}: at most that many
+ *                    requests per window from any one prefix of that length, so {@code ipv4/32} limits single
+ *                    addresses and {@code ipv4/24} the network they sit in
+ * @param exempt      CIDR ranges that are never limited (monitoring, our own health checks)
+ * @param sketchWidth counters per row of each limit's sketch (rounded up to a power of two); wider means
+ *                    fewer collisions between clients
+ * @param sketchDepth rows per sketch
+ */
+@ConfigurationProperties("publicip.rate-limit")
+record RateLimitProperties(
+        @DefaultValue("true") boolean enabled,
+        @DefaultValue("1m") Duration window,
+        @DefaultValue({"ipv4/32=120", "ipv4/24=1200", "ipv6/64=120", "ipv6/48=1200"}) List<String> limits,
+        @DefaultValue({}) List<String> exempt,
+        @DefaultValue("32768") int sketchWidth,
+        @DefaultValue("4") int sketchDepth) {
+}
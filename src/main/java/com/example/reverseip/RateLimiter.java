@@ -0,0 +1,175 @@
+package com.example.reverseip;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.LongSupplier;
+
+/**
+ * Sliding-window request limits per client address and per enclosing prefix. Each configured
+ * limit ({@code ipv4/32=120}, {@code ipv6/48=1200}, ...) has its own {@link SlidingWindowSketch},
+ * so memory is fixed by the sketch size however many distinct clients arrive, and a check is a
+ * few hashed array reads and compare-and-sets per limit: O(1), lock-free, no allocation.
+ *
+ * <p>Only admitted requests are counted. A client that keeps polling while limited is
+ * admitted again as soon as its sliding count drops below the limit, and a noisy neighbour
+ * cannot push the counts of a shared prefix up without bound. Each limit's check and count
+ * are one atomic step ({@link SlidingWindowSketch#tryAdd}), so concurrent requests from one
+ * client cannot together exceed it; a request that loses the race for a prefix's last
+ * slot is rejected, though the narrower limits checked before it have already counted it.
+ */
+@Component
+class RateLimiter {
+    /** Returned by {@link #acquire} for an admitted request. */
+    static final long ADMITTED = 0;
+
+    /** One configured limit: a prefix length in one address family, and its sketch. */
+    private record Limit(boolean ipv4, int prefixLength, long maxRequests, SlidingWindowSketch sketch,
+                         Counter rejected) {
+    }
+
+    private final boolean enabled;
+    private final long windowMillis;
+    private final Limit[] limits;
+    private final TrustedProxies exempt;
+    private final LongSupplier clock;
+
+    @Autowired
+    RateLimiter(RateLimitProperties properties, MeterRegistry registry) {
+        this(properties, registry, System::currentTimeMillis);
+    }
+
+    /** With an explicit clock in epoch milliseconds. */
+    RateLimiter(RateLimitProperties properties, MeterRegistry registry, LongSupplier clock) {
+        this.enabled = properties.enabled();
+        this.windowMillis = Math.max(1, properties.window().toMillis());
+        this.exempt = TrustedProxies.of(properties.exempt());
+        this.clock = clock;
+        List<Limit> parsed = new ArrayList<>();
+        for (String spec : properties.limits()) {
+            parsed.add(parse(spec.strip(), properties, registry));
+        }
+        this.limits = parsed.toArray(Limit[]::new);
+    }
+
+    /**
+     * Parses {@code ipv4/<bits>=<requests>} or {@code ipv6/<bits>=<requests>}.
+     *
+     * @throws IllegalArgumentException if the entry is malformed
+     */
+    private static Limit parse(String spec, RateLimitProperties properties, MeterRegistry registry) {
+        int slash = spec.indexOf('/');
+        int equals = spec.indexOf('=');
+        if (slash < 0 || equals < slash) {
+            throw new IllegalArgumentException("Expected ipv4/<bits>=<requests> or ipv6/<bits>=<requests>: " + spec);
+        }
+        String family = spec.substring(0, slash).strip();
+        boolean ipv4 = family.equalsIgnoreCase("ipv4");
+        if (!ipv4 && !family.equalsIgnoreCase("ipv6")) {
+            throw new IllegalArgumentException("Unknown address family in rate limit: " + spec);
+        }
+        int prefixLength;
+        long maxRequests;
+        try {
+            prefixLength = Integer.parseInt(spec.substring(slash + 1, equals).strip());
+            maxRequests = Long.parseLong(spec.substring(equals + 1).strip());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid rate limit: " + spec, e);
+        }
+        if (prefixLength < 0 || prefixLength > (ipv4 ? 32 : 128)) {
+            throw new IllegalArgumentException("Invalid rate limit: " + spec);
+        }
+        if (maxRequests < 1) {
+            // Would reject every request; turn limiting off with publicip.rate-limit.enabled instead
+            throw new IllegalArgumentException("A rate limit must allow at least one request: " + spec);
+        }
+        Counter rejected = Counter.builder("publicip.rate_limit.rejected")
+                .description("Requests rejected because a client or its prefix was over its limit")
+                .tag("limit", (ipv4 ? "ipv4/" : "ipv6/") + prefixLength)
+                .register(registry);
+        return new Limit(ipv4, prefixLength, maxRequests,
+                new SlidingWindowSketch(properties.sketchWidth(), properties.sketchDepth()), rejected);
+    }
+
+    boolean enabled() {
+        return enabled;
+    }
+
+    /**
+     * Counts a request from {@code client} if every limit it falls under has room; returns
+     * {@link #ADMITTED}, or the whole seconds until it would be admitted again.
+     */
+    long acquire(IpAddress client) {
+        if (!enabled || client == null || exempt.contains(client)) {
+            return ADMITTED;
+        }
+        long now = clock.getAsLong();
+        long epoch = now / windowMillis;
+        long elapsed = now - epoch * windowMillis;
+        for (Limit limit : limits) {
+            if (limit.ipv4 != client.ipv4()) {
+                continue;
+            }
+            long counts = limit.sketch.counts(hash(client, limit.prefixLength), epoch);
+            long current = counts >>> 32;
+            long previous = counts & 0xFFFFFFFFL;
+            // The previous window still overlaps the sliding window by (window - elapsed)
+            if (current + previous * (windowMillis - elapsed) / windowMillis >= limit.maxRequests) {
+                limit.rejected.increment();
+                return retryAfterSeconds(limit.maxRequests, current, previous, elapsed);
+            }
+        }
+        for (Limit limit : limits) {
+            if (limit.ipv4 != client.ipv4()) {
+                continue;
+            }
+            long hash = hash(client, limit.prefixLength);
+            long previous = limit.sketch.counts(hash, epoch) & 0xFFFFFFFFL;
+            // Checked again as part of the count: concurrent requests may have used up the room since
+            if (!limit.sketch.tryAdd(hash, epoch,
+                    limit.maxRequests - previous * (windowMillis - elapsed) / windowMillis)) {
+                limit.rejected.increment();
+                long counts = limit.sketch.counts(hash, epoch);
+                return retryAfterSeconds(limit.maxRequests, counts >>> 32, counts & 0xFFFFFFFFL, elapsed);
+            }
+        }
+        return ADMITTED;
+    }
+
+    /** Time until the sliding count falls below {@code max}, assuming no further admitted requests. */
+    private long retryAfterSeconds(long max, long current, long previous, long elapsed) {
+        long waitMillis;
+        if (current < max) {
+            // Within this window, once enough of the previous one has slid out
+            long overlapAllowed = previous == 0 ? windowMillis : (max - current) * windowMillis / previous;
+            waitMillis = Math.max(1, (windowMillis - overlapAllowed) - elapsed + 1);
+        } else {
+            // This window's count becomes the previous one; wait until enough of it has slid out
+            long overlapAllowed = max * windowMillis / current;
+            waitMillis = (windowMillis - elapsed) + (windowMillis - overlapAllowed) + 1;
+        }
+        return Math.max(1, (waitMillis + 999) / 1000);
+    }
+
+    /** Hash of the first {@code prefixLength} bits of the address. */
+    static long hash(IpAddress address, int prefixLength) {
+        long high = address.high();
+        long low = address.low();
+        if (address.ipv4()) {
+            low = prefixLength == 0 ? 0 : low & (0xFFFFFFFFL << (32 - prefixLength)) & 0xFFFFFFFFL;
+        } else if (prefixLength <= 64) {
+            high = prefixLength == 0 ? 0 : high & (-1L << (64 - prefixLength));
+            low = 0;
+        } else {
+            low = low & (-1L << (128 - prefixLength));
+        }
+        // SplitMix64 finalizer over both halves
+        long h = high * 0x9E3779B97F4A7C15L ^ low ^ prefixLength;
+        h = (h ^ (h >>> 30)) * 0xBF58476D1CE4E5B9L;
+        h = (h ^ (h >>> 27)) * 0x94D049BB133111EBL;
+        return h ^ (h >>> 31);
+    }
+}
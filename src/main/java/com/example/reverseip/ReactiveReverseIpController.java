@@ -0,0 +1,416 @@
+package com.example.reverseip;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpRequestDecorator;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.netty.http.server.HttpServerRequest;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+/**
+ * The diagnostic endpoints on Reactor Netty, with {@code spring.main.web-application-type=reactive}:
+ * the responses of {@link ReverseIpController} and {@link AssetController}, rendered by the
+ * shared {@link DiagnosticService}, without a thread per connection. The PTR lookup, the one
+ * step that waits on the network, is a future the response continues from; everything else
+ * is in-memory work done on the event loop that read the request.
+ *
+ * <p>Servlet filters do not run on this stack, so each request resolves its client with
+ * {@link ClientAddressFilter#resolve}, is counted in the {@link TrafficAnalytics} and checked
+ * against the {@link RateLimiter} (assets excepted) and has its headers captured from Netty's
+ * decoded request. There is no access
+ * log, live stream or bulk PTR endpoint here.
+ */
+@RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+class ReactiveReverseIpController {
+    private static final byte[] TOO_MANY_REQUESTS = "Too many requests\n".getBytes(StandardCharsets.UTF_8);
+    private static final String ASSET_CACHE_CONTROL = "public, max-age=31536000, immutable";
+    private static final String REQUEST = Request.class.getName();
+
+    private final DiagnosticService service;
+    private final DiagnosticPage page;
+    private final ClientAddressFilter clientAddresses;
+    private final RateLimiter rateLimiter;
+    private final TrafficAnalytics analytics;
+    private final HeaderProperties headerProperties;
+    private final RequestMetrics metrics;
+
+    ReactiveReverseIpController(DiagnosticService service, DiagnosticPage page, ClientAddressFilter clientAddresses,
+                                RateLimiter rateLimiter, TrafficAnalytics analytics, HeaderProperties headerProperties,
+                                RequestMetrics metrics) {
+        this.service = service;
+        this.page = page;
+        this.clientAddresses = clientAddresses;
+        this.rateLimiter = rateLimiter;
+        this.analytics = analytics;
+        this.headerProperties = headerProperties;
+        this.metrics = metrics;
+    }
+
+    @GetMapping("/")
+    public Mono<Void> getReverseIp(ServerWebExchange exchange) {
+        exchange.getResponse().getHeaders().set("Vary", "Accept, User-Agent, Accept-Encoding");
+        HttpHeaders headers = exchange.getRequest().getHeaders();
+        return switch (ResponseFormat.negotiate(headers.getFirst("Accept"), headers.getFirst("User-Agent"))) {
+            case TEXT -> getIp(exchange);
+            case JSON -> getJson(exchange);
+            case HTML -> getPage(exchange);
+        };
+    }
+
+    @GetMapping("/ip")
+    public Mono<Void> getIp(ServerWebExchange exchange) {
+        Request request = request(exchange);
+        if (request.retryAfter != RateLimiter.ADMITTED) {
+            return tooManyRequests(exchange.getResponse(), request.retryAfter);
+        }
+        String clientIp = String.valueOf(request.client);
+        if (notModified(exchange, RequestMetrics.Endpoint.IP, new Fingerprint().add("ip").add(clientIp))) {
+            return exchange.getResponse().setComplete();
+        }
+        return writeSmall(exchange.getResponse(), RequestMetrics.Endpoint.IP, "text/plain;charset=UTF-8", clientIp);
+    }
+
+    @GetMapping("/ptr")
+    public Mono<Void> getPtr(ServerWebExchange exchange) {
+        Request request = request(exchange);
+        if (request.retryAfter != RateLimiter.ADMITTED) {
+            return tooManyRequests(exchange.getResponse(), request.retryAfter);
+        }
+        String reversePointer = service.getReversePointer(request.client);
+        if (notModified(exchange, RequestMetrics.Endpoint.PTR, new Fingerprint().add("ptr").add(reversePointer))) {
+            return exchange.getResponse().setComplete();
+        }
+        return writeSmall(exchange.getResponse(), RequestMetrics.Endpoint.PTR, "text/plain;charset=UTF-8",
+                reversePointer);
+    }
+
+    @GetMapping("/json")
+    public Mono<Void> getJson(ServerWebExchange exchange) {
+        Request request = request(exchange);
+        if (request.retryAfter != RateLimiter.ADMITTED) {
+            return tooManyRequests(exchange.getResponse(), request.retryAfter);
+        }
+        return withHostname(request.client, hostname -> {
+            String clientIp = String.valueOf(request.client);
+            String reversePointer = service.getReversePointer(request.client);
+            PrefixDatabase.Network network = service.networkFor(request.client);
+            if (notModified(exchange, RequestMetrics.Endpoint.JSON,
+                    service.jsonFingerprint(clientIp, reversePointer, hostname, network))) {
+                return exchange.getResponse().setComplete();
+            }
+            JsonWriter json = service.json(clientIp, reversePointer, hostname, network);
+            try {
+                return writeSmall(exchange.getResponse(), RequestMetrics.Endpoint.JSON, "application/json",
+                        json.result());
+            } finally {
+                json.release();
+            }
+        });
+    }
+
+    private Mono<Void> getPage(ServerWebExchange exchange) {
+        Request request = request(exchange);
+        if (request.retryAfter != RateLimiter.ADMITTED) {
+            return tooManyRequests(exchange.getResponse(), request.retryAfter);
+        }
+        return withHostname(request.client, hostname -> {
+            String clientIp = String.valueOf(request.client);
+            String reversePointer = service.getReversePointer(request.client);
+            PrefixDatabase.Network network = service.networkFor(request.client);
+            PageProperties.PayloadMode payload = service.payload(
+                    exchange.getRequest().getQueryParams().getFirst("payload"));
+            if (notModified(exchange, RequestMetrics.Endpoint.PAGE,
+                    service.pageFingerprint(request, payload, clientIp, reversePointer, hostname, network))) {
+                return exchange.getResponse().setComplete();
+            }
+            BufferBody body = new BufferBody(exchange.getResponse());
+            try {
+                service.writePage(request, payload, clientIp, reversePointer, hostname, network,
+                        service.coding(request.header("Accept-Encoding")), body);
+            } catch (IOException | RuntimeException e) {
+                body.discard();
+                return Mono.error(e);
+            }
+            return exchange.getResponse().writeWith(Mono.just(body.buffer));
+        });
+    }
+
+    @GetMapping("/assets/{name}")
+    public Mono<Void> getAsset(ServerWebExchange exchange) {
+        ServerHttpResponse response = exchange.getResponse();
+        DiagnosticPage.Asset asset = page.asset(exchange.getRequest().getURI().getRawPath());
+        if (asset == null) {
+            response.setStatusCode(HttpStatus.NOT_FOUND);
+            return response.setComplete();
+        }
+        HttpHeaders requestHeaders = exchange.getRequest().getHeaders();
+        ContentCoding coding = asset.coding(ContentCoding.negotiate(requestHeaders.getFirst("Accept-Encoding")));
+        String etag = asset.etag(coding);
+        HttpHeaders headers = response.getHeaders();
+        headers.set("Cache-Control", ASSET_CACHE_CONTROL);
+        headers.set("Vary", "Accept-Encoding");
+        headers.set("ETag", etag);
+        if (DiagnosticService.matches(requestHeaders.getFirst("If-None-Match"), etag)) {
+            response.setStatusCode(HttpStatus.NOT_MODIFIED);
+            return response.setComplete();
+        }
+
+        byte[] body = asset.body(coding);
+        headers.set("Content-Type", asset.contentType());
+        if (coding != ContentCoding.IDENTITY) {
+            headers.set("Content-Encoding", coding.token());
+        }
+        headers.setContentLength(body.length);
+        metrics.responseBytes(RequestMetrics.Endpoint.ASSET, body.length);
+        return response.writeWith(Mono.just(response.bufferFactory().wrap(body)));
+    }
+
+    /**
+     * Continues with the client's PTR hostname ({@code null} when resolution is off). A cached
+     * or disabled lookup continues right away on the event loop; otherwise the response waits
+     * for the lookup without holding a thread, and is rendered on the parallel scheduler rather
+     * than on the resolver's or the timeout's thread.
+     */
+    private Mono<Void> withHostname(IpAddress client, Function<String, Mono<Void>> then) {
+        CompletableFuture<String> hostname = service.hostnameLater(client);
+        if (hostname.isDone()) {
+            return then.apply(hostname.join());
+        }
+        return Mono.fromFuture(hostname)
+                .map(Optional::of)
+                .defaultIfEmpty(Optional.empty())
+                .publishOn(Schedulers.parallel())
+                .flatMap(resolved -> then.apply(resolved.orElse(null)));
+    }
+
+    /** Sets the validators as {@link ReverseIpController} does; true when the client's copy is current. */
+    private boolean notModified(ServerWebExchange exchange, RequestMetrics.Endpoint endpoint,
+                                Fingerprint fingerprint) {
+        String etag = fingerprint.etag();
+        ServerHttpResponse response = exchange.getResponse();
+        response.getHeaders().set("Cache-Control", "private, no-cache");
+        response.getHeaders().set("ETag", endpoint == RequestMetrics.Endpoint.PAGE ? "W/" + etag : etag);
+        if (DiagnosticService.matches(exchange.getRequest().getHeaders().getFirst("If-None-Match"), etag)) {
+            response.setStatusCode(HttpStatus.NOT_MODIFIED);
+            metrics.notModified(endpoint);
+            return true;
+        }
+        return false;
+    }
+
+    /** Writes a short machine-readable body followed by a newline. */
+    private Mono<Void> writeSmall(ServerHttpResponse response, RequestMetrics.Endpoint endpoint, String contentType,
+                                  CharSequence body) {
+        long start = System.nanoTime();
+        Utf8Buffer buffer = Utf8Buffer.forCurrentThread();
+        try {
+            buffer.append(body).append("\n");
+            int length = buffer.length();
+            DataBuffer out = response.bufferFactory().allocateBuffer(length).write(buffer.array(), 0, length);
+            response.getHeaders().set("Content-Type", contentType);
+            response.getHeaders().setContentLength(length);
+            metrics.record(RequestMetrics.Stage.WRITE, start);
+            metrics.responseBytes(endpoint, length);
+            return response.writeWith(Mono.just(out));
+        } finally {
+            buffer.release();
+        }
+    }
+
+    private static Mono<Void> tooManyRequests(ServerHttpResponse response, long retryAfter) {
+        response.setStatusCode(HttpStatus.TOO_MANY_REQUESTS);
+        HttpHeaders headers = response.getHeaders();
+        headers.set("Retry-After", Long.toString(retryAfter));
+        headers.set("Cache-Control", "no-store");
+        headers.set("Content-Type", "text/plain;charset=UTF-8");
+        headers.setContentLength(TOO_MANY_REQUESTS.length);
+        return response.writeWith(Mono.just(response.bufferFactory().wrap(TOO_MANY_REQUESTS)));
+    }
+
+    /**
+     * The request as the servlet filters would have left it, taken once per exchange: {@code /}
+     * hands the same exchange on to the endpoint it negotiated, which must not be rate limited twice.
+     */
+    private Request request(ServerWebExchange exchange) {
+        if (exchange.getAttribute(REQUEST) instanceof Request request) {
+            return request;
+        }
+        ServerHttpRequest serverRequest = exchange.getRequest();
+        URI uri = serverRequest.getURI();
+        String scheme = uri.getScheme();
+        int port = uri.getPort() >= 0 ? uri.getPort() : "https".equals(scheme) ? 443 : 80;
+        InetSocketAddress remote = serverRequest.getRemoteAddress();
+        IpAddress peer = remote == null || remote.getAddress() == null ? null
+                : IpAddress.parse(remote.getAddress().getHostAddress());
+        ClientAddressFilter.Forwarding forwarding = peer == null
+                ? new ClientAddressFilter.Forwarding(null, scheme, port)
+                : clientAddresses.resolve(peer, name -> joined(serverRequest.getHeaders().get(name)), scheme, port);
+        long retryAfter = rateLimiter.enabled() && forwarding.client() != null
+                ? rateLimiter.acquire(forwarding.client())
+                : RateLimiter.ADMITTED;
+        Request request = new Request(serverRequest, forwarding, remote == null ? -1 : remote.getPort(), retryAfter,
+                headerProperties);
+        exchange.getAttributes().put(REQUEST, request);
+        analytics.record(forwarding.client(), serverRequest.getHeaders().getFirst("User-Agent"), request.protocol(),
+                request.scheme());
+        return request;
+    }
+
+    /** All values of a header joined with commas, as {@link ClientAddressFilter} reads them. */
+    private static String joined(List<String> values) {
+        if (values == null || values.isEmpty()) {
+            return null;
+        }
+        if (values.size() == 1) {
+            String value = values.get(0);
+            return value.isEmpty() ? null : value;
+        }
+        return String.join(",", values);
+    }
+
+    /** A reactive request seen through the forwarding chain, for the shared rendering. */
+    private static final class Request implements RequestInfo {
+        private final ServerHttpRequest request;
+        private final IpAddress client;
+        private final String scheme;
+        private final int serverPort;
+        private final int remotePort;
+        private final long retryAfter;
+        private final HeaderProperties headerProperties;
+        private RequestHeaders headers;
+
+        Request(ServerHttpRequest request, ClientAddressFilter.Forwarding forwarding, int remotePort,
+                long retryAfter, HeaderProperties headerProperties) {
+            this.request = request;
+            this.client = forwarding.client();
+            this.scheme = forwarding.scheme();
+            this.serverPort = forwarding.serverPort();
+            this.remotePort = remotePort;
+            this.retryAfter = retryAfter;
+            this.headerProperties = headerProperties;
+        }
+
+        /** Reactor Netty's request underneath Spring's, when that is the server. */
+        private HttpServerRequest nativeRequest() {
+            try {
+                return ServerHttpRequestDecorator.getNativeRequest(request) instanceof HttpServerRequest netty
+                        ? netty : null;
+            } catch (IllegalArgumentException e) {
+                return null;
+            }
+        }
+
+        @Override
+        public String remoteAddr() {
+            return String.valueOf(client);
+        }
+
+        @Override
+        public String remoteHost() {
+            return remoteAddr();
+        }
+
+        @Override
+        public int remotePort() {
+            return remotePort;
+        }
+
+        @Override
+        public String protocol() {
+            HttpServerRequest netty = nativeRequest();
+            return netty != null ? netty.version().text() : "HTTP/1.1";
+        }
+
+        @Override
+        public String method() {
+            return request.getMethod().name();
+        }
+
+        @Override
+        public String scheme() {
+            return scheme;
+        }
+
+        @Override
+        public String serverName() {
+            return request.getURI().getHost();
+        }
+
+        @Override
+        public int serverPort() {
+            return serverPort;
+        }
+
+        @Override
+        public String requestURI() {
+            return request.getURI().getRawPath();
+        }
+
+        @Override
+        public String queryString() {
+            return request.getURI().getRawQuery();
+        }
+
+        @Override
+        public String header(String name) {
+            return request.getHeaders().getFirst(name);
+        }
+
+        @Override
+        public RequestHeaders headers() {
+            if (headers == null) {
+                HttpServerRequest netty = nativeRequest();
+                headers = netty != null
+                        ? RequestHeaders.capture(netty.requestHeaders(), headerProperties)
+                        : RequestHeaders.capture(request.getHeaders(), headerProperties);
+            }
+            return headers;
+        }
+    }
+
+    /** The page rendered into one response buffer, sized once its coding and length are known. */
+    private static final class BufferBody implements DiagnosticPage.Body {
+        private final ServerHttpResponse response;
+        private DataBuffer buffer;
+
+        BufferBody(ServerHttpResponse response) {
+            this.response = response;
+        }
+
+        @Override
+        public OutputStream open(ContentCoding coding, int length) {
+            HttpHeaders headers = response.getHeaders();
+            headers.set("Content-Type", "text/html;charset=UTF-8");
+            if (coding != ContentCoding.IDENTITY) {
+                headers.set("Content-Encoding", coding.token());
+            }
+            headers.setContentLength(length);
+            buffer = response.bufferFactory().allocateBuffer(length);
+            return buffer.asOutputStream();
+        }
+
+        void discard() {
+            if (buffer != null) {
+                DataBufferUtils.release(buffer);
+            }
+        }
+    }
+}
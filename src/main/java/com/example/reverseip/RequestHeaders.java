@@ -0,0 +1,261 @@
+package com.example.reverseip;
+
+import io.netty.handler.codec.http.HttpHeaders;
+import jakarta.servlet.http.HttpServletRequest;
+import org.apache.tomcat.util.buf.ByteChunk;
+import org.apache.tomcat.util.buf.MessageBytes;
+import org.apache.tomcat.util.http.MimeHeaders;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The request's headers in arrival order, repeated ones included, taken once per request and
+ * shared by everything that shows them. On Tomcat, {@link HeaderCapture} takes the snapshot
+ * straight from the connector's parsed headers: names and values are views over the request's
+ * header bytes, decoded as ISO-8859-1 (as Tomcat does) character by character while they are
+ * rendered, and only valid during the request. On Reactor Netty, {@link ReactiveReverseIpController}
+ * takes them from Netty's decoded headers. Elsewhere, in tests for example, they are read
+ * through the Servlet API.
+ *
+ * <p>Headers are kept up to {@link HeaderProperties#maxCount()} of them and
+ * {@link HeaderProperties#maxSize()} of names and values; from the first one that does not fit,
+ * the rest are only counted, so a client sending hundreds of large headers cannot make the
+ * diagnostics render them.
+ *
+ * <p>The value of the {@link HistoryController#COOKIE history cookie} is replaced with
+ * {@link #REDACTED} as it is taken. It is HttpOnly, and echoing it into compressed pages next
+ * to reflected input would let a script that can make requests guess it byte by byte from
+ * response sizes.
+ */
+final class RequestHeaders {
+    static final String ATTRIBUTE = RequestHeaders.class.getName();
+    static final String REDACTED = "(redacted)";
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final int maxCount;
+    private final long maxSize;
+    private CharSequence[] names;
+    private CharSequence[] values;
+    private int size;
+    private long length;
+    private int omitted;
+
+    private RequestHeaders(HeaderProperties limits, int expected) {
+        this.maxCount = limits.maxCount();
+        this.maxSize = limits.maxSize().toBytes();
+        int capacity = Math.max(0, Math.min(expected, maxCount));
+        this.names = new CharSequence[capacity];
+        this.values = new CharSequence[capacity];
+    }
+
+    /** The snapshot taken for this request, or one read through the Servlet API now. */
+    static RequestHeaders of(HttpServletRequest request) {
+        if (request.getAttribute(ATTRIBUTE) instanceof RequestHeaders headers) {
+            return headers;
+        }
+        RequestHeaders headers = capture(request, HeaderProperties.DEFAULTS);
+        request.setAttribute(ATTRIBUTE, headers);
+        return headers;
+    }
+
+    /** Views over Tomcat's parsed headers, valid until the request is recycled. */
+    static RequestHeaders capture(MimeHeaders mimeHeaders, HeaderProperties limits) {
+        int count = mimeHeaders.size();
+        RequestHeaders headers = new RequestHeaders(limits, count);
+        for (int i = 0; i < count; i++) {
+            headers.add(view(mimeHeaders.getName(i)), view(mimeHeaders.getValue(i)));
+        }
+        return headers;
+    }
+
+    /** Netty's decoded headers, which keep the arrival order across names. */
+    static RequestHeaders capture(HttpHeaders nettyHeaders, HeaderProperties limits) {
+        RequestHeaders headers = new RequestHeaders(limits, nettyHeaders.size());
+        Iterator<Map.Entry<CharSequence, CharSequence>> entries = nettyHeaders.iteratorCharSequence();
+        while (entries.hasNext()) {
+            Map.Entry<CharSequence, CharSequence> entry = entries.next();
+            headers.add(entry.getKey(), entry.getValue());
+        }
+        return headers;
+    }
+
+    /** Headers grouped by name, for reactive servers other than Netty. */
+    static RequestHeaders capture(org.springframework.http.HttpHeaders springHeaders, HeaderProperties limits) {
+        RequestHeaders headers = new RequestHeaders(limits, INITIAL_CAPACITY);
+        for (Map.Entry<String, List<String>> entry : springHeaders.headerSet()) {
+            for (String value : entry.getValue()) {
+                headers.add(entry.getKey(), value);
+            }
+        }
+        return headers;
+    }
+
+    static RequestHeaders capture(HttpServletRequest request, HeaderProperties limits) {
+        RequestHeaders headers = new RequestHeaders(limits, INITIAL_CAPACITY);
+        Enumeration<String> names = request.getHeaderNames();
+        while (names.hasMoreElements()) {
+            String name = names.nextElement();
+            Enumeration<String> values = request.getHeaders(name);
+            while (values.hasMoreElements()) {
+                headers.add(name, values.nextElement());
+            }
+        }
+        return headers;
+    }
+
+    private static CharSequence view(MessageBytes bytes) {
+        if (bytes.getType() == MessageBytes.T_BYTES) {
+            ByteChunk chunk = bytes.getByteChunk();
+            return new Latin1(chunk.getBuffer(), chunk.getStart(), chunk.getEnd());
+        }
+        return bytes.toString();
+    }
+
+    private void add(CharSequence name, CharSequence value) {
+        if (sameName(name, "Cookie")) {
+            value = redactHistoryCookie(value);
+        }
+        int headerLength = name.length() + value.length();
+        if (omitted > 0 || size == maxCount || length + headerLength > maxSize) {
+            omitted++;
+            return;
+        }
+        if (size == names.length) {
+            int capacity = Math.min(Math.max(INITIAL_CAPACITY, size * 2), maxCount);
+            names = Arrays.copyOf(names, capacity);
+            values = Arrays.copyOf(values, capacity);
+        }
+        names[size] = name;
+        values[size] = value;
+        size++;
+        length += headerLength;
+    }
+
+    /** The Cookie header with the history cookie's value replaced; itself if it has none. */
+    static CharSequence redactHistoryCookie(CharSequence cookies) {
+        String cookieName = HistoryController.COOKIE;
+        StringBuilder redacted = null;
+        int copied = 0;
+        int start = 0;
+        while (start < cookies.length()) {
+            int end = start;
+            while (end < cookies.length() && cookies.charAt(end) != ';') {
+                end++;
+            }
+            int nameStart = start;
+            while (nameStart < end && cookies.charAt(nameStart) == ' ') {
+                nameStart++;
+            }
+            int valueStart = nameStart + cookieName.length() + 1;
+            if (valueStart <= end && cookies.charAt(valueStart - 1) == '='
+                    && cookieName.contentEquals(cookies.subSequence(nameStart, valueStart - 1))) {
+                if (redacted == null) {
+                    redacted = new StringBuilder(cookies.length());
+                }
+                redacted.append(cookies, copied, valueStart).append(REDACTED);
+                copied = end;
+            }
+            start = end + 1;
+        }
+        return redacted == null ? cookies : redacted.append(cookies, copied, cookies.length()).toString();
+    }
+
+    /** Headers kept. */
+    int size() {
+        return size;
+    }
+
+    /** Headers beyond the limits, counted but not kept. */
+    int omitted() {
+        return omitted;
+    }
+
+    CharSequence name(int index) {
+        return names[index];
+    }
+
+    CharSequence value(int index) {
+        return values[index];
+    }
+
+    /** Whether the header's name is {@code name}, ignoring case. */
+    boolean nameIs(int index, String name) {
+        return names[index].length() == name.length() && nameStartsWith(index, name);
+    }
+
+    /** Whether the header's name starts with {@code prefix}, ignoring case. */
+    boolean nameStartsWith(int index, String prefix) {
+        CharSequence name = names[index];
+        if (name.length() < prefix.length()) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length(); i++) {
+            if (Character.toLowerCase(name.charAt(i)) != Character.toLowerCase(prefix.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Index of the first header with the same name as this one, ignoring case; itself if none is earlier. */
+    int first(int index) {
+        CharSequence name = names[index];
+        for (int i = 0; i < index; i++) {
+            if (sameName(names[i], name)) {
+                return i;
+            }
+        }
+        return index;
+    }
+
+    /** Index of the next header after this one with the same name, ignoring case, or {@code -1}. */
+    int next(int index) {
+        CharSequence name = names[index];
+        for (int i = index + 1; i < size; i++) {
+            if (sameName(names[i], name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean sameName(CharSequence a, CharSequence b) {
+        if (a.length() != b.length()) {
+            return false;
+        }
+        for (int i = 0; i < a.length(); i++) {
+            if (Character.toLowerCase(a.charAt(i)) != Character.toLowerCase(b.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** ISO-8859-1 characters over a range of bytes, without copying them. */
+    private record Latin1(byte[] bytes, int start, int end) implements CharSequence {
+
+        @Override
+        public int length() {
+            return end - start;
+        }
+
+        @Override
+        public char charAt(int index) {
+            return (char) (bytes[start + index] & 0xFF);
+        }
+
+        @Override
+        public CharSequence subSequence(int from, int to) {
+            return new Latin1(bytes, start + from, start + to);
+        }
+
+        @Override
+        public String toString() {
+            return new String(bytes, start, end - start, StandardCharsets.ISO_8859_1);
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.example.reverseip;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+/**
+ * What the diagnostics show about a request, independent of the server stack it arrived on:
+ * the servlet stack adapts {@link HttpServletRequest} with {@link #of}, the reactive stack
+ * its exchange in {@link ReactiveReverseIpController}. Addresses, scheme and port are the
+ * forwarded ones when the peer is a trusted proxy.
+ */
+interface RequestInfo {
+
+    String remoteAddr();
+
+    String remoteHost();
+
+    int remotePort();
+
+    /** For example {@code HTTP/1.1}. */
+    String protocol();
+
+    String method();
+
+    String scheme();
+
+    String serverName();
+
+    int serverPort();
+
+    /** The path as sent, not decoded. */
+    String requestURI();
+
+    /** The query as sent, or {@code null} when there is none. */
+    String queryString();
+
+    /** The first value of a header, or {@code null}. */
+    String header(String name);
+
+    RequestHeaders headers();
+
+    static RequestInfo of(HttpServletRequest request) {
+        return new Servlet(request);
+    }
+
+    /** A servlet request, as seen after {@link ClientAddressFilter}. */
+    record Servlet(HttpServletRequest request) implements RequestInfo {
+
+        @Override
+        public String remoteAddr() {
+            return request.getRemoteAddr();
+        }
+
+        @Override
+        public String remoteHost() {
+            return request.getRemoteHost();
+        }
+
+        @Override
+        public int remotePort() {
+            return request.getRemotePort();
+        }
+
+        @Override
+        public String protocol() {
+            return request.getProtocol();
+        }
+
+        @Override
+        public String method() {
+            return request.getMethod();
+        }
+
+        @Override
+        public String scheme() {
+            return request.getScheme();
+        }
+
+        @Override
+        public String serverName() {
+            return request.getServerName();
+        }
+
+        @Override
+        public int serverPort() {
+            return request.getServerPort();
+        }
+
+        @Override
+        public String requestURI() {
+            return request.getRequestURI();
+        }
+
+        @Override
+        public String queryString() {
+            return request.getQueryString();
+        }
+
+        @Override
+        public String header(String name) {
+            return request.getHeader(name);
+        }
+
+        @Override
+        public RequestHeaders headers() {
+            return RequestHeaders.of(request);
+        }
+    }
+}
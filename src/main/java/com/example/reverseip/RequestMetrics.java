@@ -0,0 +1,114 @@
+package com.example.reverseip;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-stage request latency, response size and header count. Every meter is registered up
+ * front with fixed tags and held in an array indexed by enum ordinal, so recording on the hot
+ * path is a {@link System#nanoTime()} pair and a {@code record(long, TimeUnit)} call: no tag
+ * lookup, no {@code Timer.Sample}, no capturing lambda.
+ *
+ * <ul>
+ *   <li>{@code publicip.request.stage{stage}}: time spent in each stage, with a percentile histogram</li>
+ *   <li>{@code publicip.response.bytes{endpoint}}: response body size as sent, after any compression</li>
+ *   <li>{@code publicip.request.headers}: number of request headers on the diagnostic page</li>
+ *   <li>{@code publicip.response.not_modified{endpoint}}: requests answered {@code 304} from {@code If-None-Match}</li>
+ * </ul>
+ */
+@Component
+class RequestMetrics {
+
+    enum Stage {
+        /** Walking the forwarding chain in {@link ClientAddressFilter}. */
+        CLIENT_IP("client_ip"),
+        /** Building the {@code in-addr.arpa}/{@code ip6.arpa} name. */
+        REVERSE_POINTER("reverse_pointer"),
+        /** Waiting for the PTR lookup, when enabled. */
+        PTR_LOOKUP("ptr_lookup"),
+        /** Looking up the ASN, organization and country, when enabled. */
+        ENRICHMENT("enrichment"),
+        /** Rendering the Classic View sections (full payload only). */
+        SECTIONS("sections"),
+        /** Building the JSON document. */
+        JSON("json"),
+        /** Encoding the body into the page template or a small response, compressing it if negotiated, and writing it. */
+        WRITE("write");
+
+        private final String tag;
+
+        Stage(String tag) {
+            this.tag = tag;
+        }
+    }
+
+    enum Endpoint {
+        PAGE("page"), JSON("json"), IP("ip"), PTR("ptr"), ASSET("asset"), BULK_PTR("bulk_ptr"), LIVE("live");
+
+        private final String tag;
+
+        Endpoint(String tag) {
+            this.tag = tag;
+        }
+    }
+
+    private final Timer[] stages;
+    private final DistributionSummary[] responseBytes;
+    private final DistributionSummary headerCount;
+    private final Counter[] notModified;
+
+    RequestMetrics(MeterRegistry registry) {
+        Stage[] stageValues = Stage.values();
+        stages = new Timer[stageValues.length];
+        for (Stage stage : stageValues) {
+            stages[stage.ordinal()] = Timer.builder("publicip.request.stage")
+                    .description("Time spent in one stage of request handling")
+                    .tag("stage", stage.tag)
+                    .publishPercentileHistogram()
+                    .register(registry);
+        }
+        Endpoint[] endpointValues = Endpoint.values();
+        responseBytes = new DistributionSummary[endpointValues.length];
+        for (Endpoint endpoint : endpointValues) {
+            responseBytes[endpoint.ordinal()] = DistributionSummary.builder("publicip.response.bytes")
+                    .description("Response body size")
+                    .baseUnit("bytes")
+                    .tag("endpoint", endpoint.tag)
+                    .publishPercentileHistogram()
+                    .register(registry);
+        }
+        notModified = new Counter[endpointValues.length];
+        for (Endpoint endpoint : endpointValues) {
+            notModified[endpoint.ordinal()] = Counter.builder("publicip.response.not_modified")
+                    .description("Requests answered 304 Not Modified")
+                    .tag("endpoint", endpoint.tag)
+                    .register(registry);
+        }
+        headerCount = DistributionSummary.builder("publicip.request.headers")
+                .description("Number of request headers on the diagnostic page")
+                .publishPercentileHistogram()
+                .maximumExpectedValue(200.0)
+                .register(registry);
+    }
+
+    /** Records the time since {@code startNanos}, a {@link System#nanoTime()} reading. */
+    void record(Stage stage, long startNanos) {
+        stages[stage.ordinal()].record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    void responseBytes(Endpoint endpoint, long bytes) {
+        responseBytes[endpoint.ordinal()].record(bytes);
+    }
+
+    void notModified(Endpoint endpoint) {
+        notModified[endpoint.ordinal()].increment();
+    }
+
+    void headerCount(int count) {
+        headerCount.record(count);
+    }
+}
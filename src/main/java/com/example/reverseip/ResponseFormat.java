@@ -0,0 +1,45 @@
+package com.example.reverseip;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+/**
+ * Response representations for {@code /}, chosen from the {@code User-Agent} and
+ * {@code Accept} headers without parsing media-type lists. Command-line clients and
+ * non-browser {@code Accept} headers get a tiny body instead of the full page.
+ */
+enum ResponseFormat {
+    /** The diagnostic page. */
+    HTML,
+    /** Compact {@code {"ip":...,"reversePointer":...}} document. */
+    JSON,
+    /** The bare address followed by a newline. */
+    TEXT;
+
+    private static final String[] COMMAND_LINE_AGENTS = {"curl/", "Wget/", "HTTPie/", "PowerShell/"};
+
+    static ResponseFormat negotiate(HttpServletRequest request) {
+        return negotiate(request.getHeader("Accept"), request.getHeader("User-Agent"));
+    }
+
+    static ResponseFormat negotiate(String accept, String userAgent) {
+        if (accept != null) {
+            if (accept.contains("text/html")) {
+                return HTML;
+            }
+            if (accept.contains("application/json")) {
+                return JSON;
+            }
+            if (accept.contains("text/plain")) {
+                return TEXT;
+            }
+        }
+        if (userAgent != null) {
+            for (String agent : COMMAND_LINE_AGENTS) {
+                if (userAgent.startsWith(agent)) {
+                    return TEXT;
+                }
+            }
+        }
+        return HTML;
+    }
+}
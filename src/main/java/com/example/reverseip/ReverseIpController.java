@@ -0,0 +1,170 @@
+package com.example.reverseip;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * The diagnostic endpoints on the servlet stack: adapts the request and response around
+ * {@link DiagnosticService}, which {@link ReactiveReverseIpController} shares.
+ *
+ * <p>The page and {@code /json} show the client's PTR hostname. When the lookup is not cached
+ * the request goes asynchronous rather than holding its Tomcat thread while DNS answers: the
+ * response is rendered on a container thread once the lookup completes or gives up at
+ * {@code publicip.ptr.timeout}.
+ */
+@RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+class ReverseIpController {
+    private final DiagnosticService service;
+    private final RequestMetrics metrics;
+
+    ReverseIpController(DiagnosticService service, RequestMetrics metrics) {
+        this.service = service;
+        this.metrics = metrics;
+    }
+
+    @GetMapping("/")
+    public void getReverseIp(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        response.setHeader("Vary", "Accept, User-Agent, Accept-Encoding");
+        switch (ResponseFormat.negotiate(request)) {
+            case TEXT -> getIp(request, response);
+            case JSON -> getJson(request, response);
+            case HTML -> writePage(request, response);
+        }
+    }
+
+    @GetMapping("/ip")
+    public void getIp(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        String clientIp = String.valueOf(ClientAddressFilter.client(request));
+        if (notModified(request, response, RequestMetrics.Endpoint.IP, new Fingerprint().add("ip").add(clientIp))) {
+            return;
+        }
+        writeSmall(response, RequestMetrics.Endpoint.IP, "text/plain;charset=UTF-8", clientIp);
+    }
+
+    @GetMapping("/ptr")
+    public void getPtr(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        String reversePointer = service.getReversePointer(ClientAddressFilter.client(request));
+        if (notModified(request, response, RequestMetrics.Endpoint.PTR,
+                new Fingerprint().add("ptr").add(reversePointer))) {
+            return;
+        }
+        writeSmall(response, RequestMetrics.Endpoint.PTR, "text/plain;charset=UTF-8", reversePointer);
+    }
+
+    @GetMapping("/json")
+    public void getJson(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        IpAddress client = ClientAddressFilter.client(request);
+        withHostname(request, response, client, hostname -> {
+            String clientIp = String.valueOf(client);
+            String reversePointer = service.getReversePointer(client);
+            PrefixDatabase.Network network = service.networkFor(client);
+            if (notModified(request, response, RequestMetrics.Endpoint.JSON,
+                    service.jsonFingerprint(clientIp, reversePointer, hostname, network))) {
+                return;
+            }
+            JsonWriter json = service.json(clientIp, reversePointer, hostname, network);
+            try {
+                writeSmall(response, RequestMetrics.Endpoint.JSON, "application/json", json.result());
+            } finally {
+                json.release();
+            }
+        });
+    }
+
+    private void writePage(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        IpAddress client = ClientAddressFilter.client(request);
+        withHostname(request, response, client, hostname -> {
+            String clientIp = String.valueOf(client);
+            String reversePointer = service.getReversePointer(client);
+            PrefixDatabase.Network network = service.networkFor(client);
+            PageProperties.PayloadMode payload = service.payload(request.getParameter("payload"));
+            RequestInfo info = RequestInfo.of(request);
+            if (notModified(request, response, RequestMetrics.Endpoint.PAGE,
+                    service.pageFingerprint(info, payload, clientIp, reversePointer, hostname, network))) {
+                return;
+            }
+            service.writePage(info, payload, clientIp, reversePointer, hostname, network,
+                    service.coding(request.getHeader("Accept-Encoding")), DiagnosticPage.Body.of(response));
+        });
+    }
+
+    /** The rest of a response, once the client's PTR hostname is known. */
+    @FunctionalInterface
+    private interface HostnameHandler {
+        void handle(String hostname) throws IOException;
+    }
+
+    /**
+     * Continues with the client's PTR hostname ({@code null} when resolution is off). A cached
+     * or disabled lookup continues right away on this thread; otherwise the request is made
+     * asynchronous and this thread returns to the pool. The lookup always completes within
+     * {@code publicip.ptr.timeout}, pending if need be, and the response is then rendered on
+     * a container thread rather than on the resolver's or the timeout's thread.
+     */
+    private void withHostname(HttpServletRequest request, HttpServletResponse response, IpAddress client,
+                              HostnameHandler then) throws IOException {
+        CompletableFuture<String> hostname = service.hostnameLater(client);
+        if (hostname.isDone()) {
+            then.handle(hostname.join());
+            return;
+        }
+        AsyncContext async = request.startAsync();
+        hostname.whenComplete((resolved, failure) -> async.start(() -> {
+            try {
+                then.handle(resolved);
+            } catch (IOException e) {
+                // The client went away; there is no one left to answer
+            } catch (RuntimeException e) {
+                if (!response.isCommitted()) {
+                    response.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+                }
+                throw e;
+            } finally {
+                async.complete();
+            }
+        }));
+    }
+
+    /** Writes a short machine-readable body followed by a newline. */
+    private void writeSmall(HttpServletResponse response, RequestMetrics.Endpoint endpoint, String contentType,
+                            CharSequence body) throws IOException {
+        long start = System.nanoTime();
+        Utf8Buffer buffer = Utf8Buffer.forCurrentThread();
+        try {
+            buffer.append(body).append("\n");
+            response.setContentType(contentType);
+            response.setContentLength(buffer.length());
+            buffer.writeTo(response.getOutputStream(), 0, buffer.length());
+            metrics.record(RequestMetrics.Stage.WRITE, start);
+            metrics.responseBytes(endpoint, buffer.length());
+        } finally {
+            buffer.release();
+        }
+    }
+
+    /**
+     * Sets the response's validators and, when {@code If-None-Match} already names this
+     * representation, answers {@code 304} so nothing is rendered. The tag is a fingerprint of
+     * everything the body shows; the page also shows the time and the remote port, which change
+     * on every request, so its tag is weak: the same diagnostics, not the same bytes.
+     */
+    private boolean notModified(HttpServletRequest request, HttpServletResponse response,
+                                RequestMetrics.Endpoint endpoint, Fingerprint fingerprint) {
+        String etag = fingerprint.etag();
+        response.setHeader("Cache-Control", "private, no-cache");
+        response.setHeader("ETag", endpoint == RequestMetrics.Endpoint.PAGE ? "W/" + etag : etag);
+        if (DiagnosticService.matches(request.getHeader("If-None-Match"), etag)) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            metrics.notModified(endpoint);
+            return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.reverseip;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Supplier;
+
+/**
+ * Hands out reusable per-request scratch objects (buffers, writers). A platform thread keeps
+ * its own instance in a {@link ThreadLocal}, as it serves request after request. A virtual
+ * thread lives for one request only, so a thread-local would just allocate a fresh instance
+ * and a map entry every time; virtual threads borrow from a small shared set of slots
+ * instead and give the instance back on {@link #release}. A miss on an empty pool allocates,
+ * and a release into a full pool drops the instance, so the pool never blocks.
+ *
+ * <p>A {@link #shared} pool uses the slots for platform threads too, for objects that hold
+ * enough native memory (a {@link java.util.zip.Deflater}) that one per pool thread is too many.
+ */
+final class ScratchPool<T> {
+    private final Supplier<T> factory;
+    private final ThreadLocal<T> perThread;
+    private final AtomicReferenceArray<T> slots;
+
+    ScratchPool(Supplier<T> factory) {
+        this(factory, true);
+    }
+
+    private ScratchPool(Supplier<T> factory, boolean perPlatformThread) {
+        this.factory = factory;
+        this.perThread = perPlatformThread ? ThreadLocal.withInitial(factory) : null;
+        this.slots = new AtomicReferenceArray<>(Math.max(4, 2 * Runtime.getRuntime().availableProcessors()));
+    }
+
+    /** A pool in which every thread borrows from the shared slots. */
+    static <T> ScratchPool<T> shared(Supplier<T> factory) {
+        return new ScratchPool<>(factory, false);
+    }
+
+    T acquire() {
+        Thread thread = Thread.currentThread();
+        if (perThread != null && !thread.isVirtual()) {
+            return perThread.get();
+        }
+        int size = slots.length();
+        int start = (int) (thread.threadId() % size);
+        for (int i = 0; i < size; i++) {
+            T pooled = slots.getAndSet((start + i) % size, null);
+            if (pooled != null) {
+                return pooled;
+            }
+        }
+        return factory.get();
+    }
+
+    /** Returns an instance taken by a virtual thread (or from a shared pool); otherwise a no-op. */
+    void release(T instance) {
+        Thread thread = Thread.currentThread();
+        if (perThread != null && !thread.isVirtual()) {
+            return;
+        }
+        int size = slots.length();
+        int start = (int) (thread.threadId() % size);
+        for (int i = 0; i < size; i++) {
+            if (slots.compareAndSet((start + i) % size, null, instance)) {
+                return;
+            }
+        }
+    }
+}
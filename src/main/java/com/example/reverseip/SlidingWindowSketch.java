@@ -0,0 +1,125 @@
+package com.example.reverseip;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Approximate per-key request counts over a sliding window, in fixed memory however many
+ * keys there are. A count-min sketch: {@code depth} rows of {@code width} cells, each key
+ * hashed to one cell per row, its count read as the minimum over its cells. Collisions can
+ * only inflate a count, never hide requests; with conservative update (a cell is only raised
+ * as far as the key's new minimum) the inflation stays small.
+ *
+ * <p>Each cell is one {@code long} holding the low 16 bits of the window number it was last
+ * written in and two 24-bit counts, for that window and the one before, so windows roll
+ * over lazily cell by cell, with no sweep. The sliding count is the previous window's count
+ * weighted by how much of it still overlaps the sliding window, plus the current count.
+ * All updates are single-cell compare-and-set: lock-free and O(depth). {@link #tryAdd} makes
+ * the limit check part of the update, so concurrent requests cannot all pass a check that
+ * only one of them should.
+ */
+final class SlidingWindowSketch {
+    private static final int COUNT_BITS = 24;
+    private static final long COUNT_MASK = (1L << COUNT_BITS) - 1;
+    private static final long EPOCH_MASK = 0xFFFF;
+
+    private final AtomicLongArray cells;
+    private final int depth;
+    private final int widthMask;
+
+    /** {@code width} is rounded up to a power of two; {@code depth} is at most 64. */
+    SlidingWindowSketch(int width, int depth) {
+        if (depth < 1 || depth > Long.SIZE) {
+            throw new IllegalArgumentException("Sketch depth must be between 1 and 64: " + depth);
+        }
+        int rowWidth = width <= 2 ? 2 : Integer.highestOneBit(width - 1) << 1;
+        this.cells = new AtomicLongArray(rowWidth * depth);
+        this.depth = depth;
+        this.widthMask = rowWidth - 1;
+    }
+
+    /** The key's count in window {@code epoch} (upper 32 bits) and in the window before (lower 32 bits). */
+    long counts(long hash, long epoch) {
+        long current = COUNT_MASK;
+        long previous = COUNT_MASK;
+        for (int row = 0; row < depth; row++) {
+            long cell = cells.get(index(hash, row));
+            current = Math.min(current, current(cell, epoch));
+            previous = Math.min(previous, previous(cell, epoch));
+        }
+        return current << 32 | previous;
+    }
+
+    /**
+     * Counts one request for the key in window {@code epoch} if its count there is below
+     * {@code limit}; returns whether it did. The check and the count are one step: the rows
+     * holding the key's minimum are raised from that minimum with compare-and-set, and if any
+     * of them has moved since it was read, another request got there first and the check is
+     * repeated against the new count. Concurrent requests can therefore never take the key
+     * past the limit; one that loses a race part-way may leave a row counted for it.
+     */
+    boolean tryAdd(long hash, long epoch, long limit) {
+        for (;;) {
+            long min = COUNT_MASK;
+            long minRows = 0;
+            for (int row = 0; row < depth; row++) {
+                long current = current(cells.get(index(hash, row)), epoch);
+                if (current < min) {
+                    min = current;
+                    minRows = 1L << row;
+                } else if (current == min) {
+                    minRows |= 1L << row;
+                }
+            }
+            if (min >= limit || min == COUNT_MASK) {
+                return false;
+            }
+            boolean raced = false;
+            for (int row = 0; row < depth && !raced; row++) {
+                if ((minRows & (1L << row)) == 0) {
+                    // Already above the minimum: conservative update leaves it alone
+                    continue;
+                }
+                int index = index(hash, row);
+                for (;;) {
+                    long cell = cells.get(index);
+                    if (current(cell, epoch) != min) {
+                        raced = true;
+                        break;
+                    }
+                    long updated = (epoch & EPOCH_MASK) << 48 | previous(cell, epoch) << COUNT_BITS | (min + 1);
+                    if (cells.compareAndSet(index, cell, updated)) {
+                        break;
+                    }
+                }
+            }
+            if (!raced) {
+                return true;
+            }
+        }
+    }
+
+    /** Size of the sketch in bytes. */
+    long sizeInBytes() {
+        return cells.length() * (long) Long.BYTES;
+    }
+
+    private int index(long hash, int row) {
+        // Double hashing: row i uses h1 + i * h2
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32) | 1;
+        return row * (widthMask + 1) + ((h1 + row * h2) & widthMask);
+    }
+
+    private static long current(long cell, long epoch) {
+        return (cell >>> 48) == (epoch & EPOCH_MASK) ? cell & COUNT_MASK : 0;
+    }
+
+    private static long previous(long cell, long epoch) {
+        long cellEpoch = cell >>> 48;
+        if (cellEpoch == (epoch & EPOCH_MASK)) {
+            return (cell >>> COUNT_BITS) & COUNT_MASK;
+        }
+        // Written in the window just before: its current count is now the previous one
+        return cellEpoch == ((epoch - 1) & EPOCH_MASK) ? cell & COUNT_MASK : 0;
+    }
+}
@@ -0,0 +1,144 @@
+package com.example.reverseip;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The most frequent keys of a stream, in fixed memory: the Space-Saving algorithm of Metwally,
+ * Agrawal and El Abbadi. Up to {@code capacity} keys are counted; a new key arriving when every
+ * slot is taken replaces the key with the smallest count and takes over that count, which is
+ * remembered as its possible overestimate. Any key seen more than {@code total / capacity}
+ * times is guaranteed to be tracked, and no count is ever too low.
+ *
+ * <p>The slots form a min-heap on count, so an update is O(log capacity). Summaries merge by
+ * adding one's entries to the other, keeping the same guarantees over the combined stream.
+ * Not thread-safe: {@link TrafficAnalytics} gives each summary one writer at a time.
+ */
+final class SpaceSaving<K> {
+
+    /** A tracked key; its true count is between {@code count - error} and {@code count}. */
+    record Entry<K>(K key, long count, long error) {
+    }
+
+    /** A slot of the heap; found from its key through {@code slots}, so moving it costs no map update. */
+    private static final class Node<K> {
+        K key;
+        long count;
+        long error;
+        int index;
+    }
+
+    private final Node<K>[] heap;
+    private final Map<K, Node<K>> slots;
+    private int size;
+
+    @SuppressWarnings("unchecked")
+    SpaceSaving(int capacity) {
+        int slotCount = Math.max(1, capacity);
+        this.heap = (Node<K>[]) new Node<?>[slotCount];
+        this.slots = new HashMap<>(slotCount * 2);
+    }
+
+    void add(K key) {
+        add(key, 1, 0);
+    }
+
+    /** Counts {@code count} more occurrences of the key, of which up to {@code error} may be overestimate. */
+    void add(K key, long count, long error) {
+        Node<K> node = slots.get(key);
+        if (node != null) {
+            node.count += count;
+            node.error += error;
+            siftDown(node.index);
+        } else if (size < heap.length) {
+            node = heap[size] == null ? new Node<>() : heap[size];
+            node.key = key;
+            node.count = count;
+            node.error = error;
+            node.index = size;
+            heap[size++] = node;
+            slots.put(key, node);
+            siftUp(node.index);
+        } else {
+            // Evict the smallest count; the newcomer may have been any of the keys it stood for
+            node = heap[0];
+            slots.remove(node.key);
+            long floor = node.count;
+            node.key = key;
+            node.count = floor + count;
+            node.error = floor + error;
+            slots.put(key, node);
+            siftDown(0);
+        }
+    }
+
+    /** Adds every entry of {@code other}, as if this summary had seen its stream too. */
+    void addAll(SpaceSaving<K> other) {
+        for (int i = 0; i < other.size; i++) {
+            Node<K> node = other.heap[i];
+            add(node.key, node.count, node.error);
+        }
+    }
+
+    /** The {@code limit} highest counts, highest first. */
+    List<Entry<K>> top(int limit) {
+        List<Entry<K>> entries = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            entries.add(new Entry<>(heap[i].key, heap[i].count, heap[i].error));
+        }
+        entries.sort(Comparator.comparingLong(Entry<K>::count).reversed());
+        return entries.size() > limit ? entries.subList(0, Math.max(0, limit)) : entries;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /** Empties the summary, keeping its nodes for reuse. */
+    void clear() {
+        for (int i = 0; i < size; i++) {
+            heap[i].key = null;
+        }
+        slots.clear();
+        size = 0;
+    }
+
+    private void siftUp(int index) {
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (heap[parent].count <= heap[index].count) {
+                return;
+            }
+            swap(index, parent);
+            index = parent;
+        }
+    }
+
+    private void siftDown(int index) {
+        for (;;) {
+            int child = 2 * index + 1;
+            if (child >= size) {
+                return;
+            }
+            if (child + 1 < size && heap[child + 1].count < heap[child].count) {
+                child++;
+            }
+            if (heap[index].count <= heap[child].count) {
+                return;
+            }
+            swap(index, child);
+            index = child;
+        }
+    }
+
+    private void swap(int a, int b) {
+        Node<K> node = heap[a];
+        heap[a] = heap[b];
+        heap[b] = node;
+        heap[a].index = a;
+        heap[b].index = b;
+    }
+}
@@ -0,0 +1,294 @@
+package com.example.reverseip;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Who is hitting us, without an analytics stack: request counts by address family, protocol
+ * and scheme, and the heaviest clients, /24 or /48 prefixes and user agents, per minute over a
+ * rolling window.
+ *
+ * <p>Counts are {@link LongAdder}s, which stripe increments over per-thread cells. Rankings
+ * are {@link SpaceSaving} summaries, which are not thread-safe, so there are several stripes
+ * of them: a request takes the first stripe it can claim with one compare-and-set, starting
+ * from one picked by its thread, and never waits for one (if every stripe is busy its
+ * ranking update is skipped and counted). When a stripe sees a new minute it folds the last
+ * one into that minute's shared summaries, the only lock, taken once per stripe per minute.
+ * Memory is fixed by {@code capacity}, the number of stripes and the window length.
+ */
+@Component
+class TrafficAnalytics {
+    static final String[] PROTOCOLS = {"HTTP/1.0", "HTTP/1.1", "HTTP/2.0", "other"};
+    static final String[] SCHEMES = {"http", "https", "other"};
+    private static final long MINUTE_MILLIS = 60_000;
+    private static final int REQUESTS = 0;
+    private static final int IPV4 = 1;
+    private static final int IPV6 = 2;
+    private static final int PROTOCOL = 3;
+    private static final int SCHEME = PROTOCOL + PROTOCOLS.length;
+    private static final int COUNTERS = SCHEME + SCHEMES.length;
+
+    /** One ranked key: its count is at most {@code error} too high. */
+    record Ranked(String key, long count, long error) {
+    }
+
+    /** Requests in one minute, starting at {@code start}. */
+    record MinuteCount(Instant start, long requests) {
+    }
+
+    /** The counts and rankings over the window ending with the current minute. */
+    record Report(Instant from, long requests, Map<String, Long> families, Map<String, Long> protocols,
+                  Map<String, Long> schemes, List<Ranked> clients, List<Ranked> prefixes, List<Ranked> userAgents,
+                  List<MinuteCount> perMinute, long rankingsSkipped) {
+    }
+
+    /** Heaviest clients, their prefixes and user agents. */
+    private static final class Rankings {
+        final SpaceSaving<IpAddress> clients;
+        final SpaceSaving<IpAddress> prefixes;
+        final SpaceSaving<String> userAgents;
+
+        Rankings(int capacity) {
+            clients = new SpaceSaving<>(capacity);
+            prefixes = new SpaceSaving<>(capacity);
+            userAgents = new SpaceSaving<>(capacity);
+        }
+
+        void addAll(Rankings other) {
+            clients.addAll(other.clients);
+            prefixes.addAll(other.prefixes);
+            userAgents.addAll(other.userAgents);
+        }
+
+        void clear() {
+            clients.clear();
+            prefixes.clear();
+            userAgents.clear();
+        }
+    }
+
+    /** One minute's counts, and the rankings stripes have handed in for it (guarded by the minute). */
+    private static final class Minute {
+        final long number;
+        final LongAdder[] counters = new LongAdder[COUNTERS];
+        final Rankings rankings;
+
+        Minute(long number, int capacity) {
+            this.number = number;
+            for (int i = 0; i < COUNTERS; i++) {
+                counters[i] = new LongAdder();
+            }
+            this.rankings = new Rankings(capacity);
+        }
+    }
+
+    /** Rankings for the minute {@code minute}, written only by whoever set {@code busy}. */
+    private static final class Stripe {
+        final AtomicBoolean busy = new AtomicBoolean();
+        final Rankings rankings;
+        long minute = -1;
+
+        Stripe(int capacity) {
+            this.rankings = new Rankings(capacity);
+        }
+    }
+
+    private final TrafficProperties properties;
+    private final int windowMinutes;
+    private final int capacity;
+    private final AtomicReferenceArray<Minute> minutes;
+    private final Stripe[] stripes;
+    private final int stripeMask;
+    private final LongAdder skipped = new LongAdder();
+    private final LongSupplier clock;
+
+    @Autowired
+    TrafficAnalytics(TrafficProperties properties) {
+        this(properties, Runtime.getRuntime().availableProcessors() * 2, System::currentTimeMillis);
+    }
+
+    /** With {@code stripes} rounded up to a power of two and an explicit clock in epoch milliseconds. */
+    TrafficAnalytics(TrafficProperties properties, int stripes, LongSupplier clock) {
+        this.properties = properties;
+        this.windowMinutes = (int) Math.max(1, properties.window().toMinutes());
+        this.capacity = Math.max(1, properties.capacity());
+        // One more than the window, so a stripe can still hand in the minute that just ended
+        this.minutes = new AtomicReferenceArray<>(windowMinutes + 1);
+        int stripeCount = stripes <= 1 ? 1 : Math.min(64, Integer.highestOneBit(stripes - 1) << 1);
+        this.stripes = new Stripe[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            this.stripes[i] = new Stripe(capacity);
+        }
+        this.stripeMask = stripeCount - 1;
+        this.clock = clock;
+    }
+
+    boolean enabled() {
+        return properties.enabled();
+    }
+
+    /** Counts one request; {@code client} may be {@code null} when it has no usable address. */
+    void record(IpAddress client, String userAgent, String protocol, String scheme) {
+        if (!properties.enabled()) {
+            return;
+        }
+        long minute = clock.getAsLong() / MINUTE_MILLIS;
+        Minute bucket = current(minute);
+        bucket.counters[REQUESTS].increment();
+        if (client != null) {
+            bucket.counters[client.ipv4() ? IPV4 : IPV6].increment();
+        }
+        bucket.counters[PROTOCOL + indexOf(PROTOCOLS, protocol)].increment();
+        bucket.counters[SCHEME + indexOf(SCHEMES, scheme)].increment();
+
+        int first = (int) Thread.currentThread().threadId();
+        for (int i = 0; i <= stripeMask; i++) {
+            Stripe stripe = stripes[(first + i) & stripeMask];
+            if (stripe.busy.get() || !stripe.busy.compareAndSet(false, true)) {
+                continue;
+            }
+            try {
+                if (stripe.minute != minute) {
+                    handIn(stripe);
+                    stripe.minute = minute;
+                }
+                if (client != null) {
+                    stripe.rankings.clients.add(client);
+                    stripe.rankings.prefixes.add(prefix(client));
+                }
+                stripe.rankings.userAgents.add(userAgent(userAgent));
+            } finally {
+                stripe.busy.set(false);
+            }
+            return;
+        }
+        skipped.increment();
+    }
+
+    /** This minute's bucket, replacing the one from a window ago that shared its slot. */
+    private Minute current(long minute) {
+        int slot = (int) (minute % minutes.length());
+        for (;;) {
+            Minute bucket = minutes.get(slot);
+            if (bucket != null && bucket.number >= minute) {
+                // A thread that read the clock just before the minute turned may count in the next one
+                return bucket;
+            }
+            Minute fresh = new Minute(minute, capacity);
+            if (minutes.compareAndSet(slot, bucket, fresh)) {
+                return fresh;
+            }
+        }
+    }
+
+    /** Folds the stripe's rankings into their minute, if that is still in the window, and empties it. */
+    private void handIn(Stripe stripe) {
+        if (stripe.minute < 0) {
+            return;
+        }
+        Minute bucket = minutes.get((int) (stripe.minute % minutes.length()));
+        if (bucket != null && bucket.number == stripe.minute) {
+            synchronized (bucket) {
+                bucket.rankings.addAll(stripe.rankings);
+            }
+        }
+        stripe.rankings.clear();
+    }
+
+    /** The counts and rankings for the last {@code window} minutes, the current one included. */
+    Report report() {
+        long now = clock.getAsLong() / MINUTE_MILLIS;
+        long oldest = now - windowMinutes + 1;
+        long[] totals = new long[COUNTERS];
+        List<MinuteCount> perMinute = new ArrayList<>(windowMinutes);
+        Rankings merged = new Rankings(capacity);
+        for (long minute = oldest; minute <= now; minute++) {
+            Minute bucket = minutes.get((int) (minute % minutes.length()));
+            long requests = 0;
+            if (bucket != null && bucket.number == minute) {
+                for (int i = 0; i < COUNTERS; i++) {
+                    totals[i] += bucket.counters[i].sum();
+                }
+                requests = bucket.counters[REQUESTS].sum();
+                synchronized (bucket) {
+                    merged.addAll(bucket.rankings);
+                }
+            }
+            perMinute.add(new MinuteCount(Instant.ofEpochMilli(minute * MINUTE_MILLIS), requests));
+        }
+        for (Stripe stripe : stripes) {
+            // Request threads move on to another stripe meanwhile; only this waits
+            while (!stripe.busy.compareAndSet(false, true)) {
+                Thread.onSpinWait();
+            }
+            try {
+                if (stripe.minute >= oldest && stripe.minute <= now) {
+                    merged.addAll(stripe.rankings);
+                }
+            } finally {
+                stripe.busy.set(false);
+            }
+        }
+
+        Map<String, Long> families = new LinkedHashMap<>();
+        families.put("ipv4", totals[IPV4]);
+        families.put("ipv6", totals[IPV6]);
+        return new Report(Instant.ofEpochMilli(oldest * MINUTE_MILLIS), totals[REQUESTS], families,
+                counts(PROTOCOLS, totals, PROTOCOL), counts(SCHEMES, totals, SCHEME),
+                ranked(merged.clients, false), ranked(merged.prefixes, true), ranked(merged.userAgents, false),
+                perMinute, skipped.sum());
+    }
+
+    private static Map<String, Long> counts(String[] names, long[] totals, int offset) {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        for (int i = 0; i < names.length; i++) {
+            counts.put(names[i], totals[offset + i]);
+        }
+        return counts;
+    }
+
+    private List<Ranked> ranked(SpaceSaving<?> summary, boolean prefixes) {
+        List<Ranked> ranked = new ArrayList<>();
+        for (SpaceSaving.Entry<?> entry : summary.top(properties.top())) {
+            String key = entry.key().toString();
+            if (prefixes) {
+                key += ((IpAddress) entry.key()).ipv4() ? "/24" : "/48";
+            }
+            ranked.add(new Ranked(key, entry.count(), entry.error()));
+        }
+        return ranked;
+    }
+
+    /** The client's /24 for IPv4, /48 for IPv6. */
+    static IpAddress prefix(IpAddress client) {
+        return client.ipv4()
+                ? IpAddress.ofIpv4((int) (client.low() & 0xFFFF_FF00L))
+                : IpAddress.ofIpv6(client.high() & 0xFFFF_FFFF_FFFF_0000L, 0);
+    }
+
+    private String userAgent(String userAgent) {
+        if (userAgent == null) {
+            return "(none)";
+        }
+        int max = Math.max(0, properties.maxUserAgentLength());
+        return userAgent.length() > max ? userAgent.substring(0, max) : userAgent;
+    }
+
+    private static int indexOf(String[] names, String value) {
+        for (int i = 0; i < names.length - 1; i++) {
+            if (names[i].equalsIgnoreCase(value)) {
+                return i;
+            }
+        }
+        return names.length - 1;
+    }
+}
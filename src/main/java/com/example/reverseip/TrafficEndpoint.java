@@ -0,0 +1,24 @@
+package com.example.reverseip;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+/**
+ * {@code GET /actuator/traffic} on the localhost-only management port: the {@link TrafficAnalytics}
+ * report for the current window.
+ */
+@Component
+@Endpoint(id = "traffic")
+class TrafficEndpoint {
+    private final TrafficAnalytics analytics;
+
+    TrafficEndpoint(TrafficAnalytics analytics) {
+        this.analytics = analytics;
+    }
+
+    @ReadOperation
+    public TrafficAnalytics.Report traffic() {
+        return analytics.report();
+    }
+}
@@ -0,0 +1,41 @@
+package com.example.reverseip;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import java.io.IOException;
+
+/**
+ * Counts every request but for assets in the {@link TrafficAnalytics}, rate-limited ones
+ * included: it runs after {@link ClientAddressFilter}, so it sees the forwarded client, scheme
+ * and protocol, and before {@link RateLimitFilter}.
+ */
+@Component
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+@Order(Ordered.HIGHEST_PRECEDENCE + 15)
+class TrafficFilter extends OncePerRequestFilter {
+    private final TrafficAnalytics analytics;
+
+    TrafficFilter(TrafficAnalytics analytics) {
+        this.analytics = analytics;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !analytics.enabled() || request.getRequestURI().startsWith("/assets/");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        IpAddress client = ClientAddressFilter.client(request);
+        analytics.record(client, request.getHeader("User-Agent"), request.getProtocol(), request.getScheme());
+        chain.doFilter(request, response);
+    }
+}
@@ -0,0 +1,23 @@
+package com.example.reverseip;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import java.time.Duration;
+
+/**
+ * In-process traffic analytics, the {@code traffic} actuator endpoint ({@code publicip.traffic.*}).
+ *
+ * @param enabled            count requests
+ * @param window             how far back the report reaches, in whole minutes
+ * @param top                entries reported per ranking
+ * @param capacity           keys tracked per ranking and minute; more gives closer counts for less frequent keys
+ * @param maxUserAgentLength longer user agents are cut to this many characters before counting
+ */
+@ConfigurationProperties("publicip.traffic")
+record TrafficProperties(
+        @DefaultValue("true") boolean enabled,
+        @DefaultValue("15m") Duration window,
+        @DefaultValue("20") int top,
+        @DefaultValue("256") int capacity,
+        @DefaultValue("200") int maxUserAgentLength) {
+}
@@ -0,0 +1,107 @@
+package com.example.reverseip;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * An immutable set of CIDR ranges compiled into two binary tries (IPv4 and IPv6) over the
+ * address bits. A membership test walks at most 32 or 128 nodes and allocates nothing.
+ * Nodes live in parallel int arrays: child indexes for bit 0 and bit 1, and a flag for
+ * nodes that terminate a prefix.
+ */
+final class TrustedProxies {
+    private static final int NONE = 0;
+
+    private int[] zero = new int[64];
+    private int[] one = new int[64];
+    private boolean[] terminal = new boolean[64];
+    private int size;
+    private final int ipv4Root;
+    private final int ipv6Root;
+
+    private TrustedProxies(List<String> cidrs) {
+        // Node 0 is the "no child" sentinel
+        size = 1;
+        ipv4Root = newNode();
+        ipv6Root = newNode();
+        for (String cidr : cidrs) {
+            add(cidr.trim());
+        }
+        zero = Arrays.copyOf(zero, size);
+        one = Arrays.copyOf(one, size);
+        terminal = Arrays.copyOf(terminal, size);
+    }
+
+    /**
+     * Compiles CIDR ranges such as {@code 10.0.0.0/8} or {@code 2001:db8::/32}; a bare address
+     * is a single-host range.
+     *
+     * @throws IllegalArgumentException if an entry is not a valid CIDR range
+     */
+    static TrustedProxies of(List<String> cidrs) {
+        return new TrustedProxies(cidrs);
+    }
+
+    boolean contains(IpAddress address) {
+        if (address == null) {
+            return false;
+        }
+        int node = address.ipv4() ? ipv4Root : ipv6Root;
+        int bits = address.bitLength();
+        for (int i = 0; ; i++) {
+            if (terminal[node]) {
+                return true;
+            }
+            if (i == bits) {
+                return false;
+            }
+            node = address.bit(i) == 0 ? zero[node] : one[node];
+            if (node == NONE) {
+                return false;
+            }
+        }
+    }
+
+    private void add(String cidr) {
+        int slash = cidr.indexOf('/');
+        IpAddress address = IpAddress.parse(cidr, 0, slash < 0 ? cidr.length() : slash);
+        if (address == null) {
+            throw new IllegalArgumentException("Not a CIDR range: " + cidr);
+        }
+        int prefix = address.bitLength();
+        if (slash >= 0) {
+            try {
+                prefix = Integer.parseInt(cidr.substring(slash + 1));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Not a CIDR range: " + cidr, e);
+            }
+            if (prefix < 0 || prefix > address.bitLength()) {
+                throw new IllegalArgumentException("Prefix length out of range: " + cidr);
+            }
+        }
+        int node = address.ipv4() ? ipv4Root : ipv6Root;
+        for (int i = 0; i < prefix; i++) {
+            int bit = address.bit(i);
+            int child = bit == 0 ? zero[node] : one[node];
+            if (child == NONE) {
+                child = newNode();
+                if (bit == 0) {
+                    zero[node] = child;
+                } else {
+                    one[node] = child;
+                }
+            }
+            node = child;
+        }
+        terminal[node] = true;
+    }
+
+    private int newNode() {
+        if (size == terminal.length) {
+            zero = Arrays.copyOf(zero, size * 2);
+            one = Arrays.copyOf(one, size * 2);
+            terminal = Arrays.copyOf(terminal, size * 2);
+        }
+        return size++;
+    }
+}
@@ -0,0 +1,123 @@
+package com.example.reverseip;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * Growable byte buffer that encodes character sequences to UTF-8 as they are appended,
+ * so response bodies never pass through an intermediate {@code String}.
+ * Instances are reused across requests through a {@link ScratchPool}.
+ */
+final class Utf8Buffer {
+    private static final int INITIAL_CAPACITY = 8 * 1024;
+    private static final int RETAINED_CAPACITY = 256 * 1024;
+
+    private static final ScratchPool<Utf8Buffer> BUFFERS = new ScratchPool<>(Utf8Buffer::new);
+
+    private byte[] bytes = new byte[INITIAL_CAPACITY];
+    private int length;
+
+    /** Returns this thread's buffer, emptied and ready for use; hand it back with {@link #release()}. */
+    static Utf8Buffer forCurrentThread() {
+        Utf8Buffer buffer = BUFFERS.acquire();
+        buffer.length = 0;
+        return buffer;
+    }
+
+    int length() {
+        return length;
+    }
+
+    /** The backing array; only the first {@link #length()} bytes are content. */
+    byte[] array() {
+        return bytes;
+    }
+
+    Utf8Buffer append(CharSequence chars) {
+        return append(chars, 0, chars.length());
+    }
+
+    /** Appends bytes that are already UTF-8. */
+    Utf8Buffer append(byte[] utf8) {
+        ensureCapacity(length + utf8.length);
+        System.arraycopy(utf8, 0, bytes, length, utf8.length);
+        length += utf8.length;
+        return this;
+    }
+
+    /** Appends {@code chars[start, end)}. */
+    Utf8Buffer append(CharSequence chars, int start, int end) {
+        ensureCapacity(length + (end - start));
+        for (int i = start; i < end; i++) {
+            char c = chars.charAt(i);
+            if (c < 0x80) {
+                bytes[length++] = (byte) c;
+            } else {
+                ensureCapacity(length + 4 + (end - i));
+                if (c < 0x800) {
+                    bytes[length++] = (byte) (0xC0 | (c >> 6));
+                    bytes[length++] = (byte) (0x80 | (c & 0x3F));
+                } else if (Character.isHighSurrogate(c) && i + 1 < end
+                        && Character.isLowSurrogate(chars.charAt(i + 1))) {
+                    int cp = Character.toCodePoint(c, chars.charAt(++i));
+                    bytes[length++] = (byte) (0xF0 | (cp >> 18));
+                    bytes[length++] = (byte) (0x80 | ((cp >> 12) & 0x3F));
+                    bytes[length++] = (byte) (0x80 | ((cp >> 6) & 0x3F));
+                    bytes[length++] = (byte) (0x80 | (cp & 0x3F));
+                } else if (Character.isSurrogate(c)) {
+                    // Unpaired surrogate: same replacement String.getBytes(UTF_8) uses
+                    bytes[length++] = (byte) '?';
+                } else {
+                    bytes[length++] = (byte) (0xE0 | (c >> 12));
+                    bytes[length++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                    bytes[length++] = (byte) (0x80 | (c & 0x3F));
+                }
+            }
+        }
+        return this;
+    }
+
+    /** Appends text for use inside an HTML element, escaping {@code &}, {@code <} and {@code >}. */
+    Utf8Buffer appendHtml(CharSequence chars) {
+        int count = chars.length();
+        int run = 0;
+        for (int i = 0; i < count; i++) {
+            String entity = switch (chars.charAt(i)) {
+                case '&' -> "&amp;";
+                case '<' -> "&lt;";
+                case '>' -> "&gt;";
+                default -> null;
+            };
+            if (entity != null) {
+                append(chars, run, i).append(entity);
+                run = i + 1;
+            }
+        }
+        return append(chars, run, count);
+    }
+
+    void writeTo(OutputStream out, int offset, int count) throws IOException {
+        out.write(bytes, offset, count);
+    }
+
+    /** Empties the buffer for the next chunk, keeping its storage. */
+    void clear() {
+        length = 0;
+    }
+
+    /** Empties the buffer, drops oversized storage left behind by an unusually large response and returns it. */
+    void release() {
+        length = 0;
+        if (bytes.length > RETAINED_CAPACITY) {
+            bytes = new byte[INITIAL_CAPACITY];
+        }
+        BUFFERS.release(this);
+    }
+
+    private void ensureCapacity(int required) {
+        if (required > bytes.length) {
+            bytes = Arrays.copyOf(bytes, Math.max(required, bytes.length * 2));
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.example.reverseip;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AccessLogTests {
+
+	@TempDir
+	Path dir;
+
+	private AccessLog accessLog(int capacity, DataSize maxFileSize, int maxFiles) {
+		return new AccessLog(new AccessLogProperties(true, dir.resolve("access.log"), 1.0, capacity, 512,
+				Duration.ofMillis(10), maxFileSize, maxFiles), new SimpleMeterRegistry(), false);
+	}
+
+	@Test
+	void writesOneJsonObjectPerLine() throws Exception {
+		AccessLog log = accessLog(16, DataSize.ofMegabytes(1), 1);
+		log.offer(IpAddress.parse("203.0.113.42"), "GET", "/ip", 200, 1_234_000, 13, "curl/8.5.0");
+		log.offer(IpAddress.parse("2001:db8::1"), "GET", "/", 200, 50_000, 4096, "Mozilla/5.0 \"quoted\"");
+
+		assertThat(log.drain()).isEqualTo(2);
+		log.destroy();
+
+		List<String> lines = Files.readAllLines(dir.resolve("access.log"));
+		assertThat(lines).hasSize(2);
+		assertThat(lines.get(0)).matches("\\{\"ts\":\"[0-9T:.\\-]+Z\",\"ip\":\"203.0.113.42\",\"family\":\"ipv4\","
+				+ "\"method\":\"GET\",\"path\":\"/ip\",\"status\":200,\"latencyUs\":1234,\"bytes\":13,"
+				+ "\"ua\":\"curl/8.5.0\"}");
+		assertThat(lines.get(1)).contains("\"ip\":\"2001:db8::1\",\"family\":\"ipv6\"")
+				.contains("\"ua\":\"Mozilla/5.0 \\\"quoted\\\"\"");
+	}
+
+	@Test
+	void dropsRecordsWhenTheRingIsFull() {
+		AccessLog log = accessLog(4, DataSize.ofMegabytes(1), 1);
+		int accepted = 0;
+		for (int i = 0; i < 10; i++) {
+			if (log.offer(IpAddress.parse("203.0.113.42"), "GET", "/", 200, 1, 1, null)) {
+				accepted++;
+			}
+		}
+		assertThat(accepted).isEqualTo(4);
+		assertThat(log.droppedCount()).isEqualTo(6);
+
+		// Draining frees the slots again
+		assertThat(log.drain()).isEqualTo(4);
+		assertThat(log.offer(IpAddress.parse("203.0.113.42"), "GET", "/", 200, 1, 1, null)).isTrue();
+	}
+
+	@Test
+	void rollsTheFileWhenItIsFull() throws Exception {
+		AccessLog log = accessLog(64, DataSize.ofBytes(400), 2);
+		for (int batch = 0; batch < 6; batch++) {
+			for (int i = 0; i < 2; i++) {
+				log.offer(IpAddress.parse("203.0.113.42"), "GET", "/", 200, 1, 1, "curl/8.5.0");
+			}
+			log.drain();
+		}
+		log.destroy();
+
+		assertThat(dir.resolve("access.log")).exists();
+		assertThat(dir.resolve("access.log.1")).exists();
+		assertThat(dir.resolve("access.log.2")).exists();
+		assertThat(dir.resolve("access.log.3")).doesNotExist();
+		assertThat(Files.size(dir.resolve("access.log"))).isLessThanOrEqualTo(400);
+	}
+
+	@Test
+	void concurrentProducersNeverLoseAcceptedRecords() throws Exception {
+		AccessLog log = accessLog(1024, DataSize.ofMegabytes(10), 1);
+		Thread[] producers = new Thread[4];
+		int[] accepted = new int[producers.length];
+		for (int t = 0; t < producers.length; t++) {
+			int index = t;
+			producers[t] = Thread.ofPlatform().start(() -> {
+				for (int i = 0; i < 2_000; i++) {
+					if (log.offer(IpAddress.ofIpv4(i), "GET", "/", 200, i, i, null)) {
+						accepted[index]++;
+					}
+				}
+			});
+		}
+		long drained = 0;
+		while (producers[0].isAlive() || producers[1].isAlive() || producers[2].isAlive() || producers[3].isAlive()) {
+			drained += log.drain();
+		}
+		for (Thread producer : producers) {
+			producer.join();
+		}
+		int more;
+		while ((more = log.drain()) > 0) {
+			drained += more;
+		}
+		log.destroy();
+
+		long total = accepted[0] + accepted[1] + accepted[2] + accepted[3];
+		assertThat(drained).isEqualTo(total);
+		assertThat(total + log.droppedCount()).isEqualTo(8_000);
+		assertThat(Files.readAllLines(dir.resolve("access.log"))).hasSize((int) total);
+	}
+
+}
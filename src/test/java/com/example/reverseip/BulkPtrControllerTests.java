@@ -0,0 +1,133 @@
+package com.example.reverseip;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BulkPtrControllerTests {
+
+	private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+	private PtrResolverTests.StubDnsServer dns;
+	private PtrResolver resolver;
+
+	@AfterEach
+	void tearDown() {
+		if (resolver != null) {
+			resolver.destroy();
+		}
+		if (dns != null) {
+			dns.close();
+		}
+	}
+
+	private BulkPtrController controller(boolean resolve, List<String> allowed, int maxAddresses) throws Exception {
+		List<String> nameServers = List.of();
+		if (resolve) {
+			dns = new PtrResolverTests.StubDnsServer(Map.of("42.113.0.203.in-addr.arpa", "host-42.example.net",
+					"43.113.0.203.in-addr.arpa", "host-43.example.net"), "1.0.0.10.in-addr.arpa");
+			nameServers = List.of("127.0.0.1:" + dns.port());
+		}
+		resolver = new PtrResolver(new PtrProperties(resolve, Duration.ofMillis(300), 100, Duration.ofSeconds(60),
+				Duration.ofHours(1), Duration.ofMinutes(5), Duration.ofSeconds(30), nameServers), registry);
+		return new BulkPtrController(new BulkPtrProperties(true, allowed, 4, maxAddresses, 256), resolver,
+				new RequestMetrics(registry), registry);
+	}
+
+	private static MockHttpServletResponse post(BulkPtrController controller, String body, String query)
+			throws Exception {
+		MockHttpServletRequest request = new MockHttpServletRequest("POST", "/ptr/bulk");
+		request.setRemoteAddr("192.0.2.10");
+		request.setContent(body.getBytes(StandardCharsets.UTF_8));
+		if (query != null) {
+			request.setQueryString(query);
+			request.setParameter(query.substring(0, query.indexOf('=')), query.substring(query.indexOf('=') + 1));
+		}
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		controller.postBulk(request, response);
+		return response;
+	}
+
+	@Test
+	void generatesReversePointersInInputOrder() throws Exception {
+		MockHttpServletResponse response = post(controller(false, List.of(), 1000),
+				"203.0.113.42\n# a comment\n2001:db8::1\nbogus\n192.0.2.0/30\n", null);
+		assertThat(response.getContentType()).isEqualTo("application/x-ndjson");
+		assertThat(response.getContentAsString()).isEqualTo("""
+				{"ip":"203.0.113.42","reversePointer":"42.113.0.203.in-addr.arpa"}
+				{"ip":"2001:db8::1","reversePointer":"1.0.0.0.0.0.0.0.0.0.0.0.0.0.0.0.0.0.0.0.0.0.0.0.8.b.d.0.1.0.0.2.ip6.arpa"}
+				{"input":"bogus","error":"Not an IP address or CIDR block"}
+				{"ip":"192.0.2.0","reversePointer":"0.2.0.192.in-addr.arpa"}
+				{"ip":"192.0.2.1","reversePointer":"1.2.0.192.in-addr.arpa"}
+				{"ip":"192.0.2.2","reversePointer":"2.2.0.192.in-addr.arpa"}
+				{"ip":"192.0.2.3","reversePointer":"3.2.0.192.in-addr.arpa"}
+				""");
+		assertThat(registry.get("publicip.bulk_ptr.addresses").counter().count()).isEqualTo(6);
+	}
+
+	@Test
+	void readsJsonArraysAndNdjsonStrings() throws Exception {
+		BulkPtrController controller = controller(false, List.of(), 1000);
+		String expected = """
+				{"ip":"203.0.113.42","reversePointer":"42.113.0.203.in-addr.arpa"}
+				{"ip":"2001:db8::1","reversePointer":"1.0.0.0.0.0.0.0.0.0.0.0.0.0.0.0.0.0.0.0.0.0.0.0.8.b.d.0.1.0.0.2.ip6.arpa"}
+				""";
+		assertThat(post(controller, "[\"203.0.113.42\", \"2001:db8::1\"]", null).getContentAsString())
+				.isEqualTo(expected);
+		assertThat(post(controller, "\"203.0.113.42\"\n\"2001:db8::1\"\n", null).getContentAsString())
+				.isEqualTo(expected);
+	}
+
+	@Test
+	void resolvesInParallelAndReportsEachOutcome() throws Exception {
+		MockHttpServletResponse response = post(controller(true, List.of(), 1000),
+				"203.0.113.42 203.0.113.7 203.0.113.42 203.0.113.43", null);
+		assertThat(response.getContentAsString()).isEqualTo("""
+				{"ip":"203.0.113.42","reversePointer":"42.113.0.203.in-addr.arpa","status":"found","hostname":"host-42.example.net"}
+				{"ip":"203.0.113.7","reversePointer":"7.113.0.203.in-addr.arpa","status":"not_found"}
+				{"ip":"203.0.113.42","reversePointer":"42.113.0.203.in-addr.arpa","status":"found","hostname":"host-42.example.net"}
+				{"ip":"203.0.113.43","reversePointer":"43.113.0.203.in-addr.arpa","status":"found","hostname":"host-43.example.net"}
+				""");
+		// The repeated address shares the first query
+		assertThat(dns.queries()).isEqualTo(3);
+	}
+
+	@Test
+	void resolveFalseSkipsDns() throws Exception {
+		MockHttpServletResponse response = post(controller(true, List.of(), 1000), "203.0.113.42", "resolve=false");
+		assertThat(response.getContentAsString())
+				.isEqualTo("{\"ip\":\"203.0.113.42\",\"reversePointer\":\"42.113.0.203.in-addr.arpa\"}\n");
+		assertThat(dns.queries()).isZero();
+	}
+
+	@Test
+	void enforcesBlockAndRequestLimits() throws Exception {
+		BulkPtrController controller = controller(false, List.of(), 3);
+		assertThat(post(controller, "10.0.0.0/8 2001:db8::/64 10.0.0.0/33", null).getContentAsString())
+				.isEqualTo("""
+						{"input":"10.0.0.0/8","error":"CIDR block larger than 256 addresses"}
+						{"input":"2001:db8::/64","error":"CIDR block larger than 256 addresses"}
+						{"input":"10.0.0.0/33","error":"Not an IP address or CIDR block"}
+						""");
+		String limited = post(controller, "192.0.2.0/24\n203.0.113.1\n", null).getContentAsString();
+		assertThat(limited.lines()).hasSize(4);
+		assertThat(limited).endsWith(
+				"{\"error\":\"Stopped after 3 addresses; the rest of the input was not read\"}\n");
+	}
+
+	@Test
+	void rejectsClientsOutsideTheAllowedRanges() throws Exception {
+		assertThat(post(controller(false, List.of("198.51.100.0/24"), 1000), "203.0.113.42", null).getStatus())
+				.isEqualTo(403);
+		assertThat(post(controller(false, List.of("192.0.2.0/24"), 1000), "203.0.113.42", null).getStatus())
+				.isEqualTo(200);
+	}
+
+}
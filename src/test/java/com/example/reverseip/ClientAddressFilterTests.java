@@ -0,0 +1,127 @@
+package com.example.reverseip;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.http.HttpServletRequest;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ClientAddressFilterTests {
+
+	private final ClientAddressFilter filter = new ClientAddressFilter(
+			new ProxyProperties(List.of("127.0.0.1/32", "10.0.0.0/8", "2001:db8::/32")),
+			new RequestMetrics(new SimpleMeterRegistry()));
+
+	@ParameterizedTest
+	@CsvSource(delimiter = '|', value = {
+			"203.0.113.42                          | 203.0.113.42",
+			"198.51.100.7, 203.0.113.42            | 203.0.113.42",
+			"203.0.113.42, 10.1.1.1, 10.2.2.2      | 203.0.113.42",
+			"203.0.113.42:51234, 10.1.1.1:443      | 203.0.113.42",
+			"[2001:db9::7]:443, 10.1.1.1           | 2001:db9::7",
+			"2001:db9::7, 2001:db8::1              | 2001:db9::7",
+			"attacker.example, 10.1.1.1            | 10.1.1.1",
+			"10.1.1.1, 10.2.2.2                    | 10.1.1.1",
+			"203.0.113.42,,10.1.1.1                | 10.1.1.1"
+	})
+	void walksForwardedForFromTheRight(String chain, String client) {
+		assertThat(filter.walkForwardedFor(chain, IpAddress.parse("127.0.0.1")))
+				.isEqualTo(IpAddress.parse(client));
+	}
+
+	@ParameterizedTest
+	@CsvSource(delimiter = '|', value = {
+			"for=203.0.113.42                                           | 203.0.113.42",
+			"for=198.51.100.7, for=203.0.113.42;proto=https             | 203.0.113.42",
+			"for=203.0.113.42, for=10.1.1.1;by=10.0.0.1                 | 203.0.113.42",
+			"For=\"[2001:db9::7]:4711\", for=10.1.1.1                    | 2001:db9::7",
+			"proto=http;for=\"203.0.113.42:80\";host=\"a;b,c\", for=10.1.1.1 | 203.0.113.42",
+			"for=unknown, for=10.1.1.1                                  | 10.1.1.1",
+			"for=_hidden, for=10.1.1.1                                  | 10.1.1.1",
+			"by=10.0.0.1                                                | 127.0.0.1"
+	})
+	void walksForwardedFromTheRight(String chain, String client) {
+		assertThat(filter.walkForwarded(chain, IpAddress.parse("127.0.0.1")))
+				.isEqualTo(IpAddress.parse(client));
+	}
+
+	@Test
+	void prefersForwardedAndPresentsTheForwardedScheme() throws Exception {
+		MockHttpServletRequest request = new MockHttpServletRequest();
+		request.addHeader("Forwarded", "for=203.0.113.42;proto=https");
+		request.addHeader("X-Forwarded-For", "198.51.100.7");
+
+		HttpServletRequest seen = filter(request);
+
+		assertThat(seen.getRemoteAddr()).isEqualTo("203.0.113.42");
+		assertThat(seen.getScheme()).isEqualTo("https");
+		assertThat(seen.isSecure()).isTrue();
+		assertThat(seen.getServerPort()).isEqualTo(443);
+		assertThat(seen.getAttribute(ClientAddressFilter.CLIENT_ADDRESS)).isEqualTo(IpAddress.parse("203.0.113.42"));
+	}
+
+	@Test
+	void joinsRepeatedForwardedForHeaders() throws Exception {
+		MockHttpServletRequest request = new MockHttpServletRequest();
+		request.addHeader("X-Forwarded-For", "198.51.100.7");
+		request.addHeader("X-Forwarded-For", "203.0.113.42, 10.1.1.1");
+		request.addHeader("X-Forwarded-Proto", "http");
+		request.addHeader("X-Forwarded-Port", "8080");
+
+		HttpServletRequest seen = filter(request);
+
+		assertThat(seen.getRemoteAddr()).isEqualTo("203.0.113.42");
+		assertThat(seen.getScheme()).isEqualTo("http");
+		assertThat(seen.getServerPort()).isEqualTo(8080);
+	}
+
+	@ParameterizedTest
+	@CsvSource(delimiter = '|', value = {
+			"https | 8443   | 8443",
+			"https | 65535  | 65535",
+			"https | 0      | 443",
+			"https | 65536  | 443",
+			"http  | 99999  | 80",
+			"http  | -1     | 80",
+			"http  | +8080  | 80",
+			"http  | ８０８０ | 80",
+			"      | 70000  | 80"
+	})
+	void takesOnlyValidForwardedPorts(String proto, String port, int serverPort) throws Exception {
+		MockHttpServletRequest request = new MockHttpServletRequest();
+		request.addHeader("X-Forwarded-For", "203.0.113.42");
+		if (proto != null) {
+			request.addHeader("X-Forwarded-Proto", proto);
+		}
+		request.addHeader("X-Forwarded-Port", port);
+
+		assertThat(filter(request).getServerPort()).isEqualTo(serverPort);
+	}
+
+	@Test
+	void leavesRequestsFromUntrustedPeersAlone() throws Exception {
+		MockHttpServletRequest request = new MockHttpServletRequest();
+		request.setRemoteAddr("198.51.100.7");
+		request.addHeader("X-Forwarded-For", "203.0.113.42");
+		request.addHeader("X-Forwarded-Proto", "https");
+
+		HttpServletRequest seen = filter(request);
+
+		assertThat(seen).isSameAs(request);
+		assertThat(seen.getScheme()).isEqualTo("http");
+		assertThat(seen.getAttribute(ClientAddressFilter.CLIENT_ADDRESS)).isEqualTo(IpAddress.parse("198.51.100.7"));
+	}
+
+	private HttpServletRequest filter(MockHttpServletRequest request) throws Exception {
+		MockFilterChain chain = new MockFilterChain();
+		filter.doFilter(request, new MockHttpServletResponse(), chain);
+		return (HttpServletRequest) chain.getRequest();
+	}
+
+}
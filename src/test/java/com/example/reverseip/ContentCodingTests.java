@@ -0,0 +1,60 @@
+package com.example.reverseip;
+
+import org.junit.jupiter.api.Test;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ContentCodingTests {
+
+	@Test
+	void brotliIsPreferredWhenAvailable() {
+		assertThat(ContentCoding.negotiate("gzip, deflate, br, zstd", true)).isEqualTo(ContentCoding.BROTLI);
+	}
+
+	@Test
+	void gzipIsUsedWhenBrotliIsUnavailable() {
+		assertThat(ContentCoding.negotiate("gzip, deflate, br", false)).isEqualTo(ContentCoding.GZIP);
+	}
+
+	@Test
+	void higherQualityWins() {
+		assertThat(ContentCoding.negotiate("br;q=0.5, gzip;q=0.9", true)).isEqualTo(ContentCoding.GZIP);
+		assertThat(ContentCoding.negotiate("br; q=1.0, gzip;q=0.9", true)).isEqualTo(ContentCoding.BROTLI);
+	}
+
+	@Test
+	void zeroQualityRefusesACoding() {
+		assertThat(ContentCoding.negotiate("gzip;q=0", true)).isEqualTo(ContentCoding.IDENTITY);
+		assertThat(ContentCoding.negotiate("*, br;q=0", true)).isEqualTo(ContentCoding.GZIP);
+	}
+
+	@Test
+	void wildcardAcceptsEither() {
+		assertThat(ContentCoding.negotiate("*", true)).isEqualTo(ContentCoding.BROTLI);
+		assertThat(ContentCoding.negotiate("*", false)).isEqualTo(ContentCoding.GZIP);
+	}
+
+	@Test
+	void missingOrUnknownCodingsMeanIdentity() {
+		assertThat(ContentCoding.negotiate(null, true)).isEqualTo(ContentCoding.IDENTITY);
+		assertThat(ContentCoding.negotiate("", true)).isEqualTo(ContentCoding.IDENTITY);
+		assertThat(ContentCoding.negotiate("deflate, zstd", true)).isEqualTo(ContentCoding.IDENTITY);
+		assertThat(ContentCoding.negotiate("gzip;q=bogus", true)).isEqualTo(ContentCoding.IDENTITY);
+	}
+
+	@Test
+	void acceptsOnlyRfcQvalues() {
+		assertThat(ContentCoding.negotiate("gzip;q=0.001", true)).isEqualTo(ContentCoding.GZIP);
+		assertThat(ContentCoding.negotiate("gzip;q=0.", true)).isEqualTo(ContentCoding.IDENTITY);
+		assertThat(ContentCoding.negotiate("gzip;q=1.000", true)).isEqualTo(ContentCoding.GZIP);
+		assertThat(ContentCoding.negotiate("br;q=0.999, gzip;q=1", true)).isEqualTo(ContentCoding.GZIP);
+		for (String q : List.of("NaN", "Infinity", "0x1p-1", "0.5f", "0.5d", "1e0", "+0.5", "-1", ".5",
+				"0.0001", "1.001", "2", "0,5", "0.٥")) {
+			assertThat(ContentCoding.negotiate("gzip;q=" + q, true)).as(q).isEqualTo(ContentCoding.IDENTITY);
+			assertThat(ContentCoding.negotiate("br;q=" + q + ", gzip;q=0.1", true)).as(q)
+					.isEqualTo(ContentCoding.GZIP);
+		}
+	}
+
+}
@@ -0,0 +1,135 @@
+package com.example.reverseip;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.util.unit.DataSize;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FragmentCacheTests {
+
+	private static final Instant TIMESTAMP = Instant.parse("2025-12-18T14:58:00Z");
+	private static final String CLIENT = "203.0.113.42";
+	private static final String POINTER = "42.113.0.203.in-addr.arpa";
+	private static final PrefixDatabase.Network NETWORK =
+			new PrefixDatabase.Network(64500, "EXAMPLE-NET Example Networks", "AU");
+
+	private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+	private final PtrResolver ptrResolver = new PtrResolver(new PtrProperties(false, Duration.ofMillis(250), 16,
+			Duration.ofSeconds(60), Duration.ofHours(1), Duration.ofMinutes(5), Duration.ofSeconds(30), List.of()),
+			registry);
+	private final FragmentCache cache = new FragmentCache(
+			new FragmentCacheProperties(true, DataSize.ofMegabytes(1)), registry);
+	private final DiagnosticService service = new DiagnosticService(new DiagnosticPage(),
+			new PageProperties(PageProperties.PayloadMode.COMPACT, true), ptrResolver,
+			new IpEnricher(new EnrichmentProperties(null, null, Duration.ZERO), registry), cache,
+			new RequestMetrics(registry));
+
+	@AfterEach
+	void tearDown() {
+		ptrResolver.destroy();
+	}
+
+	private static RequestInfo request(int remotePort, String userAgent) {
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", "/");
+		request.setRemoteAddr("203.0.113.42");
+		request.setRemotePort(remotePort);
+		request.setQueryString("payload=full");
+		request.addHeader("User-Agent", userAgent);
+		request.addHeader("Accept", "text/html");
+		request.addHeader("X-Note", "quote \" backslash \\ <tag>");
+		return RequestInfo.of(request);
+	}
+
+	private String uncached(RequestInfo request, boolean full) {
+		DiagnosticRenderer diagnostics = full
+				? DiagnosticRenderer.render(request, CLIENT, POINTER, "host.example", NETWORK, TIMESTAMP)
+				: null;
+		try {
+			return (full ? diagnostics.fullDiagnostics() + "\0" : "") + json(request, null, diagnostics);
+		} finally {
+			if (diagnostics != null) {
+				diagnostics.release();
+			}
+		}
+	}
+
+	private String cached(RequestInfo request, boolean full) {
+		FragmentCache.Fragments fragments = cache.lookup(request, CLIENT, POINTER, "host.example", NETWORK);
+		DiagnosticRenderer diagnostics = full ? DiagnosticRenderer.render(fragments, TIMESTAMP) : null;
+		try {
+			return (full ? diagnostics.fullDiagnostics() + "\0" : "") + json(request, fragments, diagnostics);
+		} finally {
+			if (diagnostics != null) {
+				diagnostics.release();
+			}
+		}
+	}
+
+	private String json(RequestInfo request, FragmentCache.Fragments fragments,
+			DiagnosticRenderer diagnostics) {
+		JsonWriter json = service.buildDiagnosticDataJson(request, CLIENT, POINTER, "host.example", NETWORK,
+				fragments, diagnostics, TIMESTAMP);
+		try {
+			return json.result().toString();
+		} finally {
+			json.release();
+		}
+	}
+
+	private double gets(String result) {
+		return registry.get("cache.gets").tag("cache", "fragments").tag("result", result).functionCounter().count();
+	}
+
+	@Test
+	void rendersExactlyWhatAnUncachedRequestWould() {
+		for (boolean full : new boolean[] {true, false}) {
+			RequestInfo first = request(50123, "curl/8.5.0");
+			assertThat(cached(first, full)).isEqualTo(uncached(first, full));
+			RequestInfo again = request(7, "curl/8.5.0");
+			assertThat(cached(again, full)).isEqualTo(uncached(again, full)).contains("\"remotePort\": 7\n")
+					.doesNotContain("50123");
+		}
+	}
+
+	@Test
+	void reusesSectionsAcrossConnectionsAndKeysOnWhatTheyShow() {
+		cache.lookup(request(50123, "curl/8.5.0"), CLIENT, POINTER, null, null);
+		assertThat(gets("miss")).isEqualTo(3);
+
+		FragmentCache.Fragments again = cache.lookup(request(50124, "curl/8.5.0"), CLIENT, POINTER, null, null);
+		assertThat(gets("hit")).isEqualTo(3);
+		assertThat(again.remotePort()).isEqualTo(50124);
+		assertThat(again.headers().headerCount()).isEqualTo(3);
+
+		// A different header misses only the headers section; a PTR result only the IP section
+		cache.lookup(request(50125, "curl/8.6.0"), CLIENT, POINTER, null, null);
+		cache.lookup(request(50126, "curl/8.5.0"), CLIENT, POINTER, "host.example", null);
+		assertThat(gets("hit")).isEqualTo(7);
+		assertThat(gets("miss")).isEqualTo(5);
+	}
+
+	@Test
+	void distinguishesAbsentFieldsFromEmptyOnes() {
+		RequestInfo plain = request(1, "curl/8.5.0");
+		cache.lookup(plain, CLIENT, POINTER, null, null);
+		cache.lookup(plain, CLIENT, POINTER, "", null);
+		assertThat(gets("miss")).isEqualTo(4);
+	}
+
+	@Test
+	void staysWithinItsSizeLimit() {
+		FragmentCache small = new FragmentCache(new FragmentCacheProperties(true, DataSize.ofKilobytes(64)),
+				registry);
+		for (int i = 0; i < 2_000; i++) {
+			small.lookup(request(1, "agent-" + i), CLIENT, POINTER, null, null);
+		}
+		assertThat(small.weightedSize()).isLessThanOrEqualTo(64 * 1024);
+	}
+
+}
@@ -0,0 +1,107 @@
+package com.example.reverseip;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.http.Cookie;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.util.unit.DataSize;
+import java.nio.file.Path;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class HistoryControllerTests {
+
+	@TempDir
+	Path dir;
+
+	private IpHistory history;
+
+	@AfterEach
+	void tearDown() throws Exception {
+		if (history != null) {
+			history.destroy();
+		}
+	}
+
+	private HistoryController controller(boolean enabled) {
+		HistoryProperties properties = new HistoryProperties(enabled, dir, DataSize.ofKilobytes(64), 64, 256,
+				Duration.ofMillis(10), Duration.ofHours(1), 50, Duration.ofDays(365));
+		history = new IpHistory(properties, new SimpleMeterRegistry(), false);
+		return new HistoryController(history, properties);
+	}
+
+	private static MockHttpServletRequest request(String method, String client, String cookie) {
+		MockHttpServletRequest request = new MockHttpServletRequest(method, "/history");
+		request.setAttribute(ClientAddressFilter.CLIENT_ADDRESS, IpAddress.parse(client));
+		if (cookie != null) {
+			request.setCookies(new Cookie(HistoryController.COOKIE, cookie));
+		}
+		return request;
+	}
+
+	/** A page view passing through the filter, as the browser makes them between reads. */
+	private void visit(String client, String cookie) throws Exception {
+		MockHttpServletRequest request = request("GET", client, cookie);
+		request.setRequestURI("/");
+		request.addHeader("Cookie", HistoryController.COOKIE + "=" + cookie);
+		new HistoryFilter(history).doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+		history.drain();
+	}
+
+	@Test
+	void optingInIssuesATokenThatCollectsChanges() throws Exception {
+		HistoryController controller = controller(true);
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		controller.postHistory(request("POST", "203.0.113.42", null), response);
+		String setCookie = response.getHeader("Set-Cookie");
+		assertThat(setCookie).matches("publicip_history=[0-9a-f]{32}; Path=/; Max-Age=31536000; Expires=.*; "
+				+ "HttpOnly; SameSite=Lax");
+		String token = setCookie.substring(setCookie.indexOf('=') + 1, setCookie.indexOf(';'));
+		history.drain();
+
+		visit("203.0.113.42", token);
+		visit("2001:db8::1", token);
+		visit("2001:db8::1", token);
+		response = new MockHttpServletResponse();
+		controller.getHistory(request("GET", "2001:db8::1", token), response);
+		assertThat(response.getContentType()).isEqualTo("application/json;charset=UTF-8");
+		assertThat(response.getHeader("Cache-Control")).isEqualTo("no-store");
+		assertThat(response.getContentAsString()).matches("\\{\"recording\":true,\"changes\":\\["
+				+ "\\{\"ip\":\"203\\.0\\.113\\.42\",\"since\":\"[0-9T:.\\-]+Z\"},"
+				+ "\\{\"ip\":\"2001:db8::1\",\"since\":\"[0-9T:.\\-]+Z\"}]}\n");
+	}
+
+	@Test
+	void forgettingExpiresTheCookie() throws Exception {
+		HistoryController controller = controller(true);
+		String token = IpHistory.Token.random().toString();
+		visit("203.0.113.42", token);
+
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		controller.deleteHistory(request("DELETE", "203.0.113.42", token), response);
+		assertThat(response.getHeader("Set-Cookie")).startsWith("publicip_history=; Path=/; Max-Age=0;");
+		history.drain();
+
+		response = new MockHttpServletResponse();
+		controller.getHistory(request("GET", "203.0.113.42", token), response);
+		assertThat(response.getContentAsString()).isEqualTo("{\"recording\":true,\"changes\":[]}\n");
+		response = new MockHttpServletResponse();
+		controller.getHistory(request("GET", "203.0.113.42", null), response);
+		assertThat(response.getContentAsString()).isEqualTo("{\"recording\":false,\"changes\":[]}\n");
+	}
+
+	@Test
+	void isNotFoundUnlessEnabled() throws Exception {
+		HistoryController controller = controller(false);
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		controller.postHistory(request("POST", "203.0.113.42", null), response);
+		assertThat(response.getStatus()).isEqualTo(404);
+		assertThat(response.getHeader("Set-Cookie")).isNull();
+	}
+
+}
@@ -0,0 +1,85 @@
+package com.example.reverseip;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.net.InetAddress;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class IpAddressTests {
+
+	@ParameterizedTest
+	@CsvSource({
+			"203.0.113.42, 203.0.113.42",
+			"0.0.0.0, 0.0.0.0",
+			"255.255.255.255, 255.255.255.255",
+			"::, ::",
+			"::1, ::1",
+			"2001:DB8::1, 2001:db8::1",
+			"2001:0db8:0000:0000:0000:0000:0000:0001, 2001:db8::1",
+			"2001:db8:0:0:1:0:0:1, 2001:db8::1:0:0:1",
+			"2001:db8:0:1:1:1:1:1, 2001:db8:0:1:1:1:1:1",
+			"fe80::1%eth0, fe80::1",
+			"::ffff:192.0.2.1, 192.0.2.1",
+			"64:ff9b::192.0.2.1, 64:ff9b::c000:201",
+			"1::, 1::",
+	})
+	void parsesAndCanonicalizes(String literal, String canonical) {
+		assertEquals(canonical, IpAddress.parse(literal).toString());
+	}
+
+	@ParameterizedTest
+	@ValueSource(strings = {"", "localhost", "example.com", "1.2.3", "1.2.3.4.5", "256.1.1.1", "01.2.3.4",
+			"1.2.3.4.", "1..2.3", " 1.2.3.4", ":::", "1:2:3:4:5:6:7:8:9", "1::2::3", "12345::", ":1::",
+			"1:", "1:2:3:4:5:6:7::8", "fe80::1%", "::1.2.3", "g::1",
+			// Fullwidth and Arabic-Indic digits, which Character.digit would take
+			"２００１:db8::1", "2001:db8::١"})
+	void rejectsAnythingThatIsNotALiteral(String text) {
+		assertNull(IpAddress.parse(text));
+	}
+
+	@ParameterizedTest
+	@CsvSource({
+			"203.0.113.42, 42.113.0.203.in-addr.arpa",
+			"::1, 1.0.0.0.0.0.0.0.0.0.0.0.0.0.0.0.0.0.0.0.0.0.0.0.0.0.0.0.0.0.0.0.ip6.arpa",
+			"2001:db8::567:89ab, b.a.9.8.7.6.5.0.0.0.0.0.0.0.0.0.0.0.0.0.0.0.0.0.8.b.d.0.1.0.0.2.ip6.arpa",
+	})
+	void buildsReversePointers(String literal, String reversePointer) {
+		assertEquals(reversePointer, IpAddress.parse(literal).reversePointer());
+	}
+
+	@Test
+	void agreesWithInetAddressOnRandomIpv6() throws Exception {
+		java.util.Random random = new java.util.Random(42);
+		for (int i = 0; i < 1000; i++) {
+			byte[] bytes = new byte[16];
+			random.nextBytes(bytes);
+			for (int k = 0; k < 16; k++) {
+				if (random.nextInt(3) == 0) {
+					bytes[k] = 0;
+				}
+			}
+			String literal = InetAddress.getByAddress(bytes).getHostAddress();
+			IpAddress parsed = IpAddress.parse(literal);
+			assertEquals(InetAddress.getByName(parsed.toString()), InetAddress.getByName(literal), literal);
+		}
+	}
+
+	@Test
+	void exposesBitsFromTheMostSignificantEnd() {
+		IpAddress ipv4 = IpAddress.parse("128.0.0.1");
+		assertEquals(1, ipv4.bit(0));
+		assertEquals(0, ipv4.bit(1));
+		assertEquals(1, ipv4.bit(31));
+		IpAddress ipv6 = IpAddress.parse("8000::1");
+		assertEquals(1, ipv6.bit(0));
+		assertEquals(1, ipv6.bit(127));
+		assertTrue(ipv6.bitLength() == 128 && ipv4.bitLength() == 32);
+	}
+
+}
@@ -0,0 +1,91 @@
+package com.example.reverseip;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class IpEnricherTests {
+
+	@TempDir
+	Path dir;
+
+	private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+	private Path source;
+	private IpEnricher enricher;
+
+	@BeforeEach
+	void setUp() throws Exception {
+		source = dir.resolve("ip2asn.tsv");
+		Files.copy(Path.of(IpEnricherTests.class.getResource("/enrichment/ip2asn-sample.tsv").toURI()), source);
+		enricher = new IpEnricher(new EnrichmentProperties(source, null, Duration.ZERO), registry);
+	}
+
+	@AfterEach
+	void tearDown() {
+		enricher.destroy();
+	}
+
+	/** Rewrites the dataset and moves its modification time past the compiled index's. */
+	private void rewrite(String content, long secondsAhead) throws Exception {
+		Files.writeString(source, content);
+		Files.setLastModifiedTime(source, FileTime.from(Instant.now().plusSeconds(secondsAhead)));
+	}
+
+	private double reloads(String outcome) {
+		return registry.get("publicip.enrichment.reloads").tag("outcome", outcome).counter().count();
+	}
+
+	@Test
+	void reloadsARewrittenDataset() throws Exception {
+		IpAddress client = IpAddress.parse("203.0.113.42");
+		assertThat(enricher.lookup(client))
+				.isEqualTo(new PrefixDatabase.Network(64500, "EXAMPLE-NET Example Networks", "AU"));
+		assertThat(enricher.reloadIfChanged()).isFalse();
+
+		rewrite("""
+				# start	end	asn	country	description
+				203.0.113.0	203.0.113.127	64510	NZ	RENUMBERED Example Networks
+				198.51.100.0	198.51.100.255	64511	JP	NEW-NET
+				""", 5);
+		assertThat(enricher.reloadIfChanged()).isTrue();
+		assertThat(enricher.lookup(client))
+				.isEqualTo(new PrefixDatabase.Network(64510, "RENUMBERED Example Networks", "NZ"));
+		assertThat(enricher.lookup(IpAddress.parse("198.51.100.7")).organization()).isEqualTo("NEW-NET");
+		assertThat(enricher.lookup(IpAddress.parse("203.0.113.200"))).isNull();
+		assertThat(enricher.lookup(IpAddress.parse("2001:db8::1"))).isNull();
+		assertThat(reloads("success")).isEqualTo(1);
+		assertThat(registry.get("publicip.enrichment.ranges").tag("family", "ipv4").gauge().value()).isEqualTo(2);
+	}
+
+	@Test
+	void keepsTheOldIndexWhenTheRewrittenDatasetIsBroken() throws Exception {
+		rewrite("""
+				203.0.113.0	203.0.113.255	64500	AU	EXAMPLE-NET Example Networks
+				203.0.113.0	not-an-address	64501	AU	BROKEN
+				""", 5);
+		assertThat(enricher.reloadIfChanged()).isFalse();
+
+		assertThat(enricher.lookup(IpAddress.parse("203.0.113.42")))
+				.isEqualTo(new PrefixDatabase.Network(64500, "EXAMPLE-NET Example Networks", "AU"));
+		assertThat(enricher.lookup(IpAddress.parse("1.0.0.1")).organization()).isEqualTo("CLOUDFLARENET");
+		assertThat(enricher.lookup(IpAddress.parse("2001:db8::1")).organization()).isEqualTo("DOC-V6");
+		assertThat(reloads("failure")).isEqualTo(1);
+		assertThat(reloads("success")).isZero();
+		assertThat(registry.get("publicip.enrichment.ranges").tag("family", "ipv4").gauge().value()).isEqualTo(3);
+
+		// The broken file is retried at each check, so fixing it is enough
+		rewrite("203.0.113.0\t203.0.113.255\t64500\tAU\tFIXED\n", 10);
+		assertThat(enricher.reloadIfChanged()).isTrue();
+		assertThat(enricher.lookup(IpAddress.parse("203.0.113.42")).organization()).isEqualTo("FIXED");
+	}
+
+}
@@ -0,0 +1,172 @@
+package com.example.reverseip;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class IpHistoryTests {
+
+	private static final IpHistory.Token ALICE = new IpHistory.Token(1, 2);
+	private static final IpHistory.Token BOB = new IpHistory.Token(-1, 42);
+
+	@TempDir
+	Path dir;
+
+	private final List<IpHistory> opened = new ArrayList<>();
+
+	@AfterEach
+	void tearDown() throws Exception {
+		for (IpHistory history : opened) {
+			history.destroy();
+		}
+	}
+
+	private IpHistory history(int maxChanges) {
+		IpHistory history = new IpHistory(new HistoryProperties(true, dir, DataSize.ofBytes(16 * 48), 64, 256,
+				Duration.ofMillis(10), Duration.ofHours(1), maxChanges, Duration.ofDays(365)),
+				new SimpleMeterRegistry(), false);
+		opened.add(history);
+		return history;
+	}
+
+	private static List<String> addresses(IpHistory history, IpHistory.Token token) {
+		return history.changes(token).stream().map(change -> change.address().toString()).toList();
+	}
+
+	private List<Path> segments() throws IOException {
+		try (Stream<Path> files = Files.list(dir)) {
+			return files.sorted().toList();
+		}
+	}
+
+	@Test
+	void tokensRoundTripThroughTheirCookieForm() {
+		IpHistory.Token token = IpHistory.Token.random();
+		assertThat(IpHistory.Token.parse(token.toString())).isEqualTo(token);
+		assertThat(BOB.toString()).isEqualTo("ffffffffffffffff000000000000002a");
+		assertThat(IpHistory.Token.parse("+fffffffffffffff000000000000002a")).isNull();
+		assertThat(IpHistory.Token.parse("not a token")).isNull();
+		assertThat(IpHistory.Token.parse(null)).isNull();
+	}
+
+	@Test
+	void keepsOnlyChangesPerToken() {
+		IpHistory history = history(50);
+		history.record(ALICE, IpAddress.parse("203.0.113.42"));
+		history.record(ALICE, IpAddress.parse("203.0.113.42"));
+		history.record(BOB, IpAddress.parse("2001:db8::1"));
+		history.record(ALICE, IpAddress.parse("2001:db8::42"));
+		history.drain();
+		// Compared with the last written address before it is even queued
+		history.record(ALICE, IpAddress.parse("2001:db8::42"));
+		assertThat(history.drain()).isZero();
+
+		assertThat(addresses(history, ALICE)).containsExactly("203.0.113.42", "2001:db8::42");
+		assertThat(addresses(history, BOB)).containsExactly("2001:db8::1");
+		assertThat(history.changes(new IpHistory.Token(3, 4))).isEmpty();
+		assertThat(history.changes(ALICE).get(0).address().ipv4()).isTrue();
+	}
+
+	@Test
+	void replaysTheLogAfterARestart() throws Exception {
+		IpHistory history = history(3);
+		for (int i = 1; i <= 40; i++) {
+			history.record(ALICE, IpAddress.parse("198.51.100." + i));
+			history.record(BOB, IpAddress.parse("2001:db8::" + Integer.toHexString(i)));
+			history.drain();
+		}
+		history.forget(BOB);
+		history.drain();
+		history.destroy();
+
+		// 81 records in segments of 16
+		assertThat(segments()).hasSize(6);
+		IpHistory reopened = history(3);
+		assertThat(addresses(reopened, ALICE)).containsExactly("198.51.100.38", "198.51.100.39", "198.51.100.40");
+		assertThat(reopened.changes(BOB)).isEmpty();
+		reopened.record(ALICE, IpAddress.parse("198.51.100.40"));
+		reopened.record(ALICE, IpAddress.parse("198.51.100.41"));
+		assertThat(reopened.drain()).isOne();
+		assertThat(addresses(reopened, ALICE)).containsExactly("198.51.100.39", "198.51.100.40", "198.51.100.41");
+	}
+
+	@Test
+	void stopsAtARecordTornByACrash() throws Exception {
+		IpHistory history = history(50);
+		history.record(ALICE, IpAddress.parse("203.0.113.42"));
+		history.record(ALICE, IpAddress.parse("203.0.113.43"));
+		history.drain();
+		history.destroy();
+
+		// A third record that only got halfway to the disk
+		Path segment = segments().get(0);
+		try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+			channel.write(ByteBuffer.wrap(new byte[] {0, 0, 0, 0, 0, 0, 0, 1, 0, 0, 0, 0, 0, 0, 0, 2, 9, 9}),
+					2 * IpHistory.RECORD_SIZE);
+		}
+
+		IpHistory reopened = history(50);
+		assertThat(addresses(reopened, ALICE)).containsExactly("203.0.113.42", "203.0.113.43");
+		assertThat(Files.size(segment)).isEqualTo(2 * IpHistory.RECORD_SIZE);
+		reopened.record(ALICE, IpAddress.parse("203.0.113.44"));
+		reopened.drain();
+		assertThat(addresses(reopened, ALICE)).containsExactly("203.0.113.42", "203.0.113.43", "203.0.113.44");
+	}
+
+	@Test
+	void compactionKeepsOnlyLiveRecords() throws Exception {
+		IpHistory history = history(2);
+		for (int i = 1; i <= 30; i++) {
+			history.record(ALICE, IpAddress.parse("198.51.100." + i));
+		}
+		history.record(BOB, IpAddress.parse("2001:db8::1"));
+		history.drain();
+		history.forget(BOB);
+		history.drain();
+		assertThat(segments()).hasSize(2);
+
+		history.compact();
+		// One segment: the marker and Alice's last two changes
+		assertThat(segments()).hasSize(1);
+		assertThat(addresses(history, ALICE)).containsExactly("198.51.100.29", "198.51.100.30");
+		history.record(ALICE, IpAddress.parse("198.51.100.31"));
+		history.record(BOB, IpAddress.parse("2001:db8::2"));
+		history.drain();
+		history.destroy();
+
+		IpHistory reopened = history(2);
+		assertThat(addresses(reopened, ALICE)).containsExactly("198.51.100.30", "198.51.100.31");
+		assertThat(addresses(reopened, BOB)).containsExactly("2001:db8::2");
+		assertThat(Files.size(segments().get(0))).isEqualTo(5 * IpHistory.RECORD_SIZE);
+	}
+
+	@Test
+	void ignoresAnUnfinishedCompaction() throws Exception {
+		IpHistory history = history(50);
+		history.record(ALICE, IpAddress.parse("203.0.113.42"));
+		history.drain();
+		history.destroy();
+		// Left behind by a crash before the output got its name
+		Files.write(dir.resolve("history-0000000002.log.compacting"), new byte[IpHistory.RECORD_SIZE]);
+
+		IpHistory reopened = history(50);
+		assertThat(addresses(reopened, ALICE)).containsExactly("203.0.113.42");
+		assertThat(segments()).extracting(path -> path.getFileName().toString())
+				.containsExactly("history-0000000001.log");
+	}
+
+}
@@ -0,0 +1,44 @@
+package com.example.reverseip;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class JsonWriterTests {
+
+	@Test
+	void escapesQuotesBackslashesAndWhitespace() {
+		assertEquals("\"a\\\"b\\\\c\\nd\\re\\tf\"", write("a\"b\\c\nd\re\tf"));
+	}
+
+	@Test
+	void escapesOtherControlCharactersAsUnicode() {
+		assertEquals("\"\\u0000\\u001f\\u0008\"", write("\u0000\u001f\b"));
+	}
+
+	@Test
+	void cannotCloseTheEnclosingScriptElement() {
+		assertEquals("\"\\u003c/script>\\u003c!--\"", write("</script><!--"));
+	}
+
+	@Test
+	void leavesOrdinaryTextUntouched() {
+		assertEquals("\"│ host              : publicip.org ✓\"", write("│ host              : publicip.org ✓"));
+	}
+
+	@Test
+	void writesNullAsTheStringNull() {
+		assertEquals("\"null\"", write(null));
+	}
+
+	@Test
+	void escapesOnlyTheRequestedRange() {
+		String result = JsonWriter.forCurrentThread().string("xx\"yy", 1, 4).result().toString();
+		assertEquals("\"x\\\"y\"", result);
+	}
+
+	private static String write(String value) {
+		return JsonWriter.forCurrentThread().string(value).result().toString();
+	}
+
+}
@@ -0,0 +1,165 @@
+package com.example.reverseip;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LiveControllerTests {
+
+	private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+	private final PtrResolver ptrResolver = new PtrResolver(new PtrProperties(false, Duration.ofMillis(250), 16,
+			Duration.ofSeconds(60), Duration.ofHours(1), Duration.ofMinutes(5), Duration.ofSeconds(30), List.of()),
+			registry);
+
+	@AfterEach
+	void tearDown() {
+		ptrResolver.destroy();
+	}
+
+	private LiveController controller(int maxStreams) {
+		return controller(maxStreams, ptrResolver);
+	}
+
+	private LiveController controller(int maxStreams, PtrResolver ptrResolver) {
+		return new LiveController(new LiveProperties(true, Duration.ofSeconds(30), Duration.ofSeconds(1), maxStreams,
+				100, List.of("accept", "last-event-id")), ptrResolver,
+				new IpEnricher(new EnrichmentProperties(null, null, Duration.ZERO), registry),
+				new RequestMetrics(registry), registry);
+	}
+
+	private static MockHttpServletRequest request(String client, String lastEventId) {
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", "/live");
+		request.setAsyncSupported(true);
+		request.setAttribute(ClientAddressFilter.CLIENT_ADDRESS, IpAddress.parse(client));
+		request.addHeader("Accept", "text/event-stream");
+		request.addHeader("User-Agent", "Mozilla/5.0");
+		if (lastEventId != null) {
+			request.addHeader("Last-Event-ID", lastEventId);
+		}
+		return request;
+	}
+
+	private static String id(String events) {
+		return events.lines().filter(line -> line.startsWith("id: ")).findFirst().orElseThrow().substring(4);
+	}
+
+	@Test
+	void newStreamsGetASnapshotAndStayOpen() throws Exception {
+		LiveController controller = controller(10);
+		MockHttpServletRequest request = request("203.0.113.42", null);
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		controller.getLive(request, response);
+
+		assertThat(request.isAsyncStarted()).isTrue();
+		assertThat(request.getAsyncContext().getTimeout()).isEqualTo(30_000);
+		assertThat(response.getContentType()).isEqualTo("text/event-stream;charset=UTF-8");
+		String events = response.getContentAsString();
+		assertThat(events).startsWith("retry: 1000\nid: ").endsWith("""
+				event: snapshot
+				data: {"ip":"203.0.113.42","reversePointer":"42.113.0.203.in-addr.arpa","headers":{"user-agent":"Mozilla/5.0"}}
+
+				""");
+		assertThat(controller.openStreams()).isEqualTo(1);
+		request.getAsyncContext().complete();
+		assertThat(controller.openStreams()).isZero();
+	}
+
+	@Test
+	void snapshotsListRepeatedHeadersAndLeaveOutTheHistoryCookie() throws Exception {
+		MockHttpServletRequest request = request("203.0.113.42", null);
+		request.addHeader("Cookie", HistoryController.COOKIE + "=0123456789abcdef0123456789abcdef; theme=dark");
+		request.addHeader("Cookie", "lang=en");
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		controller(10).getLive(request, response);
+
+		assertThat(response.getContentAsString())
+				.contains("\"cookie\":[\"publicip_history=(redacted); theme=dark\",\"lang=en\"]")
+				.doesNotContain("0123456789abcdef");
+		request.getAsyncContext().complete();
+	}
+
+	@Test
+	void reconnectsGetOnlyWhatChanged() throws Exception {
+		LiveController controller = controller(10);
+		MockHttpServletResponse first = new MockHttpServletResponse();
+		controller.getLive(request("203.0.113.42", null), first);
+		String id = id(first.getContentAsString());
+
+		MockHttpServletResponse same = new MockHttpServletResponse();
+		controller.getLive(request("203.0.113.42", id), same);
+		assertThat(same.getContentAsString()).isEqualTo("retry: 1000\n\n");
+
+		MockHttpServletRequest moved = request("198.51.100.7", id);
+		moved.addHeader("Via", "1.1 vpn-gateway");
+		MockHttpServletResponse delta = new MockHttpServletResponse();
+		controller.getLive(moved, delta);
+		assertThat(delta.getContentAsString()).contains("event: delta\n").endsWith("data: {\"ip\":\"198.51.100.7\","
+				+ "\"reversePointer\":\"7.100.51.198.in-addr.arpa\",\"headers\":{\"via\":\"1.1 vpn-gateway\"}}\n\n");
+		assertThat(id(delta.getContentAsString())).isNotEqualTo(id);
+
+		MockHttpServletResponse back = new MockHttpServletResponse();
+		controller.getLive(request("198.51.100.7", id(delta.getContentAsString())), back);
+		assertThat(back.getContentAsString()).endsWith("data: {\"headers\":{\"via\":null}}\n\n");
+	}
+
+	@Test
+	void unknownLastEventIdsGetAFullSnapshot() throws Exception {
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		controller(10).getLive(request("203.0.113.42", "0123456789abcdef"), response);
+		assertThat(response.getContentAsString()).contains("event: snapshot\n");
+	}
+
+	@Test
+	void refusesStreamsOverTheLimit() throws Exception {
+		LiveController controller = controller(1);
+		controller.getLive(request("203.0.113.42", null), new MockHttpServletResponse());
+		MockHttpServletResponse refused = new MockHttpServletResponse();
+		controller.getLive(request("203.0.113.43", null), refused);
+		assertThat(refused.getStatus()).isEqualTo(503);
+		assertThat(refused.getHeader("Retry-After")).isEqualTo("30");
+		assertThat(controller.openStreams()).isEqualTo(1);
+	}
+
+	@Test
+	void writesTheEventOnceTheLookupCompletesWithoutHoldingTheRequestThread() throws Exception {
+		try (PtrResolverTests.StubDnsServer dns = new PtrResolverTests.StubDnsServer(
+				Map.of("42.113.0.203.in-addr.arpa", "host-42.example.net"), "9.100.51.198.in-addr.arpa")) {
+			PtrResolver resolver = new PtrResolver(new PtrProperties(true, Duration.ofMillis(300), 16,
+					Duration.ofSeconds(60), Duration.ofHours(1), Duration.ofMinutes(5), Duration.ofSeconds(30),
+					List.of("127.0.0.1:" + dns.port())), registry);
+			try {
+				LiveController controller = controller(10, resolver);
+				MockHttpServletRequest silent = request("198.51.100.9", null);
+				MockHttpServletResponse pending = new MockHttpServletResponse();
+				long start = System.nanoTime();
+				controller.getLive(silent, pending);
+				assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofMillis(300));
+				assertThat(silent.isAsyncStarted()).isTrue();
+				assertThat(awaitEvent(pending)).contains("\"hostname\":\"(lookup pending)\"");
+
+				MockHttpServletResponse found = new MockHttpServletResponse();
+				controller.getLive(request("203.0.113.42", null), found);
+				assertThat(awaitEvent(found)).contains("\"hostname\":\"host-42.example.net\"");
+				assertThat(controller.openStreams()).isEqualTo(2);
+			} finally {
+				resolver.destroy();
+			}
+		}
+	}
+
+	private static String awaitEvent(MockHttpServletResponse response) throws Exception {
+		long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+		while (!response.getContentAsString().contains("data: ") && System.nanoTime() < deadline) {
+			Thread.sleep(5);
+		}
+		return response.getContentAsString();
+	}
+
+}
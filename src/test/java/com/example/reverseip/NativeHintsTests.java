@@ -0,0 +1,21 @@
+package com.example.reverseip;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.predicate.RuntimeHintsPredicates;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class NativeHintsTests {
+
+	@Test
+	void embedsTheBrotliLibraryForEachPlatform() {
+		RuntimeHints hints = new RuntimeHints();
+		new NativeHints().registerHints(hints, getClass().getClassLoader());
+		assertThat(RuntimeHintsPredicates.resource().forResource("lib/linux-x86_64/libbrotli.so")).accepts(hints);
+		assertThat(RuntimeHintsPredicates.resource().forResource("lib/osx-aarch64/libbrotli.dylib")).accepts(hints);
+		assertThat(RuntimeHintsPredicates.resource().forResource("lib/windows-x86_64/brotli.dll")).accepts(hints);
+		assertThat(RuntimeHintsPredicates.resource().forResource("lib/linux-x86_64/other.so")).rejects(hints);
+	}
+
+}
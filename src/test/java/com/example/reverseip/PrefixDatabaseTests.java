@@ -0,0 +1,124 @@
+package com.example.reverseip;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.util.unit.DataSize;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+class PrefixDatabaseTests {
+
+	@TempDir
+	Path dir;
+
+	private static Path fixture(String name) throws Exception {
+		return Path.of(PrefixDatabaseTests.class.getResource("/enrichment/" + name).toURI());
+	}
+
+	private PrefixDatabase open(String name) throws Exception {
+		return PrefixDatabase.open(fixture(name), dir.resolve(name + ".idx"));
+	}
+
+	@Test
+	void looksUpIptoasnRanges() throws Exception {
+		PrefixDatabase database = open("ip2asn-sample.tsv");
+		assertThat(database.ipv4Ranges()).isEqualTo(3);
+		assertThat(database.ipv6Ranges()).isEqualTo(1);
+
+		assertThat(database.lookup(IpAddress.parse("1.0.0.1")))
+				.isEqualTo(new PrefixDatabase.Network(13335, "CLOUDFLARENET", "US"));
+		assertThat(database.lookup(IpAddress.parse("203.0.113.255")))
+				.isEqualTo(new PrefixDatabase.Network(64500, "EXAMPLE-NET Example Networks", "AU"));
+		assertThat(database.lookup(IpAddress.parse("2001:db8:abcd::1")))
+				.isEqualTo(new PrefixDatabase.Network(64501, "DOC-V6", "DE"));
+
+		// Not routed, between ranges, before the first and past the last
+		assertThat(database.lookup(IpAddress.parse("10.1.2.3"))).isNull();
+		assertThat(database.lookup(IpAddress.parse("203.0.114.0"))).isNull();
+		assertThat(database.lookup(IpAddress.parse("0.0.0.1"))).isNull();
+		assertThat(database.lookup(IpAddress.parse("255.255.255.255"))).isNull();
+		assertThat(database.lookup(IpAddress.parse("2001:db9::"))).isNull();
+		assertThat(database.lookup(IpAddress.parse("::1"))).isNull();
+	}
+
+	@Test
+	void nestedPrefixesResolveToTheMostSpecific() throws Exception {
+		PrefixDatabase database = open("nested.csv");
+		assertThat(database.lookup(IpAddress.parse("192.0.2.1")))
+				.isEqualTo(new PrefixDatabase.Network(64496, "Example Transit, Inc.", "US"));
+		assertThat(database.lookup(IpAddress.parse("192.0.2.200")))
+				.isEqualTo(new PrefixDatabase.Network(64497, "Example Customer", "GB"));
+		assertThat(database.lookup(IpAddress.parse("192.0.2.127")).asn()).isEqualTo(64496);
+		assertThat(database.lookup(IpAddress.parse("198.51.100.5"))).isNull();
+		assertThat(database.lookup(IpAddress.parse("2001:db8:1:ffff::1")))
+				.isEqualTo(new PrefixDatabase.Network(64498, "Example V6", "NL"));
+		assertThat(database.lookup(IpAddress.parse("2001:db8:2::1"))).isNull();
+	}
+
+	@Test
+	void reusesTheCompiledIndexUntilTheDatasetChanges() throws Exception {
+		Path source = dir.resolve("ranges.csv");
+		Path index = dir.resolve("ranges.idx");
+		Files.writeString(source, "192.0.2.0/24,64496,US,Example\n");
+		PrefixDatabase.open(source, index);
+		FileTime compiled = FileTime.from(Instant.now().minusSeconds(60));
+		Files.setLastModifiedTime(index, compiled);
+		Files.setLastModifiedTime(source, FileTime.from(Instant.now().minusSeconds(120)));
+
+		PrefixDatabase.open(source, index);
+		assertThat(Files.getLastModifiedTime(index)).isEqualTo(compiled);
+
+		Files.writeString(source, "192.0.2.0/24,64497,US,Example\n");
+		assertThat(PrefixDatabase.open(source, index).lookup(IpAddress.parse("192.0.2.1")).asn()).isEqualTo(64497);
+	}
+
+	@Test
+	void reportsTheLineOfAMalformedEntry() throws Exception {
+		Path source = dir.resolve("broken.csv");
+		Files.writeString(source, "# comment\n192.0.2.0/24,64496,US,Example\n192.0.2.0/33,1,US,Bad\n");
+		assertThatIllegalArgumentException()
+				.isThrownBy(() -> PrefixDatabase.compile(source, dir.resolve("broken.idx")))
+				.withMessageContaining("broken.csv:3");
+	}
+
+	@Test
+	void enrichedDetailsReachTheJsonAndTheClassicView() throws Exception {
+		SimpleMeterRegistry registry = new SimpleMeterRegistry();
+		IpEnricher enricher = new IpEnricher(new EnrichmentProperties(fixture("ip2asn-sample.tsv"),
+				dir.resolve("sample.idx"), Duration.ZERO), registry);
+		PtrResolver ptrResolver = new PtrResolver(new PtrProperties(false, Duration.ofMillis(250), 16,
+				Duration.ofSeconds(60), Duration.ofHours(1), Duration.ofMinutes(5), Duration.ofSeconds(30),
+				List.of()), registry);
+		RequestMetrics metrics = new RequestMetrics(registry);
+		ReverseIpController controller = new ReverseIpController(new DiagnosticService(new DiagnosticPage(),
+				new PageProperties(PageProperties.PayloadMode.COMPACT, true), ptrResolver, enricher,
+				new FragmentCache(new FragmentCacheProperties(false, DataSize.ofMegabytes(1)), registry),
+				metrics), metrics);
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", "/json");
+		request.setRemoteAddr("203.0.113.42");
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		controller.getJson(request, response);
+		assertThat(response.getContentAsString()).isEqualTo("{\"ip\":\"203.0.113.42\","
+				+ "\"reversePointer\":\"42.113.0.203.in-addr.arpa\",\"asn\":64500,"
+				+ "\"organization\":\"EXAMPLE-NET Example Networks\",\"country\":\"AU\"}\n");
+
+		String classic = DiagnosticRenderer.render(RequestInfo.of(request), "203.0.113.42", "42.113.0.203.in-addr.arpa", null,
+				enricher.lookup(IpAddress.parse("203.0.113.42")), Instant.now()).fullDiagnostics().toString();
+		assertThat(classic).contains("│ ASN:                AS64500\n")
+				.contains("│ Organization:       EXAMPLE-NET Example Networks\n")
+				.contains("│ Country:            AU\n");
+		ptrResolver.destroy();
+		enricher.destroy();
+	}
+
+}
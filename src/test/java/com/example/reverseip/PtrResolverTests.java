@@ -0,0 +1,171 @@
+package com.example.reverseip;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PtrResolverTests {
+
+	private StubDnsServer dns;
+	private PtrResolver resolver;
+
+	@BeforeEach
+	void setUp() throws IOException {
+		dns = new StubDnsServer(Map.of("42.113.0.203.in-addr.arpa", "host-42.example.net"),
+				"1.0.0.10.in-addr.arpa");
+		resolver = new PtrResolver(new PtrProperties(true, Duration.ofMillis(300), 100, Duration.ofSeconds(60),
+				Duration.ofHours(1), Duration.ofMinutes(5), Duration.ofSeconds(30),
+				List.of("127.0.0.1:" + dns.port())), new SimpleMeterRegistry());
+	}
+
+	@AfterEach
+	void tearDown() {
+		resolver.destroy();
+		dns.close();
+	}
+
+	@Test
+	void resolvesAndCachesPtrRecords() {
+		PtrResolver.Lookup lookup = resolver.resolve(IpAddress.parse("203.0.113.42"));
+		assertEquals(PtrResolver.Lookup.Status.FOUND, lookup.status());
+		assertEquals("host-42.example.net", lookup.describe());
+		assertEquals(Duration.ofMinutes(10), lookup.ttl());
+
+		assertEquals("host-42.example.net", resolver.resolve(IpAddress.parse("203.0.113.42")).hostname());
+		assertEquals(1, dns.queries());
+		assertEquals(1, resolver.hitCount());
+		assertEquals(1, resolver.missCount());
+	}
+
+	@Test
+	void cachesMissingRecords() {
+		assertEquals(PtrResolver.Lookup.Status.NOT_FOUND, resolver.resolve(IpAddress.parse("203.0.113.7")).status());
+		assertEquals(PtrResolver.Lookup.Status.NOT_FOUND, resolver.resolve(IpAddress.parse("203.0.113.7")).status());
+		assertEquals(1, dns.queries());
+	}
+
+	@Test
+	void givesUpAfterTheTimeoutWhenTheServerDoesNotAnswer() {
+		long start = System.nanoTime();
+		PtrResolver.Lookup lookup = resolver.resolve(IpAddress.parse("10.0.0.1"));
+		long elapsed = Duration.ofNanos(System.nanoTime() - start).toMillis();
+		assertTrue(lookup.status() == PtrResolver.Lookup.Status.PENDING
+				|| lookup.status() == PtrResolver.Lookup.Status.FAILED, lookup.toString());
+		assertTrue(elapsed < 1000, "waited " + elapsed + " ms");
+	}
+
+	@Test
+	void concurrentLookupsShareOneQuery() {
+		var first = resolver.lookup(IpAddress.parse("203.0.113.42"));
+		var second = resolver.lookup(IpAddress.parse("203.0.113.42"));
+		assertEquals(first.join(), second.join());
+		assertEquals(1, dns.queries());
+	}
+
+	/** Answers PTR queries from a fixed table, NXDOMAIN for anything else and never answers "silent" names. */
+	static final class StubDnsServer implements AutoCloseable {
+		private final DatagramSocket socket;
+		private final Map<String, String> records;
+		private final String silent;
+		private final AtomicInteger queries = new AtomicInteger();
+
+		StubDnsServer(Map<String, String> records, String silent) throws SocketException {
+			this.socket = new DatagramSocket(0, InetAddress.getLoopbackAddress());
+			this.records = records;
+			this.silent = silent;
+			Thread thread = new Thread(this::serve, "stub-dns");
+			thread.setDaemon(true);
+			thread.start();
+		}
+
+		int port() {
+			return socket.getLocalPort();
+		}
+
+		int queries() {
+			return queries.get();
+		}
+
+		private void serve() {
+			byte[] buffer = new byte[512];
+			while (!socket.isClosed()) {
+				try {
+					DatagramPacket packet = new DatagramPacket(buffer, buffer.length);
+					socket.receive(packet);
+					queries.incrementAndGet();
+					byte[] reply = answer(packet.getData(), packet.getLength());
+					if (reply != null) {
+						socket.send(new DatagramPacket(reply, reply.length, packet.getSocketAddress()));
+					}
+				} catch (IOException e) {
+					return;
+				}
+			}
+		}
+
+		private byte[] answer(byte[] query, int length) {
+			StringBuilder name = new StringBuilder();
+			int pos = 12;
+			while (query[pos] != 0) {
+				int label = query[pos++];
+				if (!name.isEmpty()) {
+					name.append('.');
+				}
+				name.append(new String(query, pos, label, StandardCharsets.US_ASCII));
+				pos += label;
+			}
+			int questionEnd = pos + 5;
+			if (name.toString().equals(silent)) {
+				return null;
+			}
+			String hostname = records.get(name.toString());
+
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			out.write(query[0]);
+			out.write(query[1]);
+			out.write(0x81);
+			out.write(hostname != null ? 0x80 : 0x83);
+			out.writeBytes(new byte[] {0, 1, 0, hostname != null ? (byte) 1 : 0, 0, 0, 0, 0});
+			out.write(query, 12, questionEnd - 12);
+			if (hostname != null) {
+				byte[] rdata = encodeName(hostname);
+				out.writeBytes(new byte[] {(byte) 0xC0, 12, 0, 12, 0, 1, 0, 0, 0x02, 0x58,
+						(byte) (rdata.length >> 8), (byte) rdata.length});
+				out.writeBytes(rdata);
+			}
+			return out.toByteArray();
+		}
+
+		private static byte[] encodeName(String name) {
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			for (String label : name.split("\\.")) {
+				out.write(label.length());
+				out.writeBytes(label.getBytes(StandardCharsets.US_ASCII));
+			}
+			out.write(0);
+			return out.toByteArray();
+		}
+
+		@Override
+		public void close() {
+			socket.close();
+		}
+	}
+
+}
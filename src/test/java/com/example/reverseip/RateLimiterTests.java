@@ -0,0 +1,159 @@
+package com.example.reverseip;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+class RateLimiterTests {
+
+	private final AtomicLong now = new AtomicLong(1_000_000 * 60_000L);
+	private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+	private RateLimiter limiter(List<String> limits, List<String> exempt) {
+		return limiter(limits, exempt, 1024);
+	}
+
+	private RateLimiter limiter(List<String> limits, List<String> exempt, int sketchWidth) {
+		return new RateLimiter(new RateLimitProperties(true, Duration.ofMinutes(1), limits, exempt, sketchWidth, 4),
+				registry, now::get);
+	}
+
+	@Test
+	void admitsUpToTheLimitThenAsksToRetryLater() {
+		RateLimiter limiter = limiter(List.of("ipv4/32=3"), List.of());
+		IpAddress client = IpAddress.parse("203.0.113.42");
+		for (int i = 0; i < 3; i++) {
+			assertThat(limiter.acquire(client)).isEqualTo(RateLimiter.ADMITTED);
+		}
+		// All three still count at the start of the next window, so just past it
+		assertThat(limiter.acquire(client)).isEqualTo(61);
+		assertThat(limiter.acquire(IpAddress.parse("203.0.113.43"))).isEqualTo(RateLimiter.ADMITTED);
+
+		now.addAndGet(60_000);
+		assertThat(limiter.acquire(client)).isPositive();
+		now.addAndGet(1_000);
+		assertThat(limiter.acquire(client)).isEqualTo(RateLimiter.ADMITTED);
+		assertThat(registry.get("publicip.rate_limit.rejected").tag("limit", "ipv4/32").counter().count())
+				.isEqualTo(2);
+	}
+
+	@Test
+	void concurrentRequestsCannotTogetherExceedTheLimit() throws Exception {
+		RateLimiter limiter = limiter(List.of("ipv4/32=50"), List.of());
+		IpAddress client = IpAddress.parse("203.0.113.42");
+		AtomicLong admitted = new AtomicLong();
+		List<Thread> threads = new ArrayList<>();
+		for (int t = 0; t < 8; t++) {
+			threads.add(Thread.ofPlatform().start(() -> {
+				for (int i = 0; i < 1_000; i++) {
+					if (limiter.acquire(client) == RateLimiter.ADMITTED) {
+						admitted.incrementAndGet();
+					}
+				}
+			}));
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		assertThat(admitted.get()).isEqualTo(50);
+	}
+
+	@Test
+	void thePreviousWindowSlidesOutGradually() {
+		RateLimiter limiter = limiter(List.of("ipv4/32=4"), List.of());
+		IpAddress client = IpAddress.parse("203.0.113.42");
+		for (int i = 0; i < 4; i++) {
+			limiter.acquire(client);
+		}
+		// A quarter into the next window, three quarters of the previous four still count
+		now.addAndGet(75_000);
+		assertThat(limiter.acquire(client)).isEqualTo(RateLimiter.ADMITTED);
+		assertThat(limiter.acquire(client)).isEqualTo(1);
+
+		now.addAndGet(1_000);
+		assertThat(limiter.acquire(client)).isEqualTo(RateLimiter.ADMITTED);
+	}
+
+	@Test
+	void prefixLimitsCoverEveryAddressInThePrefix() {
+		RateLimiter limiter = limiter(List.of("ipv4/32=100", "ipv4/24=5", "ipv6/64=100", "ipv6/48=2"), List.of());
+		for (int i = 1; i <= 5; i++) {
+			assertThat(limiter.acquire(IpAddress.parse("203.0.113." + i))).isEqualTo(RateLimiter.ADMITTED);
+		}
+		assertThat(limiter.acquire(IpAddress.parse("203.0.113.200"))).isPositive();
+		assertThat(limiter.acquire(IpAddress.parse("203.0.114.1"))).isEqualTo(RateLimiter.ADMITTED);
+
+		assertThat(limiter.acquire(IpAddress.parse("2001:db8:1:1::1"))).isEqualTo(RateLimiter.ADMITTED);
+		assertThat(limiter.acquire(IpAddress.parse("2001:db8:1:2::1"))).isEqualTo(RateLimiter.ADMITTED);
+		assertThat(limiter.acquire(IpAddress.parse("2001:db8:1:3::1"))).isPositive();
+		assertThat(limiter.acquire(IpAddress.parse("2001:db8:2::1"))).isEqualTo(RateLimiter.ADMITTED);
+	}
+
+	@Test
+	void exemptRangesAreNeverLimited() {
+		RateLimiter limiter = limiter(List.of("ipv4/32=1"), List.of("198.51.100.0/24"));
+		for (int i = 0; i < 10; i++) {
+			assertThat(limiter.acquire(IpAddress.parse("198.51.100.7"))).isEqualTo(RateLimiter.ADMITTED);
+		}
+	}
+
+	@Test
+	void distinctClientsRarelyCollide() {
+		RateLimiter limiter = limiter(List.of("ipv4/32=2"), List.of(), 32768);
+		int limited = 0;
+		for (int i = 0; i < 20_000; i++) {
+			if (limiter.acquire(IpAddress.ofIpv4(0x0A000000 + i)) != RateLimiter.ADMITTED) {
+				limited++;
+			}
+		}
+		// 20k one-off clients in one window, in the default 4 x 32768 counters (1 MiB however many clients)
+		assertThat(limited).isLessThan(200);
+		assertThat(new SlidingWindowSketch(32768, 4).sizeInBytes()).isEqualTo(1024 * 1024);
+	}
+
+	@Test
+	void rejectsMalformedLimits() {
+		assertThatIllegalArgumentException().isThrownBy(() -> limiter(List.of("ipv4/33=1"), List.of()));
+		assertThatIllegalArgumentException().isThrownBy(() -> limiter(List.of("ipx/24=1"), List.of()));
+		assertThatIllegalArgumentException().isThrownBy(() -> limiter(List.of("ipv6/64"), List.of()));
+		assertThatIllegalArgumentException().isThrownBy(() -> limiter(List.of("ipv4/32=0"), List.of()))
+				.withMessageContaining("at least one request");
+		assertThatIllegalArgumentException().isThrownBy(() -> limiter(List.of("ipv6/48=-1"), List.of()));
+	}
+
+	@Test
+	void filterAnswers429WithRetryAfter() throws Exception {
+		RateLimitFilter filter = new RateLimitFilter(limiter(List.of("ipv4/32=1"), List.of()));
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", "/ip");
+		request.setAttribute(ClientAddressFilter.CLIENT_ADDRESS, IpAddress.parse("203.0.113.42"));
+
+		MockHttpServletResponse first = new MockHttpServletResponse();
+		MockFilterChain chain = new MockFilterChain();
+		filter.doFilter(request, first, chain);
+		assertThat(chain.getRequest()).isNotNull();
+
+		MockHttpServletResponse second = new MockHttpServletResponse();
+		MockFilterChain blocked = new MockFilterChain();
+		filter.doFilter(request, second, blocked);
+		assertThat(blocked.getRequest()).isNull();
+		assertThat(second.getStatus()).isEqualTo(429);
+		assertThat(second.getHeader("Retry-After")).isEqualTo("61");
+		assertThat(second.getContentAsString()).isEqualTo("Too many requests\n");
+
+		MockHttpServletRequest asset = new MockHttpServletRequest("GET", "/assets/diagnostic.0123456789abcdef.css");
+		asset.setAttribute(ClientAddressFilter.CLIENT_ADDRESS, IpAddress.parse("203.0.113.42"));
+		MockFilterChain assetChain = new MockFilterChain();
+		filter.doFilter(asset, new MockHttpServletResponse(), assetChain);
+		assertThat(assetChain.getRequest()).isNotNull();
+	}
+
+}
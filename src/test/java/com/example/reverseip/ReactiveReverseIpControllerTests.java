@@ -0,0 +1,90 @@
+package com.example.reverseip;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+		properties = {"spring.main.web-application-type=reactive", "publicip.rate-limit.enabled=false"})
+class ReactiveReverseIpControllerTests {
+
+	@Autowired
+	private WebTestClient client;
+
+	@Test
+	void ipTakesTheRightmostUntrustedHop() {
+		client.get().uri("/ip").header("X-Forwarded-For", "198.51.100.7, 203.0.113.42, 127.0.0.1")
+				.exchange()
+				.expectStatus().isOk()
+				.expectHeader().contentType("text/plain;charset=UTF-8")
+				.expectBody(String.class).isEqualTo("203.0.113.42\n");
+	}
+
+	@Test
+	void ptrAndJsonMatchTheServletStack() {
+		client.get().uri("/ptr").header("X-Forwarded-For", "2001:db8::1")
+				.exchange()
+				.expectBody(String.class)
+				.isEqualTo("1.0.0.0.0.0.0.0.0.0.0.0.0.0.0.0.0.0.0.0.0.0.0.0.8.b.d.0.1.0.0.2.ip6.arpa\n");
+		client.get().uri("/").header("X-Forwarded-For", "203.0.113.42").header("Accept", "application/json")
+				.exchange()
+				.expectHeader().valueEquals("Vary", "Accept, User-Agent, Accept-Encoding")
+				.expectBody(String.class)
+				.isEqualTo("{\"ip\":\"203.0.113.42\",\"reversePointer\":\"42.113.0.203.in-addr.arpa\"}\n");
+	}
+
+	@Test
+	void rootServesThePageWithRepeatedHeaders() {
+		String page = client.get().uri("/?payload=full").header("X-Forwarded-For", "203.0.113.42")
+				.header("Accept", "text/html").header("X-Note", "first", "second")
+				.exchange()
+				.expectStatus().isOk()
+				.expectHeader().contentType("text/html;charset=UTF-8")
+				.expectBody(String.class).returnResult().getResponseBody();
+		assertThat(page)
+				.contains("│ Detected IP:        203.0.113.42\n")
+				.contains("│ Query String:       payload=full\n")
+				.contains("│ Protocol:           HTTP/1.1\n")
+				// Netty's client sends names in lower case
+				.contains("│ x-note            : first\n│ x-note            : second\n")
+				.contains("\"x-note\": [\"first\", \"second\"]");
+	}
+
+	@Test
+	void jsonAndAssetsRevalidate() {
+		String etag = client.get().uri("/json").header("X-Forwarded-For", "203.0.113.42")
+				.exchange()
+				.expectStatus().isOk()
+				.expectHeader().valueEquals("Cache-Control", "private, no-cache")
+				.returnResult(String.class).getResponseHeaders().getETag();
+		assertThat(etag).matches("\"[0-9a-f]{32}\"");
+		client.get().uri("/json").header("X-Forwarded-For", "203.0.113.42").header("If-None-Match", etag)
+				.exchange()
+				.expectStatus().isNotModified()
+				.expectBody().isEmpty();
+		client.get().uri("/json").header("X-Forwarded-For", "203.0.113.43").header("If-None-Match", etag)
+				.exchange()
+				.expectStatus().isOk();
+
+		String page = client.get().uri("/").header("Accept", "text/html")
+				.exchange()
+				.expectBody(String.class).returnResult().getResponseBody();
+		Matcher script = Pattern.compile("src=\"(/assets/diagnostic\\.[0-9a-f]{16}\\.js)\"").matcher(page);
+		assertThat(script.find()).isTrue();
+		String assetTag = client.get().uri(script.group(1))
+				.exchange()
+				.expectStatus().isOk()
+				.expectHeader().valueEquals("Cache-Control", "public, max-age=31536000, immutable")
+				.returnResult(String.class).getResponseHeaders().getETag();
+		client.get().uri(script.group(1)).header("If-None-Match", assetTag)
+				.exchange()
+				.expectStatus().isNotModified();
+		client.get().uri("/assets/missing.js").exchange().expectStatus().isNotFound();
+	}
+
+}
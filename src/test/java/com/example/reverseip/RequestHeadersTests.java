@@ -0,0 +1,116 @@
+package com.example.reverseip;
+
+import org.apache.tomcat.util.http.MimeHeaders;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.util.unit.DataSize;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RequestHeadersTests {
+
+	private static final HeaderProperties UNLIMITED = new HeaderProperties(100, DataSize.ofKilobytes(64));
+
+	/** Headers as Tomcat's parser leaves them: names and values pointing into one request buffer. */
+	private static MimeHeaders parsed(String... namesAndValues) {
+		StringBuilder raw = new StringBuilder();
+		for (String part : namesAndValues) {
+			raw.append(part);
+		}
+		byte[] buffer = raw.toString().getBytes(StandardCharsets.ISO_8859_1);
+		MimeHeaders headers = new MimeHeaders();
+		int offset = 0;
+		for (int i = 0; i < namesAndValues.length; i += 2) {
+			int nameLength = namesAndValues[i].length();
+			int valueLength = namesAndValues[i + 1].length();
+			headers.addValue(buffer, offset, nameLength).setBytes(buffer, offset + nameLength, valueLength);
+			offset += nameLength + valueLength;
+		}
+		return headers;
+	}
+
+	private static String render(RequestHeaders headers) {
+		StringBuilder text = new StringBuilder();
+		DiagnosticRenderer.appendHeadersSection(text, headers);
+		JsonWriter json = JsonWriter.unpooled();
+		DiagnosticData.appendHeaders(json, headers);
+		return text + "\n" + json.result();
+	}
+
+	@Test
+	void readsTomcatsHeaderBytesInOrderKeepingRepeats() {
+		RequestHeaders headers = RequestHeaders.capture(parsed("Host", "publicip.org", "Accept", "text/html",
+				"X-Note", "café", "accept", "*/*"), UNLIMITED);
+
+		assertThat(headers.size()).isEqualTo(4);
+		assertThat(headers.omitted()).isZero();
+		assertThat(headers.name(3)).hasToString("accept");
+		assertThat(headers.value(2)).hasToString("café");
+		assertThat(headers.first(3)).isEqualTo(1);
+		assertThat(headers.next(1)).isEqualTo(3);
+		assertThat(headers.next(3)).isEqualTo(-1);
+		assertThat(headers.nameIs(0, "HOST")).isTrue();
+		assertThat(headers.nameStartsWith(2, "x-")).isTrue();
+	}
+
+	@Test
+	void showsEachRepeatUnderItsFirstNameInTheTextAndAsAListInTheJson() {
+		String rendered = render(RequestHeaders.capture(parsed("Cookie", "a=1", "Accept", "text/html", "X-Note",
+				"a \"quote\"", "accept", "*/*", "cookie", "b=2"), UNLIMITED));
+
+		// The same lines as the page's script writes from the JSON
+		assertThat(rendered)
+				.contains("│ Cookie            : a=1\n│ Cookie            : b=2\n│ Accept            : text/html\n"
+						+ "│ Accept            : */*\n│ X-Note            : a \"quote\"\n")
+				.contains("\"Cookie\": [\"a=1\", \"b=2\"],\n    \"Accept\": [\"text/html\", \"*/*\"],\n"
+						+ "    \"X-Note\": \"a \\\"quote\\\"\"\n  },\n")
+				.doesNotContain("more not shown")
+				.doesNotContain("headersOmitted");
+	}
+
+	@Test
+	void redactsTheHistoryCookieAsItIsTaken() {
+		RequestHeaders headers = RequestHeaders.capture(parsed("cookie",
+				"a=1; publicip_history=0123456789abcdef0123456789abcdef;x_publicip_history=2", "X-Note",
+				"publicip_history=3"), UNLIMITED);
+
+		assertThat(headers.value(0)).hasToString("a=1; publicip_history=(redacted);x_publicip_history=2");
+		assertThat(headers.value(1)).hasToString("publicip_history=3");
+		assertThat(RequestHeaders.redactHistoryCookie("publicip_history=")).hasToString("publicip_history=(redacted)");
+		assertThat(RequestHeaders.redactHistoryCookie("theme=dark")).hasToString("theme=dark");
+	}
+
+	@Test
+	void countsRatherThanKeepsHeadersBeyondTheLimits() {
+		String[] many = new String[2 * 10];
+		for (int i = 0; i < 10; i++) {
+			many[2 * i] = "X-Header-" + i;
+			many[2 * i + 1] = "value";
+		}
+		RequestHeaders byCount = RequestHeaders.capture(parsed(many), new HeaderProperties(4, DataSize.ofKilobytes(64)));
+		assertThat(byCount.size()).isEqualTo(4);
+		assertThat(byCount.omitted()).isEqualTo(6);
+		assertThat(render(byCount)).contains("│ (6 more not shown)\n").contains("  \"headersOmitted\": 6,\n");
+
+		// Everything after the first header that does not fit is left out, even smaller ones
+		RequestHeaders bySize = RequestHeaders.capture(parsed("A", "1234", "B", "x".repeat(100), "C", "1"),
+				new HeaderProperties(100, DataSize.ofBytes(64)));
+		assertThat(bySize.size()).isEqualTo(1);
+		assertThat(bySize.omitted()).isEqualTo(2);
+	}
+
+	@Test
+	void readsTheServletApiWhenNotCapturedByTomcat() {
+		MockHttpServletRequest request = new MockHttpServletRequest("GET", "/");
+		request.addHeader("Accept", "text/html");
+		request.addHeader("Accept", "*/*");
+		request.addHeader("User-Agent", "curl/8.5.0");
+
+		RequestHeaders headers = RequestHeaders.of(request);
+		assertThat(headers.size()).isEqualTo(3);
+		assertThat(headers.value(1)).hasToString("*/*");
+		assertThat(RequestHeaders.of(request)).isSameAs(headers);
+	}
+
+}
@@ -0,0 +1,87 @@
+package com.example.reverseip;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+
+@SpringBootTest(properties = {"publicip.access-log.path=target/test-logs/access.log",
+		"publicip.ptr.resolve=true", "publicip.ptr.timeout=300ms"})
+@AutoConfigureMockMvc
+class ReverseIpControllerPtrTests {
+
+	private static final PtrResolverTests.StubDnsServer dns = startDns();
+
+	@Autowired
+	private MockMvc mvc;
+
+	private static PtrResolverTests.StubDnsServer startDns() {
+		try {
+			return new PtrResolverTests.StubDnsServer(Map.of("42.113.0.203.in-addr.arpa", "host-42.example.net"),
+					"9.100.51.198.in-addr.arpa");
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	@DynamicPropertySource
+	static void nameServer(DynamicPropertyRegistry properties) {
+		properties.add("publicip.ptr.name-servers", () -> "127.0.0.1:" + dns.port());
+	}
+
+	@AfterAll
+	static void stopDns() {
+		dns.close();
+	}
+
+	private static void awaitCompletion(MvcResult result) throws InterruptedException {
+		long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+		while (result.getRequest().isAsyncStarted() && System.nanoTime() < deadline) {
+			Thread.sleep(5);
+		}
+		assertThat(result.getRequest().isAsyncStarted()).as("async request completed").isFalse();
+	}
+
+	@Test
+	void jsonWaitsForTheLookupWithoutHoldingTheRequestThread() throws Exception {
+		long start = System.nanoTime();
+		MvcResult result = mvc.perform(get("/json").header("X-Forwarded-For", "198.51.100.9"))
+				.andExpect(request().asyncStarted())
+				.andReturn();
+		assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofMillis(300));
+
+		awaitCompletion(result);
+		assertThat(result.getResponse().getStatus()).isEqualTo(200);
+		assertThat(result.getResponse().getContentType()).isEqualTo("application/json");
+		assertThat(result.getResponse().getContentAsString())
+				.contains("\"ip\":\"198.51.100.9\"")
+				.contains("\"hostname\":\"(lookup pending)\"");
+	}
+
+	@Test
+	void pageShowsTheHostnameOnceResolvedAndServesCachedLookupsDirectly() throws Exception {
+		MvcResult first = mvc.perform(get("/").header("X-Forwarded-For", "203.0.113.42")
+				.header("User-Agent", "Mozilla/5.0")).andReturn();
+		awaitCompletion(first);
+		assertThat(first.getResponse().getStatus()).isEqualTo(200);
+		assertThat(first.getResponse().getContentAsString()).contains("host-42.example.net");
+
+		MvcResult cached = mvc.perform(get("/json").header("X-Forwarded-For", "203.0.113.42"))
+				.andExpect(request().asyncNotStarted())
+				.andReturn();
+		assertThat(cached.getResponse().getContentAsString()).contains("\"hostname\":\"host-42.example.net\"");
+	}
+}
@@ -0,0 +1,331 @@
+package com.example.reverseip;
+
+import com.aayushatharva.brotli4j.decoder.Decoder;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.assertj.core.api.Assumptions.assumeThat;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(properties = "publicip.access-log.path=target/test-logs/access.log")
+@AutoConfigureMockMvc
+class ReverseIpControllerTests {
+
+	@Autowired
+	private MockMvc mvc;
+
+	@Autowired
+	private MeterRegistry registry;
+
+	@Test
+	void ipReturnsTheBareAddress() throws Exception {
+		mvc.perform(get("/ip").header("X-Forwarded-For", "203.0.113.42"))
+				.andExpect(status().isOk())
+				.andExpect(content().contentType("text/plain;charset=UTF-8"))
+				.andExpect(content().string("203.0.113.42\n"));
+	}
+
+	@Test
+	void ptrReturnsTheReversePointer() throws Exception {
+		mvc.perform(get("/ptr").header("X-Forwarded-For", "203.0.113.42"))
+				.andExpect(content().string("42.113.0.203.in-addr.arpa\n"));
+	}
+
+	@Test
+	void ipIgnoresForwardedForEntriesThatAreNotLiterals() throws Exception {
+		mvc.perform(get("/ip").header("X-Forwarded-For", "attacker.example"))
+				.andExpect(content().string("127.0.0.1\n"));
+	}
+
+	@Test
+	void ipTakesTheRightmostUntrustedHop() throws Exception {
+		mvc.perform(get("/ip").header("X-Forwarded-For", "198.51.100.7, 203.0.113.42, 127.0.0.1"))
+				.andExpect(content().string("203.0.113.42\n"));
+	}
+
+	@Test
+	void ipIgnoresForwardingHeadersFromUntrustedPeers() throws Exception {
+		mvc.perform(get("/ip").header("X-Forwarded-For", "198.51.100.7").with(request -> {
+					request.setRemoteAddr("203.0.113.42");
+					return request;
+				}))
+				.andExpect(content().string("203.0.113.42\n"));
+	}
+
+	@Test
+	void ptrExpandsCompressedIpv6() throws Exception {
+		mvc.perform(get("/ptr").header("X-Forwarded-For", "::1"))
+				.andExpect(content().string("1.0.0.0.0.0.0.0.0.0.0.0.0.0.0.0.0.0.0.0.0.0.0.0.0.0.0.0.0.0.0.0.ip6.arpa\n"));
+	}
+
+	@Test
+	void jsonReturnsACompactDocument() throws Exception {
+		mvc.perform(get("/json").header("X-Forwarded-For", "203.0.113.42"))
+				.andExpect(content().contentType("application/json"))
+				.andExpect(content().string(
+						"{\"ip\":\"203.0.113.42\",\"reversePointer\":\"42.113.0.203.in-addr.arpa\"}\n"));
+	}
+
+	@Test
+	void rootServesPlainTextToCurl() throws Exception {
+		mvc.perform(get("/").header("X-Forwarded-For", "203.0.113.42")
+						.header("User-Agent", "curl/8.5.0").header("Accept", "*/*"))
+				.andExpect(content().string("203.0.113.42\n"))
+				.andExpect(header().string("Vary", "Accept, User-Agent, Accept-Encoding"));
+	}
+
+	@Test
+	void rootServesJsonWhenAsked() throws Exception {
+		mvc.perform(get("/").header("X-Forwarded-For", "203.0.113.42").header("Accept", "application/json"))
+				.andExpect(content().contentType("application/json"));
+	}
+
+	@Test
+	void rootServesThePageToBrowsers() throws Exception {
+		mvc.perform(get("/").header("X-Forwarded-For", "203.0.113.42")
+						.header("User-Agent", "Mozilla/5.0").header("Accept", "text/html,*/*;q=0.8"))
+				.andExpect(status().isOk())
+				.andExpect(content().contentType("text/html;charset=UTF-8"))
+				.andExpect(content().string(containsString("\"detected\": \"203.0.113.42\"")));
+	}
+
+	@Test
+	void compactPagesSendBrowsersWithoutJavaScriptToTheFullOne() throws Exception {
+		String refresh = "<noscript><meta http-equiv=\"refresh\" content=\"0; url=?payload=full\"></noscript>";
+		mvc.perform(get("/").param("payload", "compact").header("Accept", "text/html"))
+				.andExpect(content().string(containsString(refresh)))
+				.andExpect(content().string(containsString("<pre id=\"diagnostics\"></pre>")));
+		String full = mvc.perform(get("/").param("payload", "full").header("Accept", "text/html"))
+				.andReturn().getResponse().getContentAsString();
+		assertThat(full).doesNotContain("<noscript>").contains("┌─ HTTP HEADERS");
+	}
+
+	@Test
+	void uncompressedPagesDeclareTheirExactLength() throws Exception {
+		for (String payload : List.of("compact", "full")) {
+			var response = mvc.perform(get("/").param("payload", payload).header("Accept", "text/html")
+					.header("Accept-Encoding", "identity")).andReturn().getResponse();
+			assertThat(response.getHeader("Content-Encoding")).isNull();
+			assertThat(response.getContentLength()).as(payload).isEqualTo(response.getContentAsByteArray().length);
+		}
+	}
+
+	@Test
+	void pageRecordsStageTimingsAndSizes() throws Exception {
+		long pages = registry.get("publicip.response.bytes").tag("endpoint", "page").summary().count();
+		long jsonBuilds = registry.get("publicip.request.stage").tag("stage", "json").timer().count();
+
+		String body = mvc.perform(get("/").param("payload", "full").header("X-Forwarded-For", "203.0.113.42")
+						.header("User-Agent", "Mozilla/5.0").header("Accept", "text/html"))
+				.andReturn().getResponse().getContentAsString();
+
+		assertThat(registry.get("publicip.request.stage").tag("stage", "json").timer().count())
+				.isEqualTo(jsonBuilds + 1);
+		assertThat(registry.get("publicip.request.stage").tag("stage", "sections").timer().count()).isPositive();
+		assertThat(registry.get("publicip.request.stage").tag("stage", "client_ip").timer().count()).isPositive();
+		assertThat(registry.get("publicip.response.bytes").tag("endpoint", "page").summary().count())
+				.isEqualTo(pages + 1);
+		assertThat(registry.get("publicip.response.bytes").tag("endpoint", "page").summary().max())
+				.isGreaterThanOrEqualTo(body.getBytes(StandardCharsets.UTF_8).length);
+		assertThat(registry.get("publicip.request.headers").summary().max()).isGreaterThanOrEqualTo(3);
+	}
+
+	@Test
+	void theHistoryCookieIsNeverEchoed() throws Exception {
+		String token = "0123456789abcdef0123456789abcdef";
+		String cookie = "theme=dark; " + HistoryController.COOKIE + "=" + token;
+		for (MockHttpServletRequestBuilder request : List.of(get("/").header("Accept", "text/html"),
+				get("/").param("payload", "full").header("Accept", "text/html"),
+				get("/").header("Accept", "application/json"), get("/json"))) {
+			request.header("Cookie", cookie);
+			String body = mvc.perform(request).andReturn().getResponse().getContentAsString();
+			assertThat(body).doesNotContain(token);
+			if (body.contains("theme=dark")) {
+				assertThat(body).contains(HistoryController.COOKIE + "=" + RequestHeaders.REDACTED);
+			}
+		}
+	}
+
+	@Test
+	void pageIsGzippedWhenAccepted() throws Exception {
+		byte[] body = mvc.perform(get("/").header("X-Forwarded-For", "203.0.113.42")
+						.header("Accept", "text/html").header("Accept-Encoding", "gzip, deflate"))
+				.andExpect(header().string("Content-Encoding", "gzip"))
+				.andReturn().getResponse().getContentAsByteArray();
+
+		String page = new String(new GZIPInputStream(new ByteArrayInputStream(body)).readAllBytes(),
+				StandardCharsets.UTF_8);
+		assertThat(page).contains("\"detected\": \"203.0.113.42\"").endsWith("</html>\n");
+	}
+
+	@Test
+	void pageIsBrotliEncodedWhenPreferred() throws Exception {
+		assumeThat(Compressor.brotliAvailable()).isTrue();
+		byte[] body = mvc.perform(get("/").header("X-Forwarded-For", "203.0.113.42")
+						.header("Accept", "text/html").header("Accept-Encoding", "gzip, deflate, br"))
+				.andExpect(header().string("Content-Encoding", "br"))
+				.andReturn().getResponse().getContentAsByteArray();
+
+		String page = new String(Decoder.decompress(body).getDecompressedData(), StandardCharsets.UTF_8);
+		assertThat(page).contains("\"detected\": \"203.0.113.42\"");
+	}
+
+	@Test
+	void pageIsNotCompressedWithoutAcceptEncoding() throws Exception {
+		mvc.perform(get("/").header("X-Forwarded-For", "203.0.113.42").header("Accept", "text/html"))
+				.andExpect(header().doesNotExist("Content-Encoding"))
+				.andExpect(content().string(containsString("\"detected\": \"203.0.113.42\"")));
+	}
+
+	@Test
+	void pageLinksImmutableHashedAssets() throws Exception {
+		String page = mvc.perform(get("/").header("Accept", "text/html"))
+				.andReturn().getResponse().getContentAsString();
+		Matcher stylesheet = Pattern.compile("href=\"(/assets/diagnostic\\.[0-9a-f]{16}\\.css)\"").matcher(page);
+		Matcher script = Pattern.compile("src=\"(/assets/diagnostic\\.[0-9a-f]{16}\\.js)\"").matcher(page);
+		assertThat(stylesheet.find()).isTrue();
+		assertThat(script.find()).isTrue();
+		assertThat(page).doesNotContain("<style>").doesNotContain("class Terminal");
+
+		mvc.perform(get(stylesheet.group(1)))
+				.andExpect(status().isOk())
+				.andExpect(content().contentType("text/css;charset=UTF-8"))
+				.andExpect(header().string("Cache-Control", "public, max-age=31536000, immutable"))
+				.andExpect(header().string("Vary", "Accept-Encoding"))
+				.andExpect(content().string(containsString("#00ff00")));
+		String etag = mvc.perform(get(script.group(1)).header("Accept-Encoding", "gzip"))
+				.andExpect(header().string("Content-Encoding", "gzip"))
+				.andExpect(content().contentType("text/javascript;charset=UTF-8"))
+				.andReturn().getResponse().getHeader("ETag");
+		assertThat(etag).matches("\"[0-9a-f]{16}-gz\"");
+		mvc.perform(get(script.group(1)).header("Accept-Encoding", "gzip").header("If-None-Match", etag))
+				.andExpect(status().isNotModified());
+		// The identity variant is a different entity
+		mvc.perform(get(script.group(1)).header("If-None-Match", etag))
+				.andExpect(status().isOk())
+				.andExpect(header().string("ETag", etag.replace("-gz", "")));
+	}
+
+	@Test
+	void ipIsNotModifiedUntilTheAddressChanges() throws Exception {
+		double notModified = registry.get("publicip.response.not_modified").tag("endpoint", "ip").counter().count();
+		String etag = mvc.perform(get("/ip").header("X-Forwarded-For", "203.0.113.42"))
+				.andExpect(header().string("Cache-Control", "private, no-cache"))
+				.andReturn().getResponse().getHeader("ETag");
+		assertThat(etag).matches("\"[0-9a-f]{32}\"");
+
+		mvc.perform(get("/ip").header("X-Forwarded-For", "203.0.113.42").header("If-None-Match", etag))
+				.andExpect(status().isNotModified())
+				.andExpect(header().string("ETag", etag))
+				.andExpect(content().string(""));
+		mvc.perform(get("/ip").header("X-Forwarded-For", "203.0.113.43").header("If-None-Match", etag))
+				.andExpect(status().isOk())
+				.andExpect(content().string("203.0.113.43\n"));
+		assertThat(registry.get("publicip.response.not_modified").tag("endpoint", "ip").counter().count())
+				.isEqualTo(notModified + 1);
+
+		String json = mvc.perform(get("/json").header("X-Forwarded-For", "203.0.113.42"))
+				.andReturn().getResponse().getHeader("ETag");
+		assertThat(json).isNotEqualTo(etag);
+		mvc.perform(get("/json").header("X-Forwarded-For", "203.0.113.42").header("If-None-Match", json))
+				.andExpect(status().isNotModified());
+	}
+
+	@Test
+	void pageRevalidatesWithoutRendering() throws Exception {
+		String etag = mvc.perform(get("/").header("X-Forwarded-For", "203.0.113.42")
+						.header("User-Agent", "Mozilla/5.0").header("Accept", "text/html"))
+				.andExpect(status().isOk())
+				.andReturn().getResponse().getHeader("ETag");
+		assertThat(etag).matches("W/\"[0-9a-f]{32}\"");
+
+		long sections = registry.get("publicip.request.stage").tag("stage", "sections").timer().count();
+		mvc.perform(get("/").header("X-Forwarded-For", "203.0.113.42").header("User-Agent", "Mozilla/5.0")
+						.header("Accept", "text/html").header("Cache-Control", "max-age=0")
+						.header("If-None-Match", etag))
+				.andExpect(status().isNotModified())
+				.andExpect(header().string("Vary", "Accept, User-Agent, Accept-Encoding"));
+		assertThat(registry.get("publicip.request.stage").tag("stage", "sections").timer().count())
+				.isEqualTo(sections);
+
+		// Every header is on the page, so a different one is a different page
+		mvc.perform(get("/").header("X-Forwarded-For", "203.0.113.42").header("User-Agent", "Mozilla/5.0")
+						.header("Accept", "text/html").header("DNT", "1").header("If-None-Match", etag))
+				.andExpect(status().isOk());
+	}
+
+	@Test
+	void unknownAssetsAreNotFound() throws Exception {
+		mvc.perform(get("/assets/diagnostic.0000000000000000.css"))
+				.andExpect(status().isNotFound());
+	}
+
+	@Test
+	void liveStreamsTheDetectedAddress() throws Exception {
+		mvc.perform(get("/live").header("X-Forwarded-For", "203.0.113.42").accept("text/event-stream"))
+				.andExpect(request().asyncStarted())
+				.andExpect(content().contentType("text/event-stream;charset=UTF-8"))
+				.andExpect(content().string(containsString("event: snapshot\ndata: {\"ip\":\"203.0.113.42\"")));
+	}
+
+	@Nested
+	@TestPropertySource(properties = {"publicip.enrichment.path=src/test/resources/enrichment/ip2asn-sample.tsv",
+			"publicip.enrichment.index-path=target/test-enrichment/ip2asn-sample.idx"})
+	class WithEnrichment {
+
+		@Autowired
+		private MockMvc mvc;
+
+		@Test
+		void jsonCarriesTheNetwork() throws Exception {
+			mvc.perform(get("/json").header("X-Forwarded-For", "203.0.113.42"))
+					.andExpect(content().string("{\"ip\":\"203.0.113.42\","
+							+ "\"reversePointer\":\"42.113.0.203.in-addr.arpa\",\"asn\":64500,"
+							+ "\"organization\":\"EXAMPLE-NET Example Networks\",\"country\":\"AU\"}\n"));
+		}
+
+		@Test
+		void fullPageShowsTheNetworkInEveryView() throws Exception {
+			String page = mvc.perform(get("/").param("payload", "full").header("X-Forwarded-For", "203.0.113.42")
+							.header("User-Agent", "Mozilla/5.0").header("Accept", "text/html"))
+					.andExpect(status().isOk())
+					.andReturn().getResponse().getContentAsString();
+
+			// Classic View
+			String classic = page.substring(page.indexOf("<pre id=\"diagnostics\">"), page.indexOf("</pre>"));
+			assertThat(classic).contains("│ ASN:                AS64500\n")
+					.contains("│ Organization:       EXAMPLE-NET Example Networks\n")
+					.contains("│ Country:            AU\n");
+			// The JSON ip object
+			assertThat(page).contains("    \"asn\": 64500,\n")
+					.contains("    \"organization\": \"EXAMPLE-NET Example Networks\",\n")
+					.contains("    \"country\": \"AU\",\n");
+			// The terminal's ip command prints formatted.ipSection
+			Matcher ipSection = Pattern.compile("\"ipSection\": \"(.*?)\",\n").matcher(page);
+			assertThat(ipSection.find()).isTrue();
+			assertThat(ipSection.group(1)).contains("ASN:                AS64500\\n")
+					.contains("Organization:       EXAMPLE-NET Example Networks\\n")
+					.contains("Country:            AU\\n");
+		}
+	}
+
+}
@@ -0,0 +1,67 @@
+package com.example.reverseip;
+
+import org.junit.jupiter.api.Test;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ScratchPoolTests {
+
+	private final AtomicInteger created = new AtomicInteger();
+	private final ScratchPool<StringBuilder> pool = new ScratchPool<>(() -> {
+		created.incrementAndGet();
+		return new StringBuilder();
+	});
+
+	@Test
+	void platformThreadsKeepTheirOwnInstance() {
+		StringBuilder first = pool.acquire();
+		pool.release(first);
+		assertThat(pool.acquire()).isSameAs(first);
+		assertThat(pool.acquire()).isSameAs(first);
+		assertThat(created).hasValue(1);
+	}
+
+	@Test
+	void virtualThreadsShareReleasedInstances() throws Exception {
+		AtomicReference<StringBuilder> first = new AtomicReference<>();
+		Thread.ofVirtual().start(() -> {
+			first.set(pool.acquire());
+			pool.release(first.get());
+		}).join();
+
+		AtomicReference<StringBuilder> second = new AtomicReference<>();
+		Thread.ofVirtual().start(() -> second.set(pool.acquire())).join();
+
+		assertThat(second.get()).isSameAs(first.get());
+		assertThat(created).hasValue(1);
+	}
+
+	@Test
+	void virtualThreadsAllocateWhenThePoolIsEmpty() throws Exception {
+		AtomicReference<StringBuilder> first = new AtomicReference<>();
+		AtomicReference<StringBuilder> second = new AtomicReference<>();
+		Thread.ofVirtual().start(() -> {
+			first.set(pool.acquire());
+			second.set(pool.acquire());
+		}).join();
+
+		assertThat(second.get()).isNotSameAs(first.get());
+		assertThat(created).hasValue(2);
+	}
+
+	@Test
+	void sharedPoolsHandPlatformThreadsBackOnlyReleasedInstances() {
+		ScratchPool<StringBuilder> shared = ScratchPool.shared(() -> {
+			created.incrementAndGet();
+			return new StringBuilder();
+		});
+		StringBuilder first = shared.acquire();
+		assertThat(shared.acquire()).isNotSameAs(first);
+		shared.release(first);
+		assertThat(shared.acquire()).isSameAs(first);
+		assertThat(created).hasValue(2);
+	}
+
+}
@@ -0,0 +1,128 @@
+package com.example.reverseip;
+
+import org.junit.jupiter.api.Test;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TrafficAnalyticsTests {
+
+	private static final long MINUTE = 60_000;
+
+	private final AtomicLong now = new AtomicLong(1_734_533_880_000L);
+
+	private TrafficAnalytics analytics(int window, int capacity, int stripes) {
+		return new TrafficAnalytics(new TrafficProperties(true, Duration.ofMinutes(window), 3, capacity, 10), stripes,
+				now::get);
+	}
+
+	private static List<String> keys(List<TrafficAnalytics.Ranked> ranked) {
+		return ranked.stream().map(TrafficAnalytics.Ranked::key).toList();
+	}
+
+	@Test
+	void countsFamiliesProtocolsAndSchemes() {
+		TrafficAnalytics analytics = analytics(5, 16, 1);
+		analytics.record(IpAddress.parse("203.0.113.42"), "curl/8.5.0", "HTTP/1.1", "https");
+		analytics.record(IpAddress.parse("2001:db8::1"), null, "HTTP/2.0", "https");
+		analytics.record(null, "curl/8.5.0", "SPDY/3", "gopher");
+
+		TrafficAnalytics.Report report = analytics.report();
+		assertThat(report.requests()).isEqualTo(3);
+		assertThat(report.families()).containsEntry("ipv4", 1L).containsEntry("ipv6", 1L);
+		assertThat(report.protocols()).containsEntry("HTTP/1.1", 1L).containsEntry("HTTP/2.0", 1L)
+				.containsEntry("other", 1L).containsEntry("HTTP/1.0", 0L);
+		assertThat(report.schemes()).containsEntry("https", 2L).containsEntry("other", 1L);
+		assertThat(keys(report.userAgents())).containsExactly("curl/8.5.0", "(none)");
+	}
+
+	@Test
+	void ranksClientsPrefixesAndUserAgents() {
+		TrafficAnalytics analytics = analytics(5, 16, 1);
+		for (int i = 0; i < 10; i++) {
+			analytics.record(IpAddress.parse("203.0.113." + (i % 2 == 0 ? 42 : i)), "Mozilla/5.0 (X11; Linux)",
+					"HTTP/1.1", "http");
+		}
+		for (int i = 0; i < 4; i++) {
+			analytics.record(IpAddress.parse("2001:db8:1:" + i + "::1"), "curl/8.5.0", "HTTP/1.1", "http");
+		}
+
+		TrafficAnalytics.Report report = analytics.report();
+		assertThat(report.clients().get(0)).isEqualTo(new TrafficAnalytics.Ranked("203.0.113.42", 5, 0));
+		assertThat(report.clients()).hasSize(3);
+		assertThat(report.prefixes()).containsExactly(new TrafficAnalytics.Ranked("203.0.113.0/24", 10, 0),
+				new TrafficAnalytics.Ranked("2001:db8:1::/48", 4, 0));
+		// Cut to maxUserAgentLength
+		assertThat(keys(report.userAgents())).containsExactly("Mozilla/5.", "curl/8.5.0");
+	}
+
+	@Test
+	void rollsMinutesOutOfTheWindow() {
+		TrafficAnalytics analytics = analytics(3, 16, 2);
+		for (int minute = 0; minute < 5; minute++) {
+			for (int i = 0; i <= minute; i++) {
+				analytics.record(IpAddress.parse("198.51.100." + minute), null, "HTTP/1.1", "http");
+			}
+			now.addAndGet(MINUTE);
+		}
+		now.addAndGet(-MINUTE);
+
+		// Minutes 2, 3 and 4 of 0 to 4
+		TrafficAnalytics.Report report = analytics.report();
+		assertThat(report.perMinute()).extracting(TrafficAnalytics.MinuteCount::requests).containsExactly(3L, 4L, 5L);
+		assertThat(report.requests()).isEqualTo(12);
+		assertThat(keys(report.clients())).containsExactly("198.51.100.4", "198.51.100.3", "198.51.100.2");
+
+		now.addAndGet(10 * MINUTE);
+		assertThat(analytics.report().requests()).isZero();
+		assertThat(analytics.report().clients()).isEmpty();
+	}
+
+	@Test
+	void findsHeavyHittersAmongManyMoreKeysThanItTracks() throws Exception {
+		TrafficAnalytics analytics = analytics(5, 32, 4);
+		List<Thread> threads = new ArrayList<>();
+		for (int t = 0; t < 4; t++) {
+			int thread = t;
+			threads.add(Thread.ofPlatform().start(() -> {
+				for (int i = 0; i < 20_000; i++) {
+					// One in five requests from 192.0.2.7, the rest from 10,000 others
+					IpAddress client = i % 5 == 0 ? IpAddress.parse("192.0.2.7")
+							: IpAddress.ofIpv4(0x0A000000 | (thread * 20_000 + i) % 10_000);
+					analytics.record(client, null, "HTTP/1.1", "http");
+				}
+			}));
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+
+		TrafficAnalytics.Report report = analytics.report();
+		assertThat(report.requests()).isEqualTo(80_000);
+		TrafficAnalytics.Ranked top = report.clients().get(0);
+		assertThat(top.key()).isEqualTo("192.0.2.7");
+		assertThat(top.count() - top.error()).isLessThanOrEqualTo(16_000);
+		assertThat(top.count()).isGreaterThanOrEqualTo(16_000 - report.rankingsSkipped());
+	}
+
+	@Test
+	void spaceSavingNeverUndercountsAndStaysWithinCapacity() {
+		SpaceSaving<Integer> summary = new SpaceSaving<>(16);
+		int[] exact = new int[100];
+		for (int i = 0; i < 5_000; i++) {
+			int key = i % 3 == 0 ? 7 : i % 7 == 0 ? 42 : i % 100;
+			exact[key]++;
+			summary.add(key);
+		}
+		assertThat(summary.size()).isEqualTo(16);
+		for (SpaceSaving.Entry<Integer> entry : summary.top(16)) {
+			assertThat(entry.count()).isGreaterThanOrEqualTo(exact[entry.key()]);
+			assertThat(entry.count() - entry.error()).isLessThanOrEqualTo(exact[entry.key()]);
+		}
+		assertThat(summary.top(2)).extracting(SpaceSaving.Entry::key).containsExactly(7, 42);
+	}
+
+}
@@ -0,0 +1,55 @@
+package com.example.reverseip;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.junit.jupiter.params.provider.ValueSource;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatIllegalArgumentException;
+
+class TrustedProxiesTests {
+
+	private final TrustedProxies proxies = TrustedProxies.of(List.of(
+			"10.0.0.0/8", "192.168.1.0/24", "203.0.113.9", " 2001:db8::/32 ", "::1/128"));
+
+	@ParameterizedTest
+	@CsvSource({
+			"10.0.0.1, true",
+			"10.255.255.255, true",
+			"11.0.0.1, false",
+			"192.168.1.200, true",
+			"192.168.2.1, false",
+			"203.0.113.9, true",
+			"203.0.113.10, false",
+			"2001:db8:1::5, true",
+			"2001:db9::1, false",
+			"::1, true",
+			"::2, false",
+			"::ffff:10.1.2.3, true"
+	})
+	void matchesRanges(String address, boolean trusted) {
+		assertThat(proxies.contains(IpAddress.parse(address))).isEqualTo(trusted);
+	}
+
+	@Test
+	void zeroPrefixMatchesTheWholeFamily() {
+		TrustedProxies all = TrustedProxies.of(List.of("0.0.0.0/0"));
+		assertThat(all.contains(IpAddress.parse("198.51.100.7"))).isTrue();
+		assertThat(all.contains(IpAddress.parse("2001:db8::1"))).isFalse();
+	}
+
+	@Test
+	void emptySetTrustsNothing() {
+		assertThat(TrustedProxies.of(List.of()).contains(IpAddress.parse("127.0.0.1"))).isFalse();
+		assertThat(proxies.contains(null)).isFalse();
+	}
+
+	@ParameterizedTest
+	@ValueSource(strings = {"10.0.0.0/33", "2001:db8::/129", "10.0.0.0/x", "proxy.example/24", "10.0.0/8", ""})
+	void rejectsInvalidRanges(String cidr) {
+		assertThatIllegalArgumentException().isThrownBy(() -> TrustedProxies.of(List.of(cidr)));
+	}
+
+}